@@ -0,0 +1,52 @@
+package com.grandstrand;
+
+/**
+ * BatchResult class reporting the outcome of a ContactService batch operation.
+ * Batches are all-or-nothing: either every item was applied, or none were and
+ * the statuses show which items caused the rejection. Statuses are kept as one
+ * byte per item so large batches produce a compact report.
+ */
+public final class BatchResult {
+    private final byte[] statuses;
+    private final int failureCount;
+    private final boolean applied;
+
+    BatchResult(byte[] statuses, int failureCount, boolean applied) {
+        this.statuses = statuses;
+        this.failureCount = failureCount;
+        this.applied = applied;
+    }
+
+    /**
+     * Checks if the batch was applied
+     * @return true if every item was applied, false if nothing was changed
+     */
+    public boolean isApplied() {
+        return applied;
+    }
+
+    /**
+     * Gets the number of items in the batch
+     * @return The batch size
+     */
+    public int size() {
+        return statuses.length;
+    }
+
+    /**
+     * Gets the status of one item
+     * @param index The position of the item in the batch
+     * @return OK for a valid item, otherwise the reason it was rejected
+     */
+    public ContactStatus getStatus(int index) {
+        return ContactStatus.fromOrdinal(statuses[index]);
+    }
+
+    /**
+     * Gets the number of rejected items
+     * @return The number of items whose status is not OK
+     */
+    public int getFailureCount() {
+        return failureCount;
+    }
+}
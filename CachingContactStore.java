@@ -0,0 +1,268 @@
+package com.grandstrand;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * CachingContactStore class keeping a size-bounded cache of contacts in front of
+ * a slower backing store, such as an OffHeapContactStore opened from a snapshot
+ * or a JournaledContactStore. Reads are read-through: a miss loads the contact
+ * from the backing store and caches it, and an EvictionPolicy (LRU, CLOCK or
+ * Window TinyLFU) picks which contact to drop when the cache is full.
+ * <p>
+ * Writes are write-through: they are applied to the backing store before they
+ * return, and a cached copy is updated or dropped in the same step, so the
+ * cache never serves a value the backing store doesn't hold. New contacts are
+ * not cached until they are read. For batched durability behind the cache, use
+ * a JournaledContactStore as the backing store; it group-commits its writes.
+ * <p>
+ * Misses and writes on one ID are serialized by a lock striped by ID, so
+ * concurrent misses on the same ID make a single backing-store load: the first
+ * thread loads and caches the contact, and the others find it cached. Hits take
+ * no lock; they tell the policy about the access only if its lock is free, so a
+ * busy policy loses a little recency information rather than slowing reads.
+ * Cached contacts are ImmutableContact copies, and get hands out a plain copy
+ * of one, like stores that keep contacts encoded: a later write never changes
+ * a contact returned by get, and changing it doesn't reach the store.
+ */
+public class CachingContactStore implements ContactStore {
+    private static final int STRIPES = 64;
+
+    private final ContactStore backing;
+    private final EvictionPolicy policy;
+    private final ConcurrentHashMap<String, ImmutableContact> cached;
+    // Guards the policy; the set of cached IDs only changes while it is held
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor for a cache evicting by Window TinyLFU
+     * @param backing The store that holds every contact
+     * @param capacity The most contacts to cache
+     */
+    public CachingContactStore(ContactStore backing, int capacity) {
+        this(backing, EvictionPolicy.windowTinyLfu(capacity));
+    }
+
+    /**
+     * Constructor for a cache evicting by a given policy
+     * @param backing The store that holds every contact
+     * @param policy Decides which contacts stay cached; its capacity bounds the cache.
+     *               It must be new and not shared with another cache.
+     */
+    public CachingContactStore(ContactStore backing, EvictionPolicy policy) {
+        if (backing == null || policy == null) {
+            throw new IllegalArgumentException("Store and policy cannot be null");
+        }
+        this.backing = backing;
+        this.policy = policy;
+        this.cached = new ConcurrentHashMap<>(Math.min(policy.capacity(), 1 << 20));
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    private ReentrantLock stripeFor(String contactId) {
+        int h = contactId.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    @Override
+    public Contact get(String contactId) {
+        ImmutableContact contact = cached.get(contactId);
+        if (contact != null) {
+            hits.increment();
+            if (policyLock.tryLock()) {
+                try {
+                    policy.recordAccess(contactId);
+                } finally {
+                    policyLock.unlock();
+                }
+            }
+            return Contact.copyOf(contact);
+        }
+        misses.increment();
+        ReentrantLock stripe = stripeFor(contactId);
+        stripe.lock();
+        try {
+            // Another miss on this ID may have loaded it while this one waited
+            contact = cached.get(contactId);
+            if (contact != null) {
+                return Contact.copyOf(contact);
+            }
+            loads.increment();
+            Contact loaded = backing.get(contactId);
+            if (loaded == null) {
+                return null;
+            }
+            contact = ImmutableContact.copyOf(loaded);
+            cache(contactId, contact);
+            return Contact.copyOf(contact);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    private void cache(String contactId, ImmutableContact contact) {
+        policyLock.lock();
+        try {
+            cached.put(contactId, contact);
+            String victim = policy.add(contactId);
+            if (victim != null) {
+                cached.remove(victim);
+                evictions.increment();
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private void invalidate(String contactId) {
+        policyLock.lock();
+        try {
+            if (cached.remove(contactId) != null) {
+                policy.remove(contactId);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(String contactId) {
+        return cached.containsKey(contactId) || backing.contains(contactId);
+    }
+
+    @Override
+    public boolean insert(Contact contact) {
+        return backing.insert(contact);
+    }
+
+    @Override
+    public Contact remove(String contactId) {
+        ReentrantLock stripe = stripeFor(contactId);
+        stripe.lock();
+        try {
+            Contact removed = backing.remove(contactId);
+            invalidate(contactId);
+            return removed;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public String update(String contactId, ContactField field, String value) {
+        ReentrantLock stripe = stripeFor(contactId);
+        stripe.lock();
+        try {
+            String previous = backing.update(contactId, field, value);
+            if (previous != null) {
+                cached.computeIfPresent(contactId, (id, contact) -> nextVersion(contact, contact.with(field, value)));
+            }
+            return previous;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public String revert(String contactId, ContactField field, String previous) {
+        ReentrantLock stripe = stripeFor(contactId);
+        stripe.lock();
+        try {
+            String replaced = backing.revert(contactId, field, previous);
+            if (replaced != null) {
+                cached.computeIfPresent(contactId, (id, contact) -> {
+                    ImmutableContact reverted = contact.with(field, previous);
+                    reverted.setVersion(ContactStore.previousVersion(contact.getVersion()));
+                    return reverted;
+                });
+            }
+            return replaced;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public ContactStatus patch(String contactId, ContactPatch patch, int expectedVersion) {
+        ReentrantLock stripe = stripeFor(contactId);
+        stripe.lock();
+        try {
+            ContactStatus status = backing.patch(contactId, patch, expectedVersion);
+            if (status == ContactStatus.OK) {
+                cached.computeIfPresent(contactId, (id, contact) -> nextVersion(contact, contact.with(patch)));
+            }
+            return status;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Stamps a changed copy with the version the backing store gave the contact
+     */
+    private static ImmutableContact nextVersion(ImmutableContact current, ImmutableContact next) {
+        next.setVersion(ContactStore.nextVersion(current.getVersion()));
+        return next;
+    }
+
+    @Override
+    public int size() {
+        return backing.size();
+    }
+
+    @Override
+    public void ensureCapacity(int expectedContacts) {
+        backing.ensureCapacity(expectedContacts);
+    }
+
+    /**
+     * Streams the backing store, without loading the contacts into the cache
+     */
+    @Override
+    public Spliterator<Contact> spliterator() {
+        return backing.spliterator();
+    }
+
+    @Override
+    public List<Contact> findByPhone(String phone) {
+        return backing.findByPhone(phone);
+    }
+
+    @Override
+    public List<Contact> findByLastName(String lastName) {
+        return backing.findByLastName(lastName);
+    }
+
+    @Override
+    public List<Contact> findByAddressPrefix(String prefix, int limit) {
+        return backing.findByAddressPrefix(prefix, limit);
+    }
+
+    @Override
+    public List<Contact> findByNamePrefix(String prefix, int limit) {
+        return backing.findByNamePrefix(prefix, limit);
+    }
+
+    @Override
+    public List<Contact> findBySimilarName(String name, int maxDistance, int limit) {
+        return backing.findBySimilarName(name, maxDistance, limit);
+    }
+
+    /**
+     * Reads the cache counters
+     * @return A copy of the hit, miss, load and eviction counts
+     */
+    public ContactCacheStats getStats() {
+        return new ContactCacheStats(hits.sum(), misses.sum(), loads.sum(), evictions.sum(), cached.size());
+    }
+}
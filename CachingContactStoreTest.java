@@ -0,0 +1,210 @@
+package com.grandstrand;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the CachingContactStore class and its eviction policies.
+ * Tests read-through, write-through, eviction order and single-flight loads.
+ */
+public class CachingContactStoreTest {
+    private CountingStore backing;
+
+    /**
+     * CountingStore class counting the reads that reach the backing store, each slowed down a little
+     */
+    private static class CountingStore extends HeapContactStore {
+        private final AtomicInteger gets = new AtomicInteger();
+        private volatile long delayMillis;
+        
+        @Override
+        public Contact get(String contactId) {
+            gets.incrementAndGet();
+            if (delayMillis > 0) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.get(contactId);
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        backing = new CountingStore();
+        for (int i = 0; i < 100; i++) {
+            backing.insert(new Contact(Integer.toString(i), "John", "Doe", "1234567890", "123 Main St"));
+        }
+    }
+
+    @Test
+    public void testReadThrough() {
+        CachingContactStore cache = new CachingContactStore(backing, EvictionPolicy.lru(10));
+        ContactService contactService = new ContactService(cache);
+        
+        assertEquals("John", contactService.getContact("1").getFirstName());
+        assertEquals("John", contactService.getContact("1").getFirstName());
+        assertThrows(IllegalArgumentException.class, () -> contactService.getContact("missing"));
+        
+        ContactCacheStats stats = cache.getStats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+        assertEquals(2, stats.getLoadCount());
+        assertEquals(1, stats.getCachedCount());
+        assertEquals(2, backing.gets.get());
+        assertEquals(100, contactService.getContactCount());
+    }
+
+    @Test
+    public void testWriteThrough() {
+        ContactService contactService = new ContactService(new CachingContactStore(backing, 10));
+        Contact cached = contactService.getContact("1");
+        contactService.updateFirstName("1", "Jane");
+        assertTrue(contactService.updateContact("1", new ContactPatch().lastName("Smith"), 1));
+        
+        assertEquals("John", cached.getFirstName());
+        assertFalse(cached instanceof ImmutableContact);
+        cached.setFirstName("Bob");
+        assertEquals("Jane", contactService.getContact("1").getFirstName());
+        assertEquals("Smith", contactService.getContact("1").getLastName());
+        assertEquals(2, contactService.getContact("1").getVersion());
+        assertEquals("Smith", backing.get("1").getLastName());
+        assertEquals(2, backing.get("1").getVersion());
+        
+        contactService.deleteContact("1");
+        assertFalse(contactService.contactExists("1"));
+        assertNull(backing.get("1"));
+        contactService.addContact(new Contact("1", "Bob", "Doe", "1234567890", "123 Main St"));
+        assertEquals("Bob", contactService.getContact("1").getFirstName());
+    }
+
+    @Test
+    public void testSimilarNameSearchUsesBackingIndex() {
+        AtomicInteger searches = new AtomicInteger();
+        IndexedContactStore indexed = new IndexedContactStore(backing) {
+            @Override
+            public List<Contact> findBySimilarName(String name, int maxDistance, int limit) {
+                searches.incrementAndGet();
+                return super.findBySimilarName(name, maxDistance, limit);
+            }
+        };
+        ContactService contactService = new ContactService(new CachingContactStore(indexed, 10));
+        contactService.updateFirstName("7", "Jane");
+        
+        assertEquals("7", contactService.findBySimilarName("jnae", 2, 10).get(0).getContactId());
+        assertEquals(1, searches.get());
+    }
+
+    @Test
+    public void testLruEvictsLeastRecentlyUsed() {
+        CachingContactStore cache = new CachingContactStore(backing, EvictionPolicy.lru(2));
+        cache.get("1");
+        cache.get("2");
+        cache.get("1");
+        cache.get("3");
+        backing.gets.set(0);
+        
+        cache.get("1");
+        cache.get("3");
+        assertEquals(0, backing.gets.get());
+        cache.get("2");
+        assertEquals(1, backing.gets.get());
+        assertEquals(2, cache.getStats().getEvictionCount());
+    }
+
+    @Test
+    public void testClockGivesReferencedIdsASecondChance() {
+        EvictionPolicy clock = EvictionPolicy.clock(3);
+        assertNull(clock.add("a"));
+        assertNull(clock.add("b"));
+        assertNull(clock.add("c"));
+        clock.recordAccess("a");
+        
+        assertEquals("b", clock.add("d"));
+        assertEquals("c", clock.add("e"));
+        clock.remove("a");
+        assertNull(clock.add("f"));
+        assertEquals("f", clock.add("g"));
+    }
+
+    @Test
+    public void testTinyLfuKeepsFrequentIdsThroughAScan() {
+        CachingContactStore cache = new CachingContactStore(backing, EvictionPolicy.windowTinyLfu(20));
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 10; i++) {
+                cache.get(Integer.toString(i));
+            }
+        }
+        for (int i = 10; i < 100; i++) {
+            cache.get(Integer.toString(i));
+        }
+        backing.gets.set(0);
+        
+        for (int i = 0; i < 10; i++) {
+            cache.get(Integer.toString(i));
+        }
+        assertEquals(0, backing.gets.get());
+        assertTrue(cache.getStats().getCachedCount() <= 20);
+    }
+
+    @Test
+    public void testCacheNeverExceedsCapacity() {
+        for (EvictionPolicy policy : List.of(EvictionPolicy.lru(7), EvictionPolicy.clock(7),
+                EvictionPolicy.windowTinyLfu(7))) {
+            CachingContactStore cache = new CachingContactStore(backing, policy);
+            for (int i = 0; i < 1000; i++) {
+                cache.get(Integer.toString(i * 31 % 100));
+            }
+            
+            assertTrue(cache.getStats().getCachedCount() <= 7);
+            assertEquals(cache.getStats().getCachedCount() + cache.getStats().getEvictionCount(),
+                    cache.getStats().getLoadCount());
+        }
+    }
+
+    @Test
+    public void testConcurrentMissesLoadOnce() throws InterruptedException {
+        CachingContactStore cache = new CachingContactStore(backing, 10);
+        backing.delayMillis = 50;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                assertEquals("John", cache.get("7").getFirstName());
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        
+        assertEquals(1, backing.gets.get());
+        assertEquals(1, cache.getStats().getLoadCount());
+        assertEquals(8, cache.getStats().getHitCount() + cache.getStats().getMissCount());
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new CachingContactStore(null, 10));
+        assertThrows(IllegalArgumentException.class, () -> new CachingContactStore(backing, null));
+        assertThrows(IllegalArgumentException.class, () -> EvictionPolicy.lru(0));
+        assertThrows(IllegalArgumentException.class, () -> EvictionPolicy.clock(-1));
+        assertThrows(IllegalArgumentException.class, () -> EvictionPolicy.windowTinyLfu(0));
+    }
+}
@@ -0,0 +1,78 @@
+package com.grandstrand;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ClockEvictionPolicy class evicting by the CLOCK (second chance) algorithm.
+ * IDs sit in a ring of slots, each with a referenced bit that a hit sets. To
+ * evict, the hand sweeps the ring clearing set bits and stops at the first slot
+ * whose bit was already clear.
+ */
+final class ClockEvictionPolicy implements EvictionPolicy {
+    private final String[] ids;
+    private final boolean[] referenced;
+    private final Map<String, Integer> slots;
+    // Slots freed by remove, reused before the hand has to evict
+    private final int[] freeSlots;
+    private int freeCount;
+    private int used;
+    private int hand;
+
+    ClockEvictionPolicy(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.ids = new String[capacity];
+        this.referenced = new boolean[capacity];
+        this.slots = new HashMap<>(capacity * 4 / 3 + 1);
+        this.freeSlots = new int[capacity];
+    }
+
+    @Override
+    public int capacity() {
+        return ids.length;
+    }
+
+    @Override
+    public void recordAccess(String contactId) {
+        Integer slot = slots.get(contactId);
+        if (slot != null) {
+            referenced[slot] = true;
+        }
+    }
+
+    @Override
+    public String add(String contactId) {
+        String victim = null;
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else if (used < ids.length) {
+            slot = used++;
+        } else {
+            while (referenced[hand]) {
+                referenced[hand] = false;
+                hand = (hand + 1) % ids.length;
+            }
+            slot = hand;
+            hand = (hand + 1) % ids.length;
+            victim = ids[slot];
+            slots.remove(victim);
+        }
+        ids[slot] = contactId;
+        referenced[slot] = false;
+        slots.put(contactId, slot);
+        return victim;
+    }
+
+    @Override
+    public void remove(String contactId) {
+        Integer slot = slots.remove(contactId);
+        if (slot != null) {
+            ids[slot] = null;
+            referenced[slot] = false;
+            freeSlots[freeCount++] = slot;
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package com.grandstrand;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * ColumnarContactStore class packing contacts into primitive arrays instead of objects.
+ * Each contact takes one slot: 60 bytes of Latin-1 text in a byte page and one
+ * metadata long (phone number and field lengths, see ContactRecordLayout) in a
+ * long page, plus an int version stamp. The ID index is an open-addressing int
+ * table of slot numbers, so a contact costs about 72 bytes plus 5-11 bytes of
+ * index, versus 250+ bytes as a
+ * Contact with five Strings. Pages hold 65536 slots each, so the store grows
+ * without copying its data and is not limited by the maximum array size.
+ * <p>
+ * Contact objects are created on demand: get returns a new copy each time, and
+ * changing that copy does not change the store. Contacts whose text doesn't fit
+ * Latin-1 are kept as Contact objects on the side. Reads share a read lock and
+ * writes take the write lock.
+ */
+public class ColumnarContactStore implements ContactStore {
+    private static final int PAGE_SHIFT = 16;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int MIN_INDEX_CAPACITY = 16;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private byte[][] textPages = new byte[0][];
+    private long[][] metaPages = new long[0][];
+    private int[][] versionPages = new int[0][];
+    private int slotCount;
+    private int[] freeSlots = new int[MIN_INDEX_CAPACITY];
+    private int freeCount;
+    private final Map<Integer, Contact> wideContacts = new HashMap<>();
+    // Each entry is a slot number plus one; zero marks an empty entry
+    private int[] index;
+    private int size;
+
+    /**
+     * Constructor for an empty store
+     */
+    public ColumnarContactStore() {
+        this(0);
+    }
+
+    /**
+     * Constructor that pre-sizes the ID index
+     * @param expectedContacts The number of contacts the store is expected to hold
+     */
+    public ColumnarContactStore(int expectedContacts) {
+        this.index = new int[indexCapacityFor(expectedContacts)];
+    }
+
+    @Override
+    public Contact get(String contactId) {
+        lock.readLock().lock();
+        try {
+            int position = position(contactId);
+            return position < 0 ? null : materialize(index[position] - 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(String contactId) {
+        lock.readLock().lock();
+        try {
+            return position(contactId) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean insert(Contact contact) {
+        lock.writeLock().lock();
+        try {
+            if (position(contact.getContactId()) >= 0) {
+                return false;
+            }
+            if (size + 1 > index.length / 4 * 3) {
+                resizeIndex(index.length * 2);
+            }
+            int slot = allocateSlot();
+            if (ContactRecordLayout.isLatin1(contact)) {
+                byte[] text = textPages[slot >>> PAGE_SHIFT];
+                int offset = (slot & PAGE_MASK) * ContactRecordLayout.TEXT_BYTES;
+                writeText(text, offset + ContactRecordLayout.ID_OFFSET, contact.getContactId());
+                writeText(text, offset + ContactRecordLayout.FIRST_NAME_OFFSET, contact.getFirstName());
+                writeText(text, offset + ContactRecordLayout.LAST_NAME_OFFSET, contact.getLastName());
+                writeText(text, offset + ContactRecordLayout.ADDRESS_OFFSET, contact.getAddress());
+                setMeta(slot, ContactRecordLayout.meta(contact));
+            } else {
+                wideContacts.put(slot, copy(contact));
+                setMeta(slot, ContactRecordLayout.LIVE | ContactRecordLayout.WIDE);
+            }
+            setVersion(slot, contact.getVersion());
+            addToIndex(slot, contact.getContactId().hashCode());
+            size++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Contact remove(String contactId) {
+        lock.writeLock().lock();
+        try {
+            int position = position(contactId);
+            if (position < 0) {
+                return null;
+            }
+            int slot = index[position] - 1;
+            Contact removed = materialize(slot);
+            removeFromIndex(position);
+            wideContacts.remove(slot);
+            setMeta(slot, 0L);
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = slot;
+            size--;
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String update(String contactId, ContactField field, String value) {
+        return set(contactId, field, value, ContactStore::nextVersion);
+    }
+
+    @Override
+    public String revert(String contactId, ContactField field, String previous) {
+        return set(contactId, field, previous, ContactStore::previousVersion);
+    }
+
+    private String set(String contactId, ContactField field, String value, IntUnaryOperator version) {
+        lock.writeLock().lock();
+        try {
+            int position = position(contactId);
+            if (position < 0) {
+                return null;
+            }
+            int slot = index[position] - 1;
+            String previous = updateSlot(slot, field, value);
+            setVersion(slot, version.applyAsInt(version(slot)));
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public ContactStatus patch(String contactId, ContactPatch patch, int expectedVersion) {
+        lock.writeLock().lock();
+        try {
+            int position = position(contactId);
+            if (position < 0) {
+                return ContactStatus.NOT_FOUND;
+            }
+            int slot = index[position] - 1;
+            if (expectedVersion != ANY_VERSION && version(slot) != expectedVersion) {
+                return ContactStatus.VERSION_CONFLICT;
+            }
+            for (ContactField field : ContactField.values()) {
+                String value = patch.get(field);
+                if (value != null) {
+                    updateSlot(slot, field, value);
+                }
+            }
+            setVersion(slot, ContactStore.nextVersion(version(slot)));
+            return ContactStatus.OK;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void ensureCapacity(int expectedContacts) {
+        lock.writeLock().lock();
+        try {
+            int capacity = indexCapacityFor(expectedContacts);
+            if (capacity > index.length) {
+                resizeIndex(capacity);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Spliterator<Contact> spliterator() {
+        lock.readLock().lock();
+        try {
+            return new SlotSpliterator(this::readSlots, 0, slotCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a copy of each live contact in a slot range to a list while holding the read lock
+     */
+    private void readSlots(int from, int to, List<Contact> out) {
+        lock.readLock().lock();
+        try {
+            for (int slot = from; slot < to; slot++) {
+                if ((meta(slot) & ContactRecordLayout.LIVE) != 0) {
+                    out.add(materialize(slot));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the index entry for a contact ID
+     * @return The position in the index, or -1 if the ID isn't stored
+     */
+    private int position(String contactId) {
+        int mask = index.length - 1;
+        for (int i = ContactRecordLayout.spread(contactId.hashCode()) & mask; ; i = (i + 1) & mask) {
+            int entry = index[i];
+            if (entry == 0) {
+                return -1;
+            }
+            if (idEquals(entry - 1, contactId)) {
+                return i;
+            }
+        }
+    }
+
+    private boolean idEquals(int slot, String contactId) {
+        long meta = meta(slot);
+        if ((meta & ContactRecordLayout.WIDE) != 0) {
+            return wideContacts.get(slot).getContactId().equals(contactId);
+        }
+        int length = ContactRecordLayout.idLength(meta);
+        if (length != contactId.length()) {
+            return false;
+        }
+        byte[] text = textPages[slot >>> PAGE_SHIFT];
+        int offset = (slot & PAGE_MASK) * ContactRecordLayout.TEXT_BYTES + ContactRecordLayout.ID_OFFSET;
+        for (int i = 0; i < length; i++) {
+            if ((text[offset + i] & 0xFF) != contactId.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes String.hashCode of a slot's ID without creating the String;
+     * for Latin-1 text the byte values are the char values
+     */
+    private int idHash(int slot) {
+        long meta = meta(slot);
+        if ((meta & ContactRecordLayout.WIDE) != 0) {
+            return wideContacts.get(slot).getContactId().hashCode();
+        }
+        byte[] text = textPages[slot >>> PAGE_SHIFT];
+        int offset = (slot & PAGE_MASK) * ContactRecordLayout.TEXT_BYTES + ContactRecordLayout.ID_OFFSET;
+        int hash = 0;
+        for (int i = 0, length = ContactRecordLayout.idLength(meta); i < length; i++) {
+            hash = 31 * hash + (text[offset + i] & 0xFF);
+        }
+        return hash;
+    }
+
+    private void addToIndex(int slot, int hash) {
+        int mask = index.length - 1;
+        int i = ContactRecordLayout.spread(hash) & mask;
+        while (index[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        index[i] = slot + 1;
+    }
+
+    /**
+     * Empties an index entry and shifts later entries of the probe run back,
+     * so lookups never need tombstones
+     */
+    private void removeFromIndex(int position) {
+        int mask = index.length - 1;
+        int hole = position;
+        index[hole] = 0;
+        for (int i = (hole + 1) & mask; index[i] != 0; i = (i + 1) & mask) {
+            int home = ContactRecordLayout.spread(idHash(index[i] - 1)) & mask;
+            // The entry may move back only if the hole lies between its home and where it sits
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                index[hole] = index[i];
+                index[i] = 0;
+                hole = i;
+            }
+        }
+    }
+
+    private void resizeIndex(int capacity) {
+        int[] old = index;
+        index = new int[capacity];
+        for (int entry : old) {
+            if (entry != 0) {
+                addToIndex(entry - 1, idHash(entry - 1));
+            }
+        }
+    }
+
+    private static int indexCapacityFor(int expectedContacts) {
+        int capacity = MIN_INDEX_CAPACITY;
+        while (capacity / 4 * 3 < expectedContacts && capacity < (1 << 30)) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    /**
+     * Changes one field of a live slot. Called with the write lock held.
+     * @return The previous value of the field
+     */
+    private String updateSlot(int slot, ContactField field, String value) {
+        long meta = meta(slot);
+        if ((meta & ContactRecordLayout.WIDE) != 0) {
+            Contact contact = wideContacts.get(slot);
+            String previous = field.get(contact);
+            field.set(contact, value);
+            return previous;
+        }
+        if (field == ContactField.PHONE) {
+            setMeta(slot, (meta & ~ContactRecordLayout.PHONE_MASK) | ContactRecordLayout.encodePhone(value));
+            return ContactRecordLayout.decodePhone(meta);
+        }
+        if (!ContactRecordLayout.isLatin1(value)) {
+            // The new value needs two bytes per character; move the whole contact to the side map
+            Contact contact = materialize(slot);
+            String previous = field.get(contact);
+            field.set(contact, value);
+            wideContacts.put(slot, contact);
+            setMeta(slot, ContactRecordLayout.LIVE | ContactRecordLayout.WIDE);
+            return previous;
+        }
+        byte[] text = textPages[slot >>> PAGE_SHIFT];
+        int offset = (slot & PAGE_MASK) * ContactRecordLayout.TEXT_BYTES + ContactRecordLayout.offset(field);
+        int shift = ContactRecordLayout.lengthShift(field);
+        String previous = readText(text, offset, (int) ((meta & ContactRecordLayout.lengthMask(field)) >>> shift));
+        writeText(text, offset, value);
+        setMeta(slot, (meta & ~ContactRecordLayout.lengthMask(field)) | (long) value.length() << shift);
+        return previous;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        int slot = slotCount++;
+        int page = slot >>> PAGE_SHIFT;
+        if (page == textPages.length) {
+            textPages = Arrays.copyOf(textPages, page + 1);
+            metaPages = Arrays.copyOf(metaPages, page + 1);
+            versionPages = Arrays.copyOf(versionPages, page + 1);
+            textPages[page] = new byte[PAGE_SIZE * ContactRecordLayout.TEXT_BYTES];
+            metaPages[page] = new long[PAGE_SIZE];
+            versionPages[page] = new int[PAGE_SIZE];
+        }
+        return slot;
+    }
+
+    private long meta(int slot) {
+        return metaPages[slot >>> PAGE_SHIFT][slot & PAGE_MASK];
+    }
+
+    private void setMeta(int slot, long meta) {
+        metaPages[slot >>> PAGE_SHIFT][slot & PAGE_MASK] = meta;
+    }
+
+    private int version(int slot) {
+        return versionPages[slot >>> PAGE_SHIFT][slot & PAGE_MASK];
+    }
+
+    private void setVersion(int slot, int version) {
+        versionPages[slot >>> PAGE_SHIFT][slot & PAGE_MASK] = version;
+    }
+
+    private Contact materialize(int slot) {
+        Contact contact = readContact(slot);
+        contact.setVersion(version(slot));
+        return contact;
+    }
+
+    private Contact readContact(int slot) {
+        long meta = meta(slot);
+        if ((meta & ContactRecordLayout.WIDE) != 0) {
+            return copy(wideContacts.get(slot));
+        }
+        byte[] text = textPages[slot >>> PAGE_SHIFT];
+        int offset = (slot & PAGE_MASK) * ContactRecordLayout.TEXT_BYTES;
+        return new Contact(
+                readText(text, offset + ContactRecordLayout.ID_OFFSET, ContactRecordLayout.idLength(meta)),
+                readText(text, offset + ContactRecordLayout.FIRST_NAME_OFFSET, ContactRecordLayout.firstNameLength(meta)),
+                readText(text, offset + ContactRecordLayout.LAST_NAME_OFFSET, ContactRecordLayout.lastNameLength(meta)),
+                ContactRecordLayout.decodePhone(meta),
+                readText(text, offset + ContactRecordLayout.ADDRESS_OFFSET, ContactRecordLayout.addressLength(meta)));
+    }
+
+    private static Contact copy(Contact contact) {
+        return new Contact(contact.getContactId(), contact.getFirstName(), contact.getLastName(),
+                contact.getPhone(), contact.getAddress());
+    }
+
+    private static String readText(byte[] text, int offset, int length) {
+        return new String(text, offset, length, StandardCharsets.ISO_8859_1);
+    }
+
+    private static void writeText(byte[] text, int offset, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            text[offset + i] = (byte) value.charAt(i);
+        }
+    }
+}
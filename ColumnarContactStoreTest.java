@@ -0,0 +1,172 @@
+package com.grandstrand;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ColumnarContactStore class.
+ * Tests the store through ContactService and against a HashMap of expected contacts.
+ */
+public class ColumnarContactStoreTest {
+    private ContactService contactService;
+
+    @BeforeEach
+    public void setUp() {
+        contactService = new ContactService(new ColumnarContactStore());
+    }
+
+    @Test
+    public void testAddAndGetContact() {
+        contactService.addContact(new Contact("123", "John", "Doe", "1234567890", "123 Main St"));
+        Contact contact = contactService.getContact("123");
+        
+        assertEquals("123", contact.getContactId());
+        assertEquals("John", contact.getFirstName());
+        assertEquals("Doe", contact.getLastName());
+        assertEquals("1234567890", contact.getPhone());
+        assertEquals("123 Main St", contact.getAddress());
+        assertEquals(1, contactService.getContactCount());
+    }
+
+    @Test
+    public void testMaxLengthFieldsAndLeadingZeroPhone() {
+        String maxAddress = "123456789012345678901234567890";
+        contactService.addContact(new Contact("1234567890", "1234567890", "1234567890", "0000000012", maxAddress));
+        Contact contact = contactService.getContact("1234567890");
+        
+        assertEquals("1234567890", contact.getFirstName());
+        assertEquals("1234567890", contact.getLastName());
+        assertEquals("0000000012", contact.getPhone());
+        assertEquals(maxAddress, contact.getAddress());
+    }
+
+    @Test
+    public void testEmptyIdIsDistinctFromMissing() {
+        contactService.addContact(new Contact("", "John", "Doe", "1234567890", "123 Main St"));
+        assertTrue(contactService.contactExists(""));
+        assertFalse(contactService.contactExists("0"));
+    }
+
+    @Test
+    public void testReturnedContactIsACopy() {
+        contactService.addContact(new Contact("123", "John", "Doe", "1234567890", "123 Main St"));
+        contactService.getContact("123").setFirstName("Jane");
+        
+        assertEquals("John", contactService.getContact("123").getFirstName());
+    }
+
+    @Test
+    public void testUpdateFields() {
+        contactService.addContact(new Contact("123", "John", "Doe", "1234567890", "123 Main St"));
+        contactService.updateFirstName("123", "Jo");
+        contactService.updateLastName("123", "Smithson");
+        contactService.updatePhone("123", "0987654321");
+        contactService.updateAddress("123", "9 Elm");
+        
+        Contact contact = contactService.getContact("123");
+        assertEquals("Jo", contact.getFirstName());
+        assertEquals("Smithson", contact.getLastName());
+        assertEquals("0987654321", contact.getPhone());
+        assertEquals("9 Elm", contact.getAddress());
+    }
+
+    @Test
+    public void testNonLatin1Contacts() {
+        contactService.addContact(new Contact("\u4e00\u4e8c", "\u674e", "Doe", "1234567890", "123 Main St"));
+        contactService.addContact(new Contact("456", "Jane", "Smith", "0987654321", "456 Oak Ave"));
+        contactService.updateLastName("456", "\u0160midt");
+        
+        assertEquals("\u674e", contactService.getContact("\u4e00\u4e8c").getFirstName());
+        assertEquals("\u0160midt", contactService.getContact("456").getLastName());
+        assertEquals("0987654321", contactService.getContact("456").getPhone());
+        
+        contactService.deleteContact("\u4e00\u4e8c");
+        assertFalse(contactService.contactExists("\u4e00\u4e8c"));
+        assertEquals(1, contactService.getContactCount());
+    }
+
+    @Test
+    public void testDuplicateAndMissingIds() {
+        contactService.addContact(new Contact("123", "John", "Doe", "1234567890", "123 Main St"));
+        
+        assertThrows(IllegalArgumentException.class, () -> {
+            contactService.addContact(new Contact("123", "Jane", "Smith", "0987654321", "456 Oak Ave"));
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            contactService.getContact("456");
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            contactService.updatePhone("456", "0987654321");
+        });
+    }
+
+    @Test
+    public void testRandomOperationsMatchHashMap() {
+        Map<String, String> expectedPhones = new HashMap<>();
+        Random random = new Random(42);
+        
+        for (int i = 0; i < 200000; i++) {
+            String contactId = Integer.toString(random.nextInt(20000));
+            String phone = String.format("%010d", random.nextInt(1000000000));
+            int operation = random.nextInt(3);
+            if (operation == 0 && !expectedPhones.containsKey(contactId)) {
+                contactService.addContact(new Contact(contactId, "John", "Doe", phone, "123 Main St"));
+                expectedPhones.put(contactId, phone);
+            } else if (operation == 1 && expectedPhones.remove(contactId) != null) {
+                contactService.deleteContact(contactId);
+            } else if (operation == 2 && expectedPhones.containsKey(contactId)) {
+                contactService.updatePhone(contactId, phone);
+                expectedPhones.put(contactId, phone);
+            }
+        }
+        
+        assertEquals(expectedPhones.size(), contactService.getContactCount());
+        for (int i = 0; i < 20000; i++) {
+            String contactId = Integer.toString(i);
+            String phone = expectedPhones.get(contactId);
+            assertEquals(phone != null, contactService.contactExists(contactId));
+            if (phone != null) {
+                assertEquals(phone, contactService.getContact(contactId).getPhone());
+            }
+        }
+    }
+
+    @Test
+    public void testParallelQuerySeesEveryContactOnce() {
+        int count = 5000;
+        for (int i = 0; i < count; i++) {
+            contactService.addContact(new Contact(Integer.toString(i), "John", "Doe", "1234567890", "123 Main St"));
+        }
+        contactService.deleteContact("7");
+        
+        Map<String, Long> seen = contactService.query(new ContactQuery()).parallel()
+                .collect(Collectors.groupingBy(Contact::getContactId, Collectors.counting()));
+        assertEquals(count - 1, seen.size());
+        assertFalse(seen.containsKey("7"));
+        assertTrue(seen.values().stream().allMatch(n -> n == 1));
+    }
+
+    @Test
+    public void testPatchAndVersions() {
+        contactService.addContact(new Contact("123", "John", "Doe", "1234567890", "123 Main St"));
+        contactService.updatePhone("123", "0987654321");
+        assertEquals(1, contactService.getContact("123").getVersion());
+        
+        assertFalse(contactService.updateContact("123", new ContactPatch().firstName("Jane"), 0));
+        assertTrue(contactService.updateContact("123",
+                new ContactPatch().firstName("Jane").lastName("\u674e").address("9 Elm Ave"), 1));
+        Contact contact = contactService.getContact("123");
+        assertEquals("Jane", contact.getFirstName());
+        assertEquals("\u674e", contact.getLastName());
+        assertEquals("0987654321", contact.getPhone());
+        assertEquals("9 Elm Ave", contact.getAddress());
+        assertEquals(2, contact.getVersion());
+    }
+}
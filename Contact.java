@@ -2,7 +2,7 @@ package com.grandstrand;
 
 /**
  * Contact class representing a contact with unique ID, first name, last name, phone, and address.
- * All fields are required and have specific validation constraints.
+ * All fields are required and have specific validation constraints, enforced by ContactValidator.
  */
 public class Contact {
     private final String contactId;
@@ -10,6 +10,7 @@ public class Contact {
     private String lastName;
     private String phone;
     private String address;
+    private int version;
 
     /**
      * Constructor for Contact class
@@ -20,30 +21,11 @@ public class Contact {
      * @param address Address (max 30 characters, cannot be null)
      */
     public Contact(String contactId, String firstName, String lastName, String phone, String address) {
-        // Validate contactId
-        if (contactId == null || contactId.length() > 10) {
-            throw new IllegalArgumentException("Contact ID cannot be null and must be 10 characters or less");
-        }
-        
-        // Validate firstName
-        if (firstName == null || firstName.length() > 10) {
-            throw new IllegalArgumentException("First name cannot be null and must be 10 characters or less");
-        }
-        
-        // Validate lastName
-        if (lastName == null || lastName.length() > 10) {
-            throw new IllegalArgumentException("Last name cannot be null and must be 10 characters or less");
-        }
-        
-        // Validate phone
-        if (phone == null || phone.length() != 10 || !phone.matches("\\d{10}")) {
-            throw new IllegalArgumentException("Phone must be exactly 10 digits and cannot be null");
-        }
-        
-        // Validate address
-        if (address == null || address.length() > 30) {
-            throw new IllegalArgumentException("Address cannot be null and must be 30 characters or less");
-        }
+        ContactValidator.requireContactId(contactId);
+        ContactValidator.requireFirstName(firstName);
+        ContactValidator.requireLastName(lastName);
+        ContactValidator.requirePhone(phone);
+        ContactValidator.requireAddress(address);
         
         this.contactId = contactId;
         this.firstName = firstName;
@@ -73,32 +55,68 @@ public class Contact {
         return address;
     }
 
+    /**
+     * Gets the version stamp the store gave this contact when it was read.
+     * It goes up by one with every update or patch made through a ContactStore,
+     * and is passed back to ContactService.updateContact to detect changes made
+     * by someone else in between.
+     * @return The version stamp
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    void setVersion(int version) {
+        this.version = version;
+    }
+
+    /**
+     * Gets a plain copy of a contact, with the same version
+     * @param contact The contact to copy
+     * @return A new Contact whose setters work, even if the contact is an ImmutableContact
+     */
+    static Contact copyOf(Contact contact) {
+        Contact copy = new Contact(contact.getContactId(), contact.getFirstName(), contact.getLastName(),
+                contact.getPhone(), contact.getAddress());
+        copy.setVersion(contact.getVersion());
+        return copy;
+    }
+
+    /**
+     * Gets a plain copy of a contact with one field changed, for stores that
+     * replace the stored contact on an update instead of changing it
+     * @param contact The contact to copy
+     * @param field The field to change
+     * @param value The new value
+     * @param version The version of the copy
+     * @return The changed copy
+     * @throws IllegalArgumentException if the value is invalid for the field
+     */
+    static Contact copyWith(Contact contact, ContactField field, String value, int version) {
+        Contact copy = copyOf(contact);
+        field.set(copy, value);
+        copy.setVersion(version);
+        return copy;
+    }
+
     // Setters (contactId is not updatable)
     public void setFirstName(String firstName) {
-        if (firstName == null || firstName.length() > 10) {
-            throw new IllegalArgumentException("First name cannot be null and must be 10 characters or less");
-        }
+        ContactValidator.requireFirstName(firstName);
         this.firstName = firstName;
     }
 
     public void setLastName(String lastName) {
-        if (lastName == null || lastName.length() > 10) {
-            throw new IllegalArgumentException("Last name cannot be null and must be 10 characters or less");
-        }
+        ContactValidator.requireLastName(lastName);
         this.lastName = lastName;
     }
 
     public void setPhone(String phone) {
-        if (phone == null || phone.length() != 10 || !phone.matches("\\d{10}")) {
-            throw new IllegalArgumentException("Phone must be exactly 10 digits and cannot be null");
-        }
+        ContactValidator.requirePhone(phone);
         this.phone = phone;
     }
 
     public void setAddress(String address) {
-        if (address == null || address.length() > 30) {
-            throw new IllegalArgumentException("Address cannot be null and must be 30 characters or less");
-        }
+        ContactValidator.requireAddress(address);
         this.address = address;
     }
 }
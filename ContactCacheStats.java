@@ -0,0 +1,77 @@
+package com.grandstrand;
+
+/**
+ * ContactCacheStats class holding a copy of a CachingContactStore's counters
+ * taken at one moment.
+ */
+public final class ContactCacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long loadCount;
+    private final long evictionCount;
+    private final int cachedCount;
+
+    ContactCacheStats(long hitCount, long missCount, long loadCount, long evictionCount, int cachedCount) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadCount = loadCount;
+        this.evictionCount = evictionCount;
+        this.cachedCount = cachedCount;
+    }
+
+    /**
+     * Gets the number of reads served from the cache
+     * @return The hit count
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Gets the number of reads that did not find the contact cached
+     * @return The miss count
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Gets the number of reads passed to the backing store. This is lower than
+     * the miss count when concurrent misses on one ID share a single load.
+     * @return The load count
+     */
+    public long getLoadCount() {
+        return loadCount;
+    }
+
+    /**
+     * Gets the number of contacts dropped from the cache to stay within its capacity
+     * @return The eviction count
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Gets the number of contacts in the cache
+     * @return The cached count
+     */
+    public int getCachedCount() {
+        return cachedCount;
+    }
+
+    /**
+     * Gets the share of reads served from the cache
+     * @return Hits divided by hits plus misses, or 0 before the first read
+     */
+    public double getHitRate() {
+        long reads = hitCount + missCount;
+        return reads == 0 ? 0 : (double) hitCount / reads;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d misses=%d loads=%d evictions=%d cached=%d hitRate=%.3f",
+                hitCount, missCount, loadCount, evictionCount, cachedCount, getHitRate());
+    }
+}
@@ -0,0 +1,80 @@
+package com.grandstrand;
+
+/**
+ * ContactChange class describing one mutation published by a ContactChangeFeed.
+ * Changes carry a sequence number: every change gets the next number, and two
+ * changes to the same contact are numbered in the order they were applied.
+ * <p>
+ * An ADD carries every field of the new contact, a DELETE every field of the
+ * removed one, and an UPDATE only the fields it changed (one for a field update,
+ * one or more for a patch). Changes are immutable.
+ */
+public final class ContactChange {
+    private static final ContactField[] FIELDS = ContactField.values();
+
+    /**
+     * Type enum for the kinds of change
+     */
+    public enum Type {
+        ADD,
+        DELETE,
+        UPDATE
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final String contactId;
+    // Indexed by field ordinal; null means the change doesn't carry the field
+    private final String[] values;
+
+    ContactChange(long sequence, Type type, String contactId, String[] values) {
+        this.sequence = sequence;
+        this.type = type;
+        this.contactId = contactId;
+        this.values = values;
+    }
+
+    /**
+     * Gets the field values of a contact, in field order
+     */
+    static String[] valuesOf(Contact contact) {
+        String[] values = new String[FIELDS.length];
+        for (ContactField field : FIELDS) {
+            values[field.ordinal()] = field.get(contact);
+        }
+        return values;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getContactId() {
+        return contactId;
+    }
+
+    /**
+     * Gets the value of a field: the new value for ADD and UPDATE, the removed value for DELETE
+     * @param field The field
+     * @return The value, or null if this change doesn't carry the field
+     */
+    public String get(ContactField field) {
+        return values[field.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder().append('#').append(sequence).append(' ').append(type)
+                .append(' ').append(contactId);
+        for (ContactField field : FIELDS) {
+            if (values[field.ordinal()] != null) {
+                out.append(' ').append(field).append('=').append(values[field.ordinal()]);
+            }
+        }
+        return out.toString();
+    }
+}
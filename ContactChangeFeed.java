@@ -0,0 +1,237 @@
+package com.grandstrand;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * ContactChangeFeed class publishing the adds, deletes and updates a
+ * ContactService makes, so other systems can follow them instead of re-reading
+ * contacts. Pass one to the ContactService constructor to turn it on; a service
+ * without one skips all of it. Each subscriber tails the feed from the point it
+ * subscribed, taking changes in batches with poll.
+ * <p>
+ * Changes are kept in a fixed-size ring. Publishing claims the next sequence
+ * number and stores the change in its slot, overwriting the change one ring
+ * length older; it never waits for subscribers, so a slow subscriber cannot
+ * slow down the service. A subscriber that falls more than the ring's capacity
+ * behind has missed changes: poll reports it by throwing, and the subscriber
+ * has to re-read the contacts it mirrors and subscribe again. getLag tells a
+ * subscriber how close it is to that point.
+ * <p>
+ * The service applies a mutation and publishes it under a lock striped by
+ * contact ID, so changes to one contact are numbered in the order they were
+ * applied. Changes to different contacts are numbered in the order they were
+ * published.
+ */
+public final class ContactChangeFeed {
+    /**
+     * Ring capacity used by the no-argument constructor
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final int STRIPES = 64;
+    // Longest a waiting poll parks between checks of the ring
+    private static final long MAX_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final AtomicReferenceArray<ContactChange> ring;
+    private final int mask;
+    // Next sequence number to hand out; every lower one is claimed, but may not be in the ring yet
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    /**
+     * Subscription class reading the feed in order from the sequence number it
+     * starts at. A subscription is not thread-safe: use one per consuming thread.
+     */
+    public static final class Subscription {
+        private final ContactChangeFeed feed;
+        private long next;
+
+        private Subscription(ContactChangeFeed feed, long next) {
+            this.feed = feed;
+            this.next = next;
+        }
+
+        /**
+         * Gets the sequence number of the next change this subscription will return
+         * @return The next sequence number
+         */
+        public long getPosition() {
+            return next;
+        }
+
+        /**
+         * Gets the number of changes published that this subscription has not read.
+         * Once it is more than the feed's capacity, changes have been missed.
+         * @return The lag in changes
+         */
+        public long getLag() {
+            return feed.nextSequence.get() - next;
+        }
+
+        /**
+         * Passes the changes published since the last poll to a consumer, oldest
+         * first, without waiting
+         * @param sink Receives each change
+         * @param maxChanges The most changes to pass in this call
+         * @return The number of changes passed, 0 if there are none yet
+         * @throws IllegalStateException if changes this subscription had not read
+         *         were overwritten; the subscription is unusable after that
+         */
+        public int poll(Consumer<? super ContactChange> sink, int maxChanges) {
+            int count = 0;
+            while (count < maxChanges) {
+                ContactChange change = feed.ring.getAcquire((int) next & feed.mask);
+                if (change == null || change.getSequence() < next) {
+                    // Not published yet, or claimed by a publisher that hasn't stored it
+                    break;
+                }
+                if (change.getSequence() > next) {
+                    throw new IllegalStateException("Subscriber fell behind: change " + next
+                            + " was overwritten by " + change.getSequence());
+                }
+                sink.accept(change);
+                next++;
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * Passes the changes published since the last poll to a consumer, waiting
+         * until there is at least one or the timeout runs out
+         * @param sink Receives each change
+         * @param maxChanges The most changes to pass in this call
+         * @param timeout How long to wait for a change
+         * @param unit The unit of timeout
+         * @return The number of changes passed, 0 if none was published in time
+         * @throws IllegalStateException if changes this subscription had not read were overwritten
+         */
+        public int poll(Consumer<? super ContactChange> sink, int maxChanges, long timeout, TimeUnit unit) {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            long park = 1000;
+            int count;
+            while ((count = poll(sink, maxChanges)) == 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                // Publishers never signal, so back off from a short park to a longer one
+                LockSupport.parkNanos(Math.min(park, remaining));
+                park = Math.min(park * 2, MAX_PARK_NANOS);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Constructor for a feed keeping the last DEFAULT_CAPACITY changes
+     */
+    public ContactChangeFeed() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor for a feed keeping a given number of changes
+     * @param capacity How many changes a subscriber can fall behind before it
+     *                 misses some; a power of two
+     */
+    public ContactChangeFeed(int capacity) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Gets the number of changes the ring keeps
+     * @return The capacity
+     */
+    public int capacity() {
+        return ring.length();
+    }
+
+    /**
+     * Gets the sequence number the next change will get, which is also the
+     * number of changes published so far
+     * @return The next sequence number
+     */
+    public long getSequence() {
+        return nextSequence.get();
+    }
+
+    /**
+     * Subscribes to the changes published from now on
+     * @return The subscription
+     */
+    public Subscription subscribe() {
+        return new Subscription(this, nextSequence.get());
+    }
+
+    /**
+     * Subscribes from an earlier point, such as where a previous subscription
+     * stopped. Changes older than the ring's capacity are gone; polling from
+     * there throws.
+     * @param sequence The sequence number of the first change to return
+     * @return The subscription
+     * @throws IllegalArgumentException if the sequence number is negative or not published yet
+     */
+    public Subscription subscribe(long sequence) {
+        if (sequence < 0 || sequence > nextSequence.get()) {
+            throw new IllegalArgumentException("Sequence not published: " + sequence);
+        }
+        return new Subscription(this, sequence);
+    }
+
+    /**
+     * Gets the lock that orders the changes to one contact; the service holds it
+     * while it applies a mutation and publishes it
+     */
+    ReentrantLock lockFor(String contactId) {
+        return stripes[stripeIndex(contactId)];
+    }
+
+    private static int stripeIndex(String contactId) {
+        int h = contactId.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    /**
+     * Locks the stripes of every ID in a batch, in stripe order so two batches
+     * cannot deadlock
+     * @return The locked stripes, as a bit per stripe, for unlock
+     */
+    long lockAll(String[] contactIds) {
+        long locked = 0;
+        for (String contactId : contactIds) {
+            locked |= 1L << stripeIndex(contactId);
+        }
+        for (long rest = locked; rest != 0; rest &= rest - 1) {
+            stripes[Long.numberOfTrailingZeros(rest)].lock();
+        }
+        return locked;
+    }
+
+    void unlockAll(long locked) {
+        for (long rest = locked; rest != 0; rest &= rest - 1) {
+            stripes[Long.numberOfTrailingZeros(rest)].unlock();
+        }
+    }
+
+    /**
+     * Publishes a change. The caller holds the lock for the contact ID.
+     * @param values The field values the change carries, indexed by field ordinal
+     */
+    void publish(ContactChange.Type type, String contactId, String[] values) {
+        long sequence = nextSequence.getAndIncrement();
+        ring.setRelease((int) sequence & mask, new ContactChange(sequence, type, contactId, values));
+    }
+}
@@ -0,0 +1,164 @@
+package com.grandstrand;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ContactChangeFeed class.
+ * Tests that service mutations are published in order, that failed ones are
+ * not, and that a subscriber that falls behind finds out.
+ */
+public class ContactChangeFeedTest {
+
+    private static Contact contact(String id) {
+        return new Contact(id, "John", "Doe", "1234567890", "123 Main St");
+    }
+
+    private static List<ContactChange> drain(ContactChangeFeed.Subscription subscription) {
+        List<ContactChange> out = new ArrayList<>();
+        subscription.poll(out::add, Integer.MAX_VALUE);
+        return out;
+    }
+
+    @Test
+    public void testMutationsArePublishedInOrder() {
+        ContactChangeFeed feed = new ContactChangeFeed(16);
+        ContactService contactService = new ContactService(new HeapContactStore(), null, feed);
+        ContactChangeFeed.Subscription subscription = feed.subscribe();
+        
+        contactService.addContact(contact("1"));
+        contactService.updatePhone("1", "0987654321");
+        contactService.updateContact("1", new ContactPatch().firstName("Jane").address("9 Elm Ave"));
+        contactService.deleteContact("1");
+        
+        List<ContactChange> changes = drain(subscription);
+        assertEquals(4, changes.size());
+        for (int i = 0; i < changes.size(); i++) {
+            assertEquals(i, changes.get(i).getSequence());
+            assertEquals("1", changes.get(i).getContactId());
+        }
+        assertEquals(ContactChange.Type.ADD, changes.get(0).getType());
+        assertEquals("Doe", changes.get(0).get(ContactField.LAST_NAME));
+        assertEquals(ContactChange.Type.UPDATE, changes.get(1).getType());
+        assertEquals("0987654321", changes.get(1).get(ContactField.PHONE));
+        assertNull(changes.get(1).get(ContactField.FIRST_NAME));
+        assertEquals("Jane", changes.get(2).get(ContactField.FIRST_NAME));
+        assertEquals("9 Elm Ave", changes.get(2).get(ContactField.ADDRESS));
+        assertNull(changes.get(2).get(ContactField.PHONE));
+        assertEquals(ContactChange.Type.DELETE, changes.get(3).getType());
+        assertEquals("Jane", changes.get(3).get(ContactField.FIRST_NAME));
+        assertEquals(4, subscription.getPosition());
+        assertEquals(0, subscription.getLag());
+    }
+
+    @Test
+    public void testFailedMutationsAreNotPublished() {
+        ContactChangeFeed feed = new ContactChangeFeed(16);
+        ContactService contactService = new ContactService(new HeapContactStore(), null, feed);
+        contactService.addContact(contact("1"));
+        ContactChangeFeed.Subscription subscription = feed.subscribe();
+        
+        assertEquals(ContactStatus.DUPLICATE_ID, contactService.tryAddContact(contact("1")));
+        assertEquals(ContactStatus.NOT_FOUND, contactService.tryDeleteContact("2"));
+        assertEquals(ContactStatus.INVALID_PHONE, contactService.tryUpdatePhone("1", "123"));
+        assertEquals(ContactStatus.VERSION_CONFLICT,
+                contactService.tryUpdateContact("1", new ContactPatch().phone("0987654321"), 7));
+        assertFalse(contactService.addContacts(Arrays.asList(contact("2"), contact("1"))).isApplied());
+        assertFalse(contactService.deleteContacts(Arrays.asList("1", "3")).isApplied());
+        
+        assertTrue(drain(subscription).isEmpty());
+        assertEquals(1, feed.getSequence());
+    }
+
+    @Test
+    public void testBatchesPublishOneChangePerItem() {
+        ContactChangeFeed feed = new ContactChangeFeed(16);
+        ContactService contactService = new ContactService(new ShardedContactStore(), null, feed);
+        ContactChangeFeed.Subscription subscription = feed.subscribe();
+        
+        assertTrue(contactService.addContacts(Arrays.asList(contact("1"), contact("2"))).isApplied());
+        assertTrue(contactService.applyUpdates(Arrays.asList(
+                new ContactUpdate("1", ContactField.LAST_NAME, "Smith"),
+                new ContactUpdate("2", ContactField.PHONE, "0987654321"))).isApplied());
+        assertTrue(contactService.deleteContacts(Arrays.asList("2", "1")).isApplied());
+        
+        List<ContactChange> changes = drain(subscription);
+        assertEquals(6, changes.size());
+        assertEquals("2", changes.get(1).getContactId());
+        assertEquals("Smith", changes.get(2).get(ContactField.LAST_NAME));
+        assertEquals("0987654321", changes.get(3).get(ContactField.PHONE));
+        assertEquals(ContactChange.Type.DELETE, changes.get(5).getType());
+        assertEquals("Smith", changes.get(5).get(ContactField.LAST_NAME));
+    }
+
+    @Test
+    public void testPollTakesAtMostTheBatchSize() {
+        ContactChangeFeed feed = new ContactChangeFeed(16);
+        ContactService contactService = new ContactService(new HeapContactStore(), null, feed);
+        ContactChangeFeed.Subscription subscription = feed.subscribe();
+        for (int i = 0; i < 5; i++) {
+            contactService.addContact(contact(Integer.toString(i)));
+        }
+        
+        List<ContactChange> out = new ArrayList<>();
+        assertEquals(3, subscription.poll(out::add, 3));
+        assertEquals(2, subscription.poll(out::add, 3));
+        assertEquals(0, subscription.poll(out::add, 3));
+        assertEquals(0, subscription.poll(out::add, 3, 1, TimeUnit.MILLISECONDS));
+        assertEquals("4", out.get(4).getContactId());
+    }
+
+    @Test
+    public void testLappedSubscriberThrows() {
+        ContactChangeFeed feed = new ContactChangeFeed(4);
+        ContactService contactService = new ContactService(new HeapContactStore(), null, feed);
+        ContactChangeFeed.Subscription subscription = feed.subscribe();
+        for (int i = 0; i < 6; i++) {
+            contactService.addContact(contact(Integer.toString(i)));
+        }
+        
+        assertEquals(6, subscription.getLag());
+        assertThrows(IllegalStateException.class, () -> drain(subscription));
+        assertEquals(4, drain(feed.subscribe(2)).size());
+    }
+
+    @Test
+    public void testSubscribeRejectsUnpublishedSequence() {
+        ContactChangeFeed feed = new ContactChangeFeed(4);
+        
+        assertThrows(IllegalArgumentException.class, () -> feed.subscribe(1));
+        assertThrows(IllegalArgumentException.class, () -> feed.subscribe(-1));
+        assertThrows(IllegalArgumentException.class, () -> new ContactChangeFeed(6));
+    }
+
+    @Test
+    public void testConcurrentUpdatesArePublishedInApplyOrder() throws InterruptedException {
+        ContactChangeFeed feed = new ContactChangeFeed(1 << 16);
+        ContactService contactService = new ContactService(new HeapContactStore(), null, feed);
+        contactService.addContact(contact("1"));
+        ContactChangeFeed.Subscription subscription = feed.subscribe();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            String phone = "000000000" + t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    contactService.updatePhone("1", phone);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        
+        List<ContactChange> changes = drain(subscription);
+        assertEquals(8000, changes.size());
+        assertEquals(changes.get(changes.size() - 1).get(ContactField.PHONE), contactService.getContact("1").getPhone());
+    }
+}
@@ -0,0 +1,165 @@
+package com.grandstrand;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ContactCodec class encoding contacts in a compact binary form for sending
+ * between services. The field limits make every record small and bounded:
+ * <pre>
+ *   1 byte   contact ID length n, then n bytes of UTF-8
+ *   1 byte   first name length, then its UTF-8 bytes
+ *   1 byte   last name length, then its UTF-8 bytes
+ *   5 bytes  phone as a number, big-endian (10 digits fit in 34 bits)
+ *   1 byte   address length, then its UTF-8 bytes
+ *   1-5 bytes version, as an unsigned varint
+ * </pre>
+ * A typical contact takes about 35 bytes, and none takes more than MAX_ENCODED_BYTES.
+ * <p>
+ * Records are written to and read from the buffer's current position, directly
+ * and without building an intermediate byte array (except for text outside
+ * ASCII, which is rare). Decoding a heap buffer creates each String straight
+ * from the buffer's array. Decoded fields go through the Contact constructor,
+ * so a record that breaks the Contact rules is rejected the same way.
+ */
+public final class ContactCodec {
+    /**
+     * Largest possible record: every char of the text taking 3 bytes of UTF-8,
+     * and a 5-byte version
+     */
+    public static final int MAX_ENCODED_BYTES = 4 + 3 * (ContactValidator.MAX_ID_LENGTH
+            + 2 * ContactValidator.MAX_NAME_LENGTH + ContactValidator.MAX_ADDRESS_LENGTH) + 5 + 5;
+
+    private static final int PHONE_BYTES = 5;
+    private static final long MAX_PHONE = 9_999_999_999L;
+
+    private ContactCodec() {
+    }
+
+    /**
+     * Gets the number of bytes encode writes for a contact
+     * @param contact The contact
+     * @return The encoded size
+     */
+    public static int encodedSize(Contact contact) {
+        return textBytes(contact.getContactId()) + textBytes(contact.getFirstName())
+                + textBytes(contact.getLastName()) + PHONE_BYTES + textBytes(contact.getAddress())
+                + varintBytes(contact.getVersion());
+    }
+
+    /**
+     * Writes a contact at the buffer's position and moves the position past it
+     * @param contact The contact to write
+     * @param buffer The buffer to write to
+     * @throws java.nio.BufferOverflowException if the buffer has less room than
+     *         encodedSize; some bytes may have been written
+     */
+    public static void encode(Contact contact, ByteBuffer buffer) {
+        putText(buffer, contact.getContactId());
+        putText(buffer, contact.getFirstName());
+        putText(buffer, contact.getLastName());
+        long phone = ContactRecordLayout.encodePhone(contact.getPhone());
+        buffer.put((byte) (phone >>> 32)).putInt((int) phone);
+        putText(buffer, contact.getAddress());
+        int version = contact.getVersion();
+        while ((version & ~0x7F) != 0) {
+            buffer.put((byte) (version & 0x7F | 0x80));
+            version >>>= 7;
+        }
+        buffer.put((byte) version);
+    }
+
+    /**
+     * Reads a contact at the buffer's position and moves the position past it
+     * @param buffer The buffer to read from
+     * @return The contact, with the version it was encoded with
+     * @throws IllegalArgumentException if the record is malformed or a field
+     *         breaks the Contact rules
+     * @throws BufferUnderflowException if the buffer ends inside the record
+     */
+    public static Contact decode(ByteBuffer buffer) {
+        byte[] scratch = buffer.hasArray() ? null : new byte[3 * ContactValidator.MAX_ADDRESS_LENGTH];
+        String contactId = getText(buffer, ContactValidator.MAX_ID_LENGTH, scratch);
+        String firstName = getText(buffer, ContactValidator.MAX_NAME_LENGTH, scratch);
+        String lastName = getText(buffer, ContactValidator.MAX_NAME_LENGTH, scratch);
+        long phone = (buffer.get() & 0xFFL) << 32 | (buffer.getInt() & 0xFFFFFFFFL);
+        if (phone > MAX_PHONE) {
+            throw new IllegalArgumentException("Malformed contact record: phone out of range");
+        }
+        String address = getText(buffer, ContactValidator.MAX_ADDRESS_LENGTH, scratch);
+        int version = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte next = buffer.get();
+            if (shift == 28 && (next & 0xF8) != 0) {
+                throw new IllegalArgumentException("Malformed contact record: version out of range");
+            }
+            version |= (next & 0x7F) << shift;
+            if (next >= 0) {
+                break;
+            }
+        }
+        Contact contact = new Contact(contactId, firstName, lastName, ContactRecordLayout.decodePhone(phone), address);
+        contact.setVersion(version);
+        return contact;
+    }
+
+    private static int textBytes(String value) {
+        int bytes = value.length();
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return 1 + value.getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+        return 1 + bytes;
+    }
+
+    private static int varintBytes(int value) {
+        int bytes = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+
+    private static void putText(ByteBuffer buffer, String value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) >= 0x80) {
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                buffer.put((byte) utf8.length).put(utf8);
+                return;
+            }
+        }
+        buffer.put((byte) length);
+        for (int i = 0; i < length; i++) {
+            buffer.put((byte) value.charAt(i));
+        }
+    }
+
+    /**
+     * Reads one length-prefixed field
+     * @param maxChars The field's limit in chars; the byte length can be up to three times that
+     * @param scratch Space to copy the bytes of a direct buffer into, or null for a heap buffer
+     */
+    private static String getText(ByteBuffer buffer, int maxChars, byte[] scratch) {
+        int length = buffer.get() & 0xFF;
+        if (length > 3 * maxChars) {
+            throw new IllegalArgumentException("Malformed contact record: field of " + length + " bytes");
+        }
+        if (buffer.remaining() < length) {
+            throw new BufferUnderflowException();
+        }
+        int position = buffer.position();
+        String value;
+        if (scratch == null) {
+            value = new String(buffer.array(), buffer.arrayOffset() + position, length, StandardCharsets.UTF_8);
+        } else {
+            buffer.get(position, scratch, 0, length);
+            value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        buffer.position(position + length);
+        return value;
+    }
+}
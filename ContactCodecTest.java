@@ -0,0 +1,75 @@
+package com.grandstrand;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ContactCodec class.
+ * Tests round trips through heap and direct buffers, and rejection of bad records.
+ */
+public class ContactCodecTest {
+
+    private static void assertSameContact(Contact expected, Contact actual) {
+        assertEquals(expected.getContactId(), actual.getContactId());
+        assertEquals(expected.getFirstName(), actual.getFirstName());
+        assertEquals(expected.getLastName(), actual.getLastName());
+        assertEquals(expected.getPhone(), actual.getPhone());
+        assertEquals(expected.getAddress(), actual.getAddress());
+        assertEquals(expected.getVersion(), actual.getVersion());
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Contact contact = new Contact("123", "John", "Doe", "0012345678", "123 Main St");
+        contact.setVersion(300);
+        ByteBuffer buffer = ByteBuffer.allocate(ContactCodec.MAX_ENCODED_BYTES);
+        ContactCodec.encode(contact, buffer);
+        
+        assertEquals(ContactCodec.encodedSize(contact), buffer.position());
+        assertEquals(4 + 3 + 4 + 3 + 5 + 11 + 2, buffer.position());
+        buffer.flip();
+        assertSameContact(contact, ContactCodec.decode(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testRecordsInSequenceAndDirectBuffers() {
+        Contact widest = new Contact("\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9",
+                "\u674e\u674e\u674e\u674e\u674e\u674e\u674e\u674e\u674e\u674e", "\u1f600\u1f600",
+                "9999999999", "\u674e\u674e\u674e\u674e\u674e\u674e\u674e\u674e\u674e\u674e"
+                + "\u674e\u674e\u674e\u674e\u674e\u674e\u674e\u674e\u674e\u674e"
+                + "\u674e\u674e\u674e\u674e\u674e\u674e\u674e\u674e\u674e\u674e");
+        widest.setVersion(Integer.MAX_VALUE);
+        Contact plain = new Contact("1", "Jane", "Smith", "1234567890", "9 Elm Ave");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(2 * ContactCodec.MAX_ENCODED_BYTES);
+        ContactCodec.encode(widest, buffer);
+        ContactCodec.encode(plain, buffer);
+        
+        assertEquals(ContactCodec.encodedSize(widest) + ContactCodec.encodedSize(plain), buffer.position());
+        assertTrue(ContactCodec.encodedSize(widest) <= ContactCodec.MAX_ENCODED_BYTES);
+        buffer.flip();
+        assertSameContact(widest, ContactCodec.decode(buffer));
+        assertSameContact(plain, ContactCodec.decode(buffer));
+    }
+
+    @Test
+    public void testRejectsInvalidRecords() {
+        ByteBuffer longName = ByteBuffer.wrap(new byte[] {1, '1', 11, 'A', 'A', 'A', 'A', 'A', 'A', 'A', 'A', 'A', 'A',
+            'A', 1, 'D', 0, 0, 0, 0, 1, 1, 'A', 0});
+        assertThrows(IllegalArgumentException.class, () -> ContactCodec.decode(longName));
+        
+        ByteBuffer bigPhone = ByteBuffer.wrap(new byte[] {1, '1', 1, 'J', 1, 'D', (byte) 0xFF, 0, 0, 0, 0, 1, 'A', 0});
+        assertThrows(IllegalArgumentException.class, () -> ContactCodec.decode(bigPhone));
+        
+        ByteBuffer truncated = ByteBuffer.wrap(new byte[] {1, '1', 4, 'J'});
+        assertThrows(BufferUnderflowException.class, () -> ContactCodec.decode(truncated));
+        
+        Contact contact = new Contact("123", "John", "Doe", "1234567890", "123 Main St");
+        assertThrows(BufferOverflowException.class, () -> ContactCodec.encode(contact, ByteBuffer.allocate(10)));
+    }
+}
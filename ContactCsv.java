@@ -0,0 +1,575 @@
+package com.grandstrand;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * ContactCsv class importing contacts from and exporting them to CSV files
+ * (RFC 4180, UTF-8). A row holds the five Contact fields in constructor order.
+ * Fields with a comma, quote or line break are quoted, with any quote doubled;
+ * rows end with CRLF on export, and with LF or CRLF on import. Export writes
+ * HEADER as the first row, and import skips a first row equal to it.
+ * <p>
+ * A quote opens a quoted field only as the first byte of the field; anywhere
+ * else in an unquoted field it is part of the value, so {@code 12" Main} reads
+ * as it is written.
+ * <p>
+ * Import reads the file in chunks through a FileChannel, on the calling
+ * thread. Each chunk is cut after its last complete row (a line break inside
+ * a quoted field doesn't end a row) and handed to the common fork-join pool,
+ * where the rows are parsed and checked with ContactValidator in parallel
+ * with the reading. The calling thread then adds each chunk's valid contacts
+ * as one addContacts batch, in file order, so the first row with an ID wins.
+ * A few chunks are in flight at a time, and a row longer than MAX_ROW_BYTES
+ * is rejected rather than buffered whole, so memory stays bounded whatever
+ * the size of the file. Rows that are malformed, too long, break the Contact
+ * rules, or repeat a taken ID go to the reject file instead.
+ * <p>
+ * Export streams the contacts from ContactService.query, so the store is never
+ * copied; like query, it may or may not see changes made while it runs.
+ */
+public final class ContactCsv {
+    /**
+     * The header row export writes and import skips
+     */
+    public static final String HEADER = "contactId,firstName,lastName,phone,address";
+
+    /**
+     * The header row of a reject file: the row's record number in the file
+     * (the header and blank lines count), why it was rejected, and the row itself
+     */
+    public static final String REJECT_HEADER = "record,reason,row";
+
+    /**
+     * Reject reason for a row with an unclosed quoted field, text after the
+     * closing quote of a field, or not five fields. Other rows are rejected
+     * with ROW_TOO_LONG or the name of their ContactStatus.
+     */
+    public static final String MALFORMED_ROW = "MALFORMED_ROW";
+
+    /**
+     * Reject reason for a row longer than MAX_ROW_BYTES. The reject file gets
+     * its first MAX_ROW_BYTES bytes.
+     */
+    public static final String ROW_TOO_LONG = "ROW_TOO_LONG";
+
+    /**
+     * The longest row import reads, line break included. A valid row, with
+     * every field quoted and every char three bytes, is well under it.
+     */
+    public static final int MAX_ROW_BYTES = 1024;
+
+    static final int DEFAULT_CHUNK_BYTES = 1 << 20;
+
+    private static final int FIELD_COUNT = 5;
+
+    // RowScanner states
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+    private static final byte[] HEADER_BYTES = HEADER.getBytes(StandardCharsets.US_ASCII);
+
+    private ContactCsv() {
+    }
+
+    /**
+     * Reject class for one rejected row, numbered within its chunk until written
+     */
+    private static final class Reject {
+        final int record;
+        final String reason;
+        final String row;
+
+        Reject(int record, String reason, String row) {
+            this.record = record;
+            this.reason = reason;
+            this.row = row;
+        }
+    }
+
+    /**
+     * Chunk class holding the parsed rows of one chunk of the file
+     */
+    private static final class Chunk {
+        final byte[] bytes;
+        final List<Contact> contacts = new ArrayList<>();
+        // Record number within the chunk of each contact
+        int[] contactRecords = new int[64];
+        final List<Reject> rejects = new ArrayList<>();
+        int recordCount;
+        int rowCount;
+
+        Chunk(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        void addContact(Contact contact, int record) {
+            if (contacts.size() == contactRecords.length) {
+                contactRecords = Arrays.copyOf(contactRecords, contactRecords.length * 2);
+            }
+            contactRecords[contacts.size()] = record;
+            contacts.add(contact);
+        }
+    }
+
+    /**
+     * Imports the contacts in a CSV file
+     * @param service The service to add the contacts to
+     * @param source The CSV file
+     * @param rejects The file to write rejected rows to, as a CSV with
+     *        REJECT_HEADER; replaced if it exists, and left with only the
+     *        header if every row is imported
+     * @return The number of rows read, imported and rejected
+     * @throws IllegalArgumentException if any argument is null
+     * @throws IOException if a file cannot be read or written; the rows added
+     *         before the error stay added
+     */
+    public static ContactImportResult importCsv(ContactService service, Path source, Path rejects)
+            throws IOException {
+        return importCsv(service, source, rejects, DEFAULT_CHUNK_BYTES);
+    }
+
+    static ContactImportResult importCsv(ContactService service, Path source, Path rejects, int chunkBytes)
+            throws IOException {
+        if (service == null || source == null || rejects == null) {
+            throw new IllegalArgumentException("Service and files cannot be null");
+        }
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int maxInFlight = 2 * pool.getParallelism() + 1;
+        ArrayDeque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>();
+        ArrayDeque<byte[]> free = new ArrayDeque<>();
+        long records = 0;
+        long rows = 0;
+        long imported = 0;
+        long rejected = 0;
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ);
+             CsvWriter rejectWriter = new CsvWriter(rejects)) {
+            rejectWriter.row(REJECT_HEADER);
+            RowScanner scanner = new RowScanner();
+            byte[] buffer = new byte[chunkBytes];
+            int filled = 0;
+            int scanned = 0;
+            boolean skipping = false;
+            boolean eof = false;
+            boolean first = true;
+            while (true) {
+                while (!eof && inFlight.size() < maxInFlight) {
+                    ByteBuffer target = ByteBuffer.wrap(buffer, filled, buffer.length - filled);
+                    while (target.hasRemaining() && !eof) {
+                        eof = channel.read(target) < 0;
+                    }
+                    filled = target.position();
+                    if (skipping) {
+                        // Drop the rest of a row already rejected as too long
+                        int rowEnd = scanner.scan(buffer, 0, filled);
+                        if (rowEnd < 0) {
+                            filled = 0;
+                            continue;
+                        }
+                        System.arraycopy(buffer, rowEnd, buffer, 0, filled - rowEnd);
+                        filled -= rowEnd;
+                        skipping = false;
+                    }
+                    int end = 0;
+                    int rowEnd;
+                    while ((rowEnd = scanner.scan(buffer, scanned, filled)) >= 0) {
+                        end = rowEnd;
+                        scanned = rowEnd;
+                    }
+                    scanned = filled;
+                    // The buffer holds part of one row, already too long: parse
+                    // rejects it, and the rest of it is skipped
+                    boolean tooLong = end == 0 && filled == buffer.length && buffer.length > MAX_ROW_BYTES;
+                    if (eof || tooLong) {
+                        end = filled;
+                    }
+                    if (end > 0) {
+                        byte[] next = free.poll();
+                        if (next == null || next.length < buffer.length) {
+                            next = new byte[buffer.length];
+                        }
+                        System.arraycopy(buffer, end, next, 0, filled - end);
+                        byte[] bytes = buffer;
+                        int length = end;
+                        boolean header = first;
+                        inFlight.add(pool.submit(() -> parse(bytes, length, header)));
+                        first = false;
+                        buffer = next;
+                        filled -= end;
+                        scanned -= end;
+                        skipping = tooLong;
+                    } else if (filled == buffer.length) {
+                        // One row fills the whole chunk
+                        buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, MAX_ROW_BYTES + 1));
+                    }
+                }
+                ForkJoinTask<Chunk> task = inFlight.poll();
+                if (task == null) {
+                    break;
+                }
+                Chunk chunk = task.join();
+                List<Reject> chunkRejects = chunk.rejects;
+                imported += add(service, chunk, chunkRejects);
+                chunkRejects.sort((a, b) -> Integer.compare(a.record, b.record));
+                for (Reject reject : chunkRejects) {
+                    rejectWriter.field(records + reject.record + 1);
+                    rejectWriter.field(reject.reason);
+                    rejectWriter.field(reject.row);
+                    rejectWriter.endRow();
+                }
+                records += chunk.recordCount;
+                rows += chunk.rowCount;
+                rejected += chunkRejects.size();
+                free.add(chunk.bytes);
+            }
+        }
+        return new ContactImportResult(rows, imported, rejected);
+    }
+
+    /**
+     * Adds a chunk's contacts as one batch. If the batch is rejected, the
+     * contacts whose ID is taken are moved to the rejects and the rest retried.
+     * @return The number of contacts added
+     */
+    private static int add(ContactService service, Chunk chunk, List<Reject> rejects) {
+        List<Contact> batch = chunk.contacts;
+        int[] records = chunk.contactRecords;
+        while (!batch.isEmpty()) {
+            BatchResult result = service.addContacts(batch);
+            if (result.isApplied()) {
+                return batch.size();
+            }
+            List<Contact> retry = new ArrayList<>(batch.size());
+            int[] retryRecords = new int[batch.size()];
+            for (int i = 0; i < batch.size(); i++) {
+                ContactStatus status = result.getStatus(i);
+                if (status == ContactStatus.OK) {
+                    retryRecords[retry.size()] = records[i];
+                    retry.add(batch.get(i));
+                } else {
+                    rejects.add(new Reject(records[i], status.name(), format(batch.get(i))));
+                }
+            }
+            batch = retry;
+            records = retryRecords;
+        }
+        return 0;
+    }
+
+    /**
+     * RowScanner class finding where rows end. A quote opens a quoted field
+     * only as the first byte of a field; inside one, a line break is data and
+     * a doubled quote is an escaped quote. A quote anywhere else changes
+     * nothing, so a stray quote cannot run a row on into the next ones. The
+     * state carries over between calls, so a row can be scanned in pieces.
+     */
+    private static final class RowScanner {
+        private int state = FIELD_START;
+
+        /**
+         * Scans bytes until a row ends
+         * @return The index just past the LF that ends the row, or -1 if no row ends before to
+         */
+        int scan(byte[] bytes, int from, int to) {
+            int state = this.state;
+            for (int i = from; i < to; i++) {
+                byte b = bytes[i];
+                if (state == QUOTED) {
+                    if (b == '"') {
+                        state = QUOTE_IN_QUOTED;
+                    }
+                } else if (b == '\n') {
+                    this.state = FIELD_START;
+                    return i + 1;
+                } else if (b == ',') {
+                    state = FIELD_START;
+                } else if (b == '"') {
+                    // Opens a field, or is the second quote of "" in one
+                    state = state == UNQUOTED ? UNQUOTED : QUOTED;
+                } else {
+                    state = UNQUOTED;
+                }
+            }
+            this.state = state;
+            return -1;
+        }
+    }
+
+    /**
+     * Parses and validates the rows of a chunk. Runs on the fork-join pool.
+     * @param header Whether the chunk starts the file, so its first row may be the header
+     */
+    private static Chunk parse(byte[] bytes, int length, boolean header) {
+        Chunk chunk = new Chunk(bytes);
+        String[] fields = new String[FIELD_COUNT];
+        byte[] scratch = new byte[64];
+        RowScanner scanner = new RowScanner();
+        int position = 0;
+        int record = 0;
+        while (position < length) {
+            int start = position;
+            int next = scanner.scan(bytes, position, length);
+            int rowEnd;
+            if (next < 0) {
+                // The last row without a line break, or a row cut short as too long
+                next = length;
+                rowEnd = length;
+            } else {
+                rowEnd = next - 2 >= start && bytes[next - 2] == '\r' ? next - 2 : next - 1;
+            }
+            if (rowEnd == start || (header && record == 0 && isHeader(bytes, start, rowEnd))) {
+                position = next;
+                record++;
+                continue;
+            }
+            chunk.rowCount++;
+            if (next - start > MAX_ROW_BYTES) {
+                chunk.rejects.add(new Reject(record, ROW_TOO_LONG,
+                        new String(bytes, start, Math.min(rowEnd - start, MAX_ROW_BYTES), StandardCharsets.UTF_8)));
+                position = next;
+                record++;
+                continue;
+            }
+            int fieldCount = 0;
+            boolean malformed = false;
+            while (true) {
+                String value;
+                if (bytes[position] == '"') {
+                    int size = 0;
+                    position++;
+                    while (position < rowEnd && !(bytes[position] == '"'
+                            && (position + 1 == rowEnd || bytes[position + 1] != '"'))) {
+                        if (bytes[position] == '"') {
+                            position++;
+                        }
+                        if (size == scratch.length) {
+                            scratch = Arrays.copyOf(scratch, size * 2);
+                        }
+                        scratch[size++] = bytes[position++];
+                    }
+                    if (position == rowEnd) {
+                        malformed = true;
+                    } else {
+                        position++;
+                    }
+                    value = new String(scratch, 0, size, StandardCharsets.UTF_8);
+                    if (position < rowEnd && bytes[position] != ',') {
+                        malformed = true;
+                    }
+                } else {
+                    int fieldStart = position;
+                    while (position < rowEnd && bytes[position] != ',') {
+                        position++;
+                    }
+                    value = new String(bytes, fieldStart, position - fieldStart, StandardCharsets.UTF_8);
+                }
+                if (fieldCount < FIELD_COUNT) {
+                    fields[fieldCount] = value;
+                }
+                fieldCount++;
+                // Skip to the next comma, past anything after a closing quote
+                while (position < rowEnd && bytes[position] != ',') {
+                    position++;
+                }
+                if (position == rowEnd) {
+                    break;
+                }
+                position++;
+                if (position == rowEnd) {
+                    // A comma ends the row, so the last field is empty
+                    if (fieldCount < FIELD_COUNT) {
+                        fields[fieldCount] = "";
+                    }
+                    fieldCount++;
+                    break;
+                }
+            }
+            ContactStatus status = malformed || fieldCount != FIELD_COUNT ? null
+                    : ContactValidator.validate(fields[0], fields[1], fields[2], fields[3], fields[4]);
+            if (status == ContactStatus.OK) {
+                chunk.addContact(new Contact(fields[0], fields[1], fields[2], fields[3], fields[4]), record);
+            } else {
+                chunk.rejects.add(new Reject(record, status == null ? MALFORMED_ROW : status.name(),
+                        new String(bytes, start, rowEnd - start, StandardCharsets.UTF_8)));
+            }
+            position = next;
+            record++;
+        }
+        chunk.recordCount = record;
+        return chunk;
+    }
+
+    private static boolean isHeader(byte[] bytes, int start, int end) {
+        return Arrays.equals(bytes, start, end, HEADER_BYTES, 0, HEADER_BYTES.length);
+    }
+
+    /**
+     * Formats a contact as a CSV row without its line break
+     */
+    static String format(Contact contact) {
+        StringBuilder row = new StringBuilder(64);
+        String[] values = {contact.getContactId(), contact.getFirstName(), contact.getLastName(),
+            contact.getPhone(), contact.getAddress()};
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                row.append(',');
+            }
+            String value = values[i];
+            if (needsQuotes(value)) {
+                row.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                row.append(value);
+            }
+        }
+        return row.toString();
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Exports every contact to a CSV file, starting with HEADER
+     * @param service The service to read the contacts from
+     * @param target The CSV file, replaced if it exists
+     * @return The number of contacts written
+     * @throws IllegalArgumentException if any argument is null
+     * @throws IOException if the file cannot be written
+     */
+    public static long exportCsv(ContactService service, Path target) throws IOException {
+        if (service == null || target == null) {
+            throw new IllegalArgumentException("Service and file cannot be null");
+        }
+        long count = 0;
+        try (CsvWriter writer = new CsvWriter(target)) {
+            writer.row(HEADER);
+            Iterator<Contact> contacts = service.query(new ContactQuery()).sequential().iterator();
+            while (contacts.hasNext()) {
+                Contact contact = contacts.next();
+                writer.field(contact.getContactId());
+                writer.field(contact.getFirstName());
+                writer.field(contact.getLastName());
+                writer.field(contact.getPhone());
+                writer.field(contact.getAddress());
+                writer.endRow();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * CsvWriter class writing CSV rows to a file through a heap buffer.
+     * ASCII fields without quotes are copied a char at a time; others are
+     * encoded as UTF-8 and quoted as needed.
+     */
+    private static final class CsvWriter implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+        private boolean rowStarted;
+
+        CsvWriter(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        /**
+         * Writes a row of ASCII text as it is, such as a header
+         */
+        void row(String text) throws IOException {
+            for (int i = 0; i < text.length(); i++) {
+                put((byte) text.charAt(i));
+            }
+            endRow();
+        }
+
+        void field(long value) throws IOException {
+            field(Long.toString(value));
+        }
+
+        void field(String value) throws IOException {
+            int length = value.length();
+            boolean plain = true;
+            for (int i = 0; i < length && plain; i++) {
+                char c = value.charAt(i);
+                plain = c < 0x80 && c != ',' && c != '"' && c != '\r' && c != '\n';
+            }
+            if (rowStarted) {
+                put((byte) ',');
+            }
+            rowStarted = true;
+            if (plain && length <= buffer.capacity()) {
+                if (buffer.remaining() < length) {
+                    flush();
+                }
+                for (int i = 0; i < length; i++) {
+                    buffer.put((byte) value.charAt(i));
+                }
+                return;
+            }
+            boolean quoted = needsQuotes(value);
+            if (quoted) {
+                put((byte) '"');
+            }
+            for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+                put(b);
+                if (b == '"') {
+                    put(b);
+                }
+            }
+            if (quoted) {
+                put((byte) '"');
+            }
+        }
+
+        void endRow() throws IOException {
+            put((byte) '\r');
+            put((byte) '\n');
+            rowStarted = false;
+        }
+
+        private void put(byte b) throws IOException {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.put(b);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.grandstrand;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ContactCsv class.
+ * Tests quoting, rejects and chunk boundaries through files in a temporary directory.
+ */
+public class ContactCsvTest {
+    @TempDir
+    Path tempDir;
+
+    private static final String ROWS = "contactId,firstName,lastName,phone,address\r\n"
+            + "1,John,Doe,1234567890,123 Main St\r\n"
+            + "2,\"Jane\",\"O\"\"Neil\",0987654321,\"4 Oak, Apt 2\"\n"
+            + "3,Ann,Lee,12345,9 Elm Ave\n"
+            + "\n"
+            + "4,Bob,\"Sm\nith\",5555555555,1 Pine Rd\r\n"
+            + "5,Cy,Doe,1111111111\n"
+            + "1,Dup,Doe,2222222222,2 Main St\n"
+            + "6,\"Al,Stray\"x,Doe,3333333333,3 Main St\n"
+            + "7,Jos\u00e9,Pe\u00f1a,4444444444,5 Rua Nova";
+
+    private Path write(String name, String text) throws IOException {
+        Path file = tempDir.resolve(name);
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void testImportParsesQuotedFieldsAndRejectsBadRows() throws IOException {
+        ContactService contactService = new ContactService();
+        Path rejects = tempDir.resolve("rejects.csv");
+        ContactImportResult result = ContactCsv.importCsv(contactService, write("in.csv", ROWS), rejects);
+        
+        assertEquals(8, result.getRowCount());
+        assertEquals(4, result.getImportedCount());
+        assertEquals(4, result.getRejectedCount());
+        assertEquals("O\"Neil", contactService.getContact("2").getLastName());
+        assertEquals("4 Oak, Apt 2", contactService.getContact("2").getAddress());
+        assertEquals("Sm\nith", contactService.getContact("4").getLastName());
+        assertEquals("Pe\u00f1a", contactService.getContact("7").getLastName());
+        assertEquals("John", contactService.getContact("1").getFirstName());
+        
+        List<String> lines = Files.readAllLines(rejects);
+        assertEquals(List.of(ContactCsv.REJECT_HEADER,
+                "4,INVALID_PHONE,\"3,Ann,Lee,12345,9 Elm Ave\"",
+                "7,MALFORMED_ROW,\"5,Cy,Doe,1111111111\"",
+                "8,DUPLICATE_ID,\"1,Dup,Doe,2222222222,2 Main St\"",
+                "9,MALFORMED_ROW,\"6,\"\"Al,Stray\"\"x,Doe,3333333333,3 Main St\""), lines);
+    }
+
+    @Test
+    public void testSmallChunksMatchOneChunk() throws IOException {
+        Path source = write("in.csv", ROWS);
+        ContactService whole = new ContactService();
+        ContactCsv.importCsv(whole, source, tempDir.resolve("whole.csv"));
+        
+        for (int chunkBytes : new int[] {1, 7, 16, 33}) {
+            ContactService chunked = new ContactService();
+            Path rejects = tempDir.resolve("rejects" + chunkBytes + ".csv");
+            ContactImportResult result = ContactCsv.importCsv(chunked, source, rejects, chunkBytes);
+            assertEquals(4, result.getImportedCount());
+            assertEquals(Files.readAllLines(tempDir.resolve("whole.csv")), Files.readAllLines(rejects));
+            for (String id : new String[] {"1", "2", "4", "7"}) {
+                assertEquals(ContactCsv.format(whole.getContact(id)), ContactCsv.format(chunked.getContact(id)));
+            }
+        }
+    }
+
+    @Test
+    public void testStrayQuoteStaysInItsField() throws IOException {
+        StringBuilder text = new StringBuilder("1,John,Doe,1234567890,12\" Main\n");
+        for (int i = 2; i <= 2000; i++) {
+            text.append(i).append(",John,Doe,1234567890,1 Main St\n");
+        }
+        Path source = write("in.csv", text.toString());
+        
+        for (int chunkBytes : new int[] {256, ContactCsv.DEFAULT_CHUNK_BYTES}) {
+            ContactService contactService = new ContactService();
+            ContactImportResult result = ContactCsv.importCsv(contactService, source,
+                    tempDir.resolve("rejects.csv"), chunkBytes);
+            assertEquals(2000, result.getRowCount());
+            assertEquals(2000, result.getImportedCount());
+            assertEquals(0, result.getRejectedCount());
+            assertEquals("12\" Main", contactService.getContact("1").getAddress());
+        }
+    }
+
+    @Test
+    public void testRowTooLongIsRejectedAndSkipped() throws IOException {
+        String address = "x".repeat(3 * ContactCsv.MAX_ROW_BYTES);
+        Path source = write("in.csv", "1,John,Doe,1234567890,1 Main St\n"
+                + "2,John,Doe,1234567890," + address + "\n"
+                + "3,John,Doe,1234567890,\"" + address + "\"\n"
+                + "4,John,Doe,1234567890,4 Main St\n");
+        String cut = ("2,John,Doe,1234567890," + address).substring(0, ContactCsv.MAX_ROW_BYTES);
+        
+        for (int chunkBytes : new int[] {1, 256, ContactCsv.DEFAULT_CHUNK_BYTES}) {
+            ContactService contactService = new ContactService();
+            Path rejects = tempDir.resolve("rejects" + chunkBytes + ".csv");
+            ContactImportResult result = ContactCsv.importCsv(contactService, source, rejects, chunkBytes);
+            assertEquals(4, result.getRowCount());
+            assertEquals(2, result.getImportedCount());
+            assertEquals(2, result.getRejectedCount());
+            assertEquals("4 Main St", contactService.getContact("4").getAddress());
+            List<String> lines = Files.readAllLines(rejects);
+            assertEquals(3, lines.size());
+            assertEquals("2," + ContactCsv.ROW_TOO_LONG + ",\"" + cut + "\"", lines.get(1));
+            assertTrue(lines.get(2).startsWith("3," + ContactCsv.ROW_TOO_LONG + ","));
+        }
+    }
+
+    @Test
+    public void testExportRoundTrips() throws IOException {
+        ContactService contactService = new ContactService();
+        contactService.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+        contactService.addContact(new Contact("2", "Jane", "O\"Neil", "0987654321", "4 Oak, Apt 2"));
+        contactService.addContact(new Contact("3", "Bob", "Sm\r\nith", "5555555555", "Caf\u00e9 Row"));
+        Path file = tempDir.resolve("out.csv");
+        
+        assertEquals(3, ContactCsv.exportCsv(contactService, file));
+        assertTrue(Files.readString(file).startsWith(ContactCsv.HEADER + "\r\n"));
+        assertTrue(Files.readString(file).contains("2,Jane,\"O\"\"Neil\",0987654321,\"4 Oak, Apt 2\"\r\n"));
+        
+        ContactService imported = new ContactService();
+        ContactImportResult result = ContactCsv.importCsv(imported, file, tempDir.resolve("rejects.csv"));
+        assertEquals(3, result.getRowCount());
+        assertEquals(0, result.getRejectedCount());
+        for (String id : new String[] {"1", "2", "3"}) {
+            assertEquals(ContactCsv.format(contactService.getContact(id)), ContactCsv.format(imported.getContact(id)));
+        }
+    }
+
+    @Test
+    public void testImportKeepsStoredContacts() throws IOException {
+        ContactService contactService = new ContactService();
+        contactService.addContact(new Contact("1", "Old", "Doe", "1234567890", "123 Main St"));
+        ContactImportResult result = ContactCsv.importCsv(contactService,
+                write("in.csv", "1,New,Doe,1234567890,1 Rd\n2,New,Doe,1234567890,1 Rd\n"), tempDir.resolve("r.csv"));
+        
+        assertEquals(1, result.getImportedCount());
+        assertEquals(1, result.getRejectedCount());
+        assertEquals("Old", contactService.getContact("1").getFirstName());
+        assertEquals("New", contactService.getContact("2").getFirstName());
+        assertThrows(IllegalArgumentException.class, () -> ContactCsv.exportCsv(null, tempDir.resolve("x.csv")));
+        assertThrows(IllegalArgumentException.class, () -> ContactCsv.importCsv(contactService, null, null));
+    }
+}
@@ -0,0 +1,136 @@
+package com.grandstrand;
+
+/**
+ * ContactField enum listing the updatable fields of a Contact.
+ * Each field knows its validation rule and how to read and write it on a contact,
+ * so field updates can be passed around as data (for example in a batch).
+ */
+public enum ContactField {
+    FIRST_NAME(ContactStatus.INVALID_FIRST_NAME) {
+        @Override
+        public boolean isValid(String value) {
+            return ContactValidator.isValidName(value);
+        }
+
+        @Override
+        public void requireValid(String value) {
+            ContactValidator.requireFirstName(value);
+        }
+
+        @Override
+        public String get(Contact contact) {
+            return contact.getFirstName();
+        }
+
+        @Override
+        public void set(Contact contact, String value) {
+            contact.setFirstName(value);
+        }
+    },
+    LAST_NAME(ContactStatus.INVALID_LAST_NAME) {
+        @Override
+        public boolean isValid(String value) {
+            return ContactValidator.isValidName(value);
+        }
+
+        @Override
+        public void requireValid(String value) {
+            ContactValidator.requireLastName(value);
+        }
+
+        @Override
+        public String get(Contact contact) {
+            return contact.getLastName();
+        }
+
+        @Override
+        public void set(Contact contact, String value) {
+            contact.setLastName(value);
+        }
+    },
+    PHONE(ContactStatus.INVALID_PHONE) {
+        @Override
+        public boolean isValid(String value) {
+            return ContactValidator.isValidPhone(value);
+        }
+
+        @Override
+        public void requireValid(String value) {
+            ContactValidator.requirePhone(value);
+        }
+
+        @Override
+        public String get(Contact contact) {
+            return contact.getPhone();
+        }
+
+        @Override
+        public void set(Contact contact, String value) {
+            contact.setPhone(value);
+        }
+    },
+    ADDRESS(ContactStatus.INVALID_ADDRESS) {
+        @Override
+        public boolean isValid(String value) {
+            return ContactValidator.isValidAddress(value);
+        }
+
+        @Override
+        public void requireValid(String value) {
+            ContactValidator.requireAddress(value);
+        }
+
+        @Override
+        public String get(Contact contact) {
+            return contact.getAddress();
+        }
+
+        @Override
+        public void set(Contact contact, String value) {
+            contact.setAddress(value);
+        }
+    };
+
+    private final ContactStatus invalidStatus;
+
+    ContactField(ContactStatus invalidStatus) {
+        this.invalidStatus = invalidStatus;
+    }
+
+    /**
+     * Checks a new value for this field
+     * @param value The value to check
+     * @return true if the value passes the field's validation rule
+     */
+    public abstract boolean isValid(String value);
+
+    /**
+     * Validates a new value for this field
+     * @param value The value to validate
+     * @throws IllegalArgumentException with the same message as the Contact setter if the value is invalid
+     */
+    public abstract void requireValid(String value);
+
+    /**
+     * Reads this field from a contact
+     * @param contact The contact to read
+     * @return The current value of the field
+     */
+    public abstract String get(Contact contact);
+
+    /**
+     * Writes this field on a contact using the contact's validating setter
+     * @param contact The contact to update
+     * @param value The new value
+     * @throws IllegalArgumentException if the value is invalid
+     */
+    public abstract void set(Contact contact, String value);
+
+    /**
+     * Gets the status reported when a value for this field is rejected
+     * @return The invalid-value status for this field
+     */
+    public ContactStatus getInvalidStatus() {
+        return invalidStatus;
+    }
+}
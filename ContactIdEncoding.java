@@ -0,0 +1,68 @@
+package com.grandstrand;
+
+/**
+ * ContactIdEncoding class packing numeric contact IDs into a long, so stores can
+ * key them by a primitive instead of a String. An ID of 1 to 10 ASCII digits
+ * (MAX_ID_LENGTH) is encoded as its value in the low 34 bits and its length
+ * above them; keeping the length means IDs that differ only in leading zeros,
+ * such as "7" and "007", get different codes. Any other ID is not numeric and
+ * has no code.
+ */
+public final class ContactIdEncoding {
+    /**
+     * Returned by encode for an ID that is not numeric
+     */
+    public static final long NOT_NUMERIC = -1;
+
+    // 10 digits are below 2^34
+    private static final int VALUE_BITS = 34;
+    private static final long VALUE_MASK = (1L << VALUE_BITS) - 1;
+
+    private ContactIdEncoding() {
+    }
+
+    /**
+     * Encodes an ID
+     * @param contactId The ID (cannot be null)
+     * @return The code, never negative, or NOT_NUMERIC if the ID is empty,
+     *         longer than 10 chars, or has a char that isn't an ASCII digit
+     */
+    public static long encode(String contactId) {
+        int length = contactId.length();
+        if (length == 0 || length > ContactValidator.MAX_ID_LENGTH) {
+            return NOT_NUMERIC;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = contactId.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return NOT_NUMERIC;
+            }
+            value = value * 10 + digit;
+        }
+        return (long) length << VALUE_BITS | value;
+    }
+
+    /**
+     * Decodes a code back to its ID
+     * @param code A code returned by encode
+     * @return The ID
+     * @throws IllegalArgumentException if the code is not one encode returns
+     */
+    public static String decode(long code) {
+        int length = (int) (code >>> VALUE_BITS);
+        long value = code & VALUE_MASK;
+        if (length < 1 || length > ContactValidator.MAX_ID_LENGTH) {
+            throw new IllegalArgumentException("Not a contact ID code: " + code);
+        }
+        char[] digits = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        if (value != 0) {
+            throw new IllegalArgumentException("Not a contact ID code: " + code);
+        }
+        return new String(digits);
+    }
+}
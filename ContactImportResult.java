@@ -0,0 +1,42 @@
+package com.grandstrand;
+
+/**
+ * ContactImportResult class reporting the outcome of a ContactCsv import.
+ * Every data row is either imported or rejected; rejected rows are written to
+ * the reject file with the reason.
+ */
+public final class ContactImportResult {
+    private final long rowCount;
+    private final long importedCount;
+    private final long rejectedCount;
+
+    ContactImportResult(long rowCount, long importedCount, long rejectedCount) {
+        this.rowCount = rowCount;
+        this.importedCount = importedCount;
+        this.rejectedCount = rejectedCount;
+    }
+
+    /**
+     * Gets the number of data rows read
+     * @return The rows in the file, not counting the header and blank lines
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Gets the number of contacts added
+     * @return The rows that were valid and whose ID was not taken
+     */
+    public long getImportedCount() {
+        return importedCount;
+    }
+
+    /**
+     * Gets the number of rows written to the reject file
+     * @return The rows that were malformed, broke the Contact rules, or repeated a taken ID
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+}
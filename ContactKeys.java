@@ -0,0 +1,88 @@
+package com.grandstrand;
+
+import java.util.Random;
+
+/**
+ * ContactKeys builds the sequences of contact indexes the benchmarks look up.
+ * Every sequence comes from a fixed seed, so two runs of a benchmark touch the
+ * same keys in the same order and their scores can be compared.
+ */
+public final class ContactKeys {
+    /**
+     * Number of draws in a sequence; benchmarks cycle through it
+     */
+    static final int DRAWS = 1 << 20;
+    static final long SEED = 42;
+
+    // Zipf exponent used by YCSB: a few keys take most lookups, with a long tail
+    private static final double ZIPF_THETA = 0.99;
+    // Prime used to scatter Zipf ranks over the key space, so hot keys aren't all neighbors
+    private static final long SCATTER = 2654435761L;
+
+    /**
+     * Distribution enum for the order keys are looked up in
+     */
+    public enum Distribution {
+        SEQUENTIAL,
+        RANDOM,
+        ZIPFIAN
+    }
+
+    private ContactKeys() {
+    }
+
+    /**
+     * Creates a sequence of DRAWS indexes into a store of the given size
+     * @param distribution How the indexes are picked
+     * @param size The number of contacts
+     * @return The indexes, each in [0, size)
+     */
+    static int[] draws(Distribution distribution, int size) {
+        int[] draws = new int[DRAWS];
+        Random random = new Random(SEED);
+        switch (distribution) {
+            case SEQUENTIAL:
+                for (int i = 0; i < DRAWS; i++) {
+                    draws[i] = i % size;
+                }
+                break;
+            case RANDOM:
+                for (int i = 0; i < DRAWS; i++) {
+                    draws[i] = random.nextInt(size);
+                }
+                break;
+            default:
+                zipfian(draws, size, random);
+                break;
+        }
+        return draws;
+    }
+
+    /**
+     * Fills draws with Zipf-distributed ranks using the method of Gray et al.
+     * ("Quickly Generating Billion-Record Synthetic Databases"), as YCSB does
+     */
+    private static void zipfian(int[] draws, int size, Random random) {
+        double zetaN = 0;
+        for (int i = 1; i <= size; i++) {
+            zetaN += 1 / Math.pow(i, ZIPF_THETA);
+        }
+        double zeta2 = 1 + 1 / Math.pow(2, ZIPF_THETA);
+        double alpha = 1 / (1 - ZIPF_THETA);
+        double eta = (1 - Math.pow(2.0 / size, 1 - ZIPF_THETA)) / (1 - zeta2 / zetaN);
+        boolean scatter = size % SCATTER != 0;
+        for (int i = 0; i < draws.length; i++) {
+            double u = random.nextDouble();
+            double uz = u * zetaN;
+            long rank;
+            if (uz < 1) {
+                rank = 0;
+            } else if (uz < zeta2) {
+                rank = 1;
+            } else {
+                rank = Math.min(size - 1, (long) (size * Math.pow(eta * u - eta + 1, alpha)));
+            }
+            draws[i] = (int) (scatter ? rank * SCATTER % size : rank);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.grandstrand;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ContactMetrics class counting ContactService operations and timing them.
+ * Pass one to the ContactService constructor to turn instrumentation on; a
+ * service without one skips all of it. For each operation it keeps a count per
+ * outcome (ContactStatus) and an HDR-style latency histogram. Every counter and
+ * histogram bucket is a LongAdder, so threads recording at the same time update
+ * separate cells instead of fighting over one cache line.
+ * <p>
+ * Every call is counted, but reading the clock twice costs more than the rest of
+ * the instrumentation together, so by default only one call in 8, picked at
+ * random, is timed. The histograms are built from that sample; use
+ * ContactMetrics(1) to time every call.
+ * <p>
+ * Histogram buckets are log-linear: values below 32 ns get a bucket each, and
+ * every power of two above that is split into 32 buckets, so any recorded
+ * latency is reported within about 3% of its true value. Latencies above about
+ * 18 minutes land in the last bucket.
+ * <p>
+ * Read the numbers with snapshot(). Counters keep running while a snapshot is
+ * taken, so a snapshot is not an atomic cut across all of them.
+ */
+public final class ContactMetrics {
+    static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int MAX_MAGNITUDE = 40;
+    static final int BUCKETS = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+    private static final int DEFAULT_SAMPLE_INTERVAL = 8;
+    // Returned by start() for a call that is not timed; System.nanoTime() may be
+    // 0 or negative, but never this far from every other reading
+    static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final ContactStatus[] STATUSES = ContactStatus.values();
+
+    /**
+     * Operation enum naming the ContactService methods that are measured
+     */
+    public enum Operation {
+        ADD,
+        DELETE,
+        GET,
+        UPDATE_FIRST_NAME,
+        UPDATE_LAST_NAME,
+        UPDATE_PHONE,
+        UPDATE_ADDRESS,
+        UPDATE_CONTACT,
+        ADD_BATCH,
+        DELETE_BATCH,
+        UPDATE_BATCH
+    }
+
+    private final LongAdder[][] outcomes = new LongAdder[OPERATIONS.length][STATUSES.length];
+    private final LongAdder[][] latencies = new LongAdder[OPERATIONS.length][BUCKETS];
+    private final LongAdder[] totalNanos = new LongAdder[OPERATIONS.length];
+    private final int sampleMask;
+
+    /**
+     * Constructor that times one call in 8
+     */
+    public ContactMetrics() {
+        this(DEFAULT_SAMPLE_INTERVAL);
+    }
+
+    /**
+     * Constructor that creates every counter up front, so recording never allocates
+     * @param sampleInterval Time one call in this many (a power of two; 1 times every call)
+     */
+    public ContactMetrics(int sampleInterval) {
+        if (sampleInterval < 1 || Integer.bitCount(sampleInterval) != 1) {
+            throw new IllegalArgumentException("Sample interval must be a positive power of two");
+        }
+        this.sampleMask = sampleInterval - 1;
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            for (int status = 0; status < STATUSES.length; status++) {
+                outcomes[op][status] = new LongAdder();
+            }
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                latencies[op][bucket] = new LongAdder();
+            }
+            totalNanos[op] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records one finished operation timed by the caller. Only for the load
+     * tools and tests; the service itself goes through start() and finish().
+     * @param operation The operation
+     * @param status Its outcome
+     * @param nanos How long it took
+     */
+    void record(Operation operation, ContactStatus status, long nanos) {
+        int op = operation.ordinal();
+        outcomes[op][status.ordinal()].increment();
+        latencies[op][bucketOf(nanos)].increment();
+        totalNanos[op].add(nanos);
+    }
+
+    /**
+     * Starts timing a call if it is picked for the latency sample
+     * @return The start time, or NOT_TIMED if the call is not timed
+     */
+    long start() {
+        if (sampleMask != 0 && (ThreadLocalRandom.current().nextInt() & sampleMask) != 0) {
+            return NOT_TIMED;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Counts a finished call, and records its latency if start() timed it
+     */
+    void finish(Operation operation, ContactStatus status, long start) {
+        int op = operation.ordinal();
+        outcomes[op][status.ordinal()].increment();
+        if (start != NOT_TIMED) {
+            long nanos = System.nanoTime() - start;
+            latencies[op][bucketOf(nanos)].increment();
+            totalNanos[op].add(nanos);
+        }
+    }
+
+    /**
+     * Reads the current counts
+     * @return A copy of every counter and histogram
+     */
+    public ContactMetricsSnapshot snapshot() {
+        long[][] outcomeCounts = new long[OPERATIONS.length][STATUSES.length];
+        long[][] latencyCounts = new long[OPERATIONS.length][BUCKETS];
+        long[] nanos = new long[OPERATIONS.length];
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            for (int status = 0; status < STATUSES.length; status++) {
+                outcomeCounts[op][status] = outcomes[op][status].sum();
+            }
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                latencyCounts[op][bucket] = latencies[op][bucket].sum();
+            }
+            nanos[op] = totalNanos[op].sum();
+        }
+        return new ContactMetricsSnapshot(outcomeCounts, latencyCounts, nanos);
+    }
+
+    /**
+     * Gets the histogram bucket for a latency
+     */
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return nanos < 0 ? 0 : (int) nanos;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(nanos);
+        if (magnitude > MAX_MAGNITUDE) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (nanos >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Gets the largest latency that falls in a bucket
+     */
+    static long bucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int magnitude = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = SUB_BUCKETS + bucket % SUB_BUCKETS;
+        return ((sub + 1) << (magnitude - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,115 @@
+package com.grandstrand;
+
+/**
+ * ContactMetricsSnapshot class holding the counts a ContactMetrics had when it was read.
+ * Latencies are in nanoseconds.
+ */
+public final class ContactMetricsSnapshot {
+    private final long[][] outcomes;
+    private final long[][] latencies;
+    private final long[] totalNanos;
+
+    ContactMetricsSnapshot(long[][] outcomes, long[][] latencies, long[] totalNanos) {
+        this.outcomes = outcomes;
+        this.latencies = latencies;
+        this.totalNanos = totalNanos;
+    }
+
+    /**
+     * Gets how many times an operation ended with an outcome
+     * @param operation The operation
+     * @param status The outcome
+     * @return The count
+     */
+    public long getCount(ContactMetrics.Operation operation, ContactStatus status) {
+        return outcomes[operation.ordinal()][status.ordinal()];
+    }
+
+    /**
+     * Gets how many times an operation ran, whatever the outcome
+     * @param operation The operation
+     * @return The count
+     */
+    public long getCount(ContactMetrics.Operation operation) {
+        long count = 0;
+        for (long outcome : outcomes[operation.ordinal()]) {
+            count += outcome;
+        }
+        return count;
+    }
+
+    /**
+     * Gets the mean latency of an operation
+     * @param operation The operation
+     * @return The mean of the timed calls in nanoseconds, or 0 if none were timed
+     */
+    public double getMeanNanos(ContactMetrics.Operation operation) {
+        long timed = getTimedCount(operation);
+        return timed == 0 ? 0 : (double) totalNanos[operation.ordinal()] / timed;
+    }
+
+    /**
+     * Gets how many calls of an operation were timed for the latency histogram
+     * @param operation The operation
+     * @return The number of timed calls
+     */
+    public long getTimedCount(ContactMetrics.Operation operation) {
+        long count = 0;
+        for (long bucket : latencies[operation.ordinal()]) {
+            count += bucket;
+        }
+        return count;
+    }
+
+    /**
+     * Gets a latency percentile of an operation
+     * @param operation The operation
+     * @param percentile The percentile, from 0 to 100 (for example 99 or 99.9)
+     * @return The latency that percentile of timed calls finished within, to
+     *         about 3%, or 0 if none were timed
+     */
+    public long getPercentileNanos(ContactMetrics.Operation operation, double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        long[] buckets = latencies[operation.ordinal()];
+        long count = getTimedCount(operation);
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            seen += buckets[bucket];
+            if (seen >= rank) {
+                return ContactMetrics.bucketUpperBound(bucket);
+            }
+        }
+        return ContactMetrics.bucketUpperBound(buckets.length - 1);
+    }
+
+    /**
+     * Formats one line per operation that ran: count, failures by outcome, and latency percentiles
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        for (ContactMetrics.Operation operation : ContactMetrics.Operation.values()) {
+            long count = getCount(operation);
+            if (count == 0) {
+                continue;
+            }
+            report.append(operation).append(" count=").append(count);
+            for (ContactStatus status : ContactStatus.values()) {
+                long outcome = getCount(operation, status);
+                if (status != ContactStatus.OK && outcome > 0) {
+                    report.append(' ').append(status).append('=').append(outcome);
+                }
+            }
+            report.append(String.format(" mean=%.0fns p50=%dns p99=%dns p99.9=%dns max=%dns%n",
+                    getMeanNanos(operation), getPercentileNanos(operation, 50), getPercentileNanos(operation, 99),
+                    getPercentileNanos(operation, 99.9), getPercentileNanos(operation, 100)));
+        }
+        return report.toString();
+    }
+}
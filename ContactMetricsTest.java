@@ -0,0 +1,107 @@
+package com.grandstrand;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ContactMetrics and ContactMetricsSnapshot classes.
+ * Tests outcome counts recorded by ContactService and the accuracy of the latency histogram.
+ */
+public class ContactMetricsTest {
+    private ContactMetrics metrics;
+    private ContactService contactService;
+
+    @BeforeEach
+    public void setUp() {
+        metrics = new ContactMetrics();
+        contactService = new ContactService(new HeapContactStore(), metrics);
+    }
+
+    @Test
+    public void testOutcomesAreCountedPerOperation() {
+        contactService.addContact(new Contact("123", "John", "Doe", "1234567890", "123 Main St"));
+        assertThrows(IllegalArgumentException.class,
+                () -> contactService.addContact(new Contact("123", "Jane", "Doe", "1234567890", "123 Main St")));
+        assertThrows(IllegalArgumentException.class, () -> contactService.addContact(null));
+        contactService.getContact("123");
+        assertThrows(IllegalArgumentException.class, () -> contactService.getContact("missing"));
+        contactService.updatePhone("123", "0987654321");
+        assertThrows(IllegalArgumentException.class, () -> contactService.updatePhone("123", "12345"));
+        assertThrows(IllegalArgumentException.class, () -> contactService.updatePhone("missing", "0987654321"));
+        assertEquals(ContactStatus.NULL_UPDATE, contactService.tryUpdateContact("123", null, ContactStore.ANY_VERSION));
+        assertThrows(IllegalArgumentException.class, () -> contactService.updateContact("123", null));
+        contactService.deleteContact("123");
+        
+        ContactMetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.getCount(ContactMetrics.Operation.UPDATE_CONTACT, ContactStatus.NULL_UPDATE));
+        assertEquals(3, snapshot.getCount(ContactMetrics.Operation.ADD));
+        assertEquals(1, snapshot.getCount(ContactMetrics.Operation.ADD, ContactStatus.OK));
+        assertEquals(1, snapshot.getCount(ContactMetrics.Operation.ADD, ContactStatus.DUPLICATE_ID));
+        assertEquals(1, snapshot.getCount(ContactMetrics.Operation.ADD, ContactStatus.NULL_CONTACT));
+        assertEquals(1, snapshot.getCount(ContactMetrics.Operation.GET, ContactStatus.NOT_FOUND));
+        assertEquals(1, snapshot.getCount(ContactMetrics.Operation.UPDATE_PHONE, ContactStatus.OK));
+        assertEquals(1, snapshot.getCount(ContactMetrics.Operation.UPDATE_PHONE, ContactStatus.INVALID_PHONE));
+        assertEquals(1, snapshot.getCount(ContactMetrics.Operation.UPDATE_PHONE, ContactStatus.NOT_FOUND));
+        assertEquals(1, snapshot.getCount(ContactMetrics.Operation.DELETE, ContactStatus.OK));
+        assertEquals(0, snapshot.getCount(ContactMetrics.Operation.UPDATE_ADDRESS));
+        assertTrue(snapshot.toString().contains("ADD count=3 NULL_CONTACT=1 DUPLICATE_ID=1"));
+    }
+
+    @Test
+    public void testBatchOutcomeIsFirstFailure() {
+        contactService.addContact(new Contact("123", "John", "Doe", "1234567890", "123 Main St"));
+        contactService.deleteContacts(Arrays.asList("123", "missing"));
+        
+        ContactMetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.getCount(ContactMetrics.Operation.DELETE_BATCH, ContactStatus.NOT_FOUND));
+        assertTrue(contactService.contactExists("123"));
+    }
+
+    @Test
+    public void testPercentilesAreWithinBucketPrecision() {
+        for (long nanos = 1; nanos <= 100000; nanos++) {
+            metrics.record(ContactMetrics.Operation.GET, ContactStatus.OK, nanos);
+        }
+        ContactMetricsSnapshot snapshot = metrics.snapshot();
+        
+        assertEquals(50000, snapshot.getPercentileNanos(ContactMetrics.Operation.GET, 50), 50000 * 0.04);
+        assertEquals(99000, snapshot.getPercentileNanos(ContactMetrics.Operation.GET, 99), 99000 * 0.04);
+        assertEquals(100000, snapshot.getPercentileNanos(ContactMetrics.Operation.GET, 100), 100000 * 0.04);
+        assertEquals(50000.5, snapshot.getMeanNanos(ContactMetrics.Operation.GET), 0.001);
+        assertEquals(0, snapshot.getPercentileNanos(ContactMetrics.Operation.DELETE, 99));
+        assertThrows(IllegalArgumentException.class,
+                () -> snapshot.getPercentileNanos(ContactMetrics.Operation.GET, 101));
+    }
+
+    @Test
+    public void testBucketBoundsCoverEveryValue() {
+        long[] samples = {0, 1, 31, 32, 33, 63, 64, 65, 1000, 123456789, 1L << 40, Long.MAX_VALUE};
+        for (long nanos : samples) {
+            int bucket = ContactMetrics.bucketOf(nanos);
+            if (bucket < ContactMetrics.BUCKETS - 1) {
+                assertTrue(nanos <= ContactMetrics.bucketUpperBound(bucket));
+                assertTrue(bucket == 0 || nanos > ContactMetrics.bucketUpperBound(bucket - 1));
+            }
+        }
+        assertEquals(ContactMetrics.BUCKETS - 1, ContactMetrics.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testLatencyIsSampled() {
+        contactService.addContact(new Contact("123", "John", "Doe", "1234567890", "123 Main St"));
+        for (int i = 0; i < 8000; i++) {
+            contactService.getContact("123");
+        }
+        ContactMetricsSnapshot snapshot = metrics.snapshot();
+        
+        assertEquals(8000, snapshot.getCount(ContactMetrics.Operation.GET));
+        assertTrue(snapshot.getTimedCount(ContactMetrics.Operation.GET) > 500);
+        assertTrue(snapshot.getTimedCount(ContactMetrics.Operation.GET) < 1500);
+        assertTrue(snapshot.getPercentileNanos(ContactMetrics.Operation.GET, 50) > 0);
+        assertThrows(IllegalArgumentException.class, () -> new ContactMetrics(3));
+    }
+}
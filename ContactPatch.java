@@ -0,0 +1,86 @@
+package com.grandstrand;
+
+/**
+ * ContactPatch class describing a change to several fields of one contact.
+ * Each field that is set is validated right away with the same rules and
+ * messages as the Contact setters; fields that are not set stay unchanged.
+ * Setters return the patch so changes can be chained:
+ * <pre>
+ *   contactService.updateContact("123", new ContactPatch().firstName("Jane").phone("0987654321"))
+ * </pre>
+ */
+public final class ContactPatch {
+    private static final ContactField[] FIELDS = ContactField.values();
+
+    // Indexed by field ordinal; null means the field is not changed
+    private final String[] values = new String[FIELDS.length];
+
+    public ContactPatch firstName(String firstName) {
+        return set(ContactField.FIRST_NAME, firstName);
+    }
+
+    public ContactPatch lastName(String lastName) {
+        return set(ContactField.LAST_NAME, lastName);
+    }
+
+    public ContactPatch phone(String phone) {
+        return set(ContactField.PHONE, phone);
+    }
+
+    public ContactPatch address(String address) {
+        return set(ContactField.ADDRESS, address);
+    }
+
+    /**
+     * Sets the new value of a field
+     * @param field The field to change
+     * @param value The new value
+     * @return This patch
+     * @throws IllegalArgumentException if the value is invalid for the field
+     */
+    public ContactPatch set(ContactField field, String value) {
+        field.requireValid(value);
+        values[field.ordinal()] = value;
+        return this;
+    }
+
+    /**
+     * Gets the new value of a field
+     * @param field The field
+     * @return The new value, or null if the patch doesn't change the field
+     */
+    public String get(ContactField field) {
+        return values[field.ordinal()];
+    }
+
+    /**
+     * Checks if the patch changes any field
+     * @return true if no field is set
+     */
+    public boolean isEmpty() {
+        for (String value : values) {
+            if (value != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds a copy of a contact with the patch applied. Stores swap the copy in
+     * for the stored contact rather than changing it a field at a time, so a
+     * reader holding the stored contact never sees half a patch.
+     * @param contact The contact to copy
+     * @return A new contact with version 0, for the store to stamp
+     */
+    Contact appliedTo(Contact contact) {
+        return new Contact(contact.getContactId(), valueOr(ContactField.FIRST_NAME, contact.getFirstName()),
+                valueOr(ContactField.LAST_NAME, contact.getLastName()), valueOr(ContactField.PHONE, contact.getPhone()),
+                valueOr(ContactField.ADDRESS, contact.getAddress()));
+    }
+
+    private String valueOr(ContactField field, String current) {
+        String value = values[field.ordinal()];
+        return value == null ? current : value;
+    }
+}
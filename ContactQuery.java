@@ -0,0 +1,129 @@
+package com.grandstrand;
+
+/**
+ * ContactQuery class describing which contacts ContactService.query returns.
+ * Every condition that is set must match; a new query matches every contact.
+ * Setters return the query so conditions can be chained:
+ * <pre>
+ *   contactService.query(new ContactQuery().namePrefix("jo").areaCode("555").limit(20))
+ * </pre>
+ */
+public final class ContactQuery {
+    private static final int AREA_CODE_LENGTH = 3;
+
+    private String namePrefix;
+    private String areaCode;
+    private String addressContains;
+    private long offset;
+    private long limit = Long.MAX_VALUE;
+
+    /**
+     * Matches contacts whose first or last name starts with a prefix, ignoring case
+     * @param namePrefix The start of the name
+     * @return This query
+     */
+    public ContactQuery namePrefix(String namePrefix) {
+        if (namePrefix == null) {
+            throw new IllegalArgumentException("Name prefix cannot be null");
+        }
+        this.namePrefix = namePrefix;
+        return this;
+    }
+
+    /**
+     * Matches contacts whose phone number starts with an area code
+     * @param areaCode The first three digits of the phone number
+     * @return This query
+     */
+    public ContactQuery areaCode(String areaCode) {
+        if (areaCode == null || areaCode.length() != AREA_CODE_LENGTH) {
+            throw new IllegalArgumentException("Area code must be 3 digits");
+        }
+        for (int i = 0; i < AREA_CODE_LENGTH; i++) {
+            char c = areaCode.charAt(i);
+            // Phone numbers only hold ASCII digits, as in ContactValidator
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Area code must be 3 digits");
+            }
+        }
+        this.areaCode = areaCode;
+        return this;
+    }
+
+    /**
+     * Matches contacts whose address contains some text, ignoring case
+     * @param text The text to look for
+     * @return This query
+     */
+    public ContactQuery addressContains(String text) {
+        if (text == null) {
+            throw new IllegalArgumentException("Address text cannot be null");
+        }
+        this.addressContains = text;
+        return this;
+    }
+
+    /**
+     * Skips the first matching contacts
+     * @param offset The number of matches to skip
+     * @return This query
+     */
+    public ContactQuery offset(long offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset cannot be negative");
+        }
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Stops after a number of matching contacts
+     * @param limit The most matches to return
+     * @return This query
+     */
+    public ContactQuery limit(long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Checks a contact against the conditions of this query
+     * @param contact The contact to check
+     * @return true if the contact matches every condition that is set
+     */
+    public boolean matches(Contact contact) {
+        if (areaCode != null && !contact.getPhone().startsWith(areaCode)) {
+            return false;
+        }
+        if (namePrefix != null && !startsWithIgnoreCase(contact.getFirstName(), namePrefix)
+                && !startsWithIgnoreCase(contact.getLastName(), namePrefix)) {
+            return false;
+        }
+        return addressContains == null || containsIgnoreCase(contact.getAddress(), addressContains);
+    }
+
+    // regionMatches compares case-insensitively without creating lower-case copies of every field
+    private static boolean startsWithIgnoreCase(String value, String prefix) {
+        return value.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    private static boolean containsIgnoreCase(String value, String text) {
+        for (int i = 0; i <= value.length() - text.length(); i++) {
+            if (value.regionMatches(true, i, text, 0, text.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
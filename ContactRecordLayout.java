@@ -0,0 +1,150 @@
+package com.grandstrand;
+
+/**
+ * ContactRecordLayout holds the fixed-width encoding shared by the packed stores.
+ * A record is 60 bytes of Latin-1 text (id, first name, last name, address, each
+ * padded to its maximum length) plus one long of metadata:
+ * <pre>
+ *   bits  0-33  phone as a number (10 digits fit in 34 bits)
+ *   bits 34-37  id length        bits 38-41  first name length
+ *   bits 42-45  last name length bits 46-50  address length
+ *   bit  62     wide: the fields don't fit Latin-1 and are kept on the heap instead
+ *   bit  63     live: the slot holds a contact
+ * </pre>
+ */
+final class ContactRecordLayout {
+    static final int ID_OFFSET = 0;
+    static final int FIRST_NAME_OFFSET = ID_OFFSET + ContactValidator.MAX_ID_LENGTH;
+    static final int LAST_NAME_OFFSET = FIRST_NAME_OFFSET + ContactValidator.MAX_NAME_LENGTH;
+    static final int ADDRESS_OFFSET = LAST_NAME_OFFSET + ContactValidator.MAX_NAME_LENGTH;
+    static final int TEXT_BYTES = ADDRESS_OFFSET + ContactValidator.MAX_ADDRESS_LENGTH;
+
+    static final long PHONE_MASK = (1L << 34) - 1;
+    static final int ID_LENGTH_SHIFT = 34;
+    static final int FIRST_NAME_LENGTH_SHIFT = 38;
+    static final int LAST_NAME_LENGTH_SHIFT = 42;
+    static final int ADDRESS_LENGTH_SHIFT = 46;
+    static final long WIDE = 1L << 62;
+    static final long LIVE = 1L << 63;
+
+    private ContactRecordLayout() {
+    }
+
+    /**
+     * Checks if every character of a value fits in one Latin-1 byte
+     */
+    static boolean isLatin1(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if every text field of a contact fits in one Latin-1 byte per character
+     */
+    static boolean isLatin1(Contact contact) {
+        return isLatin1(contact.getContactId()) && isLatin1(contact.getFirstName())
+                && isLatin1(contact.getLastName()) && isLatin1(contact.getAddress());
+    }
+
+    /**
+     * Packs the metadata long for a Latin-1 contact
+     */
+    static long meta(Contact contact) {
+        return LIVE
+                | encodePhone(contact.getPhone())
+                | (long) contact.getContactId().length() << ID_LENGTH_SHIFT
+                | (long) contact.getFirstName().length() << FIRST_NAME_LENGTH_SHIFT
+                | (long) contact.getLastName().length() << LAST_NAME_LENGTH_SHIFT
+                | (long) contact.getAddress().length() << ADDRESS_LENGTH_SHIFT;
+    }
+
+    static int idLength(long meta) {
+        return (int) (meta >>> ID_LENGTH_SHIFT) & 0xF;
+    }
+
+    static int firstNameLength(long meta) {
+        return (int) (meta >>> FIRST_NAME_LENGTH_SHIFT) & 0xF;
+    }
+
+    static int lastNameLength(long meta) {
+        return (int) (meta >>> LAST_NAME_LENGTH_SHIFT) & 0xF;
+    }
+
+    static int addressLength(long meta) {
+        return (int) (meta >>> ADDRESS_LENGTH_SHIFT) & 0x1F;
+    }
+
+    /**
+     * Gets the byte offset of a field within the record text
+     */
+    static int offset(ContactField field) {
+        switch (field) {
+            case FIRST_NAME:
+                return FIRST_NAME_OFFSET;
+            case LAST_NAME:
+                return LAST_NAME_OFFSET;
+            case ADDRESS:
+                return ADDRESS_OFFSET;
+            default:
+                throw new IllegalArgumentException("Field is not stored as text: " + field);
+        }
+    }
+
+    /**
+     * Gets the shift of a field's length bits within the metadata long
+     */
+    static int lengthShift(ContactField field) {
+        switch (field) {
+            case FIRST_NAME:
+                return FIRST_NAME_LENGTH_SHIFT;
+            case LAST_NAME:
+                return LAST_NAME_LENGTH_SHIFT;
+            case ADDRESS:
+                return ADDRESS_LENGTH_SHIFT;
+            default:
+                throw new IllegalArgumentException("Field is not stored as text: " + field);
+        }
+    }
+
+    /**
+     * Gets the mask of a field's length bits, already shifted into place
+     */
+    static long lengthMask(ContactField field) {
+        return (field == ContactField.ADDRESS ? 0x1FL : 0xFL) << lengthShift(field);
+    }
+
+    /**
+     * Converts a validated 10-digit phone to a number; leading zeros come back from decodePhone
+     */
+    static long encodePhone(String phone) {
+        long value = 0;
+        for (int i = 0; i < ContactValidator.PHONE_LENGTH; i++) {
+            value = value * 10 + (phone.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Converts the phone bits of a metadata long back to a 10-digit string
+     */
+    static String decodePhone(long meta) {
+        long value = meta & PHONE_MASK;
+        char[] digits = new char[ContactValidator.PHONE_LENGTH];
+        for (int i = digits.length - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(digits);
+    }
+
+    /**
+     * Spreads a String hash so linear probing over a power-of-two table stays even
+     */
+    static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
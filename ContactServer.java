@@ -0,0 +1,475 @@
+package com.grandstrand;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ContactServer class serving a ContactService over a line protocol on TCP
+ * sockets, for clients in other processes on the same host. Each request and
+ * response is one line of tab-separated fields ending in \n:
+ * <pre>
+ *   ADD    id first last phone address  -&gt;  OK | ERR status
+ *   GET    id                           -&gt;  OK id first last phone address version | ERR NOT_FOUND
+ *   UPDATE id field value               -&gt;  OK | ERR status
+ *   DELETE id                           -&gt;  OK | ERR NOT_FOUND
+ * </pre>
+ * field is a ContactField name (FIRST_NAME, LAST_NAME, PHONE, ADDRESS) and
+ * status a ContactStatus name. Backslash, tab, newline and carriage return in a
+ * value are sent as \\, \t, \n and \r. A request that can't be parsed gets
+ * ERR BAD_REQUEST; a line longer than MAX_LINE_BYTES also closes the connection.
+ * <p>
+ * Every connection is served by its own thread, which reads a request, calls the
+ * service and writes the response, so the code is plain blocking I/O. On Java 21
+ * and later those are virtual threads, and an idle connection costs a few
+ * kilobytes instead of a platform thread's stack, so tens of thousands of
+ * connections fit. Older JVMs fall back to platform threads with small stacks.
+ * <p>
+ * Clients may pipeline: send many requests without waiting for the responses.
+ * Responses come back in request order, and are buffered and flushed only once
+ * every request already received has been answered, so a pipelined batch is
+ * answered in one write.
+ */
+public class ContactServer implements Closeable {
+    /**
+     * Longest request line accepted, in bytes; enough for an ADD with every
+     * field at its limit and every char escaped or 3 bytes of UTF-8
+     */
+    public static final int MAX_LINE_BYTES = 512;
+
+    private static final int BUFFER_BYTES = 8192;
+    // Stack size of fallback platform threads; a request needs only a few frames
+    private static final long PLATFORM_STACK_BYTES = 256 * 1024;
+    private static final long ACCEPT_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final byte[] OK = "OK\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BAD_REQUEST = "ERR\tBAD_REQUEST\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final ContactService contactService;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connectionThreads;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+    private volatile boolean closed;
+
+    private ContactServer(ContactService contactService, ServerSocket serverSocket) {
+        this.contactService = contactService;
+        this.serverSocket = serverSocket;
+        this.connectionThreads = newThreadPerTaskExecutor("contact-server");
+        this.acceptor = new Thread(this::acceptConnections, "contact-server-accept");
+        this.acceptor.setDaemon(true);
+    }
+
+    /**
+     * Starts a server listening on an address
+     * @param contactService The service to serve (cannot be null)
+     * @param address Where to listen; port 0 picks a free port
+     * @param backlog How many connections may wait to be accepted
+     * @return The running server
+     * @throws IOException if the address cannot be bound
+     */
+    public static ContactServer start(ContactService contactService, InetSocketAddress address, int backlog)
+            throws IOException {
+        if (contactService == null || address == null) {
+            throw new IllegalArgumentException("Service and address cannot be null");
+        }
+        ServerSocket serverSocket = new ServerSocket();
+        try {
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(address, backlog);
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+        ContactServer server = new ContactServer(contactService, serverSocket);
+        server.acceptor.start();
+        return server;
+    }
+
+    /**
+     * Creates an executor running each task on a new thread: a virtual thread if
+     * the JVM has them (Java 21 and later), otherwise a daemon platform thread
+     * with a small stack
+     * @param name The name prefix of the platform threads
+     * @return The executor
+     */
+    static ExecutorService newThreadPerTaskExecutor(String name) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            // Not there before Java 21, and a disabled preview on 19 and 20
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(null, task, name + "-" + count.incrementAndGet(), PLATFORM_STACK_BYTES);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Checks whether connections are served on virtual threads
+     * @return true on a JVM with virtual threads
+     */
+    public boolean usesVirtualThreads() {
+        // The fallback is a cached thread pool
+        return !(connectionThreads instanceof ThreadPoolExecutor);
+    }
+
+    /**
+     * Gets the port the server listens on
+     * @return The port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Gets the number of open client connections
+     * @return The connection count
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    private void acceptConnections() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                // Closing the server socket ends the loop. Anything else is one failed
+                // accept, such as running out of file descriptors: back off before retrying.
+                if (!closed) {
+                    LockSupport.parkNanos(ACCEPT_RETRY_NANOS);
+                }
+                continue;
+            }
+            connections.add(socket);
+            try {
+                connectionThreads.execute(() -> serve(socket));
+            } catch (RejectedExecutionException e) {
+                closeQuietly(socket);
+                connections.remove(socket);
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            new Connection(socket.getInputStream(), socket.getOutputStream()).run();
+        } catch (IOException e) {
+            // The client went away or the server is closing; either way this connection is done
+        } finally {
+            closeQuietly(socket);
+            connections.remove(socket);
+        }
+    }
+
+    /**
+     * Stops accepting connections and closes every open one
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        try {
+            // Once the acceptor is done no connection can be added behind the loop below
+            acceptor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Socket socket : connections) {
+            closeQuietly(socket);
+        }
+        connectionThreads.shutdown();
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing left to do with it
+        }
+    }
+
+    /**
+     * Connection class reading requests from one client and answering them in order
+     */
+    private final class Connection {
+        private final InputStream in;
+        private final OutputStream out;
+        private final byte[] input = new byte[BUFFER_BYTES];
+        private final byte[] output = new byte[BUFFER_BYTES];
+        private final String[] fields = new String[6];
+        private final StringBuilder response = new StringBuilder(128);
+        private int start;
+        private int end;
+        private int outputLength;
+
+        Connection(InputStream in, OutputStream out) {
+            this.in = in;
+            this.out = out;
+        }
+
+        void run() throws IOException {
+            while (true) {
+                int newline = indexOfNewline();
+                if (newline < 0) {
+                    if (end - start >= MAX_LINE_BYTES) {
+                        write(BAD_REQUEST);
+                        flush();
+                        return;
+                    }
+                    // Every complete request has been answered, so send the batch before blocking
+                    if (in.available() == 0) {
+                        flush();
+                    }
+                    if (!fill()) {
+                        flush();
+                        return;
+                    }
+                    continue;
+                }
+                if (newline - start > MAX_LINE_BYTES) {
+                    write(BAD_REQUEST);
+                    flush();
+                    return;
+                }
+                int lineEnd = newline > start && input[newline - 1] == '\r' ? newline - 1 : newline;
+                handle(start, lineEnd);
+                start = newline + 1;
+            }
+        }
+
+        private int indexOfNewline() {
+            for (int i = start; i < end; i++) {
+                if (input[i] == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Reads more input after the unread bytes, moving them to the front first
+         * @return false at the end of the stream
+         */
+        private boolean fill() throws IOException {
+            if (start > 0) {
+                System.arraycopy(input, start, input, 0, end - start);
+                end -= start;
+                start = 0;
+            }
+            int read = in.read(input, end, input.length - end);
+            if (read < 0) {
+                return false;
+            }
+            end += read;
+            return true;
+        }
+
+        private void handle(int lineStart, int lineEnd) throws IOException {
+            int count = split(lineStart, lineEnd);
+            if (count < 0) {
+                write(BAD_REQUEST);
+                return;
+            }
+            switch (fields[0]) {
+                case "ADD":
+                    if (count == 6) {
+                        writeStatus(add());
+                        return;
+                    }
+                    break;
+                case "GET":
+                    if (count == 2) {
+                        writeContact(contactService.findContact(fields[1]));
+                        return;
+                    }
+                    break;
+                case "UPDATE":
+                    if (count == 4) {
+                        ContactStatus status = update();
+                        if (status != null) {
+                            writeStatus(status);
+                            return;
+                        }
+                    }
+                    break;
+                case "DELETE":
+                    if (count == 2) {
+                        writeStatus(contactService.tryDeleteContact(fields[1]));
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            write(BAD_REQUEST);
+        }
+
+        private ContactStatus add() {
+            ContactStatus status = ContactValidator.validate(fields[1], fields[2], fields[3], fields[4], fields[5]);
+            return status != ContactStatus.OK ? status
+                    : contactService.tryAddContact(new Contact(fields[1], fields[2], fields[3], fields[4], fields[5]));
+        }
+
+        /**
+         * Applies an UPDATE request
+         * @return The outcome, or null if the field name is unknown
+         */
+        private ContactStatus update() {
+            switch (fields[2]) {
+                case "FIRST_NAME":
+                    return contactService.tryUpdateFirstName(fields[1], fields[3]);
+                case "LAST_NAME":
+                    return contactService.tryUpdateLastName(fields[1], fields[3]);
+                case "PHONE":
+                    return contactService.tryUpdatePhone(fields[1], fields[3]);
+                case "ADDRESS":
+                    return contactService.tryUpdateAddress(fields[1], fields[3]);
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * Splits a request line into fields, undoing the escapes
+         * @return The number of fields, or -1 if there are too many or an escape is malformed
+         */
+        private int split(int lineStart, int lineEnd) {
+            int count = 0;
+            int fieldStart = lineStart;
+            for (int i = lineStart; i <= lineEnd; i++) {
+                if (i == lineEnd || input[i] == '\t') {
+                    if (count == fields.length) {
+                        return -1;
+                    }
+                    String field = unescape(fieldStart, i);
+                    if (field == null) {
+                        return -1;
+                    }
+                    fields[count++] = field;
+                    fieldStart = i + 1;
+                }
+            }
+            return count;
+        }
+
+        private String unescape(int from, int to) {
+            String raw = new String(input, from, to - from, StandardCharsets.UTF_8);
+            if (raw.indexOf('\\') < 0) {
+                return raw;
+            }
+            StringBuilder value = new StringBuilder(raw.length());
+            for (int i = 0; i < raw.length(); i++) {
+                char c = raw.charAt(i);
+                if (c == '\\') {
+                    if (++i == raw.length()) {
+                        return null;
+                    }
+                    switch (raw.charAt(i)) {
+                        case '\\':
+                            c = '\\';
+                            break;
+                        case 't':
+                            c = '\t';
+                            break;
+                        case 'n':
+                            c = '\n';
+                            break;
+                        case 'r':
+                            c = '\r';
+                            break;
+                        default:
+                            return null;
+                    }
+                }
+                value.append(c);
+            }
+            return value.toString();
+        }
+
+        private void writeStatus(ContactStatus status) throws IOException {
+            if (status == ContactStatus.OK) {
+                write(OK);
+            } else {
+                write(("ERR\t" + status + "\n").getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+
+        private void writeContact(Optional<Contact> found) throws IOException {
+            if (found.isEmpty()) {
+                writeStatus(ContactStatus.NOT_FOUND);
+                return;
+            }
+            Contact contact = found.get();
+            response.setLength(0);
+            response.append("OK");
+            appendEscaped(contact.getContactId());
+            appendEscaped(contact.getFirstName());
+            appendEscaped(contact.getLastName());
+            appendEscaped(contact.getPhone());
+            appendEscaped(contact.getAddress());
+            response.append('\t').append(contact.getVersion()).append('\n');
+            write(response.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void appendEscaped(String value) {
+            response.append('\t');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '\\':
+                        response.append("\\\\");
+                        break;
+                    case '\t':
+                        response.append("\\t");
+                        break;
+                    case '\n':
+                        response.append("\\n");
+                        break;
+                    case '\r':
+                        response.append("\\r");
+                        break;
+                    default:
+                        response.append(c);
+                }
+            }
+        }
+
+        private void write(byte[] bytes) throws IOException {
+            if (outputLength + bytes.length > output.length) {
+                flush();
+            }
+            System.arraycopy(bytes, 0, output, outputLength, bytes.length);
+            outputLength += bytes.length;
+        }
+
+        private void flush() throws IOException {
+            if (outputLength > 0) {
+                out.write(output, 0, outputLength);
+                out.flush();
+                outputLength = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.grandstrand;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ContactServer class.
+ * Tests the line protocol over a real socket, including pipelined requests.
+ */
+public class ContactServerTest {
+
+    private ContactService contactService;
+    private ContactServer server;
+    private Socket socket;
+    private BufferedReader in;
+    private OutputStream out;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        contactService = new ContactService();
+        contactService.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+        server = ContactServer.start(contactService, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 50);
+        socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        socket.setSoTimeout(5000);
+        in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        out = socket.getOutputStream();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        socket.close();
+        server.close();
+    }
+
+    private void send(String requests) throws IOException {
+        out.write(requests.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    @Test
+    public void testGetAndUpdate() throws IOException {
+        send("GET\t1\n");
+        assertEquals("OK\t1\tJohn\tDoe\t1234567890\t123 Main St\t0", in.readLine());
+        
+        send("UPDATE\t1\tPHONE\t0987654321\n");
+        assertEquals("OK", in.readLine());
+        assertEquals("0987654321", contactService.getContact("1").getPhone());
+        
+        send("UPDATE\t1\tPHONE\t123\n");
+        assertEquals("ERR\tINVALID_PHONE", in.readLine());
+        send("GET\t2\n");
+        assertEquals("ERR\tNOT_FOUND", in.readLine());
+    }
+
+    @Test
+    public void testPipelinedRequestsAreAnsweredInOrder() throws IOException {
+        send("ADD\t2\tJane\tSmith\t0987654321\t9 Elm Ave\r\n"
+                + "ADD\t2\tJane\tSmith\t0987654321\t9 Elm Ave\n"
+                + "GET\t2\n"
+                + "DELETE\t2\n"
+                + "DELETE\t2\n"
+                + "ADD\t3\tJane\tSmith\t0987654321\t9 Elm Ave With A Very Long Name\n");
+        
+        assertEquals("OK", in.readLine());
+        assertEquals("ERR\tDUPLICATE_ID", in.readLine());
+        assertEquals("OK\t2\tJane\tSmith\t0987654321\t9 Elm Ave\t0", in.readLine());
+        assertEquals("OK", in.readLine());
+        assertEquals("ERR\tNOT_FOUND", in.readLine());
+        assertEquals("ERR\tINVALID_ADDRESS", in.readLine());
+        assertEquals(1, contactService.getContactCount());
+    }
+
+    @Test
+    public void testEscapedValuesRoundTrip() throws IOException {
+        send("UPDATE\t1\tADDRESS\tA\\tB\\\\C\\nD\n");
+        assertEquals("OK", in.readLine());
+        assertEquals("A\tB\\C\nD", contactService.getContact("1").getAddress());
+        
+        send("GET\t1\n");
+        assertEquals("OK\t1\tJohn\tDoe\t1234567890\tA\\tB\\\\C\\nD\t1", in.readLine());
+    }
+
+    @Test
+    public void testMalformedRequestsAreRejected() throws IOException {
+        send("GET\n"
+                + "FETCH\t1\n"
+                + "UPDATE\t1\tEMAIL\tx\n"
+                + "GET\t1\\x\n"
+                + "DELETE\t1\textra\n");
+        
+        for (int i = 0; i < 5; i++) {
+            assertEquals("ERR\tBAD_REQUEST", in.readLine());
+        }
+        assertTrue(contactService.contactExists("1"));
+    }
+
+    @Test
+    public void testOverlongLineClosesConnection() throws IOException {
+        send("GET\t" + "1".repeat(ContactServer.MAX_LINE_BYTES));
+        
+        assertEquals("ERR\tBAD_REQUEST", in.readLine());
+        assertNull(in.readLine());
+    }
+}
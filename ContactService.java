@@ -1,20 +1,96 @@
 package com.grandstrand;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * ContactService class for managing contacts in memory.
  * Provides functionality to add, delete, and update contacts.
+ * Contacts are kept in a ContactStore (a HeapContactStore unless another is given).
+ * The service is safe to share between request threads: adds and deletes are
+ * atomic, and reads and updates scale with the store's own locking.
+ * <p>
+ * A service given a ContactChangeFeed publishes every add, delete and update it
+ * makes to the feed. Only mutations made through the service are published.
  */
 public class ContactService {
-    private Map<String, Contact> contacts;
+    /**
+     * Store size at which query returns a parallel stream
+     */
+    public static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private static final ContactField[] FIELDS = ContactField.values();
+
+    private final ContactStore contacts;
+    // Null when instrumentation is off; every check of it is one branch on a final field
+    private final ContactMetrics metrics;
+    // Null when no change feed is attached
+    private final ContactChangeFeed changes;
 
     /**
      * Constructor initializes the contacts map
      */
     public ContactService() {
-        this.contacts = new HashMap<>();
+        this(new HeapContactStore());
+    }
+
+    /**
+     * Constructor that pre-sizes the contacts map, so bulk loads of about
+     * the expected number of contacts never pay for the map growing
+     * @param expectedContacts The number of contacts the service is expected to hold
+     */
+    public ContactService(int expectedContacts) {
+        this(new HeapContactStore(expectedContacts));
+    }
+
+    /**
+     * Constructor that pre-sizes the contacts map and shares equal names and
+     * addresses between contacts through a ContactStringPool. Worth it when
+     * values repeat heavily; each add and update pays for the pool lookups.
+     * @param expectedContacts The number of contacts the service is expected to hold
+     * @param pool The pool to take names and addresses from, or null to store them as given
+     */
+    public ContactService(int expectedContacts, ContactStringPool pool) {
+        this(new HeapContactStore(expectedContacts, pool));
+    }
+
+    /**
+     * Constructor using another storage engine
+     * @param store The store that holds the contacts (cannot be null)
+     */
+    public ContactService(ContactStore store) {
+        this(store, null);
+    }
+
+    /**
+     * Constructor using another storage engine and recording operation metrics
+     * @param store The store that holds the contacts (cannot be null)
+     * @param metrics Where to count and time operations, or null to not record them
+     */
+    public ContactService(ContactStore store, ContactMetrics metrics) {
+        this(store, metrics, null);
+    }
+
+    /**
+     * Constructor using another storage engine, recording operation metrics and
+     * publishing every mutation
+     * @param store The store that holds the contacts (cannot be null)
+     * @param metrics Where to count and time operations, or null to not record them
+     * @param changes Where to publish adds, deletes and updates, or null to not publish them
+     */
+    public ContactService(ContactStore store, ContactMetrics metrics, ContactChangeFeed changes) {
+        if (store == null) {
+            throw new IllegalArgumentException("Store cannot be null");
+        }
+        this.contacts = store;
+        this.metrics = metrics;
+        this.changes = changes;
     }
 
     /**
@@ -23,15 +99,46 @@ public class ContactService {
      * @throws IllegalArgumentException if contact ID already exists
      */
     public void addContact(Contact contact) {
-        if (contact == null) {
+        ContactStatus status = tryAddContact(contact);
+        if (status == ContactStatus.NULL_CONTACT) {
             throw new IllegalArgumentException("Contact cannot be null");
         }
-        
-        if (contacts.containsKey(contact.getContactId())) {
+        if (status == ContactStatus.DUPLICATE_ID) {
             throw new IllegalArgumentException("Contact ID already exists: " + contact.getContactId());
         }
-        
-        contacts.put(contact.getContactId(), contact);
+    }
+
+    private ContactStatus add(Contact contact) {
+        if (contact == null) {
+            return ContactStatus.NULL_CONTACT;
+        }
+        if (changes == null) {
+            // insert makes the uniqueness check and the insert one atomic step
+            return contacts.insert(contact) ? ContactStatus.OK : ContactStatus.DUPLICATE_ID;
+        }
+        ReentrantLock lock = changes.lockFor(contact.getContactId());
+        lock.lock();
+        try {
+            if (!contacts.insert(contact)) {
+                return ContactStatus.DUPLICATE_ID;
+            }
+            changes.publish(ContactChange.Type.ADD, contact.getContactId(), ContactChange.valuesOf(contact));
+            return ContactStatus.OK;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a new contact without throwing on failure
+     * @param contact The contact to add
+     * @return OK, NULL_CONTACT, or DUPLICATE_ID if the ID is already stored
+     */
+    public ContactStatus tryAddContact(Contact contact) {
+        long start = startTime();
+        ContactStatus status = add(contact);
+        record(ContactMetrics.Operation.ADD, status, start);
+        return status;
     }
 
     /**
@@ -40,11 +147,43 @@ public class ContactService {
      * @throws IllegalArgumentException if contact ID doesn't exist
      */
     public void deleteContact(String contactId) {
-        if (contactId == null || !contacts.containsKey(contactId)) {
-            throw new IllegalArgumentException("Contact ID not found: " + contactId);
+        ContactStatus status = tryDeleteContact(contactId);
+        if (status != ContactStatus.OK) {
+            throw notFound(contactId);
+        }
+    }
+
+    /**
+     * Deletes a contact without throwing on failure
+     * @param contactId The ID of the contact to delete
+     * @return OK, or NOT_FOUND if the ID isn't stored
+     */
+    public ContactStatus tryDeleteContact(String contactId) {
+        long start = startTime();
+        ContactStatus status = delete(contactId);
+        record(ContactMetrics.Operation.DELETE, status, start);
+        return status;
+    }
+
+    private ContactStatus delete(String contactId) {
+        if (contactId == null) {
+            return ContactStatus.NOT_FOUND;
+        }
+        if (changes == null) {
+            return contacts.remove(contactId) == null ? ContactStatus.NOT_FOUND : ContactStatus.OK;
+        }
+        ReentrantLock lock = changes.lockFor(contactId);
+        lock.lock();
+        try {
+            Contact removed = contacts.remove(contactId);
+            if (removed == null) {
+                return ContactStatus.NOT_FOUND;
+            }
+            changes.publish(ContactChange.Type.DELETE, contactId, ContactChange.valuesOf(removed));
+            return ContactStatus.OK;
+        } finally {
+            lock.unlock();
         }
-        
-        contacts.remove(contactId);
     }
 
     /**
@@ -54,8 +193,7 @@ public class ContactService {
      * @throws IllegalArgumentException if contact ID doesn't exist
      */
     public void updateFirstName(String contactId, String firstName) {
-        Contact contact = getContact(contactId);
-        contact.setFirstName(firstName);
+        updateField(ContactMetrics.Operation.UPDATE_FIRST_NAME, contactId, ContactField.FIRST_NAME, firstName);
     }
 
     /**
@@ -65,8 +203,7 @@ public class ContactService {
      * @throws IllegalArgumentException if contact ID doesn't exist
      */
     public void updateLastName(String contactId, String lastName) {
-        Contact contact = getContact(contactId);
-        contact.setLastName(lastName);
+        updateField(ContactMetrics.Operation.UPDATE_LAST_NAME, contactId, ContactField.LAST_NAME, lastName);
     }
 
     /**
@@ -76,8 +213,7 @@ public class ContactService {
      * @throws IllegalArgumentException if contact ID doesn't exist
      */
     public void updatePhone(String contactId, String phone) {
-        Contact contact = getContact(contactId);
-        contact.setPhone(phone);
+        updateField(ContactMetrics.Operation.UPDATE_PHONE, contactId, ContactField.PHONE, phone);
     }
 
     /**
@@ -87,22 +223,208 @@ public class ContactService {
      * @throws IllegalArgumentException if contact ID doesn't exist
      */
     public void updateAddress(String contactId, String address) {
-        Contact contact = getContact(contactId);
-        contact.setAddress(address);
+        updateField(ContactMetrics.Operation.UPDATE_ADDRESS, contactId, ContactField.ADDRESS, address);
+    }
+
+    /**
+     * Updates the first name of a contact without throwing on failure
+     * @param contactId The ID of the contact to update
+     * @param firstName The new first name
+     * @return OK, INVALID_FIRST_NAME, or NOT_FOUND
+     */
+    public ContactStatus tryUpdateFirstName(String contactId, String firstName) {
+        return tryUpdateField(ContactMetrics.Operation.UPDATE_FIRST_NAME, contactId, ContactField.FIRST_NAME, firstName);
+    }
+
+    /**
+     * Updates the last name of a contact without throwing on failure
+     * @param contactId The ID of the contact to update
+     * @param lastName The new last name
+     * @return OK, INVALID_LAST_NAME, or NOT_FOUND
+     */
+    public ContactStatus tryUpdateLastName(String contactId, String lastName) {
+        return tryUpdateField(ContactMetrics.Operation.UPDATE_LAST_NAME, contactId, ContactField.LAST_NAME, lastName);
+    }
+
+    /**
+     * Updates the phone number of a contact without throwing on failure
+     * @param contactId The ID of the contact to update
+     * @param phone The new phone number
+     * @return OK, INVALID_PHONE, or NOT_FOUND
+     */
+    public ContactStatus tryUpdatePhone(String contactId, String phone) {
+        return tryUpdateField(ContactMetrics.Operation.UPDATE_PHONE, contactId, ContactField.PHONE, phone);
+    }
+
+    /**
+     * Updates the address of a contact without throwing on failure
+     * @param contactId The ID of the contact to update
+     * @param address The new address
+     * @return OK, INVALID_ADDRESS, or NOT_FOUND
+     */
+    public ContactStatus tryUpdateAddress(String contactId, String address) {
+        return tryUpdateField(ContactMetrics.Operation.UPDATE_ADDRESS, contactId, ContactField.ADDRESS, address);
+    }
+
+    /**
+     * Changes several fields of a contact in one step without throwing on failure
+     * @param contactId The ID of the contact to update
+     * @param patch The fields to change
+     * @param expectedVersion The version the contact had when it was read, or ContactStore.ANY_VERSION
+     * @return OK, NOT_FOUND, VERSION_CONFLICT, or NULL_UPDATE if patch is null
+     */
+    public ContactStatus tryUpdateContact(String contactId, ContactPatch patch, int expectedVersion) {
+        long start = startTime();
+        ContactStatus status = patch == null ? ContactStatus.NULL_UPDATE
+                : contactId == null ? ContactStatus.NOT_FOUND : patch(contactId, patch, expectedVersion);
+        record(ContactMetrics.Operation.UPDATE_CONTACT, status, start);
+        return status;
+    }
+
+    private ContactStatus patch(String contactId, ContactPatch patch, int expectedVersion) {
+        if (changes == null) {
+            return contacts.patch(contactId, patch, expectedVersion);
+        }
+        ReentrantLock lock = changes.lockFor(contactId);
+        lock.lock();
+        try {
+            ContactStatus status = contacts.patch(contactId, patch, expectedVersion);
+            // An empty patch only moves the version, which changes don't carry
+            if (status == ContactStatus.OK && !patch.isEmpty()) {
+                String[] values = new String[FIELDS.length];
+                for (ContactField field : FIELDS) {
+                    values[field.ordinal()] = patch.get(field);
+                }
+                changes.publish(ContactChange.Type.UPDATE, contactId, values);
+            }
+            return status;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Changes several fields of a contact in one step. The patch validated its
+     * values when they were set, the ID is looked up once, and other threads see
+     * the contact before or after the whole patch, never partway through. Like
+     * the single-field updates, it replaces the stored contact, so contacts
+     * already returned by getContact keep their old values.
+     * @param contactId The ID of the contact to update
+     * @param patch The fields to change
+     * @throws IllegalArgumentException if patch is null or contact ID doesn't exist
+     */
+    public void updateContact(String contactId, ContactPatch patch) {
+        updateContact(contactId, patch, ContactStore.ANY_VERSION);
+    }
+
+    /**
+     * Changes several fields of a contact in one step if no one else changed it
+     * since it was read (optimistic concurrency). Read the contact with getContact,
+     * build the patch, and pass the contact's getVersion() here; on false, read
+     * the contact again and retry.
+     * @param contactId The ID of the contact to update
+     * @param patch The fields to change
+     * @param expectedVersion The version the contact had when it was read
+     * @return true if the patch was applied, false if the contact has another version
+     * @throws IllegalArgumentException if patch is null or contact ID doesn't exist
+     */
+    public boolean updateContact(String contactId, ContactPatch patch, int expectedVersion) {
+        ContactStatus status = tryUpdateContact(contactId, patch, expectedVersion);
+        if (status == ContactStatus.NULL_UPDATE) {
+            throw new IllegalArgumentException("Patch cannot be null");
+        }
+        if (status == ContactStatus.NOT_FOUND) {
+            throw notFound(contactId);
+        }
+        return status == ContactStatus.OK;
+    }
+
+    /**
+     * Validates a new value and changes one field of a stored contact
+     * @param operation The operation to record the outcome under
+     * @param contactId The ID of the contact to update
+     * @param field The field to change
+     * @param value The new value
+     * @throws IllegalArgumentException if contact ID doesn't exist or the new value is invalid
+     */
+    private void updateField(ContactMetrics.Operation operation, String contactId, ContactField field, String value) {
+        ContactStatus status = tryUpdateField(operation, contactId, field, value);
+        if (status == ContactStatus.NOT_FOUND) {
+            throw notFound(contactId);
+        }
+        if (status != ContactStatus.OK) {
+            // Throws with the same message as the Contact setter
+            field.requireValid(value);
+        }
+    }
+
+    private ContactStatus tryUpdateField(ContactMetrics.Operation operation, String contactId, ContactField field,
+                                         String value) {
+        long start = startTime();
+        ContactStatus status = update(contactId, field, value);
+        record(operation, status, start);
+        return status;
+    }
+
+    private ContactStatus update(String contactId, ContactField field, String value) {
+        if (!field.isValid(value)) {
+            // A missing ID is reported before a bad value
+            return contactId != null && contacts.contains(contactId) ? field.getInvalidStatus() : ContactStatus.NOT_FOUND;
+        }
+        if (contactId == null) {
+            return ContactStatus.NOT_FOUND;
+        }
+        if (changes == null) {
+            return contacts.update(contactId, field, value) == null ? ContactStatus.NOT_FOUND : ContactStatus.OK;
+        }
+        ReentrantLock lock = changes.lockFor(contactId);
+        lock.lock();
+        try {
+            if (contacts.update(contactId, field, value) == null) {
+                return ContactStatus.NOT_FOUND;
+            }
+            changes.publish(ContactChange.Type.UPDATE, contactId, fieldValue(field, value));
+            return ContactStatus.OK;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String[] fieldValue(ContactField field, String value) {
+        String[] values = new String[FIELDS.length];
+        values[field.ordinal()] = value;
+        return values;
     }
 
     /**
-     * Retrieves a contact by ID
+     * Retrieves a contact by ID. The contact is a snapshot: updates made later,
+     * single-field or patch, replace the stored contact instead of changing this
+     * one, so read it again to see them.
      * @param contactId The ID of the contact to retrieve
      * @return The contact object
      * @throws IllegalArgumentException if contact ID doesn't exist
      */
     public Contact getContact(String contactId) {
-        if (contactId == null || !contacts.containsKey(contactId)) {
-            throw new IllegalArgumentException("Contact ID not found: " + contactId);
+        long start = startTime();
+        Contact contact = contactId == null ? null : contacts.get(contactId);
+        record(ContactMetrics.Operation.GET, contact == null ? ContactStatus.NOT_FOUND : ContactStatus.OK, start);
+        if (contact == null) {
+            throw notFound(contactId);
         }
         
-        return contacts.get(contactId);
+        return contact;
+    }
+
+    /**
+     * Looks up a contact without throwing on a miss
+     * @param contactId The ID of the contact to retrieve
+     * @return The contact, or an empty Optional if the ID is null or not stored
+     */
+    public Optional<Contact> findContact(String contactId) {
+        long start = startTime();
+        Contact contact = contactId == null ? null : contacts.get(contactId);
+        record(ContactMetrics.Operation.GET, contact == null ? ContactStatus.NOT_FOUND : ContactStatus.OK, start);
+        return Optional.ofNullable(contact);
     }
 
     /**
@@ -119,6 +441,355 @@ public class ContactService {
      * @return true if contact exists, false otherwise
      */
     public boolean contactExists(String contactId) {
-        return contactId != null && contacts.containsKey(contactId);
+        return contactId != null && contacts.contains(contactId);
+    }
+
+    /**
+     * Finds the contacts with a phone number
+     * @param phone The phone number to look up
+     * @return The matching contacts, empty if there are none
+     * @throws IllegalArgumentException if phone is null
+     */
+    public List<Contact> findByPhone(String phone) {
+        if (phone == null) {
+            throw new IllegalArgumentException("Phone cannot be null");
+        }
+        return contacts.findByPhone(phone);
+    }
+
+    /**
+     * Finds the contacts with a last name
+     * @param lastName The exact last name
+     * @return The matching contacts, empty if there are none
+     * @throws IllegalArgumentException if lastName is null
+     */
+    public List<Contact> findByLastName(String lastName) {
+        if (lastName == null) {
+            throw new IllegalArgumentException("Last name cannot be null");
+        }
+        return contacts.findByLastName(lastName);
+    }
+
+    /**
+     * Finds contacts whose address starts with a prefix, ignoring case
+     * @param prefix The start of the address
+     * @param limit The most contacts to return
+     * @return Up to limit matching contacts
+     * @throws IllegalArgumentException if prefix is null or limit is negative
+     */
+    public List<Contact> findByAddressPrefix(String prefix, int limit) {
+        if (prefix == null || limit < 0) {
+            throw new IllegalArgumentException("Prefix cannot be null and limit cannot be negative");
+        }
+        return contacts.findByAddressPrefix(prefix, limit);
+    }
+
+    /**
+     * Finds contacts whose first or last name starts with a prefix, ignoring case
+     * @param prefix The start of the name
+     * @param limit The most contacts to return
+     * @return Up to limit matching contacts
+     * @throws IllegalArgumentException if prefix is null or limit is negative
+     */
+    public List<Contact> findByNamePrefix(String prefix, int limit) {
+        if (prefix == null || limit < 0) {
+            throw new IllegalArgumentException("Prefix cannot be null and limit cannot be negative");
+        }
+        return contacts.findByNamePrefix(prefix, limit);
+    }
+
+    /**
+     * Finds contacts whose first or last name is within an edit distance of a
+     * name, ignoring case, for searches with typos. Stores without a name index
+     * scan every contact; IndexedContactStore looks the name up in a trigram index.
+     * @param name The name to match
+     * @param maxDistance The most single-char insertions, deletions and substitutions
+     * @param limit The most contacts to return
+     * @return Up to limit matching contacts, closest first, then by the name that matched
+     * @throws IllegalArgumentException if name is null or maxDistance or limit is negative
+     */
+    public List<Contact> findBySimilarName(String name, int maxDistance, int limit) {
+        if (name == null || maxDistance < 0 || limit < 0) {
+            throw new IllegalArgumentException("Name cannot be null and distance and limit cannot be negative");
+        }
+        return contacts.findBySimilarName(name, maxDistance, limit);
+    }
+
+    /**
+     * Streams the contacts that match a query. The stream is lazy: contacts are
+     * read from the store only as the stream pulls them, and nothing is copied
+     * up front. For stores of PARALLEL_THRESHOLD contacts or more the stream is
+     * parallel and splits the store across the common fork-join pool; call
+     * sequential() on it to turn that off. Like the store's spliterator, the
+     * stream may or may not see changes made while it runs.
+     * @param query The conditions, offset and limit
+     * @return A stream of the matching contacts, in no particular order
+     * @throws IllegalArgumentException if query is null
+     */
+    public Stream<Contact> query(ContactQuery query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Query cannot be null");
+        }
+        Stream<Contact> matches = StreamSupport.stream(contacts.spliterator(), contacts.size() >= PARALLEL_THRESHOLD)
+                .filter(query::matches);
+        if (query.getOffset() > 0) {
+            matches = matches.skip(query.getOffset());
+        }
+        if (query.getLimit() < Long.MAX_VALUE) {
+            matches = matches.limit(query.getLimit());
+        }
+        return matches;
+    }
+
+    /**
+     * Adds a batch of contacts. If any contact is null or its ID is taken (by a
+     * stored contact or an earlier item in the batch), nothing is added.
+     * Contacts are added in one pass and taken back if a later one is rejected,
+     * so other threads may briefly see part of a batch that ends up rejected.
+     * @param batch The contacts to add
+     * @return A report with one status per contact
+     */
+    public BatchResult addContacts(Collection<Contact> batch) {
+        long start = startTime();
+        BatchResult result = addAll(batch);
+        record(ContactMetrics.Operation.ADD_BATCH, outcome(result), start);
+        return result;
+    }
+
+    private BatchResult addAll(Collection<Contact> batch) {
+        Contact[] items = batch.toArray(new Contact[0]);
+        for (int i = 0; i < items.length; i++) {
+            if (items[i] == null) {
+                return rejectedAdds(items, i);
+            }
+        }
+        contacts.ensureCapacity(contacts.size() + items.length);
+        int failedIndex = changes == null ? contacts.insertAll(items) : publishInserts(items);
+        return failedIndex < 0 ? new BatchResult(new byte[items.length], 0, true) : rejectedAdds(items, failedIndex);
+    }
+
+    /**
+     * Deletes a batch of contacts by ID. If any ID is null, not stored, or
+     * repeated in the batch, nothing is deleted.
+     * Contacts are deleted in one pass and put back if a later ID is rejected.
+     * @param contactIds The IDs of the contacts to delete
+     * @return A report with one status per ID
+     */
+    public BatchResult deleteContacts(Collection<String> contactIds) {
+        long start = startTime();
+        BatchResult result = deleteAll(contactIds);
+        record(ContactMetrics.Operation.DELETE_BATCH, outcome(result), start);
+        return result;
+    }
+
+    private BatchResult deleteAll(Collection<String> contactIds) {
+        String[] items = contactIds.toArray(new String[0]);
+        for (int i = 0; i < items.length; i++) {
+            if (items[i] == null) {
+                return rejectedDeletes(items, i);
+            }
+        }
+        int failedIndex = changes == null ? contacts.removeAll(items) : publishRemoves(items);
+        return failedIndex < 0 ? new BatchResult(new byte[items.length], 0, true) : rejectedDeletes(items, failedIndex);
+    }
+
+    /**
+     * Applies a list of field updates in order. If any update is null, targets
+     * a missing contact, or has an invalid value, nothing is changed.
+     * Updates are applied in one pass and undone in reverse order if a later one is rejected.
+     * @param updates The updates to apply
+     * @return A report with one status per update
+     */
+    public BatchResult applyUpdates(List<ContactUpdate> updates) {
+        long start = startTime();
+        BatchResult result = updateAll(updates);
+        record(ContactMetrics.Operation.UPDATE_BATCH, outcome(result), start);
+        return result;
+    }
+
+    private BatchResult updateAll(List<ContactUpdate> updates) {
+        ContactUpdate[] items = updates.toArray(new ContactUpdate[0]);
+        for (int i = 0; i < items.length; i++) {
+            ContactUpdate update = items[i];
+            if (update == null || update.getContactId() == null || !update.getField().isValid(update.getValue())) {
+                return rejectedUpdates(items, i);
+            }
+        }
+        int failedIndex = changes == null ? contacts.updateAll(items) : publishUpdates(items);
+        return failedIndex < 0 ? new BatchResult(new byte[items.length], 0, true) : rejectedUpdates(items, failedIndex);
+    }
+
+    /**
+     * Inserts a batch and publishes it, holding the change feed locks of every
+     * ID in the batch so nothing is published for a batch that is rolled back
+     * @return -1 if the batch was applied, otherwise the index of a rejected contact
+     */
+    private int publishInserts(Contact[] items) {
+        String[] ids = new String[items.length];
+        for (int i = 0; i < items.length; i++) {
+            ids[i] = items[i].getContactId();
+        }
+        long locked = changes.lockAll(ids);
+        try {
+            int failedIndex = contacts.insertAll(items);
+            if (failedIndex < 0) {
+                for (Contact contact : items) {
+                    changes.publish(ContactChange.Type.ADD, contact.getContactId(), ContactChange.valuesOf(contact));
+                }
+            }
+            return failedIndex;
+        } finally {
+            changes.unlockAll(locked);
+        }
+    }
+
+    /**
+     * Removes a batch and publishes it. The contacts are read first for the
+     * DELETE changes; holding the locks keeps other service calls from changing them in between.
+     * @return -1 if the batch was applied, otherwise the index of a rejected ID
+     */
+    private int publishRemoves(String[] items) {
+        long locked = changes.lockAll(items);
+        try {
+            String[][] values = new String[items.length][];
+            for (int i = 0; i < items.length; i++) {
+                Contact contact = contacts.get(items[i]);
+                values[i] = contact == null ? null : ContactChange.valuesOf(contact);
+            }
+            int failedIndex = contacts.removeAll(items);
+            if (failedIndex < 0) {
+                for (int i = 0; i < items.length; i++) {
+                    changes.publish(ContactChange.Type.DELETE, items[i], values[i]);
+                }
+            }
+            return failedIndex;
+        } finally {
+            changes.unlockAll(locked);
+        }
+    }
+
+    /**
+     * Applies a batch of updates and publishes them, one change per update
+     * @return -1 if the batch was applied, otherwise the index of a rejected update
+     */
+    private int publishUpdates(ContactUpdate[] items) {
+        String[] ids = new String[items.length];
+        for (int i = 0; i < items.length; i++) {
+            ids[i] = items[i].getContactId();
+        }
+        long locked = changes.lockAll(ids);
+        try {
+            int failedIndex = contacts.updateAll(items);
+            if (failedIndex < 0) {
+                for (ContactUpdate update : items) {
+                    changes.publish(ContactChange.Type.UPDATE, update.getContactId(),
+                            fieldValue(update.getField(), update.getValue()));
+                }
+            }
+            return failedIndex;
+        } finally {
+            changes.unlockAll(locked);
+        }
+    }
+
+    /**
+     * Builds the report for a rejected add batch by checking every item
+     * @param failedIndex The item that stopped the batch, reported if the checks find nothing
+     *                    (another thread changed the map in between)
+     */
+    private BatchResult rejectedAdds(Contact[] items, int failedIndex) {
+        byte[] statuses = new byte[items.length];
+        Set<String> batchIds = new HashSet<>(items.length * 4 / 3 + 1);
+        int failures = 0;
+        for (int i = 0; i < items.length; i++) {
+            ContactStatus status;
+            if (items[i] == null) {
+                status = ContactStatus.NULL_CONTACT;
+            } else if (!batchIds.add(items[i].getContactId()) || contacts.contains(items[i].getContactId())) {
+                status = ContactStatus.DUPLICATE_ID;
+            } else {
+                continue;
+            }
+            statuses[i] = (byte) status.ordinal();
+            failures++;
+        }
+        return rejected(statuses, failures, failedIndex, items[failedIndex] == null
+                ? ContactStatus.NULL_CONTACT : ContactStatus.DUPLICATE_ID);
+    }
+
+    /**
+     * Builds the report for a rejected delete batch by checking every item
+     */
+    private BatchResult rejectedDeletes(String[] items, int failedIndex) {
+        byte[] statuses = new byte[items.length];
+        Set<String> batchIds = new HashSet<>(items.length * 4 / 3 + 1);
+        int failures = 0;
+        for (int i = 0; i < items.length; i++) {
+            if (items[i] == null || !batchIds.add(items[i]) || !contacts.contains(items[i])) {
+                statuses[i] = (byte) ContactStatus.NOT_FOUND.ordinal();
+                failures++;
+            }
+        }
+        return rejected(statuses, failures, failedIndex, ContactStatus.NOT_FOUND);
+    }
+
+    /**
+     * Builds the report for a rejected update batch by checking every item
+     */
+    private BatchResult rejectedUpdates(ContactUpdate[] items, int failedIndex) {
+        byte[] statuses = new byte[items.length];
+        int failures = 0;
+        for (int i = 0; i < items.length; i++) {
+            ContactUpdate update = items[i];
+            ContactStatus status;
+            if (update == null) {
+                status = ContactStatus.NULL_UPDATE;
+            } else if (update.getContactId() == null || !contacts.contains(update.getContactId())) {
+                status = ContactStatus.NOT_FOUND;
+            } else if (!update.getField().isValid(update.getValue())) {
+                status = update.getField().getInvalidStatus();
+            } else {
+                continue;
+            }
+            statuses[i] = (byte) status.ordinal();
+            failures++;
+        }
+        return rejected(statuses, failures, failedIndex, ContactStatus.NOT_FOUND);
+    }
+
+    private static BatchResult rejected(byte[] statuses, int failures, int failedIndex, ContactStatus failedStatus) {
+        if (failures == 0) {
+            statuses[failedIndex] = (byte) failedStatus.ordinal();
+            failures = 1;
+        }
+        return new BatchResult(statuses, failures, false);
+    }
+
+    private long startTime() {
+        return metrics == null ? ContactMetrics.NOT_TIMED : metrics.start();
+    }
+
+    private void record(ContactMetrics.Operation operation, ContactStatus status, long start) {
+        if (metrics != null) {
+            metrics.finish(operation, status, start);
+        }
+    }
+
+    /**
+     * Gets the outcome recorded for a batch: OK if it was applied, otherwise its first failure
+     */
+    private static ContactStatus outcome(BatchResult result) {
+        if (!result.isApplied()) {
+            for (int i = 0; i < result.size(); i++) {
+                if (result.getStatus(i) != ContactStatus.OK) {
+                    return result.getStatus(i);
+                }
+            }
+        }
+        return ContactStatus.OK;
+    }
+
+    private static IllegalArgumentException notFound(String contactId) {
+        return new IllegalArgumentException("Contact ID not found: " + contactId);
     }
 }
@@ -2,6 +2,15 @@ package com.grandstrand;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -182,6 +191,19 @@ public class ContactServiceTest {
         });
     }
 
+    @Test
+    public void testUpdateNonExistentContactWithInvalidValue() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> {
+            contactService.updatePhone("nonexistent", "123");
+        });
+        assertEquals("Contact ID not found: nonexistent", e.getMessage());
+        assertEquals(ContactStatus.NOT_FOUND, contactService.tryUpdateFirstName("nonexistent", null));
+        assertEquals(ContactStatus.NOT_FOUND, contactService.tryUpdateAddress(null, null));
+        
+        contactService.addContact(testContact);
+        assertEquals(ContactStatus.INVALID_PHONE, contactService.tryUpdatePhone("123", "123"));
+    }
+
     @Test
     public void testUpdateAddressInvalid() {
         contactService.addContact(testContact);
@@ -266,4 +288,269 @@ public class ContactServiceTest {
         assertEquals("456 Oak Ave", updatedContact.getAddress());
         assertEquals("123", updatedContact.getContactId()); // ID should remain unchanged
     }
+
+    @Test
+    public void testConcurrentAddSameIdOnlyOneSucceeds() throws Exception {
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        
+        for (int i = 0; i < threads; i++) {
+            Contact contact = new Contact("123", "Name" + i, "Doe", "1234567890", "123 Main St");
+            results.add(pool.submit(() -> {
+                start.await();
+                try {
+                    contactService.addContact(contact);
+                    return true;
+                } catch (IllegalArgumentException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+        
+        int added = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                added++;
+            }
+        }
+        pool.shutdown();
+        
+        assertEquals(1, added);
+        assertEquals(1, contactService.getContactCount());
+    }
+
+    @Test
+    public void testAddContactsBatch() {
+        Contact contact2 = new Contact("456", "Jane", "Smith", "0987654321", "456 Oak Ave");
+        BatchResult result = contactService.addContacts(Arrays.asList(testContact, contact2));
+        
+        assertTrue(result.isApplied());
+        assertEquals(0, result.getFailureCount());
+        assertEquals(ContactStatus.OK, result.getStatus(1));
+        assertEquals(2, contactService.getContactCount());
+    }
+
+    @Test
+    public void testAddContactsBatchRejectsWholeBatch() {
+        contactService.addContact(testContact);
+        Contact contact2 = new Contact("456", "Jane", "Smith", "0987654321", "456 Oak Ave");
+        Contact duplicate = new Contact("123", "Jane", "Smith", "0987654321", "456 Oak Ave");
+        BatchResult result = contactService.addContacts(Arrays.asList(contact2, duplicate, null, contact2));
+        
+        assertFalse(result.isApplied());
+        assertEquals(3, result.getFailureCount());
+        assertEquals(ContactStatus.OK, result.getStatus(0));
+        assertEquals(ContactStatus.DUPLICATE_ID, result.getStatus(1));
+        assertEquals(ContactStatus.NULL_CONTACT, result.getStatus(2));
+        assertEquals(ContactStatus.DUPLICATE_ID, result.getStatus(3));
+        assertEquals(1, contactService.getContactCount());
+        assertFalse(contactService.contactExists("456"));
+    }
+
+    @Test
+    public void testDeleteContactsBatch() {
+        Contact contact2 = new Contact("456", "Jane", "Smith", "0987654321", "456 Oak Ave");
+        contactService.addContacts(Arrays.asList(testContact, contact2));
+        
+        BatchResult rejected = contactService.deleteContacts(Arrays.asList("123", "missing", null));
+        assertFalse(rejected.isApplied());
+        assertEquals(ContactStatus.NOT_FOUND, rejected.getStatus(1));
+        assertEquals(ContactStatus.NOT_FOUND, rejected.getStatus(2));
+        assertEquals(2, contactService.getContactCount());
+        
+        BatchResult applied = contactService.deleteContacts(Arrays.asList("123", "456"));
+        assertTrue(applied.isApplied());
+        assertEquals(0, contactService.getContactCount());
+    }
+
+    @Test
+    public void testApplyUpdatesBatch() {
+        contactService.addContact(testContact);
+        BatchResult result = contactService.applyUpdates(Arrays.asList(
+                new ContactUpdate("123", ContactField.FIRST_NAME, "Jane"),
+                new ContactUpdate("123", ContactField.PHONE, "0987654321"),
+                new ContactUpdate("123", ContactField.FIRST_NAME, "Janet")));
+        
+        assertTrue(result.isApplied());
+        assertEquals("Janet", contactService.getContact("123").getFirstName());
+        assertEquals("0987654321", contactService.getContact("123").getPhone());
+    }
+
+    @Test
+    public void testApplyUpdatesBatchRejectsWholeBatch() {
+        contactService.addContact(testContact);
+        BatchResult result = contactService.applyUpdates(Arrays.asList(
+                new ContactUpdate("123", ContactField.FIRST_NAME, "Jane"),
+                new ContactUpdate("123", ContactField.PHONE, "12345"),
+                new ContactUpdate("missing", ContactField.ADDRESS, "456 Oak Ave"),
+                null));
+        
+        assertFalse(result.isApplied());
+        assertEquals(3, result.getFailureCount());
+        assertEquals(ContactStatus.OK, result.getStatus(0));
+        assertEquals(ContactStatus.INVALID_PHONE, result.getStatus(1));
+        assertEquals(ContactStatus.NOT_FOUND, result.getStatus(2));
+        assertEquals(ContactStatus.NULL_UPDATE, result.getStatus(3));
+        assertEquals("John", contactService.getContact("123").getFirstName());
+    }
+
+    @Test
+    public void testRejectedBatchKeepsVersions() {
+        ContactStore[] stores = {new HeapContactStore(), new IncrementalContactStore(), new NumericIdContactStore(),
+            new ColumnarContactStore(), new OffHeapContactStore(), new CopyOnWriteContactStore(),
+            new IndexedContactStore(new HeapContactStore()), new ShardedContactStore(4),
+            new CachingContactStore(new HeapContactStore(), 16)};
+        for (ContactStore store : stores) {
+            ContactService service = new ContactService(store);
+            service.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+            service.addContact(new Contact("2", "Jane", "Doe", "1234567890", "123 Main St"));
+            service.getContact("1");
+            BatchResult result = service.applyUpdates(Arrays.asList(
+                    new ContactUpdate("1", ContactField.FIRST_NAME, "Bob"),
+                    new ContactUpdate("2", ContactField.PHONE, "0987654321"),
+                    new ContactUpdate("missing", ContactField.ADDRESS, "456 Oak Ave")));
+            
+            assertFalse(result.isApplied());
+            assertEquals("John", service.getContact("1").getFirstName());
+            assertEquals("1234567890", service.getContact("2").getPhone());
+            assertEquals(0, service.getContact("1").getVersion());
+            assertEquals(0, service.getContact("2").getVersion());
+            assertTrue(service.updateContact("1", new ContactPatch().lastName("Smith"), 0));
+        }
+    }
+
+    @Test
+    public void testQueryFiltersLazily() {
+        contactService.addContact(new Contact("1", "John", "Doe", "5551234567", "123 Main St"));
+        contactService.addContact(new Contact("2", "Jane", "Johnson", "5559876543", "9 Elm Ave"));
+        contactService.addContact(new Contact("3", "Bob", "Smith", "4441234567", "77 MAIN ST"));
+        
+        assertEquals(3, contactService.query(new ContactQuery()).count());
+        assertEquals(2, contactService.query(new ContactQuery().namePrefix("jo")).count());
+        assertEquals(2, contactService.query(new ContactQuery().areaCode("555")).count());
+        assertEquals(2, contactService.query(new ContactQuery().addressContains("main")).count());
+        assertEquals("1", contactService.query(new ContactQuery().areaCode("555").addressContains("Main"))
+                .findFirst().get().getContactId());
+        assertEquals(1, contactService.query(new ContactQuery().limit(1)).count());
+        assertEquals(1, contactService.query(new ContactQuery().offset(2)).count());
+        assertThrows(IllegalArgumentException.class, () -> contactService.query(null));
+        assertThrows(IllegalArgumentException.class, () -> new ContactQuery().areaCode("55"));
+        assertThrows(IllegalArgumentException.class, () -> new ContactQuery().limit(-1));
+    }
+
+    @Test
+    public void testQueryIsParallelForLargeStores() {
+        assertFalse(contactService.query(new ContactQuery()).isParallel());
+        for (int i = 0; i < ContactService.PARALLEL_THRESHOLD; i++) {
+            contactService.addContact(new Contact(Integer.toString(i), "John", "Doe", "1234567890", "123 Main St"));
+        }
+        
+        assertTrue(contactService.query(new ContactQuery()).isParallel());
+        assertEquals(ContactService.PARALLEL_THRESHOLD, contactService.query(new ContactQuery()).count());
+    }
+
+    @Test
+    public void testUpdateContactAppliesPatch() {
+        contactService.addContact(testContact);
+        contactService.updateContact("123", new ContactPatch().firstName("Jane").phone("0987654321"));
+        Contact contact = contactService.getContact("123");
+        
+        assertEquals("Jane", contact.getFirstName());
+        assertEquals("Doe", contact.getLastName());
+        assertEquals("0987654321", contact.getPhone());
+        assertEquals(1, contact.getVersion());
+        assertThrows(IllegalArgumentException.class,
+                () -> contactService.updateContact("missing", new ContactPatch().firstName("Jane")));
+        assertThrows(IllegalArgumentException.class, () -> contactService.updateContact("123", null));
+        assertThrows(IllegalArgumentException.class, () -> new ContactPatch().phone("12345"));
+    }
+
+    @Test
+    public void testUpdateContactLeavesReadContactWhole() {
+        for (ContactStore store : new ContactStore[] {new HeapContactStore(), new IncrementalContactStore(),
+            new NumericIdContactStore()}) {
+            ContactService service = new ContactService(store);
+            for (String id : new String[] {"123", "A1"}) {
+                service.addContact(new Contact(id, "John", "Doe", "1234567890", "123 Main St"));
+                Contact before = service.getContact(id);
+                service.updateContact(id, new ContactPatch().firstName("Jane").phone("0987654321"));
+                
+                assertEquals("John", before.getFirstName());
+                assertEquals("1234567890", before.getPhone());
+                assertEquals(0, before.getVersion());
+                assertEquals("Jane", service.getContact(id).getFirstName());
+                assertEquals("0987654321", service.getContact(id).getPhone());
+                assertEquals(1, service.getContact(id).getVersion());
+            }
+        }
+    }
+
+    @Test
+    public void testSingleFieldUpdatesLeaveReadContactUnchanged() {
+        for (ContactStore store : new ContactStore[] {new HeapContactStore(), new IncrementalContactStore(),
+            new NumericIdContactStore()}) {
+            ContactService service = new ContactService(store);
+            for (String id : new String[] {"123", "A1"}) {
+                service.addContact(new ImmutableContact(id, "John", "Doe", "1234567890", "123 Main St"));
+                Contact before = service.getContact(id);
+                service.updatePhone(id, "0987654321");
+                
+                assertEquals("1234567890", before.getPhone());
+                assertEquals(0, before.getVersion());
+                assertEquals("0987654321", service.getContact(id).getPhone());
+                assertEquals(1, service.getContact(id).getVersion());
+            }
+        }
+    }
+
+    @Test
+    public void testUpdateContactDetectsVersionConflict() {
+        contactService.addContact(testContact);
+        int version = contactService.getContact("123").getVersion();
+        contactService.updateAddress("123", "456 Oak Ave");
+        
+        assertFalse(contactService.updateContact("123", new ContactPatch().firstName("Jane"), version));
+        assertEquals("John", contactService.getContact("123").getFirstName());
+        
+        int current = contactService.getContact("123").getVersion();
+        assertTrue(contactService.updateContact("123", new ContactPatch().firstName("Jane"), current));
+        assertEquals("Jane", contactService.getContact("123").getFirstName());
+        assertEquals(current + 1, contactService.getContact("123").getVersion());
+    }
+
+    @Test
+    public void testTryMethodsReturnStatusInsteadOfThrowing() {
+        assertEquals(ContactStatus.OK, contactService.tryAddContact(testContact));
+        assertEquals(ContactStatus.DUPLICATE_ID, contactService.tryAddContact(testContact));
+        assertEquals(ContactStatus.NULL_CONTACT, contactService.tryAddContact(null));
+        
+        assertEquals(ContactStatus.OK, contactService.tryUpdateFirstName("123", "Jane"));
+        assertEquals(ContactStatus.INVALID_LAST_NAME, contactService.tryUpdateLastName("123", null));
+        assertEquals(ContactStatus.INVALID_PHONE, contactService.tryUpdatePhone("123", "12345"));
+        assertEquals(ContactStatus.NOT_FOUND, contactService.tryUpdateAddress("missing", "456 Oak Ave"));
+        assertEquals("Jane", contactService.getContact("123").getFirstName());
+        
+        assertEquals(ContactStatus.VERSION_CONFLICT,
+                contactService.tryUpdateContact("123", new ContactPatch().lastName("Smith"), 0));
+        assertEquals(ContactStatus.OK, contactService.tryUpdateContact("123", new ContactPatch().lastName("Smith"), 1));
+        assertEquals(ContactStatus.NULL_UPDATE, contactService.tryUpdateContact("123", null, ContactStore.ANY_VERSION));
+        assertEquals(ContactStatus.NOT_FOUND,
+                contactService.tryUpdateContact(null, new ContactPatch().lastName("Smith"), ContactStore.ANY_VERSION));
+        
+        assertEquals(ContactStatus.OK, contactService.tryDeleteContact("123"));
+        assertEquals(ContactStatus.NOT_FOUND, contactService.tryDeleteContact("123"));
+        assertEquals(ContactStatus.NOT_FOUND, contactService.tryDeleteContact(null));
+    }
+
+    @Test
+    public void testFindContactReturnsEmptyOnMiss() {
+        contactService.addContact(testContact);
+        
+        assertSame(testContact, contactService.findContact("123").orElseThrow());
+        assertTrue(contactService.findContact("missing").isEmpty());
+        assertTrue(contactService.findContact(null).isEmpty());
+    }
 }
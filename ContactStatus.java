@@ -0,0 +1,31 @@
+package com.grandstrand;
+
+/**
+ * ContactStatus enum describing the outcome of a contact operation.
+ * Batch operations report one status per item instead of throwing on the first failure.
+ * The try methods of ContactService return one for callers that expect failures.
+ */
+public enum ContactStatus {
+    OK,
+    NULL_CONTACT,
+    NULL_UPDATE,
+    DUPLICATE_ID,
+    NOT_FOUND,
+    INVALID_FIRST_NAME,
+    INVALID_LAST_NAME,
+    INVALID_PHONE,
+    INVALID_ADDRESS,
+    VERSION_CONFLICT,
+    INVALID_CONTACT_ID;
+
+    private static final ContactStatus[] VALUES = values();
+
+    /**
+     * Looks up a status by its ordinal without copying the values array
+     * @param ordinal The ordinal of the status
+     * @return The matching status
+     */
+    static ContactStatus fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
@@ -0,0 +1,279 @@
+package com.grandstrand;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * ContactStore interface for the storage engine behind ContactService.
+ * ContactService validates arguments and turns misses into exceptions; a store
+ * only keeps contacts keyed by ID and reports misses through return values.
+ * Implementations must be safe for concurrent use, and contact IDs passed in are never null.
+ * <p>
+ * The find methods scan every contact by default; stores that keep secondary
+ * indexes (IndexedContactStore) override them with direct lookups.
+ * <p>
+ * Every stored contact has a version stamp. An insert keeps the version of the
+ * contact given, and each update or patch moves it to nextVersion.
+ */
+public interface ContactStore {
+
+    /**
+     * Expected version that matches any version of a contact
+     */
+    int ANY_VERSION = -1;
+
+    /**
+     * Looks up a contact
+     * @param contactId The ID of the contact
+     * @return The stored contact, or null if there is none. Stores that keep
+     *         contacts in an encoded form return a new copy on each call; the
+     *         others replace the stored contact on every update, revert and
+     *         patch, so a contact once returned never changes.
+     */
+    Contact get(String contactId);
+
+    /**
+     * Checks if a contact is stored
+     * @param contactId The ID of the contact
+     * @return true if a contact with this ID is stored
+     */
+    boolean contains(String contactId);
+
+    /**
+     * Adds a contact if its ID is not already stored, as one atomic step
+     * @param contact The contact to add
+     * @return true if the contact was added, false if the ID is taken
+     */
+    boolean insert(Contact contact);
+
+    /**
+     * Removes a contact, as one atomic step
+     * @param contactId The ID of the contact
+     * @return The removed contact, or null if there was none
+     */
+    Contact remove(String contactId);
+
+    /**
+     * Changes one field of a stored contact, as one atomic step
+     * @param contactId The ID of the contact
+     * @param field The field to change
+     * @param value The new value, already validated by the caller
+     * @return The previous value of the field, or null if the contact isn't stored
+     */
+    String update(String contactId, ContactField field, String value);
+
+    /**
+     * Undoes an update, as one atomic step: sets the field back to the value the
+     * update replaced and moves the contact back to the version it had, so a
+     * client holding that version sees no change. Used to roll back a rejected batch.
+     * @param contactId The ID of the contact
+     * @param field The field the update changed
+     * @param previous The value the update returned
+     * @return The value that was replaced, or null if the contact isn't stored
+     */
+    String revert(String contactId, ContactField field, String previous);
+
+    /**
+     * Changes every field a patch sets as one atomic step, and moves the contact
+     * to its next version. Readers see the contact before or after the whole patch.
+     * @param contactId The ID of the contact
+     * @param patch The changes, already validated
+     * @param expectedVersion The version the contact must have, or ANY_VERSION
+     * @return OK, NOT_FOUND if the contact isn't stored, or VERSION_CONFLICT if
+     *         it has a different version; nothing is changed unless it is OK
+     */
+    ContactStatus patch(String contactId, ContactPatch patch, int expectedVersion);
+
+    /**
+     * Gets the version that follows another. Versions count up and wrap back to
+     * 0, so they are never negative and never equal ANY_VERSION.
+     * @param version The current version
+     * @return The next version
+     */
+    static int nextVersion(int version) {
+        return (version + 1) & Integer.MAX_VALUE;
+    }
+
+    /**
+     * Gets the version that precedes another, undoing nextVersion
+     * @param version The current version
+     * @return The previous version
+     */
+    static int previousVersion(int version) {
+        return (version - 1) & Integer.MAX_VALUE;
+    }
+
+    /**
+     * Adds a batch of contacts, all or nothing. If any ID is taken, or repeated
+     * in the batch, the contacts already added are removed again.
+     * @param batch The contacts to add, none of them null
+     * @return -1 if every contact was added, otherwise the index of a rejected
+     *         contact; nothing is added then
+     */
+    default int insertAll(Contact[] batch) {
+        for (int i = 0; i < batch.length; i++) {
+            if (!insert(batch[i])) {
+                for (int j = i - 1; j >= 0; j--) {
+                    remove(batch[j].getContactId());
+                }
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes a batch of contacts, all or nothing. If any ID isn't stored, or is
+     * repeated in the batch, the contacts already removed are put back.
+     * @param contactIds The IDs to remove, none of them null
+     * @return -1 if every contact was removed, otherwise the index of a rejected
+     *         ID; nothing is removed then
+     */
+    default int removeAll(String[] contactIds) {
+        Contact[] removed = new Contact[contactIds.length];
+        for (int i = 0; i < contactIds.length; i++) {
+            removed[i] = remove(contactIds[i]);
+            if (removed[i] == null) {
+                for (int j = i - 1; j >= 0; j--) {
+                    insert(removed[j]);
+                }
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Applies a batch of field updates in order, all or nothing. If any update
+     * targets a missing contact, the ones already applied are reverted in reverse
+     * order, which also puts their versions back.
+     * @param updates The updates, none of them null and every value already validated
+     * @return -1 if every update was applied, otherwise the index of a rejected
+     *         update; nothing is changed then
+     */
+    default int updateAll(ContactUpdate[] updates) {
+        String[] previous = new String[updates.length];
+        for (int i = 0; i < updates.length; i++) {
+            previous[i] = update(updates[i].getContactId(), updates[i].getField(), updates[i].getValue());
+            if (previous[i] == null) {
+                for (int j = i - 1; j >= 0; j--) {
+                    revert(updates[j].getContactId(), updates[j].getField(), previous[j]);
+                }
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the number of stored contacts
+     * @return The number of contacts
+     */
+    int size();
+
+    /**
+     * Prepares the store to hold at least the given number of contacts without growing.
+     * Stores that cannot pre-size ignore this.
+     * @param expectedContacts The number of contacts expected
+     */
+    default void ensureCapacity(int expectedContacts) {
+    }
+
+    /**
+     * Creates a spliterator over the stored contacts for streaming. It is weakly
+     * consistent: it never fails because of concurrent changes, and may or may
+     * not see contacts added, removed or changed after it was created.
+     * Stores that keep contacts in an encoded form pass new copies.
+     * @return A spliterator over the contacts
+     */
+    Spliterator<Contact> spliterator();
+
+    /**
+     * Passes every stored contact to an action
+     * @param action The action to run for each contact
+     */
+    default void forEach(Consumer<? super Contact> action) {
+        spliterator().forEachRemaining(action);
+    }
+
+    /**
+     * Finds the contacts with a phone number
+     * @param phone A valid 10-digit phone number
+     * @return The matching contacts, empty if there are none
+     */
+    default List<Contact> findByPhone(String phone) {
+        List<Contact> matches = new ArrayList<>();
+        forEach(contact -> {
+            if (contact.getPhone().equals(phone)) {
+                matches.add(contact);
+            }
+        });
+        return matches;
+    }
+
+    /**
+     * Finds the contacts with a last name
+     * @param lastName The exact last name
+     * @return The matching contacts, empty if there are none
+     */
+    default List<Contact> findByLastName(String lastName) {
+        List<Contact> matches = new ArrayList<>();
+        forEach(contact -> {
+            if (contact.getLastName().equals(lastName)) {
+                matches.add(contact);
+            }
+        });
+        return matches;
+    }
+
+    /**
+     * Finds contacts whose address starts with a prefix, ignoring case
+     * @param prefix The start of the address
+     * @param limit The most contacts to return
+     * @return Up to limit matching contacts
+     */
+    default List<Contact> findByAddressPrefix(String prefix, int limit) {
+        String lowerPrefix = prefix.toLowerCase(Locale.ROOT);
+        List<Contact> matches = new ArrayList<>();
+        forEach(contact -> {
+            if (matches.size() < limit && contact.getAddress().toLowerCase(Locale.ROOT).startsWith(lowerPrefix)) {
+                matches.add(contact);
+            }
+        });
+        return matches;
+    }
+
+    /**
+     * Finds contacts whose first or last name starts with a prefix, ignoring case
+     * @param prefix The start of the name
+     * @param limit The most contacts to return
+     * @return Up to limit matching contacts
+     */
+    default List<Contact> findByNamePrefix(String prefix, int limit) {
+        String lowerPrefix = prefix.toLowerCase(Locale.ROOT);
+        List<Contact> matches = new ArrayList<>();
+        forEach(contact -> {
+            if (matches.size() < limit && (contact.getFirstName().toLowerCase(Locale.ROOT).startsWith(lowerPrefix)
+                    || contact.getLastName().toLowerCase(Locale.ROOT).startsWith(lowerPrefix))) {
+                matches.add(contact);
+            }
+        });
+        return matches;
+    }
+
+    /**
+     * Finds contacts whose first or last name is within an edit distance of a
+     * name, ignoring case. Scans every contact by default.
+     * @param name The name to match
+     * @param maxDistance The most single-char insertions, deletions and substitutions, not negative
+     * @param limit The most contacts to return
+     * @return Up to limit matching contacts, closest first, then by the name that
+     *         matched; contacts with the same name come in no particular order
+     */
+    default List<Contact> findBySimilarName(String name, int maxDistance, int limit) {
+        return NameTrigramIndex.scan(this, name, maxDistance, limit);
+    }
+}
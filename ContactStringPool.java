@@ -0,0 +1,164 @@
+package com.grandstrand;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ContactStringPool class sharing one String instance between every contact with
+ * the same first name, last name or address. Contact data repeats heavily (a few
+ * thousand names and streets cover millions of contacts), so keeping one copy of
+ * each value instead of one per contact saves most of the memory the text takes.
+ * A HeapContactStore given a pool passes those fields through it on insert,
+ * update and patch; ContactService(int, ContactStringPool) sets one up.
+ * <p>
+ * Pooling is opt-in: each value costs a lookup, and a value seen only once
+ * costs a map entry and a weak reference on top of the String, so it only pays
+ * off when values repeat.
+ * <p>
+ * The pool only holds weak references: a value no contact uses any more is
+ * collected as usual, and its entry is dropped on a later call. Lookups are a
+ * ConcurrentHashMap read and take no lock.
+ */
+public final class ContactStringPool {
+    private final ConcurrentHashMap<Object, PooledString> pool = new ConcurrentHashMap<>();
+    private final ReferenceQueue<String> collected = new ReferenceQueue<>();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+
+    /**
+     * PooledString class for a pool entry: a weak reference that hashes and
+     * compares by the string it refers to. A cleared entry only equals itself,
+     * so it can still be found and removed.
+     */
+    private static final class PooledString extends WeakReference<String> {
+        private final int hash;
+
+        PooledString(String value, ReferenceQueue<String> queue) {
+            super(value, queue);
+            this.hash = value.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other == this) {
+                return true;
+            }
+            if (!(other instanceof PooledString)) {
+                return false;
+            }
+            String value = get();
+            return value != null && value.equals(((PooledString) other).get());
+        }
+    }
+
+    /**
+     * Probe class looking up an entry by a plain string without creating a reference
+     */
+    private static final class Probe {
+        private final String value;
+
+        Probe(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public int hashCode() {
+            return value.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof PooledString && value.equals(((PooledString) other).get());
+        }
+    }
+
+    /**
+     * Constructor for an empty pool
+     */
+    public ContactStringPool() {
+    }
+
+    /**
+     * Gets the pooled instance of a string, adding the string if it isn't pooled yet
+     * @param value The string (cannot be null)
+     * @return An equal string, the same instance for every call with an equal value
+     */
+    public String intern(String value) {
+        expungeCollected();
+        PooledString entry = pool.get(new Probe(value));
+        String pooled = entry == null ? null : entry.get();
+        if (pooled == null) {
+            PooledString created = new PooledString(value, collected);
+            do {
+                entry = pool.putIfAbsent(created, created);
+                pooled = entry == null ? value : entry.get();
+            } while (pooled == null);
+        }
+        if (pooled != value) {
+            duplicates.increment();
+            bytesSaved.add(stringBytes(value));
+        }
+        return pooled;
+    }
+
+    private void expungeCollected() {
+        for (Reference<? extends String> ref = collected.poll(); ref != null; ref = collected.poll()) {
+            pool.remove(ref);
+        }
+    }
+
+    /**
+     * Estimates the heap taken by a string: a 24-byte String object and its
+     * 16-byte-header array, with one byte per char when every char fits Latin-1
+     */
+    private static long stringBytes(String value) {
+        int bytesPerChar = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+        return 24 + ((16 + (long) value.length() * bytesPerChar + 7) & ~7L);
+    }
+
+    /**
+     * Gets the number of distinct strings in the pool, including ones about to be dropped
+     * @return The pool size
+     */
+    public int size() {
+        expungeCollected();
+        return pool.size();
+    }
+
+    /**
+     * Gets the number of interned strings that were replaced by an existing equal instance
+     * @return The duplicate count
+     */
+    public long getDuplicateCount() {
+        return duplicates.sum();
+    }
+
+    /**
+     * Gets the heap the duplicates would have taken had they been kept. This counts
+     * every duplicate ever replaced, including ones on contacts since removed.
+     * @return The estimated bytes saved
+     */
+    public long getBytesSaved() {
+        return bytesSaved.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("pooled=%d duplicates=%d saved=%.1fMB", size(), getDuplicateCount(),
+                getBytesSaved() / (1024.0 * 1024.0));
+    }
+}
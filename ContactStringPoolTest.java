@@ -0,0 +1,59 @@
+package com.grandstrand;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ContactStringPool class.
+ * Tests that equal names and addresses end up as one shared instance, and
+ * only in a service given a pool.
+ */
+public class ContactStringPoolTest {
+
+    private static String copy(String value) {
+        return new String(value.toCharArray());
+    }
+
+    @Test
+    public void testInternReturnsOneInstancePerValue() {
+        ContactStringPool pool = new ContactStringPool();
+        String first = copy("Smith");
+        String second = copy("Smith");
+        
+        assertSame(first, pool.intern(first));
+        assertSame(first, pool.intern(second));
+        assertSame(first, pool.intern(first));
+        assertEquals(1, pool.size());
+        assertEquals(1, pool.getDuplicateCount());
+        assertEquals(24 + 24, pool.getBytesSaved());
+    }
+
+    @Test
+    public void testPooledServiceSharesNamesAndAddresses() {
+        ContactService contactService = new ContactService(16, new ContactStringPool());
+        contactService.addContact(new Contact("1", copy("John"), copy("Doe"), "1234567890", copy("123 Main St")));
+        contactService.addContact(new Contact("2", copy("Jane"), copy("Doe"), "1234567890", copy("123 Main St")));
+        Contact john = contactService.getContact("1");
+        Contact jane = contactService.getContact("2");
+        
+        assertSame(john.getLastName(), jane.getLastName());
+        assertSame(john.getAddress(), jane.getAddress());
+        
+        contactService.updateFirstName("2", copy("John"));
+        contactService.updateContact("2", new ContactPatch().address(copy("9 Elm Ave")));
+        contactService.addContact(new Contact("3", copy("Bob"), copy("Smith"), "1234567890", copy("9 Elm Ave")));
+        jane = contactService.getContact("2");
+        assertSame(john.getFirstName(), jane.getFirstName());
+        assertSame(jane.getAddress(), contactService.getContact("3").getAddress());
+    }
+
+    @Test
+    public void testPlainServiceKeepsValuesAsGiven() {
+        ContactService contactService = new ContactService();
+        contactService.addContact(new Contact("1", copy("John"), copy("Doe"), "1234567890", copy("123 Main St")));
+        contactService.addContact(new Contact("2", copy("Jane"), copy("Doe"), "1234567890", copy("123 Main St")));
+        
+        assertNotSame(contactService.getContact("1").getLastName(), contactService.getContact("2").getLastName());
+    }
+}
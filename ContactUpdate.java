@@ -0,0 +1,38 @@
+package com.grandstrand;
+
+/**
+ * ContactUpdate class describing a single field change for a contact.
+ * Used to pass a list of updates to ContactService.applyUpdates.
+ */
+public final class ContactUpdate {
+    private final String contactId;
+    private final ContactField field;
+    private final String value;
+
+    /**
+     * Constructor for ContactUpdate class
+     * @param contactId The ID of the contact to update
+     * @param field The field to change (cannot be null)
+     * @param value The new value, validated when the update is applied
+     */
+    public ContactUpdate(String contactId, ContactField field, String value) {
+        if (field == null) {
+            throw new IllegalArgumentException("Field cannot be null");
+        }
+        this.contactId = contactId;
+        this.field = field;
+        this.value = value;
+    }
+
+    public String getContactId() {
+        return contactId;
+    }
+
+    public ContactField getField() {
+        return field;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
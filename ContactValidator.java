@@ -0,0 +1,145 @@
+package com.grandstrand;
+
+/**
+ * ContactValidator holds the field rules for a Contact so they can be reused
+ * wherever contact data is checked (construction, setters, bulk imports).
+ * The checks are plain length and character tests: nothing is allocated when a
+ * value is valid, and an exception is only built when a value is rejected.
+ */
+public final class ContactValidator {
+    public static final int MAX_ID_LENGTH = 10;
+    public static final int MAX_NAME_LENGTH = 10;
+    public static final int PHONE_LENGTH = 10;
+    public static final int MAX_ADDRESS_LENGTH = 30;
+
+    private ContactValidator() {
+    }
+
+    /**
+     * Checks a contact ID
+     * @param contactId The ID to check
+     * @return true if the ID is not null and 10 characters or less
+     */
+    public static boolean isValidContactId(String contactId) {
+        return contactId != null && contactId.length() <= MAX_ID_LENGTH;
+    }
+
+    /**
+     * Checks a first or last name
+     * @param name The name to check
+     * @return true if the name is not null and 10 characters or less
+     */
+    public static boolean isValidName(String name) {
+        return name != null && name.length() <= MAX_NAME_LENGTH;
+    }
+
+    /**
+     * Checks a phone number without using a regular expression
+     * @param phone The phone number to check
+     * @return true if the phone is not null and exactly 10 ASCII digits
+     */
+    public static boolean isValidPhone(String phone) {
+        if (phone == null || phone.length() != PHONE_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < PHONE_LENGTH; i++) {
+            char c = phone.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks an address
+     * @param address The address to check
+     * @return true if the address is not null and 30 characters or less
+     */
+    public static boolean isValidAddress(String address) {
+        return address != null && address.length() <= MAX_ADDRESS_LENGTH;
+    }
+
+    /**
+     * Checks every field of a new contact without throwing, so callers such as
+     * bulk imports can skip bad rows without building an exception for each one
+     * @param contactId The ID to check
+     * @param firstName The first name to check
+     * @param lastName The last name to check
+     * @param phone The phone number to check
+     * @param address The address to check
+     * @return OK if new Contact(...) would accept the fields, otherwise the
+     *         status of the first invalid field in constructor order
+     */
+    public static ContactStatus validate(String contactId, String firstName, String lastName, String phone,
+                                         String address) {
+        if (!isValidContactId(contactId)) {
+            return ContactStatus.INVALID_CONTACT_ID;
+        }
+        if (!isValidName(firstName)) {
+            return ContactStatus.INVALID_FIRST_NAME;
+        }
+        if (!isValidName(lastName)) {
+            return ContactStatus.INVALID_LAST_NAME;
+        }
+        if (!isValidPhone(phone)) {
+            return ContactStatus.INVALID_PHONE;
+        }
+        return isValidAddress(address) ? ContactStatus.OK : ContactStatus.INVALID_ADDRESS;
+    }
+
+    /**
+     * Validates a contact ID
+     * @param contactId The ID to validate
+     * @throws IllegalArgumentException if the ID is null or longer than 10 characters
+     */
+    public static void requireContactId(String contactId) {
+        if (!isValidContactId(contactId)) {
+            throw new IllegalArgumentException("Contact ID cannot be null and must be 10 characters or less");
+        }
+    }
+
+    /**
+     * Validates a first name
+     * @param firstName The first name to validate
+     * @throws IllegalArgumentException if the name is null or longer than 10 characters
+     */
+    public static void requireFirstName(String firstName) {
+        if (!isValidName(firstName)) {
+            throw new IllegalArgumentException("First name cannot be null and must be 10 characters or less");
+        }
+    }
+
+    /**
+     * Validates a last name
+     * @param lastName The last name to validate
+     * @throws IllegalArgumentException if the name is null or longer than 10 characters
+     */
+    public static void requireLastName(String lastName) {
+        if (!isValidName(lastName)) {
+            throw new IllegalArgumentException("Last name cannot be null and must be 10 characters or less");
+        }
+    }
+
+    /**
+     * Validates a phone number
+     * @param phone The phone number to validate
+     * @throws IllegalArgumentException if the phone is null or not exactly 10 digits
+     */
+    public static void requirePhone(String phone) {
+        if (!isValidPhone(phone)) {
+            throw new IllegalArgumentException("Phone must be exactly 10 digits and cannot be null");
+        }
+    }
+
+    /**
+     * Validates an address
+     * @param address The address to validate
+     * @throws IllegalArgumentException if the address is null or longer than 30 characters
+     */
+    public static void requireAddress(String address) {
+        if (!isValidAddress(address)) {
+            throw new IllegalArgumentException("Address cannot be null and must be 30 characters or less");
+        }
+    }
+}
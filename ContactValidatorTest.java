@@ -0,0 +1,77 @@
+package com.grandstrand;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ContactValidator class.
+ * Tests that each rule accepts and rejects the same values Contact always has.
+ */
+public class ContactValidatorTest {
+
+    @Test
+    public void testValidContactId() {
+        assertTrue(ContactValidator.isValidContactId(""));
+        assertTrue(ContactValidator.isValidContactId("1234567890"));
+        assertFalse(ContactValidator.isValidContactId("12345678901"));
+        assertFalse(ContactValidator.isValidContactId(null));
+    }
+
+    @Test
+    public void testValidName() {
+        assertTrue(ContactValidator.isValidName("John"));
+        assertTrue(ContactValidator.isValidName("1234567890"));
+        assertFalse(ContactValidator.isValidName("JohnJohnJohn"));
+        assertFalse(ContactValidator.isValidName(null));
+    }
+
+    @Test
+    public void testValidPhone() {
+        assertTrue(ContactValidator.isValidPhone("1234567890"));
+        assertTrue(ContactValidator.isValidPhone("0000000000"));
+        assertFalse(ContactValidator.isValidPhone(null));
+        assertFalse(ContactValidator.isValidPhone("123456789"));
+        assertFalse(ContactValidator.isValidPhone("12345678901"));
+        assertFalse(ContactValidator.isValidPhone("123456789a"));
+        assertFalse(ContactValidator.isValidPhone("123-456-78"));
+        assertFalse(ContactValidator.isValidPhone("12345 6789"));
+    }
+
+    @Test
+    public void testValidPhoneRejectsNonAsciiDigits() {
+        // "\\d" only matches ASCII digits, so Arabic-Indic digits were never accepted
+        assertFalse(ContactValidator.isValidPhone("\u0661\u0662\u0663\u0664\u0665\u0666\u0667\u0668\u0669\u0660"));
+    }
+
+    @Test
+    public void testValidAddress() {
+        assertTrue(ContactValidator.isValidAddress("123 Main St"));
+        assertTrue(ContactValidator.isValidAddress("123456789012345678901234567890"));
+        assertFalse(ContactValidator.isValidAddress("1234567890123456789012345678901"));
+        assertFalse(ContactValidator.isValidAddress(null));
+    }
+
+    @Test
+    public void testRequireMethodsThrow() {
+        assertThrows(IllegalArgumentException.class, () -> ContactValidator.requireContactId(null));
+        assertThrows(IllegalArgumentException.class, () -> ContactValidator.requireFirstName("TooLongName"));
+        assertThrows(IllegalArgumentException.class, () -> ContactValidator.requireLastName(null));
+        assertThrows(IllegalArgumentException.class, () -> ContactValidator.requirePhone("123456789a"));
+        assertThrows(IllegalArgumentException.class, () -> ContactValidator.requireAddress(null));
+    }
+
+    @Test
+    public void testValidateReturnsFirstInvalidField() {
+        assertEquals(ContactStatus.OK, ContactValidator.validate("123", "John", "Doe", "1234567890", "123 Main St"));
+        assertEquals(ContactStatus.INVALID_CONTACT_ID,
+                ContactValidator.validate(null, "TooLongName", "Doe", "1234567890", "123 Main St"));
+        assertEquals(ContactStatus.INVALID_FIRST_NAME,
+                ContactValidator.validate("123", "TooLongName", null, "1234567890", "123 Main St"));
+        assertEquals(ContactStatus.INVALID_LAST_NAME,
+                ContactValidator.validate("123", "John", null, "1234567890", "123 Main St"));
+        assertEquals(ContactStatus.INVALID_PHONE,
+                ContactValidator.validate("123", "John", "Doe", "12345", "123 Main St"));
+        assertEquals(ContactStatus.INVALID_ADDRESS,
+                ContactValidator.validate("123", "John", "Doe", "1234567890", null));
+    }
+}
@@ -0,0 +1,141 @@
+package com.grandstrand;
+
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * CopyOnWriteContactStore class keeping contacts as ImmutableContact values.
+ * An update never changes a stored contact: it builds a new version and
+ * publishes it with a compare-and-swap on the map entry, retrying if another
+ * writer got there first. Readers never block or take locks, and always see a
+ * whole version of a contact, so a change to several fields made through
+ * update(String, UnaryOperator) is seen all at once or not at all.
+ * <p>
+ * get returns the stored instance, which is safe to keep and share because it
+ * cannot change. Updates cost one new contact per change, which is the price
+ * for lock-free reads; the HeapContactStore is cheaper for write-heavy use.
+ */
+public class CopyOnWriteContactStore implements ContactStore {
+    private final ConcurrentHashMap<String, ImmutableContact> contacts;
+
+    /**
+     * Constructor for an empty store
+     */
+    public CopyOnWriteContactStore() {
+        this.contacts = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Constructor that pre-sizes the contacts map
+     * @param expectedContacts The number of contacts the store is expected to hold
+     */
+    public CopyOnWriteContactStore(int expectedContacts) {
+        this.contacts = new ConcurrentHashMap<>(expectedContacts);
+    }
+
+    @Override
+    public ImmutableContact get(String contactId) {
+        return contacts.get(contactId);
+    }
+
+    @Override
+    public boolean contains(String contactId) {
+        return contacts.containsKey(contactId);
+    }
+
+    /**
+     * Adds an immutable copy of the contact, so later changes to the caller's
+     * instance don't reach the store
+     */
+    @Override
+    public boolean insert(Contact contact) {
+        return contacts.putIfAbsent(contact.getContactId(), ImmutableContact.copyOf(contact)) == null;
+    }
+
+    @Override
+    public Contact remove(String contactId) {
+        return contacts.remove(contactId);
+    }
+
+    @Override
+    public String update(String contactId, ContactField field, String value) {
+        ImmutableContact previous = update(contactId, contact -> contact.with(field, value));
+        return previous == null ? null : field.get(previous);
+    }
+
+    @Override
+    public String revert(String contactId, ContactField field, String previous) {
+        while (true) {
+            ImmutableContact current = contacts.get(contactId);
+            if (current == null) {
+                return null;
+            }
+            ImmutableContact reverted = current.with(field, previous);
+            reverted.setVersion(ContactStore.previousVersion(current.getVersion()));
+            if (contacts.replace(contactId, current, reverted)) {
+                return field.get(current);
+            }
+        }
+    }
+
+    /**
+     * Replaces a contact with a new version computed from the current one. The
+     * change function may run more than once if other writers race with it, so
+     * it should have no side effects.
+     * @param contactId The ID of the contact
+     * @param change Builds the new version from the current one
+     * @return The version that was replaced, or null if the contact isn't stored
+     */
+    public ImmutableContact update(String contactId, UnaryOperator<ImmutableContact> change) {
+        while (true) {
+            ImmutableContact current = contacts.get(contactId);
+            if (current == null) {
+                return null;
+            }
+            ImmutableContact next = change.apply(current);
+            if (next == current) {
+                return current;
+            }
+            if (!next.getContactId().equals(contactId)) {
+                throw new IllegalArgumentException("Contact ID cannot be changed");
+            }
+            // The new version isn't visible to anyone yet, so it is safe to stamp
+            next.setVersion(ContactStore.nextVersion(current.getVersion()));
+            // ImmutableContact doesn't override equals, so this compares the exact version read above
+            if (contacts.replace(contactId, current, next)) {
+                return current;
+            }
+        }
+    }
+
+    @Override
+    public ContactStatus patch(String contactId, ContactPatch patch, int expectedVersion) {
+        while (true) {
+            ImmutableContact current = contacts.get(contactId);
+            if (current == null) {
+                return ContactStatus.NOT_FOUND;
+            }
+            if (expectedVersion != ANY_VERSION && current.getVersion() != expectedVersion) {
+                return ContactStatus.VERSION_CONFLICT;
+            }
+            ImmutableContact next = current.with(patch);
+            next.setVersion(ContactStore.nextVersion(current.getVersion()));
+            if (contacts.replace(contactId, current, next)) {
+                return ContactStatus.OK;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return contacts.size();
+    }
+
+    // A spliterator only hands contacts out, so viewing the values as plain Contacts is safe
+    @Override
+    @SuppressWarnings("unchecked")
+    public Spliterator<Contact> spliterator() {
+        return (Spliterator<Contact>) (Spliterator<? extends Contact>) contacts.values().spliterator();
+    }
+}
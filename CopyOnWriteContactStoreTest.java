@@ -0,0 +1,127 @@
+package com.grandstrand;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ImmutableContact and CopyOnWriteContactStore classes.
+ * Tests that stored contacts never change and that multi-field updates are seen whole.
+ */
+public class CopyOnWriteContactStoreTest {
+    private CopyOnWriteContactStore store;
+    private ContactService contactService;
+
+    @BeforeEach
+    public void setUp() {
+        store = new CopyOnWriteContactStore();
+        contactService = new ContactService(store);
+        contactService.addContact(new Contact("123", "John", "Doe", "1234567890", "123 Main St"));
+    }
+
+    @Test
+    public void testImmutableContactRejectsSetters() {
+        ImmutableContact contact = new ImmutableContact("1", "John", "Doe", "1234567890", "123 Main St");
+        assertThrows(UnsupportedOperationException.class, () -> contact.setFirstName("Jane"));
+        assertThrows(UnsupportedOperationException.class, () -> contact.setLastName("Smith"));
+        assertThrows(UnsupportedOperationException.class, () -> contact.setPhone("0987654321"));
+        assertThrows(UnsupportedOperationException.class, () -> contact.setAddress("456 Oak Ave"));
+        
+        ImmutableContact changed = contact.with(ContactField.PHONE, "0987654321");
+        assertEquals("1234567890", contact.getPhone());
+        assertEquals("0987654321", changed.getPhone());
+        assertThrows(IllegalArgumentException.class, () -> contact.withFirstName("JohnJohnJohn"));
+        assertSame(contact, ImmutableContact.copyOf(contact));
+    }
+
+    @Test
+    public void testInsertCopiesMutableContact() {
+        Contact contact = new Contact("456", "Jane", "Doe", "1234567890", "123 Main St");
+        contactService.addContact(contact);
+        contact.setFirstName("Janet");
+        
+        assertEquals("Jane", contactService.getContact("456").getFirstName());
+        assertTrue(contactService.getContact("456") instanceof ImmutableContact);
+    }
+
+    @Test
+    public void testInPlaceStoresCopyImmutableContact() {
+        for (ContactStore inPlace : new ContactStore[] {new HeapContactStore(), new IncrementalContactStore(),
+            new NumericIdContactStore()}) {
+            ContactService service = new ContactService(inPlace);
+            service.addContact(new ImmutableContact("1", "John", "Doe", "1234567890", "123 Main St"));
+            
+            assertEquals(ContactStatus.OK, service.tryUpdateFirstName("1", "Bob"));
+            assertEquals("Bob", service.getContact("1").getFirstName());
+            assertFalse(service.getContact("1") instanceof ImmutableContact);
+        }
+    }
+
+    @Test
+    public void testUpdatePublishesNewVersion() {
+        Contact before = contactService.getContact("123");
+        contactService.updatePhone("123", "0987654321");
+        Contact after = contactService.getContact("123");
+        
+        assertNotSame(before, after);
+        assertEquals("1234567890", before.getPhone());
+        assertEquals("0987654321", after.getPhone());
+        assertThrows(IllegalArgumentException.class, () -> contactService.updatePhone("missing", "0987654321"));
+    }
+
+    @Test
+    public void testUpdateCannotChangeId() {
+        assertThrows(IllegalArgumentException.class, () -> store.update("123",
+                contact -> new ImmutableContact("999", "John", "Doe", "1234567890", "123 Main St")));
+        assertNull(store.update("missing", contact -> contact.withFirstName("Jane")));
+    }
+
+    @Test
+    public void testReadersNeverSeePartialMultiFieldUpdate() throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> torn = new AtomicReference<>();
+        Thread[] readers = new Thread[2];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(() -> {
+                while (running.get()) {
+                    Contact contact = store.get("123");
+                    // The writer always changes first name, last name and phone together
+                    boolean john = contact.getFirstName().equals("John");
+                    if (john != contact.getLastName().equals("Doe") || john != contact.getPhone().equals("1234567890")) {
+                        torn.set(contact.getFirstName() + " " + contact.getLastName() + " " + contact.getPhone());
+                    }
+                }
+            });
+            readers[t].start();
+        }
+        
+        for (int i = 0; i < 100000; i++) {
+            boolean john = i % 2 == 0;
+            store.update("123", contact -> contact.withFirstName(john ? "Jane" : "John")
+                    .withLastName(john ? "Smith" : "Doe").withPhone(john ? "0987654321" : "1234567890"));
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        
+        assertNull(torn.get());
+    }
+
+    @Test
+    public void testPatchPublishesOneNewVersion() {
+        Contact before = contactService.getContact("123");
+        assertTrue(contactService.updateContact("123", new ContactPatch().firstName("Jane").phone("0987654321"), 0));
+        Contact after = contactService.getContact("123");
+        
+        assertEquals("John", before.getFirstName());
+        assertEquals("Jane", after.getFirstName());
+        assertEquals("0987654321", after.getPhone());
+        assertEquals(1, after.getVersion());
+        assertFalse(contactService.updateContact("123", new ContactPatch().firstName("Ann"), 0));
+    }
+}
@@ -0,0 +1,66 @@
+package com.grandstrand;
+
+/**
+ * EvictionPolicy interface deciding which contact IDs a CachingContactStore keeps.
+ * A policy tracks the IDs currently cached, up to its capacity, and picks the
+ * one to drop when a new ID pushes it over. The cache calls a policy under its
+ * own lock, so implementations need not be thread-safe.
+ */
+public interface EvictionPolicy {
+
+    /**
+     * Gets the most IDs the policy keeps
+     * @return The capacity
+     */
+    int capacity();
+
+    /**
+     * Records a cache hit
+     * @param contactId The ID that was read; ignored if it isn't tracked
+     */
+    void recordAccess(String contactId);
+
+    /**
+     * Starts tracking a newly cached ID
+     * @param contactId The ID, not already tracked
+     * @return An ID to evict (possibly one added earlier in a way the policy
+     *         prefers to drop), or null if the policy is not over capacity
+     */
+    String add(String contactId);
+
+    /**
+     * Stops tracking an ID removed from the cache
+     * @param contactId The ID; ignored if it isn't tracked
+     */
+    void remove(String contactId);
+
+    /**
+     * Creates a least-recently-used policy
+     * @param capacity The most IDs to keep
+     * @return The policy
+     */
+    static EvictionPolicy lru(int capacity) {
+        return new LruEvictionPolicy(capacity);
+    }
+
+    /**
+     * Creates a CLOCK (second chance) policy: an approximation of LRU where a hit
+     * only sets a bit, which makes hits cheaper than moving an entry in a list
+     * @param capacity The most IDs to keep
+     * @return The policy
+     */
+    static EvictionPolicy clock(int capacity) {
+        return new ClockEvictionPolicy(capacity);
+    }
+
+    /**
+     * Creates a Window TinyLFU policy, which admits an ID to the main cache only
+     * if it is used more often than the ID it would replace, so one-off reads and
+     * scans don't push out the contacts that are read all the time
+     * @param capacity The most IDs to keep
+     * @return The policy
+     */
+    static EvictionPolicy windowTinyLfu(int capacity) {
+        return new TinyLfuEvictionPolicy(capacity);
+    }
+}
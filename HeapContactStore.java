@@ -0,0 +1,136 @@
+package com.grandstrand;
+
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * HeapContactStore class keeping Contact objects in a ConcurrentHashMap.
+ * This is the default store: get returns the stored instance itself, adds and
+ * removes are atomic map operations, reads never lock, and updates only lock
+ * the map bin holding the contact. Updates and patches replace the stored
+ * contact with a changed copy, so an instance handed out by get never changes
+ * afterwards.
+ * <p>
+ * A store given a ContactStringPool stores a copy of each inserted contact
+ * with its names and address taken from the pool, and pools the values of
+ * updates and patches, so contacts with equal values share one String.
+ */
+public class HeapContactStore implements ContactStore {
+    private final ConcurrentHashMap<String, Contact> contacts;
+    // Null when values are not pooled
+    private final ContactStringPool pool;
+
+    /**
+     * Constructor initializes the contacts map
+     */
+    public HeapContactStore() {
+        this.contacts = new ConcurrentHashMap<>();
+        this.pool = null;
+    }
+
+    /**
+     * Constructor that pre-sizes the contacts map
+     * @param expectedContacts The number of contacts the store is expected to hold
+     */
+    public HeapContactStore(int expectedContacts) {
+        this(expectedContacts, null);
+    }
+
+    /**
+     * Constructor that pre-sizes the contacts map and shares equal names and
+     * addresses through a pool
+     * @param expectedContacts The number of contacts the store is expected to hold
+     * @param pool The pool to take names and addresses from, or null to store them as given
+     */
+    public HeapContactStore(int expectedContacts, ContactStringPool pool) {
+        this.contacts = new ConcurrentHashMap<>(expectedContacts);
+        this.pool = pool;
+    }
+
+    @Override
+    public Contact get(String contactId) {
+        return contacts.get(contactId);
+    }
+
+    @Override
+    public boolean contains(String contactId) {
+        return contacts.containsKey(contactId);
+    }
+
+    @Override
+    public boolean insert(Contact contact) {
+        Contact stored = pool == null ? contact : pooled(contact);
+        return contacts.putIfAbsent(contact.getContactId(), stored) == null;
+    }
+
+    @Override
+    public Contact remove(String contactId) {
+        return contacts.remove(contactId);
+    }
+
+    /**
+     * Replaces the contact with a changed copy while holding the lock for its
+     * map bin, so concurrent updates to the same contact are serialized and
+     * readers holding the stored instance never see the change.
+     */
+    @Override
+    public String update(String contactId, ContactField field, String value) {
+        return set(contactId, field, value, ContactStore::nextVersion);
+    }
+
+    @Override
+    public String revert(String contactId, ContactField field, String previous) {
+        return set(contactId, field, previous, ContactStore::previousVersion);
+    }
+
+    private String set(String contactId, ContactField field, String value, IntUnaryOperator version) {
+        String stored = pool == null || field == ContactField.PHONE ? value : pool.intern(value);
+        String[] previous = new String[1];
+        contacts.computeIfPresent(contactId, (id, contact) -> {
+            previous[0] = field.get(contact);
+            return Contact.copyWith(contact, field, stored, version.applyAsInt(contact.getVersion()));
+        });
+        return previous[0];
+    }
+
+    /**
+     * Replaces the contact with a patched copy while holding the lock for its
+     * map bin, so readers holding the stored instance never see half a patch
+     */
+    @Override
+    public ContactStatus patch(String contactId, ContactPatch patch, int expectedVersion) {
+        ContactStatus[] status = {ContactStatus.NOT_FOUND};
+        contacts.computeIfPresent(contactId, (id, contact) -> {
+            if (expectedVersion != ANY_VERSION && contact.getVersion() != expectedVersion) {
+                status[0] = ContactStatus.VERSION_CONFLICT;
+                return contact;
+            }
+            Contact patched = pool == null ? patch.appliedTo(contact) : pooled(patch.appliedTo(contact));
+            patched.setVersion(ContactStore.nextVersion(contact.getVersion()));
+            status[0] = ContactStatus.OK;
+            return patched;
+        });
+        return status[0];
+    }
+
+    /**
+     * Copies a contact with its names and address taken from the pool
+     */
+    private Contact pooled(Contact contact) {
+        Contact copy = new Contact(contact.getContactId(), pool.intern(contact.getFirstName()),
+                pool.intern(contact.getLastName()), contact.getPhone(), pool.intern(contact.getAddress()));
+        copy.setVersion(contact.getVersion());
+        return copy;
+    }
+
+    @Override
+    public int size() {
+        return contacts.size();
+    }
+
+    @Override
+    public Spliterator<Contact> spliterator() {
+        return contacts.values().spliterator();
+    }
+}
@@ -0,0 +1,111 @@
+package com.grandstrand;
+
+/**
+ * ImmutableContact class for a contact that cannot change after it is created.
+ * The setters throw UnsupportedOperationException; a change is made by creating
+ * a new version with one of the with methods. A stored ImmutableContact can be
+ * shared with any number of reader threads without locking, since none of them
+ * can ever see it change.
+ */
+public final class ImmutableContact extends Contact {
+
+    /**
+     * Constructor for ImmutableContact class
+     * @param contactId Unique contact ID (max 10 characters, cannot be null)
+     * @param firstName First name (max 10 characters, cannot be null)
+     * @param lastName Last name (max 10 characters, cannot be null)
+     * @param phone Phone number (exactly 10 digits, cannot be null)
+     * @param address Address (max 30 characters, cannot be null)
+     */
+    public ImmutableContact(String contactId, String firstName, String lastName, String phone, String address) {
+        super(contactId, firstName, lastName, phone, address);
+    }
+
+    /**
+     * Gets an immutable copy of a contact
+     * @param contact The contact to copy
+     * @return The contact itself if it is already immutable, otherwise a copy with the same version
+     */
+    public static ImmutableContact copyOf(Contact contact) {
+        if (contact instanceof ImmutableContact) {
+            return (ImmutableContact) contact;
+        }
+        ImmutableContact copy = new ImmutableContact(contact.getContactId(), contact.getFirstName(),
+                contact.getLastName(), contact.getPhone(), contact.getAddress());
+        copy.setVersion(contact.getVersion());
+        return copy;
+    }
+
+    /**
+     * Creates a new version of this contact with one field changed
+     * @param field The field to change
+     * @param value The new value
+     * @return The new version
+     * @throws IllegalArgumentException if the value is invalid for the field
+     */
+    public ImmutableContact with(ContactField field, String value) {
+        switch (field) {
+            case FIRST_NAME:
+                return withFirstName(value);
+            case LAST_NAME:
+                return withLastName(value);
+            case PHONE:
+                return withPhone(value);
+            default:
+                return withAddress(value);
+        }
+    }
+
+    /**
+     * Creates a new version of this contact with every field a patch sets changed
+     * @param patch The changes
+     * @return The new version
+     */
+    public ImmutableContact with(ContactPatch patch) {
+        return new ImmutableContact(getContactId(), valueOr(patch, ContactField.FIRST_NAME, getFirstName()),
+                valueOr(patch, ContactField.LAST_NAME, getLastName()), valueOr(patch, ContactField.PHONE, getPhone()),
+                valueOr(patch, ContactField.ADDRESS, getAddress()));
+    }
+
+    public ImmutableContact withFirstName(String firstName) {
+        return new ImmutableContact(getContactId(), firstName, getLastName(), getPhone(), getAddress());
+    }
+
+    public ImmutableContact withLastName(String lastName) {
+        return new ImmutableContact(getContactId(), getFirstName(), lastName, getPhone(), getAddress());
+    }
+
+    public ImmutableContact withPhone(String phone) {
+        return new ImmutableContact(getContactId(), getFirstName(), getLastName(), phone, getAddress());
+    }
+
+    public ImmutableContact withAddress(String address) {
+        return new ImmutableContact(getContactId(), getFirstName(), getLastName(), getPhone(), address);
+    }
+
+    private static String valueOr(ContactPatch patch, ContactField field, String current) {
+        String value = patch.get(field);
+        return value == null ? current : value;
+    }
+
+    // Setters are not supported; use the with methods to create a new version
+    @Override
+    public void setFirstName(String firstName) {
+        throw new UnsupportedOperationException("Contact is immutable");
+    }
+
+    @Override
+    public void setLastName(String lastName) {
+        throw new UnsupportedOperationException("Contact is immutable");
+    }
+
+    @Override
+    public void setPhone(String phone) {
+        throw new UnsupportedOperationException("Contact is immutable");
+    }
+
+    @Override
+    public void setAddress(String address) {
+        throw new UnsupportedOperationException("Contact is immutable");
+    }
+}
@@ -0,0 +1,329 @@
+package com.grandstrand;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * IncrementalContactStore class keeping contacts in a linear hash table that
+ * grows one bucket at a time. A HashMap or ConcurrentHashMap doubles its table
+ * in one step, so the insert that crosses the load factor copies every entry;
+ * at tens of millions of contacts that one call stalls for hundreds of
+ * milliseconds. Here each insert that leaves the table over its load factor
+ * splits at most two buckets, moving only the few contacts in them, so the work
+ * of growing is spread evenly over the inserts and no single call pays for it.
+ * <p>
+ * Buckets live in fixed segments of 4096, reached through a directory. Growing
+ * allocates one new segment now and then and, rarely, copies the directory
+ * (one reference per segment), never the buckets themselves. The table does not
+ * shrink when contacts are removed.
+ * <p>
+ * Like HeapContactStore, get returns the stored instance itself. Reads share a
+ * read lock and writes take the write lock.
+ */
+public class IncrementalContactStore implements ContactStore {
+    private static final int SEGMENT_SHIFT = 12;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    // Rounds stop at 2^29 buckets so bucket numbers stay positive ints
+    private static final int MAX_ROUND = 1 << 29;
+    // One insert adds 4/3 of a bucket of load at 0.75, so two splits always catch up
+    private static final int MAX_SPLITS_PER_INSERT = 2;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node[][] segments;
+    // Buckets below splitNext have been split into themselves and bucket + roundSize
+    private int roundSize = SEGMENT_SIZE;
+    private int splitNext;
+    private int size;
+
+    /**
+     * Node class holding one contact in a bucket chain
+     */
+    private static final class Node {
+        final int hash;
+        // Replaced by a changed copy on update and patch
+        Contact contact;
+        Node next;
+
+        Node(int hash, Contact contact, Node next) {
+            this.hash = hash;
+            this.contact = contact;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Constructor for an empty store with one segment of buckets
+     */
+    public IncrementalContactStore() {
+        segments = new Node[16][];
+        segments[0] = new Node[SEGMENT_SIZE];
+    }
+
+    /**
+     * Constructor that pre-sizes the table
+     * @param expectedContacts The number of contacts the store is expected to hold
+     */
+    public IncrementalContactStore(int expectedContacts) {
+        this();
+        grow(expectedContacts);
+    }
+
+    private static int hash(String contactId) {
+        int h = contactId.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Gets the bucket for a hash. Buckets already split this round use one more hash bit.
+     */
+    private int bucketIndex(int hash) {
+        int bucket = hash & (roundSize - 1);
+        return bucket < splitNext ? hash & ((roundSize << 1) - 1) : bucket;
+    }
+
+    private int bucketCount() {
+        return roundSize + splitNext;
+    }
+
+    private Node head(int bucket) {
+        return segments[bucket >>> SEGMENT_SHIFT][bucket & SEGMENT_MASK];
+    }
+
+    private void setHead(int bucket, Node node) {
+        segments[bucket >>> SEGMENT_SHIFT][bucket & SEGMENT_MASK] = node;
+    }
+
+    private Node find(String contactId) {
+        int hash = hash(contactId);
+        for (Node node = head(bucketIndex(hash)); node != null; node = node.next) {
+            if (node.hash == hash && node.contact.getContactId().equals(contactId)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Contact get(String contactId) {
+        lock.readLock().lock();
+        try {
+            Node node = find(contactId);
+            return node == null ? null : node.contact;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(String contactId) {
+        lock.readLock().lock();
+        try {
+            return find(contactId) != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean insert(Contact contact) {
+        lock.writeLock().lock();
+        try {
+            String contactId = contact.getContactId();
+            if (find(contactId) != null) {
+                return false;
+            }
+            int hash = hash(contactId);
+            int bucket = bucketIndex(hash);
+            setHead(bucket, new Node(hash, contact, head(bucket)));
+            size++;
+            for (int i = 0; i < MAX_SPLITS_PER_INSERT && overloaded(size); i++) {
+                split();
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Contact remove(String contactId) {
+        lock.writeLock().lock();
+        try {
+            int hash = hash(contactId);
+            int bucket = bucketIndex(hash);
+            Node previous = null;
+            for (Node node = head(bucket); node != null; previous = node, node = node.next) {
+                if (node.hash == hash && node.contact.getContactId().equals(contactId)) {
+                    if (previous == null) {
+                        setHead(bucket, node.next);
+                    } else {
+                        previous.next = node.next;
+                    }
+                    size--;
+                    return node.contact;
+                }
+            }
+            return null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String update(String contactId, ContactField field, String value) {
+        return set(contactId, field, value, ContactStore::nextVersion);
+    }
+
+    @Override
+    public String revert(String contactId, ContactField field, String previous) {
+        return set(contactId, field, previous, ContactStore::previousVersion);
+    }
+
+    private String set(String contactId, ContactField field, String value, IntUnaryOperator version) {
+        lock.writeLock().lock();
+        try {
+            Node node = find(contactId);
+            if (node == null) {
+                return null;
+            }
+            String previous = field.get(node.contact);
+            node.contact = Contact.copyWith(node.contact, field, value, version.applyAsInt(node.contact.getVersion()));
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public ContactStatus patch(String contactId, ContactPatch patch, int expectedVersion) {
+        lock.writeLock().lock();
+        try {
+            Node node = find(contactId);
+            if (node == null) {
+                return ContactStatus.NOT_FOUND;
+            }
+            if (expectedVersion != ANY_VERSION && node.contact.getVersion() != expectedVersion) {
+                return ContactStatus.VERSION_CONFLICT;
+            }
+            Contact patched = patch.appliedTo(node.contact);
+            patched.setVersion(ContactStore.nextVersion(node.contact.getVersion()));
+            node.contact = patched;
+            return ContactStatus.OK;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splits buckets up front until the table holds the expected contacts under
+     * its load factor, so a bulk load does no splitting of its own
+     */
+    @Override
+    public void ensureCapacity(int expectedContacts) {
+        lock.writeLock().lock();
+        try {
+            grow(expectedContacts);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void grow(int expectedContacts) {
+        while (overloaded(expectedContacts)) {
+            split();
+        }
+    }
+
+    /**
+     * Checks if a number of contacts is over the 0.75 load factor of the table
+     */
+    private boolean overloaded(int contacts) {
+        return (long) contacts * 4 > (long) bucketCount() * 3 && roundSize < MAX_ROUND;
+    }
+
+    /**
+     * Splits the next bucket of the round: contacts whose next hash bit is set
+     * move to the new bucket splitNext + roundSize, the rest stay
+     */
+    private void split() {
+        int from = splitNext;
+        int to = from + roundSize;
+        int segment = to >>> SEGMENT_SHIFT;
+        if (segment == segments.length) {
+            Node[][] grown = new Node[segments.length * 2][];
+            System.arraycopy(segments, 0, grown, 0, segments.length);
+            segments = grown;
+        }
+        if (segments[segment] == null) {
+            segments[segment] = new Node[SEGMENT_SIZE];
+        }
+        Node stay = null;
+        Node move = null;
+        for (Node node = head(from); node != null; ) {
+            Node next = node.next;
+            if ((node.hash & roundSize) == 0) {
+                node.next = stay;
+                stay = node;
+            } else {
+                node.next = move;
+                move = node;
+            }
+            node = next;
+        }
+        setHead(from, stay);
+        setHead(to, move);
+        if (++splitNext == roundSize) {
+            roundSize <<= 1;
+            splitNext = 0;
+        }
+    }
+
+    /**
+     * Walks the table by hash class rather than by bucket: slot s covers every
+     * bucket whose number is s modulo the round size when the walk began. A split
+     * only moves contacts between buckets of the same class, so a walk that runs
+     * while the table grows never sees a contact twice or misses one that stays.
+     */
+    @Override
+    public Spliterator<Contact> spliterator() {
+        lock.readLock().lock();
+        try {
+            int classes = roundSize;
+            return new SlotSpliterator((from, to, out) -> readClasses(classes, from, to, out), 0, classes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the contacts of a range of hash classes to a list while holding the read lock
+     */
+    private void readClasses(int classes, int from, int to, List<Contact> out) {
+        lock.readLock().lock();
+        try {
+            int buckets = bucketCount();
+            for (int hashClass = from; hashClass < to; hashClass++) {
+                for (int bucket = hashClass; bucket < buckets; bucket += classes) {
+                    for (Node node = head(bucket); node != null; node = node.next) {
+                        out.add(node.contact);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.grandstrand;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Spliterator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the IncrementalContactStore class.
+ * Tests the store through ContactService while the table grows and shrinks.
+ */
+public class IncrementalContactStoreTest {
+    private ContactService contactService;
+
+    @BeforeEach
+    public void setUp() {
+        contactService = new ContactService(new IncrementalContactStore());
+    }
+
+    private static Contact contact(int id) {
+        return new Contact(Integer.toString(id), "John", "Doe", "1234567890", "123 Main St");
+    }
+
+    @Test
+    public void testContactsSurviveGrowth() {
+        for (int i = 0; i < 100_000; i++) {
+            contactService.addContact(contact(i));
+        }
+        
+        assertEquals(100_000, contactService.getContactCount());
+        for (int i = 0; i < 100_000; i++) {
+            assertEquals(Integer.toString(i), contactService.getContact(Integer.toString(i)).getContactId());
+        }
+        assertFalse(contactService.contactExists("100000"));
+        assertThrows(IllegalArgumentException.class, () -> contactService.addContact(contact(42)));
+    }
+
+    @Test
+    public void testUpdateAndDelete() {
+        contactService.addContact(contact(1));
+        contactService.updateLastName("1", "Smith");
+        assertTrue(contactService.updateContact("1", new ContactPatch().firstName("Jane"), 1));
+        
+        Contact updated = contactService.getContact("1");
+        assertEquals("Jane", updated.getFirstName());
+        assertEquals("Smith", updated.getLastName());
+        assertEquals(2, updated.getVersion());
+        assertFalse(contactService.updateContact("1", new ContactPatch().firstName("Bob"), 1));
+        
+        contactService.deleteContact("1");
+        assertFalse(contactService.contactExists("1"));
+        assertThrows(IllegalArgumentException.class, () -> contactService.deleteContact("1"));
+        assertEquals(0, contactService.getContactCount());
+    }
+
+    @Test
+    public void testTraversalDuringGrowthSeesEachContactOnce() {
+        IncrementalContactStore store = new IncrementalContactStore();
+        for (int i = 0; i < 20_000; i++) {
+            store.insert(contact(i));
+        }
+        Spliterator<Contact> contacts = store.spliterator();
+        Set<String> seen = new HashSet<>();
+        int[] next = {20_000};
+        
+        // Every contact read is followed by more inserts, which keep splitting buckets
+        contacts.forEachRemaining(contact -> {
+            assertTrue(seen.add(contact.getContactId()), "seen twice: " + contact.getContactId());
+            for (int i = 0; i < 3; i++) {
+                store.insert(contact(next[0]++));
+            }
+        });
+        for (int i = 0; i < 20_000; i++) {
+            assertTrue(seen.contains(Integer.toString(i)));
+        }
+    }
+
+    @Test
+    public void testPresizedStore() {
+        IncrementalContactStore store = new IncrementalContactStore(50_000);
+        store.ensureCapacity(60_000);
+        for (int i = 0; i < 60_000; i++) {
+            assertTrue(store.insert(contact(i)));
+        }
+        
+        assertEquals(60_000, store.size());
+        assertEquals(60_000, new ContactService(store).query(new ContactQuery()).count());
+    }
+}
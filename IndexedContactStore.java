@@ -0,0 +1,346 @@
+package com.grandstrand;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * IndexedContactStore class keeping secondary indexes over another store.
+ * It maintains an exact phone index keyed by the phone as a primitive long, an
+ * exact last name index, and sorted lower-case address and name (first and last)
+ * indexes for prefix autocomplete. Phone and last name lookups are O(1); prefix
+ * lookups are O(log n) plus the matches returned. The distinct names also go
+ * into a NameTrigramIndex for typo-tolerant search, whose cost depends on the
+ * number of distinct names rather than of contacts.
+ * <p>
+ * Every insert, remove, update and patch goes through the wrapped store and the indexes
+ * under one write lock, so the indexes always agree with the store; index
+ * lookups share a read lock. Lookups by ID go straight to the wrapped store.
+ */
+public class IndexedContactStore implements ContactStore {
+    private final ContactStore delegate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongHashMap<Set<String>> byPhone = new LongHashMap<>();
+    private final Map<String, Set<String>> byLastName = new HashMap<>();
+    private final TreeMap<String, Set<String>> byAddress = new TreeMap<>();
+    private final TreeMap<String, Set<String>> byName = new TreeMap<>();
+    // Indexes the keys of byName, the distinct lower-case names
+    private final NameTrigramIndex nameTrigrams = new NameTrigramIndex();
+
+    /**
+     * Constructor that indexes the contacts already in the wrapped store
+     * @param delegate The store that holds the contacts
+     */
+    public IndexedContactStore(ContactStore delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Store cannot be null");
+        }
+        this.delegate = delegate;
+        delegate.forEach(this::index);
+    }
+
+    @Override
+    public Contact get(String contactId) {
+        return delegate.get(contactId);
+    }
+
+    @Override
+    public boolean contains(String contactId) {
+        return delegate.contains(contactId);
+    }
+
+    @Override
+    public boolean insert(Contact contact) {
+        lock.writeLock().lock();
+        try {
+            if (!delegate.insert(contact)) {
+                return false;
+            }
+            index(contact);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Contact remove(String contactId) {
+        lock.writeLock().lock();
+        try {
+            Contact removed = delegate.remove(contactId);
+            if (removed != null) {
+                unindex(removed);
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String update(String contactId, ContactField field, String value) {
+        lock.writeLock().lock();
+        try {
+            String previous = delegate.update(contactId, field, value);
+            if (previous != null) {
+                reindex(contactId, field, previous, value);
+            }
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String revert(String contactId, ContactField field, String previous) {
+        lock.writeLock().lock();
+        try {
+            String replaced = delegate.revert(contactId, field, previous);
+            if (replaced != null) {
+                reindex(contactId, field, replaced, previous);
+            }
+            return replaced;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves a contact's index entries for one field from its old value to its new one
+     */
+    private void reindex(String contactId, ContactField field, String oldValue, String newValue) {
+        switch (field) {
+            case PHONE:
+                removeFrom(byPhone, ContactRecordLayout.encodePhone(oldValue), contactId);
+                addTo(byPhone, ContactRecordLayout.encodePhone(newValue), contactId);
+                break;
+            case LAST_NAME:
+                removeFrom(byLastName, oldValue, contactId);
+                addTo(byLastName, newValue, contactId);
+                removeName(oldValue, contactId);
+                addName(newValue, contactId);
+                break;
+            case FIRST_NAME:
+                removeName(oldValue, contactId);
+                addName(newValue, contactId);
+                break;
+            case ADDRESS:
+                removeFrom(byAddress, lower(oldValue), contactId);
+                addTo(byAddress, lower(newValue), contactId);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public ContactStatus patch(String contactId, ContactPatch patch, int expectedVersion) {
+        lock.writeLock().lock();
+        try {
+            // A patch replaces the stored contact rather than changing it, so this keeps the old values
+            Contact before = delegate.get(contactId);
+            ContactStatus status = delegate.patch(contactId, patch, expectedVersion);
+            if (status == ContactStatus.OK) {
+                unindex(before);
+                index(delegate.get(contactId));
+            }
+            return status;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void ensureCapacity(int expectedContacts) {
+        delegate.ensureCapacity(expectedContacts);
+    }
+
+    @Override
+    public Spliterator<Contact> spliterator() {
+        return delegate.spliterator();
+    }
+
+    @Override
+    public List<Contact> findByPhone(String phone) {
+        if (!ContactValidator.isValidPhone(phone)) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            return resolve(byPhone.get(ContactRecordLayout.encodePhone(phone)), Integer.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Contact> findByLastName(String lastName) {
+        lock.readLock().lock();
+        try {
+            return resolve(byLastName.get(lastName), Integer.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Contact> findByAddressPrefix(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            return resolve(idsWithPrefix(byAddress, lower(prefix), limit), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Contact> findByNamePrefix(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            return resolve(idsWithPrefix(byName, lower(prefix), limit), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Contact> findBySimilarName(String name, int maxDistance, int limit) {
+        lock.readLock().lock();
+        try {
+            Set<String> contactIds = new LinkedHashSet<>();
+            for (NameTrigramIndex.Match match : nameTrigrams.search(lower(name), maxDistance)) {
+                if (contactIds.size() >= limit) {
+                    break;
+                }
+                for (String contactId : byName.get(match.name)) {
+                    if (contactIds.size() >= limit) {
+                        break;
+                    }
+                    contactIds.add(contactId);
+                }
+            }
+            return resolve(contactIds, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void index(Contact contact) {
+        String contactId = contact.getContactId();
+        addTo(byPhone, ContactRecordLayout.encodePhone(contact.getPhone()), contactId);
+        addTo(byLastName, contact.getLastName(), contactId);
+        addTo(byAddress, lower(contact.getAddress()), contactId);
+        addName(contact.getFirstName(), contactId);
+        addName(contact.getLastName(), contactId);
+    }
+
+    private void unindex(Contact contact) {
+        String contactId = contact.getContactId();
+        removeFrom(byPhone, ContactRecordLayout.encodePhone(contact.getPhone()), contactId);
+        removeFrom(byLastName, contact.getLastName(), contactId);
+        removeFrom(byAddress, lower(contact.getAddress()), contactId);
+        removeName(contact.getFirstName(), contactId);
+        removeName(contact.getLastName(), contactId);
+    }
+
+    private void addName(String name, String contactId) {
+        String key = lower(name);
+        if (!byName.containsKey(key)) {
+            nameTrigrams.add(key);
+        }
+        addTo(byName, key, contactId);
+    }
+
+    /**
+     * Removes one name entry; a contact whose first and last names match
+     * lower-case to the same key keeps the entry until both are gone
+     */
+    private void removeName(String name, String contactId) {
+        Contact contact = delegate.get(contactId);
+        String key = lower(name);
+        if (contact == null || (!lower(contact.getFirstName()).equals(key) && !lower(contact.getLastName()).equals(key))) {
+            removeFrom(byName, key, contactId);
+            if (!byName.containsKey(key)) {
+                nameTrigrams.remove(key);
+            }
+        }
+    }
+
+    private List<Contact> resolve(Set<String> contactIds, int limit) {
+        List<Contact> matches = new ArrayList<>();
+        if (contactIds != null) {
+            for (String contactId : contactIds) {
+                if (matches.size() == limit) {
+                    break;
+                }
+                Contact contact = delegate.get(contactId);
+                if (contact != null) {
+                    matches.add(contact);
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static Set<String> idsWithPrefix(TreeMap<String, Set<String>> index, String prefix, int limit) {
+        Set<String> contactIds = new LinkedHashSet<>();
+        NavigableMap<String, Set<String>> range = index.tailMap(prefix, true);
+        for (Map.Entry<String, Set<String>> entry : range.entrySet()) {
+            if (!entry.getKey().startsWith(prefix) || contactIds.size() >= limit) {
+                break;
+            }
+            for (String contactId : entry.getValue()) {
+                if (contactIds.size() >= limit) {
+                    break;
+                }
+                contactIds.add(contactId);
+            }
+        }
+        return contactIds;
+    }
+
+    private static String lower(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private static <K> void addTo(Map<K, Set<String>> index, K key, String contactId) {
+        index.computeIfAbsent(key, k -> new HashSet<>()).add(contactId);
+    }
+
+    private static <K> void removeFrom(Map<K, Set<String>> index, K key, String contactId) {
+        Set<String> contactIds = index.get(key);
+        if (contactIds != null && contactIds.remove(contactId) && contactIds.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static void addTo(LongHashMap<Set<String>> index, long key, String contactId) {
+        Set<String> contactIds = index.get(key);
+        if (contactIds == null) {
+            contactIds = new HashSet<>();
+            index.put(key, contactIds);
+        }
+        contactIds.add(contactId);
+    }
+
+    private static void removeFrom(LongHashMap<Set<String>> index, long key, String contactId) {
+        Set<String> contactIds = index.get(key);
+        if (contactIds != null && contactIds.remove(contactId) && contactIds.isEmpty()) {
+            index.remove(key);
+        }
+    }
+}
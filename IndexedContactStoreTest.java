@@ -0,0 +1,210 @@
+package com.grandstrand;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the IndexedContactStore class.
+ * Tests the indexes through ContactService and against the scanning lookups of an unindexed store.
+ */
+public class IndexedContactStoreTest {
+    private ContactService contactService;
+
+    @BeforeEach
+    public void setUp() {
+        contactService = new ContactService(new IndexedContactStore(new HeapContactStore()));
+        contactService.addContact(new Contact("1", "John", "Doe", "1234567890", "123 Main St"));
+        contactService.addContact(new Contact("2", "Jane", "Doe", "1234567890", "125 Main St"));
+        contactService.addContact(new Contact("3", "Bob", "Johnson", "5555555555", "9 Elm Ave"));
+    }
+
+    @Test
+    public void testFindByPhone() {
+        assertEquals(List.of("1", "2"), ids(contactService.findByPhone("1234567890")));
+        assertEquals(List.of("3"), ids(contactService.findByPhone("5555555555")));
+        assertTrue(contactService.findByPhone("0000000000").isEmpty());
+        assertTrue(contactService.findByPhone("12345").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> contactService.findByPhone(null));
+    }
+
+    @Test
+    public void testFindByLastName() {
+        assertEquals(List.of("1", "2"), ids(contactService.findByLastName("Doe")));
+        assertTrue(contactService.findByLastName("doe").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> contactService.findByLastName(null));
+    }
+
+    @Test
+    public void testFindByPrefixIgnoresCase() {
+        assertEquals(List.of("1", "2"), ids(contactService.findByAddressPrefix("12", 10)));
+        assertEquals(List.of("1"), ids(contactService.findByAddressPrefix("123 MAIN", 10)));
+        assertEquals(List.of("1", "3"), ids(contactService.findByNamePrefix("jo", 10)));
+        assertEquals(3, contactService.findByNamePrefix("", 10).size());
+        assertEquals(1, contactService.findByNamePrefix("j", 1).size());
+        assertThrows(IllegalArgumentException.class, () -> contactService.findByNamePrefix("j", -1));
+    }
+
+    @Test
+    public void testIndexesFollowUpdatesAndDeletes() {
+        contactService.updatePhone("1", "5555555555");
+        contactService.updateLastName("2", "Smith");
+        contactService.updateAddress("3", "123 Oak St");
+        
+        assertEquals(List.of("1", "3"), ids(contactService.findByPhone("5555555555")));
+        assertEquals(List.of("2"), ids(contactService.findByPhone("1234567890")));
+        assertEquals(List.of("1"), ids(contactService.findByLastName("Doe")));
+        assertEquals(List.of("2"), ids(contactService.findByNamePrefix("smi", 10)));
+        assertEquals(List.of("1", "3"), ids(contactService.findByAddressPrefix("123", 10)));
+        
+        contactService.deleteContact("1");
+        assertEquals(List.of("3"), ids(contactService.findByPhone("5555555555")));
+        assertTrue(contactService.findByLastName("Doe").isEmpty());
+    }
+
+    @Test
+    public void testMatchingFirstAndLastNameKeepsNameEntry() {
+        contactService.addContact(new Contact("4", "Lee", "LEE", "1111111111", "1 Road"));
+        contactService.updateFirstName("4", "Sam");
+        
+        assertEquals(List.of("4"), ids(contactService.findByNamePrefix("lee", 10)));
+        assertEquals(List.of("4"), ids(contactService.findByNamePrefix("sam", 10)));
+    }
+
+    @Test
+    public void testIndexesExistingContents() {
+        HeapContactStore store = new HeapContactStore();
+        store.insert(new Contact("9", "Ann", "Lee", "2222222222", "4 Pine Rd"));
+        IndexedContactStore indexed = new IndexedContactStore(store);
+        
+        assertEquals(List.of("9"), ids(indexed.findByPhone("2222222222")));
+        assertEquals(List.of("9"), ids(indexed.findByAddressPrefix("4 p", 5)));
+    }
+
+    @Test
+    public void testRandomOperationsMatchScanningStore() {
+        Random random = new Random(42);
+        HeapContactStore scanned = new HeapContactStore();
+        IndexedContactStore indexed = new IndexedContactStore(new ColumnarContactStore());
+        String[] names = {"Ann", "ann", "Bo", "Bob", "Cy"};
+        String[] phones = {"1000000000", "2000000000", "3000000000"};
+        String[] addresses = {"1 Main", "1 Mall", "2 Main", "A St"};
+        
+        for (int i = 0; i < 5000; i++) {
+            String id = Integer.toString(random.nextInt(200));
+            switch (random.nextInt(4)) {
+                case 0:
+                    Contact contact = new Contact(id, names[random.nextInt(names.length)],
+                            names[random.nextInt(names.length)], phones[random.nextInt(phones.length)],
+                            addresses[random.nextInt(addresses.length)]);
+                    assertEquals(scanned.insert(contact), indexed.insert(contact));
+                    break;
+                case 1:
+                    assertEquals(scanned.remove(id) == null, indexed.remove(id) == null);
+                    break;
+                case 2:
+                    ContactField field = random.nextBoolean() ? ContactField.FIRST_NAME : ContactField.LAST_NAME;
+                    String name = names[random.nextInt(names.length)];
+                    assertEquals(scanned.update(id, field, name), indexed.update(id, field, name));
+                    break;
+                default:
+                    String phone = phones[random.nextInt(phones.length)];
+                    String address = addresses[random.nextInt(addresses.length)];
+                    scanned.update(id, ContactField.PHONE, phone);
+                    indexed.update(id, ContactField.PHONE, phone);
+                    scanned.update(id, ContactField.ADDRESS, address);
+                    indexed.update(id, ContactField.ADDRESS, address);
+                    break;
+            }
+        }
+        
+        for (String phone : phones) {
+            assertEquals(ids(scanned.findByPhone(phone)), ids(indexed.findByPhone(phone)));
+        }
+        for (String name : names) {
+            assertEquals(ids(scanned.findByLastName(name)), ids(indexed.findByLastName(name)));
+            assertEquals(ids(scanned.findByNamePrefix(name, 1000)), ids(indexed.findByNamePrefix(name, 1000)));
+        }
+        for (String name : new String[] {"Ann", "an", "Bib", "Cyd", "x", ""}) {
+            for (int distance = 0; distance <= 3; distance++) {
+                assertEquals(ids(scanned.findBySimilarName(name, distance, 1000)),
+                        ids(indexed.findBySimilarName(name, distance, 1000)));
+            }
+        }
+        for (String prefix : new String[] {"1 ma", "1 MAI", "2", "a", ""}) {
+            assertEquals(ids(scanned.findByAddressPrefix(prefix, 1000)),
+                    ids(indexed.findByAddressPrefix(prefix, 1000)));
+        }
+    }
+
+    @Test
+    public void testFindBySimilarNameRanksClosestFirst() {
+        contactService.addContact(new Contact("4", "Jon", "Smith", "1111111111", "1 Road"));
+        contactService.addContact(new Contact("5", "Jonah", "Smyth", "2222222222", "2 Road"));
+        
+        assertEquals(List.of("1"), ids(contactService.findBySimilarName("JOHN", 0, 10)));
+        assertEquals(List.of("1", "2", "4", "5"), ids(contactService.findBySimilarName("jonh", 2, 10)));
+        assertEquals("4", contactService.findBySimilarName("jonh", 2, 10).get(0).getContactId());
+        assertEquals(List.of("4"), ids(contactService.findBySimilarName("Smiht", 2, 10)));
+        assertEquals(List.of("3"), ids(contactService.findBySimilarName("Jonson", 1, 10)));
+        assertEquals(1, contactService.findBySimilarName("jonh", 2, 1).size());
+        assertTrue(contactService.findBySimilarName("jonh", 2, 0).isEmpty());
+        assertTrue(contactService.findBySimilarName("Zebediah", 2, 10).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> contactService.findBySimilarName(null, 1, 10));
+        assertThrows(IllegalArgumentException.class, () -> contactService.findBySimilarName("jon", -1, 10));
+        assertThrows(IllegalArgumentException.class, () -> contactService.findBySimilarName("jon", 1, -1));
+    }
+
+    @Test
+    public void testFindBySimilarNameFollowsUpdatesAndDeletes() {
+        contactService.updateFirstName("1", "Jack");
+        contactService.updateLastName("2", "Smith");
+        
+        assertEquals(List.of("1"), ids(contactService.findBySimilarName("jak", 1, 10)));
+        assertEquals(List.of("2"), ids(contactService.findBySimilarName("smit", 1, 10)));
+        assertEquals(List.of("1"), ids(contactService.findBySimilarName("doe", 0, 10)));
+        assertTrue(contactService.findBySimilarName("jon", 1, 10).isEmpty());
+        
+        contactService.deleteContact("1");
+        assertTrue(contactService.findBySimilarName("jak", 1, 10).isEmpty());
+        assertTrue(contactService.findBySimilarName("doe", 1, 10).isEmpty());
+        assertEquals(List.of("3"), ids(contactService.findBySimilarName("bob", 0, 10)));
+    }
+
+    @Test
+    public void testEditDistance() {
+        assertEquals(0, NameTrigramIndex.editDistance("ann", "ann", 2));
+        assertEquals(1, NameTrigramIndex.editDistance("ann", "anne", 2));
+        assertEquals(2, NameTrigramIndex.editDistance("jonh", "john", 2));
+        assertEquals(3, NameTrigramIndex.editDistance("kitten", "sitting", 5));
+        assertEquals(3, NameTrigramIndex.editDistance("kitten", "sitting", 2));
+        assertEquals(3, NameTrigramIndex.editDistance("", "bob", 3));
+        assertEquals(5, NameTrigramIndex.trigrams("ann").length);
+        assertEquals(4, NameTrigramIndex.trigrams("aa").length);
+    }
+
+    private static List<String> ids(List<Contact> contacts) {
+        List<String> ids = new ArrayList<>();
+        for (Contact contact : contacts) {
+            ids.add(contact.getContactId());
+        }
+        ids.sort(Comparator.naturalOrder());
+        return ids;
+    }
+
+    @Test
+    public void testIndexesFollowPatches() {
+        contactService.updateContact("1", new ContactPatch().lastName("Smith").phone("5555555555"));
+        
+        assertEquals(List.of("2"), ids(contactService.findByLastName("Doe")));
+        assertEquals(List.of("1", "3"), ids(contactService.findByPhone("5555555555")));
+        assertEquals(List.of("1"), ids(contactService.findByNamePrefix("smi", 10)));
+        assertEquals(List.of("1", "3"), ids(contactService.findByNamePrefix("jo", 10)));
+    }
+}
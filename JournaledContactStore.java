@@ -0,0 +1,562 @@
+package com.grandstrand;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * JournaledContactStore class adding an append-only write-ahead log to another store.
+ * Every successful insert, remove, update and patch is appended to the log file as a
+ * checksummed binary record, and opening the store replays the log into the
+ * wrapped store. A torn record at the end of the log (a crash mid-write) is
+ * dropped and the log is truncated to the last complete record.
+ * <p>
+ * Records are collected in a buffer and fsynced as a group: after every
+ * syncBatchSize records, whenever a buffer fills, and by a background thread
+ * at least every syncIntervalMillis. A crash can lose at most the records
+ * written since the last fsync. Each mutation is checked against the wrapped
+ * store, logged, and applied under one lock, so the log order matches the
+ * order they were applied in; reads go straight to the wrapped store. The
+ * wrapped store must only be changed through this one.
+ * <p>
+ * The lock is never held for file I/O. A mutation that completes a batch
+ * releases it first, then waits until the log is synced up to its own
+ * record: the first waiter swaps out the filled buffers, writes and fsyncs
+ * them, and every mutation that logged a record before the swap returns on
+ * that one fsync.
+ * <p>
+ * If writing or syncing the log fails, the mutations waiting on that sync
+ * throw UncheckedIOException, although they have already been applied to the
+ * wrapped store. Every later mutation throws before it is applied: the log
+ * may end in part of a record, which replay drops, and records still
+ * buffered are never written. A record whose write succeeded but whose fsync
+ * failed may still be replayed after a restart.
+ */
+public class JournaledContactStore implements ContactStore, Closeable {
+    private static final byte OP_INSERT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_UPDATE = 3;
+    private static final byte OP_PATCH = 4;
+    private static final byte OP_REVERT = 5;
+    // Length and CRC32 of the payload
+    private static final int HEADER_BYTES = 8;
+    // Op byte and field byte, then five strings of a short length plus up to 30 chars each, then a version
+    private static final int MAX_PAYLOAD_BYTES = 2 + 5 * (2 + 2 * ContactValidator.MAX_ADDRESS_LENGTH) + 4;
+    private static final int BUFFER_BYTES = 64 * 1024;
+    // Returned by append when the caller need not wait for a sync
+    private static final long NO_SYNC = -1;
+
+    private final ContactStore delegate;
+    private final FileChannel channel;
+    private final int syncBatchSize;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // Held by the one thread writing and fsyncing the log, never together with writeLock
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final ByteBuffer payload = ByteBuffer.allocate(MAX_PAYLOAD_BYTES);
+    private final CRC32 crc = new CRC32();
+    private final ScheduledExecutorService syncer;
+    // The buffer being filled, buffers filled since the last sync, and emptied buffers to reuse
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final List<ByteBuffer> filled = new ArrayList<>();
+    private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+    private int unsyncedRecords;
+    // Bytes of records appended since the log was opened, and how many of them are fsynced
+    private long appended;
+    private volatile long synced;
+    // The first write or fsync failure; once set, the log is not written again
+    private volatile IOException failure;
+
+    private JournaledContactStore(ContactStore delegate, FileChannel channel, int syncBatchSize, long syncIntervalMillis) {
+        this.delegate = delegate;
+        this.channel = channel;
+        this.syncBatchSize = syncBatchSize;
+        if (syncIntervalMillis > 0) {
+            this.syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "contact-journal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.syncer.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.syncer = null;
+        }
+    }
+
+    /**
+     * Opens a journal, replaying any records already in it into the given store
+     * @param logFile The log file, created if it doesn't exist
+     * @param delegate The store that holds the contacts, normally empty
+     * @param syncBatchSize Number of records written between fsyncs (1 syncs every mutation)
+     * @param syncIntervalMillis Longest time a record waits for an fsync, or 0 to sync only by batch size
+     * @return The journaled store
+     * @throws IOException if the log cannot be read or opened for writing
+     */
+    public static JournaledContactStore open(Path logFile, ContactStore delegate, int syncBatchSize,
+                                             long syncIntervalMillis) throws IOException {
+        if (delegate == null || syncBatchSize < 1 || syncIntervalMillis < 0) {
+            throw new IllegalArgumentException("Store cannot be null, batch size must be positive and interval not negative");
+        }
+        FileChannel channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long end = replay(channel, delegate);
+            channel.truncate(end);
+            channel.position(end);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return new JournaledContactStore(delegate, channel, syncBatchSize, syncIntervalMillis);
+    }
+
+    @Override
+    public Contact get(String contactId) {
+        return delegate.get(contactId);
+    }
+
+    @Override
+    public boolean contains(String contactId) {
+        return delegate.contains(contactId);
+    }
+
+    @Override
+    public boolean insert(Contact contact) {
+        long end;
+        boolean inserted;
+        writeLock.lock();
+        try {
+            if (delegate.contains(contact.getContactId())) {
+                return false;
+            }
+            payload.clear();
+            payload.put(OP_INSERT).put((byte) 0);
+            putString(contact.getContactId());
+            putString(contact.getFirstName());
+            putString(contact.getLastName());
+            putString(contact.getPhone());
+            putString(contact.getAddress());
+            payload.putInt(contact.getVersion());
+            end = append();
+            inserted = delegate.insert(contact);
+        } finally {
+            writeLock.unlock();
+        }
+        commit(end);
+        return inserted;
+    }
+
+    @Override
+    public Contact remove(String contactId) {
+        long end;
+        Contact removed;
+        writeLock.lock();
+        try {
+            if (!delegate.contains(contactId)) {
+                return null;
+            }
+            payload.clear();
+            payload.put(OP_REMOVE).put((byte) 0);
+            putString(contactId);
+            end = append();
+            removed = delegate.remove(contactId);
+        } finally {
+            writeLock.unlock();
+        }
+        commit(end);
+        return removed;
+    }
+
+    @Override
+    public String update(String contactId, ContactField field, String value) {
+        long end;
+        String previous;
+        writeLock.lock();
+        try {
+            // A value the store would refuse must not reach the log, where replay would fail on it
+            field.requireValid(value);
+            if (!delegate.contains(contactId)) {
+                return null;
+            }
+            payload.clear();
+            payload.put(OP_UPDATE).put((byte) field.ordinal());
+            putString(contactId);
+            putString(value);
+            end = append();
+            previous = delegate.update(contactId, field, value);
+        } finally {
+            writeLock.unlock();
+        }
+        commit(end);
+        return previous;
+    }
+
+    @Override
+    public String revert(String contactId, ContactField field, String previous) {
+        long end;
+        String replaced;
+        writeLock.lock();
+        try {
+            field.requireValid(previous);
+            if (!delegate.contains(contactId)) {
+                return null;
+            }
+            payload.clear();
+            payload.put(OP_REVERT).put((byte) field.ordinal());
+            putString(contactId);
+            putString(previous);
+            end = append();
+            replaced = delegate.revert(contactId, field, previous);
+        } finally {
+            writeLock.unlock();
+        }
+        commit(end);
+        return replaced;
+    }
+
+    /**
+     * Logs a patch as one record, with a bit per changed field in the field byte,
+     * so replay applies the whole patch or none of it
+     */
+    @Override
+    public ContactStatus patch(String contactId, ContactPatch patch, int expectedVersion) {
+        long end;
+        ContactStatus status;
+        writeLock.lock();
+        try {
+            Contact current = delegate.get(contactId);
+            if (current == null) {
+                return ContactStatus.NOT_FOUND;
+            }
+            if (expectedVersion != ANY_VERSION && current.getVersion() != expectedVersion) {
+                return ContactStatus.VERSION_CONFLICT;
+            }
+            payload.clear();
+            payload.put(OP_PATCH).put((byte) 0);
+            putString(contactId);
+            int fields = 0;
+            for (ContactField field : ContactField.values()) {
+                String value = patch.get(field);
+                if (value != null) {
+                    fields |= 1 << field.ordinal();
+                    putString(value);
+                }
+            }
+            payload.put(1, (byte) fields);
+            end = append();
+            status = delegate.patch(contactId, patch, expectedVersion);
+        } finally {
+            writeLock.unlock();
+        }
+        commit(end);
+        return status;
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void ensureCapacity(int expectedContacts) {
+        delegate.ensureCapacity(expectedContacts);
+    }
+
+    @Override
+    public Spliterator<Contact> spliterator() {
+        return delegate.spliterator();
+    }
+
+    @Override
+    public List<Contact> findByPhone(String phone) {
+        return delegate.findByPhone(phone);
+    }
+
+    @Override
+    public List<Contact> findByLastName(String lastName) {
+        return delegate.findByLastName(lastName);
+    }
+
+    @Override
+    public List<Contact> findByAddressPrefix(String prefix, int limit) {
+        return delegate.findByAddressPrefix(prefix, limit);
+    }
+
+    @Override
+    public List<Contact> findByNamePrefix(String prefix, int limit) {
+        return delegate.findByNamePrefix(prefix, limit);
+    }
+
+    @Override
+    public List<Contact> findBySimilarName(String name, int maxDistance, int limit) {
+        return delegate.findBySimilarName(name, maxDistance, limit);
+    }
+
+    /**
+     * Writes the records buffered so far to the log and fsyncs it
+     * @throws IOException if the log cannot be written, now or by an earlier write
+     */
+    public void sync() throws IOException {
+        long end;
+        writeLock.lock();
+        try {
+            IOException failed = failure();
+            if (failed != null) {
+                throw new IOException("Contact journal failed earlier", failed);
+            }
+            end = appended;
+        } finally {
+            writeLock.unlock();
+        }
+        awaitSync(end);
+    }
+
+    /**
+     * Syncs the log and closes it; the wrapped store stays usable without journaling
+     * @throws IOException if the final sync fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (syncer != null) {
+            syncer.shutdown();
+        }
+        try {
+            sync();
+        } finally {
+            // Waits out a background sync still writing
+            syncLock.lock();
+            try {
+                channel.close();
+            } finally {
+                syncLock.unlock();
+            }
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            // The next append or explicit sync reports the failure to a caller
+        }
+    }
+
+    private void putString(String value) {
+        payload.putShort((short) value.length());
+        for (int i = 0; i < value.length(); i++) {
+            payload.putChar(value.charAt(i));
+        }
+    }
+
+    /**
+     * Frames the record in the payload buffer and adds it to the write buffer.
+     * Called with the write lock held, before the mutation is applied.
+     * @return The log position the caller must wait to be synced once the lock
+     *         is released, or NO_SYNC if the batch and the buffer have room
+     * @throws UncheckedIOException if the log failed earlier
+     */
+    private long append() {
+        IOException failed = failure();
+        if (failed != null) {
+            throw new UncheckedIOException("Contact journal failed earlier", failed);
+        }
+        payload.flip();
+        int length = HEADER_BYTES + payload.limit();
+        crc.reset();
+        crc.update(payload.array(), 0, payload.limit());
+        boolean full = buffer.remaining() < length;
+        if (full) {
+            filled.add(buffer);
+            buffer = free.isEmpty() ? ByteBuffer.allocateDirect(BUFFER_BYTES) : free.poll();
+        }
+        buffer.putInt(payload.limit()).putInt((int) crc.getValue()).put(payload);
+        appended += length;
+        return ++unsyncedRecords >= syncBatchSize || full ? appended : NO_SYNC;
+    }
+
+    /**
+     * Waits, with the write lock released, until the log is synced up to the given position
+     * @throws UncheckedIOException if the log cannot be written, now or by an earlier write
+     */
+    private void commit(long end) {
+        if (end == NO_SYNC) {
+            return;
+        }
+        try {
+            awaitSync(end);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write contact journal", e);
+        }
+    }
+
+    private void awaitSync(long end) throws IOException {
+        if (synced >= end) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            // Another thread may have synced this position while we waited
+            if (synced < end) {
+                writeOut();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Swaps out every filled buffer under the write lock, then writes and fsyncs
+     * them without it. Called with the sync lock held.
+     */
+    private void writeOut() throws IOException {
+        List<ByteBuffer> pending;
+        long end;
+        writeLock.lock();
+        try {
+            IOException failed = failure();
+            if (failed != null) {
+                throw new IOException("Contact journal failed earlier", failed);
+            }
+            filled.add(buffer);
+            buffer = free.isEmpty() ? ByteBuffer.allocateDirect(BUFFER_BYTES) : free.poll();
+            pending = new ArrayList<>(filled);
+            filled.clear();
+            end = appended;
+            unsyncedRecords = 0;
+        } finally {
+            writeLock.unlock();
+        }
+        try {
+            for (ByteBuffer written : pending) {
+                written.flip();
+                while (written.hasRemaining()) {
+                    channel.write(written);
+                }
+                written.clear();
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+        synced = end;
+        writeLock.lock();
+        try {
+            free.addAll(pending);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the failure that stops the log being written, counting a closed log as one
+     */
+    private IOException failure() {
+        if (failure == null && !channel.isOpen()) {
+            failure = new ClosedChannelException();
+        }
+        return failure;
+    }
+
+    /**
+     * Applies every complete record in the log to the store
+     * @return The file position just past the last complete record
+     */
+    private static long replay(FileChannel channel, ContactStore store) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        ByteBuffer record = ByteBuffer.allocate(MAX_PAYLOAD_BYTES);
+        CRC32 crc = new CRC32();
+        long position = 0;
+        while (true) {
+            header.clear();
+            if (readFully(channel, header, position) < HEADER_BYTES) {
+                return position;
+            }
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length < 2 || length > MAX_PAYLOAD_BYTES) {
+                return position;
+            }
+            record.clear().limit(length);
+            if (readFully(channel, record, position + HEADER_BYTES) < length) {
+                return position;
+            }
+            crc.reset();
+            crc.update(record.array(), 0, length);
+            if ((int) crc.getValue() != checksum) {
+                return position;
+            }
+            record.flip();
+            apply(record, store);
+            position += HEADER_BYTES + length;
+        }
+    }
+
+    private static void apply(ByteBuffer record, ContactStore store) {
+        byte op = record.get();
+        byte field = record.get();
+        String contactId = getString(record);
+        switch (op) {
+            case OP_INSERT:
+                Contact contact = new Contact(contactId, getString(record), getString(record), getString(record),
+                        getString(record));
+                contact.setVersion(record.getInt());
+                store.insert(contact);
+                break;
+            case OP_REMOVE:
+                store.remove(contactId);
+                break;
+            case OP_UPDATE:
+                store.update(contactId, ContactField.values()[field], getString(record));
+                break;
+            case OP_REVERT:
+                store.revert(contactId, ContactField.values()[field], getString(record));
+                break;
+            case OP_PATCH:
+                ContactPatch patch = new ContactPatch();
+                for (ContactField changed : ContactField.values()) {
+                    if ((field & 1 << changed.ordinal()) != 0) {
+                        patch.set(changed, getString(record));
+                    }
+                }
+                store.patch(contactId, patch, ContactStore.ANY_VERSION);
+                break;
+            default:
+                throw new IllegalStateException("Unknown journal record type: " + op);
+        }
+    }
+
+    private static String getString(ByteBuffer record) {
+        char[] chars = new char[record.getShort()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = record.getChar();
+        }
+        return new String(chars);
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        int total = 0;
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+}
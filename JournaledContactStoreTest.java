@@ -0,0 +1,246 @@
+package com.grandstrand;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the JournaledContactStore class.
+ * Tests that a service rebuilt from the log matches the one that wrote it.
+ */
+public class JournaledContactStoreTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testReplayRestoresContacts() throws IOException {
+        Path log = tempDir.resolve("contacts.log");
+        try (JournaledContactStore store = JournaledContactStore.open(log, new HeapContactStore(), 64, 0)) {
+            ContactService contactService = new ContactService(store);
+            contactService.addContact(new Contact("123", "John", "Doe", "1234567890", "123 Main St"));
+            contactService.addContact(new Contact("456", "Jane", "Smith", "0987654321", "456 Oak Ave"));
+            contactService.addContact(new Contact("789", "Ann", "Lee", "5555555555", "789 Pine Rd"));
+            contactService.updateFirstName("123", "Johnny");
+            contactService.updatePhone("123", "1112223333");
+            contactService.deleteContact("456");
+        }
+        
+        try (JournaledContactStore store = JournaledContactStore.open(log, new HeapContactStore(), 64, 0)) {
+            ContactService contactService = new ContactService(store);
+            assertEquals(2, contactService.getContactCount());
+            assertFalse(contactService.contactExists("456"));
+            assertEquals("Johnny", contactService.getContact("123").getFirstName());
+            assertEquals("1112223333", contactService.getContact("123").getPhone());
+            assertEquals("Lee", contactService.getContact("789").getLastName());
+        }
+    }
+
+    @Test
+    public void testFailedOperationsAreNotLogged() throws IOException {
+        Path log = tempDir.resolve("contacts.log");
+        try (JournaledContactStore store = JournaledContactStore.open(log, new HeapContactStore(), 1, 0)) {
+            ContactService contactService = new ContactService(store);
+            contactService.addContact(new Contact("123", "John", "Doe", "1234567890", "123 Main St"));
+            long size = Files.size(log);
+            
+            assertThrows(IllegalArgumentException.class, () -> {
+                contactService.addContact(new Contact("123", "Jane", "Smith", "0987654321", "456 Oak Ave"));
+            });
+            assertThrows(IllegalArgumentException.class, () -> {
+                contactService.deleteContact("missing");
+            });
+            assertEquals(size, Files.size(log));
+        }
+    }
+
+    @Test
+    public void testLookupsUseTheWrappedIndexes() throws IOException {
+        AtomicInteger lookups = new AtomicInteger();
+        IndexedContactStore indexed = new IndexedContactStore(new HeapContactStore()) {
+            @Override
+            public List<Contact> findByPhone(String phone) {
+                lookups.incrementAndGet();
+                return super.findByPhone(phone);
+            }
+        
+            @Override
+            public List<Contact> findByLastName(String lastName) {
+                lookups.incrementAndGet();
+                return super.findByLastName(lastName);
+            }
+        
+            @Override
+            public List<Contact> findByAddressPrefix(String prefix, int limit) {
+                lookups.incrementAndGet();
+                return super.findByAddressPrefix(prefix, limit);
+            }
+        
+            @Override
+            public List<Contact> findByNamePrefix(String prefix, int limit) {
+                lookups.incrementAndGet();
+                return super.findByNamePrefix(prefix, limit);
+            }
+        
+            @Override
+            public List<Contact> findBySimilarName(String name, int maxDistance, int limit) {
+                lookups.incrementAndGet();
+                return super.findBySimilarName(name, maxDistance, limit);
+            }
+        };
+        try (JournaledContactStore store = JournaledContactStore.open(tempDir.resolve("contacts.log"), indexed, 64, 0)) {
+            ContactService contactService = new ContactService(store);
+            contactService.addContact(new Contact("123", "John", "Doe", "1234567890", "123 Main St"));
+            contactService.addContact(new Contact("456", "Jane", "Smith", "0987654321", "456 Oak Ave"));
+            
+            assertEquals("456", contactService.findByPhone("0987654321").get(0).getContactId());
+            assertEquals("123", contactService.findByLastName("Doe").get(0).getContactId());
+            assertEquals("456", contactService.findByAddressPrefix("456 oak", 10).get(0).getContactId());
+            assertEquals("123", contactService.findByNamePrefix("jo", 10).get(0).getContactId());
+            assertEquals("456", contactService.findBySimilarName("jnae", 2, 10).get(0).getContactId());
+            assertEquals(5, lookups.get());
+        }
+    }
+
+    @Test
+    public void testFailedWriteIsNotApplied() throws IOException {
+        Path log = tempDir.resolve("contacts.log");
+        HeapContactStore heap = new HeapContactStore();
+        JournaledContactStore store = JournaledContactStore.open(log, heap, 1, 0);
+        store.insert(new Contact("123", "John", "Doe", "1234567890", "123 Main St"));
+        // Closing the log makes every later write fail
+        store.close();
+        
+        assertThrows(UncheckedIOException.class, () -> {
+            store.insert(new Contact("456", "Jane", "Smith", "0987654321", "456 Oak Ave"));
+        });
+        assertFalse(heap.contains("456"));
+        assertThrows(UncheckedIOException.class, () -> store.update("123", ContactField.FIRST_NAME, "Johnny"));
+        assertThrows(UncheckedIOException.class, () -> store.patch("123", new ContactPatch().lastName("Roe"),
+                ContactStore.ANY_VERSION));
+        assertThrows(UncheckedIOException.class, () -> store.remove("123"));
+        assertThrows(IOException.class, store::sync);
+        assertEquals("John", heap.get("123").getFirstName());
+        assertEquals("Doe", heap.get("123").getLastName());
+        assertEquals(0, heap.get("123").getVersion());
+        
+        try (JournaledContactStore reopened = JournaledContactStore.open(log, new HeapContactStore(), 1, 0)) {
+            assertEquals(1, reopened.size());
+            assertEquals("John", reopened.get("123").getFirstName());
+        }
+    }
+
+    @Test
+    public void testTornRecordIsDropped() throws IOException {
+        Path log = tempDir.resolve("contacts.log");
+        try (JournaledContactStore store = JournaledContactStore.open(log, new HeapContactStore(), 1, 0)) {
+            store.insert(new Contact("123", "John", "Doe", "1234567890", "123 Main St"));
+        }
+        long goodSize = Files.size(log);
+        Files.write(log, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+        
+        try (JournaledContactStore store = JournaledContactStore.open(log, new HeapContactStore(), 1, 0)) {
+            assertEquals(goodSize, Files.size(log));
+            store.insert(new Contact("456", "Jane", "Smith", "0987654321", "456 Oak Ave"));
+        }
+        
+        try (JournaledContactStore store = JournaledContactStore.open(log, new ColumnarContactStore(), 1, 0)) {
+            assertEquals(2, store.size());
+            assertEquals("Jane", store.get("456").getFirstName());
+        }
+    }
+
+    @Test
+    public void testInsertWithoutVersionFailsReplay() throws IOException {
+        Path log = tempDir.resolve("contacts.log");
+        // A checksummed insert record that ends after the address
+        ByteBuffer payload = ByteBuffer.allocate(128);
+        payload.put((byte) 1).put((byte) 0);
+        for (String value : new String[] {"123", "John", "Doe", "1234567890", "123 Main St"}) {
+            payload.putShort((short) value.length());
+            value.chars().forEach(c -> payload.putChar((char) c));
+        }
+        payload.flip();
+        CRC32 crc = new CRC32();
+        crc.update(payload.array(), 0, payload.limit());
+        ByteBuffer record = ByteBuffer.allocate(8 + payload.limit());
+        record.putInt(payload.limit()).putInt((int) crc.getValue()).put(payload);
+        Files.write(log, record.array());
+        
+        assertThrows(BufferUnderflowException.class, () -> JournaledContactStore.open(log, new HeapContactStore(), 1, 0));
+    }
+
+    @Test
+    public void testIntervalSyncWritesBufferedRecords() throws Exception {
+        Path log = tempDir.resolve("contacts.log");
+        try (JournaledContactStore store = JournaledContactStore.open(log, new HeapContactStore(), 1000, 10)) {
+            store.insert(new Contact("123", "John", "Doe", "1234567890", "123 Main St"));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (Files.size(log) == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(Files.size(log) > 0);
+        }
+    }
+
+    @Test
+    public void testReplayRestoresPatchesAndVersions() throws IOException {
+        Path log = tempDir.resolve("contacts.log");
+        try (JournaledContactStore store = JournaledContactStore.open(log, new HeapContactStore(), 64, 0)) {
+            ContactService contactService = new ContactService(store);
+            contactService.addContact(new Contact("123", "John", "Doe", "1234567890", "123 Main St"));
+            contactService.updateContact("123", new ContactPatch().lastName("Smith").address("456 Oak Ave"));
+            assertFalse(contactService.updateContact("123", new ContactPatch().lastName("Lee"), 0));
+            assertFalse(contactService.applyUpdates(List.of(new ContactUpdate("123", ContactField.PHONE, "0987654321"),
+                    new ContactUpdate("missing", ContactField.PHONE, "0987654321"))).isApplied());
+        }
+        
+        try (JournaledContactStore store = JournaledContactStore.open(log, new ColumnarContactStore(), 64, 0)) {
+            Contact contact = store.get("123");
+            assertEquals("John", contact.getFirstName());
+            assertEquals("Smith", contact.getLastName());
+            assertEquals("456 Oak Ave", contact.getAddress());
+            assertEquals("1234567890", contact.getPhone());
+            assertEquals(1, contact.getVersion());
+        }
+    }
+
+    @Test
+    public void testConcurrentWritersShareSyncs() throws Exception {
+        Path log = tempDir.resolve("contacts.log");
+        try (JournaledContactStore store = JournaledContactStore.open(log, new HeapContactStore(), 7, 0)) {
+            Thread[] writers = new Thread[4];
+            for (int t = 0; t < writers.length; t++) {
+                int first = t * 1000;
+                writers[t] = new Thread(() -> {
+                    // Enough records to fill several write buffers
+                    for (int i = first; i < first + 1000; i++) {
+                        store.insert(new Contact(Integer.toString(i), "John", "Doe", "1234567890", "123 Main St"));
+                    }
+                });
+                writers[t].start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        }
+        
+        try (JournaledContactStore store = JournaledContactStore.open(log, new HeapContactStore(), 1, 0)) {
+            assertEquals(4000, store.size());
+            for (int i = 0; i < 4000; i++) {
+                assertTrue(store.contains(Integer.toString(i)));
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.grandstrand;
+
+import java.util.List;
+
+/**
+ * LongHashMap class mapping primitive long keys to values without boxing the keys.
+ * Keys and values sit in parallel arrays with linear probing, and removal shifts
+ * later entries back instead of leaving tombstones. A key's home slot is the top
+ * bits of its hash, so its bucket at any coarser table size is fixed, which lets
+ * addValuesInRange walk the map while entries move. Values cannot be null.
+ * Not thread-safe; callers guard it with their own lock.
+ * @param <V> The value type
+ */
+final class LongHashMap<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    LongHashMap() {
+        this(0);
+    }
+
+    LongHashMap(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        keys = new long[capacity];
+        values = new Object[capacity];
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity / 4 * 3 < expectedSize && capacity < (1 << 30)) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return (V) values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Looks up a key while a writer may be changing the map, for a caller that
+     * reads under an optimistic lock and validates it afterwards. A torn read
+     * never throws or probes forever, but its result means nothing unless the
+     * lock validates.
+     */
+    @SuppressWarnings("unchecked")
+    V getUnsynchronized(long key) {
+        long[] keys = this.keys;
+        Object[] values = this.values;
+        if (keys.length != values.length) {
+            // Caught between the two array writes of a resize
+            return null;
+        }
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        for (int probes = 0; probes < keys.length; probes++) {
+            Object value = values[i];
+            if (value == null) {
+                return null;
+            }
+            if (keys[i] == key) {
+                return (V) value;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Maps a key to a value
+     * @return The previous value for the key, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value cannot be null");
+        }
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length / 4 * 3) {
+            resize(keys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Removes a key
+     * @return The value the key had, or null if it wasn't mapped
+     */
+    @SuppressWarnings("unchecked")
+    V remove(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                deleteAt(i);
+                size--;
+                return previous;
+            }
+        }
+        return null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Grows the table now so it holds the given number of entries without resizing
+     */
+    void ensureCapacity(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        if (capacity > keys.length) {
+            resize(capacity);
+        }
+    }
+
+    /**
+     * Gets the number of hash bits that pick a slot in the current table
+     */
+    int bits() {
+        return Integer.numberOfTrailingZeros(keys.length);
+    }
+
+    /**
+     * Adds the values whose keys fall in a range of buckets, a bucket being a
+     * slot of a table with 2^bits slots. A key's bucket doesn't change when
+     * entries shift or the table resizes, so walking the buckets a range at a
+     * time visits every key that stays mapped exactly once.
+     * @param from The first bucket
+     * @param to One past the last bucket
+     * @param bits The number of hash bits that pick a bucket
+     */
+    @SuppressWarnings("unchecked")
+    void addValuesInRange(int from, int to, int bits, List<? super V> out) {
+        int mask = keys.length - 1;
+        int tableBits = bits();
+        // The home slots of the range's keys in the current table
+        int first = tableBits >= bits ? from << (tableBits - bits) : from >>> (bits - tableBits);
+        int last = tableBits >= bits ? (to << (tableBits - bits)) - 1 : (to - 1) >>> (bits - tableBits);
+        int i = first;
+        // A key sits at or after its home slot, before the next empty slot
+        for (int probes = 0; probes < keys.length; probes++, i = (i + 1) & mask) {
+            Object value = values[i];
+            if (value == null) {
+                if (probes > last - first) {
+                    return;
+                }
+                continue;
+            }
+            long bucket = hash(keys[i]) >>> (64 - bits);
+            if (bucket >= from && bucket < to) {
+                out.add((V) value);
+            }
+        }
+    }
+
+    /**
+     * Empties an entry and shifts later entries of the probe run back into the hole
+     */
+    private void deleteAt(int position) {
+        int mask = keys.length - 1;
+        int hole = position;
+        values[hole] = null;
+        for (int i = (hole + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+            int home = slot(keys[i], mask);
+            // The entry may move back only if the hole lies between its home and where it sits
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                values[i] = null;
+                hole = i;
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] != null) {
+                int i = slot(oldKeys[j], mask);
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        return (int) (hash(key) >>> Long.numberOfLeadingZeros(mask));
+    }
+
+    private static long hash(long key) {
+        // Fibonacci hashing spreads sequential keys such as phone numbers across the table
+        return key * 0x9E3779B97F4A7C15L;
+    }
+}
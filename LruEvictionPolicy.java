@@ -0,0 +1,48 @@
+package com.grandstrand;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * LruEvictionPolicy class evicting the least recently used contact ID.
+ * The IDs are kept in an access-ordered LinkedHashMap, oldest first.
+ */
+final class LruEvictionPolicy implements EvictionPolicy {
+    private final int capacity;
+    private final LinkedHashMap<String, Boolean> order;
+
+    LruEvictionPolicy(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.order = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public void recordAccess(String contactId) {
+        order.get(contactId);
+    }
+
+    @Override
+    public String add(String contactId) {
+        order.put(contactId, Boolean.TRUE);
+        if (order.size() <= capacity) {
+            return null;
+        }
+        Iterator<String> eldest = order.keySet().iterator();
+        String victim = eldest.next();
+        eldest.remove();
+        return victim;
+    }
+
+    @Override
+    public void remove(String contactId) {
+        order.remove(contactId);
+    }
+}
@@ -0,0 +1,309 @@
+package com.grandstrand;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * NameTrigramIndex class finding the names within an edit distance of a query
+ * among a set of distinct names. Each name is split into trigrams (with two
+ * padding chars at either end, so "ann" gives "  a", " an", "ann", "nn ", "n  "),
+ * and every trigram keeps a posting list of the names that contain it.
+ * <p>
+ * One edit changes at most three trigrams, so a name within distance k of the
+ * query shares all but at most 3k of the query's distinct trigrams. A search
+ * counts shared trigrams through the posting lists and only computes the edit
+ * distance of names that reach that count. When 3k leaves no trigram to
+ * require (short queries or large distances), it checks every name of a
+ * suitable length instead.
+ * <p>
+ * Names are numbered, and the number of a removed name is reused. Not
+ * thread-safe; IndexedContactStore guards it with its lock.
+ */
+final class NameTrigramIndex {
+    private static final char PAD = '\0';
+
+    private final Map<String, Integer> numbers = new HashMap<>();
+    // Indexed by name number; null for a free number
+    private final List<String> names = new ArrayList<>();
+    private final LongHashMap<Postings> postings = new LongHashMap<>();
+    private int[] free = new int[16];
+    private int freeCount;
+
+    /**
+     * Postings class listing the numbers of the names that contain one trigram, in no order
+     */
+    private static final class Postings {
+        int[] numbers = new int[4];
+        int size;
+
+        void add(int number) {
+            if (size == numbers.length) {
+                numbers = Arrays.copyOf(numbers, size * 2);
+            }
+            numbers[size++] = number;
+        }
+
+        void remove(int number) {
+            for (int i = 0; i < size; i++) {
+                if (numbers[i] == number) {
+                    numbers[i] = numbers[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Match class for a name within the distance of a query
+     */
+    static final class Match implements Comparable<Match> {
+        final String name;
+        final int distance;
+
+        Match(String name, int distance) {
+            this.name = name;
+            this.distance = distance;
+        }
+
+        /**
+         * Orders closest first, then by name
+         */
+        @Override
+        public int compareTo(Match other) {
+            return distance != other.distance ? Integer.compare(distance, other.distance) : name.compareTo(other.name);
+        }
+    }
+
+    /**
+     * Adds a name if it isn't indexed yet
+     */
+    void add(String name) {
+        if (numbers.containsKey(name)) {
+            return;
+        }
+        int number;
+        if (freeCount > 0) {
+            number = free[--freeCount];
+            names.set(number, name);
+        } else {
+            number = names.size();
+            names.add(name);
+        }
+        numbers.put(name, number);
+        for (long trigram : trigrams(name)) {
+            Postings list = postings.get(trigram);
+            if (list == null) {
+                list = new Postings();
+                postings.put(trigram, list);
+            }
+            list.add(number);
+        }
+    }
+
+    /**
+     * Removes a name if it is indexed
+     */
+    void remove(String name) {
+        Integer number = numbers.remove(name);
+        if (number == null) {
+            return;
+        }
+        for (long trigram : trigrams(name)) {
+            Postings list = postings.get(trigram);
+            list.remove(number);
+            if (list.size == 0) {
+                postings.remove(trigram);
+            }
+        }
+        names.set(number, null);
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, freeCount * 2);
+        }
+        free[freeCount++] = number;
+    }
+
+    /**
+     * Finds the indexed names within an edit distance of a query
+     * @param query The name to match
+     * @param maxDistance The most single-char insertions, deletions and substitutions allowed
+     * @return The matching names, closest first, then by name
+     */
+    List<Match> search(String query, int maxDistance) {
+        List<Match> matches = new ArrayList<>();
+        // No two names are further apart than the longer one's length
+        maxDistance = Math.min(maxDistance, Math.max(query.length(), ContactValidator.MAX_NAME_LENGTH));
+        if (query.length() > ContactValidator.MAX_NAME_LENGTH + maxDistance) {
+            // Every indexed name is a valid contact name, so none is that close
+            return matches;
+        }
+        long[] queryTrigrams = trigrams(query);
+        int required = queryTrigrams.length - 3 * maxDistance;
+        if (required <= 0) {
+            for (String name : names) {
+                if (name != null) {
+                    addIfClose(matches, query, name, maxDistance);
+                }
+            }
+        } else {
+            // required > 0 keeps the query to 16 chars, 18 trigrams, so a byte counts them
+            byte[] shared = new byte[names.size()];
+            for (long trigram : queryTrigrams) {
+                Postings list = postings.get(trigram);
+                if (list == null) {
+                    continue;
+                }
+                for (int i = 0; i < list.size; i++) {
+                    int number = list.numbers[i];
+                    if (++shared[number] == required) {
+                        addIfClose(matches, query, names.get(number), maxDistance);
+                    }
+                }
+            }
+        }
+        matches.sort(null);
+        return matches;
+    }
+
+    /**
+     * Finds contacts by a similar first or last name by checking every contact,
+     * for stores without an index
+     * @see ContactStore#findBySimilarName
+     */
+    static List<Contact> scan(ContactStore store, String name, int maxDistance, int limit) {
+        String query = name.toLowerCase(Locale.ROOT);
+        int bound = Math.min(maxDistance, Math.max(query.length(), ContactValidator.MAX_NAME_LENGTH));
+        List<Contact> contacts = new ArrayList<>();
+        List<Match> closest = new ArrayList<>();
+        store.forEach(contact -> {
+            Match best = bestMatch(query, contact, bound);
+            if (best != null) {
+                contacts.add(contact);
+                closest.add(best);
+            }
+        });
+        return closestFirst(contacts, closest, limit);
+    }
+
+    /**
+     * Merges the findBySimilarName results of several stores, such as the
+     * shards of one store, into the closest limit of them all
+     * @param found Every store's results, each up to limit long
+     * @see ContactStore#findBySimilarName
+     */
+    static List<Contact> merge(List<Contact> found, String name, int maxDistance, int limit) {
+        String query = name.toLowerCase(Locale.ROOT);
+        int bound = Math.min(maxDistance, Math.max(query.length(), ContactValidator.MAX_NAME_LENGTH));
+        List<Contact> contacts = new ArrayList<>(found.size());
+        List<Match> closest = new ArrayList<>(found.size());
+        for (Contact contact : found) {
+            // Null if the contact was updated since its store found it
+            Match best = bestMatch(query, contact, bound);
+            if (best != null) {
+                contacts.add(contact);
+                closest.add(best);
+            }
+        }
+        return closestFirst(contacts, closest, limit);
+    }
+
+    /**
+     * Gets the closer of a contact's first and last name matches, or null if neither is close
+     */
+    private static Match bestMatch(String query, Contact contact, int maxDistance) {
+        Match first = closeMatch(query, contact.getFirstName().toLowerCase(Locale.ROOT), maxDistance);
+        Match last = closeMatch(query, contact.getLastName().toLowerCase(Locale.ROOT), maxDistance);
+        return first == null || (last != null && last.compareTo(first) < 0) ? last : first;
+    }
+
+    /**
+     * Orders contacts by their matches and keeps the first limit
+     * @param closest Each contact's match, at the same index
+     */
+    private static List<Contact> closestFirst(List<Contact> contacts, List<Match> closest, int limit) {
+        Integer[] order = new Integer[contacts.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> closest.get(a).compareTo(closest.get(b)));
+        List<Contact> matches = new ArrayList<>();
+        for (int i = 0; i < order.length && i < limit; i++) {
+            matches.add(contacts.get(order[i]));
+        }
+        return matches;
+    }
+
+    private static Match closeMatch(String query, String name, int maxDistance) {
+        if (Math.abs(name.length() - query.length()) > maxDistance) {
+            return null;
+        }
+        int distance = editDistance(query, name, maxDistance);
+        return distance <= maxDistance ? new Match(name, distance) : null;
+    }
+
+    private static void addIfClose(List<Match> matches, String query, String name, int maxDistance) {
+        Match match = closeMatch(query, name, maxDistance);
+        if (match != null) {
+            matches.add(match);
+        }
+    }
+
+    /**
+     * Gets the distinct padded trigrams of a name, each packed as three 16-bit chars
+     */
+    static long[] trigrams(String name) {
+        int length = name.length() + 4;
+        char[] padded = new char[length];
+        name.getChars(0, name.length(), padded, 2);
+        padded[0] = PAD;
+        padded[1] = PAD;
+        padded[length - 2] = PAD;
+        padded[length - 1] = PAD;
+        long[] trigrams = new long[length - 2];
+        int count = 0;
+        for (int i = 0; i + 2 < length; i++) {
+            long trigram = (long) padded[i] << 32 | (long) padded[i + 1] << 16 | padded[i + 2];
+            boolean seen = false;
+            for (int j = 0; j < count && !seen; j++) {
+                seen = trigrams[j] == trigram;
+            }
+            if (!seen) {
+                trigrams[count++] = trigram;
+            }
+        }
+        return count == trigrams.length ? trigrams : Arrays.copyOf(trigrams, count);
+    }
+
+    /**
+     * Computes the Levenshtein distance between two strings, giving up once it
+     * must exceed a bound
+     * @return The distance, or maxDistance + 1 if it is larger than maxDistance
+     */
+    static int editDistance(String a, String b, int maxDistance) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            char c = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int substitute = previous[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitute, Math.min(previous[j], current[j - 1]) + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], maxDistance + 1);
+    }
+}
@@ -0,0 +1,230 @@
+package com.grandstrand;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * NumericIdContactStore class keying contacts with numeric IDs (1 to 10 digits,
+ * the usual case) by a primitive long instead of a String. The ID is encoded
+ * with ContactIdEncoding and looked up in a LongHashMap, an open-addressing
+ * table of parallel long and reference arrays, so an entry takes a key slot and
+ * a value slot instead of a HashMap node pointing at the ID String. Lookups hash
+ * a long instead of the ID's chars and compare longs instead of Strings. Other
+ * IDs fall back to a ConcurrentHashMap, so every ID works the same as in
+ * HeapContactStore.
+ * <p>
+ * Like HeapContactStore, get returns the stored instance itself. Reads of the
+ * numeric table are optimistic and take no lock unless a write overlaps them;
+ * writes to it take the write lock of a StampedLock, so they run one at a time.
+ */
+public class NumericIdContactStore implements ContactStore {
+    private final StampedLock lock = new StampedLock();
+    // Guarded by lock; reads may go unlocked through getUnsynchronized and validate
+    private final LongHashMap<Contact> numeric;
+    private final ConcurrentHashMap<String, Contact> others = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for an empty store
+     */
+    public NumericIdContactStore() {
+        this.numeric = new LongHashMap<>();
+    }
+
+    /**
+     * Constructor that pre-sizes the numeric table
+     * @param expectedContacts The number of contacts the store is expected to hold
+     */
+    public NumericIdContactStore(int expectedContacts) {
+        this.numeric = new LongHashMap<>(expectedContacts);
+    }
+
+    @Override
+    public Contact get(String contactId) {
+        long code = ContactIdEncoding.encode(contactId);
+        if (code == ContactIdEncoding.NOT_NUMERIC) {
+            return others.get(contactId);
+        }
+        long stamp = lock.tryOptimisticRead();
+        Contact contact = numeric.getUnsynchronized(code);
+        if (lock.validate(stamp)) {
+            return contact;
+        }
+        stamp = lock.readLock();
+        try {
+            return numeric.get(code);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean contains(String contactId) {
+        return get(contactId) != null;
+    }
+
+    @Override
+    public boolean insert(Contact contact) {
+        long code = ContactIdEncoding.encode(contact.getContactId());
+        if (code == ContactIdEncoding.NOT_NUMERIC) {
+            return others.putIfAbsent(contact.getContactId(), contact) == null;
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (numeric.get(code) != null) {
+                return false;
+            }
+            numeric.put(code, contact);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Contact remove(String contactId) {
+        long code = ContactIdEncoding.encode(contactId);
+        if (code == ContactIdEncoding.NOT_NUMERIC) {
+            return others.remove(contactId);
+        }
+        long stamp = lock.writeLock();
+        try {
+            return numeric.remove(code);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public String update(String contactId, ContactField field, String value) {
+        return set(contactId, field, value, ContactStore::nextVersion);
+    }
+
+    @Override
+    public String revert(String contactId, ContactField field, String previous) {
+        return set(contactId, field, previous, ContactStore::previousVersion);
+    }
+
+    private String set(String contactId, ContactField field, String value, IntUnaryOperator version) {
+        long code = ContactIdEncoding.encode(contactId);
+        if (code == ContactIdEncoding.NOT_NUMERIC) {
+            String[] previous = new String[1];
+            others.computeIfPresent(contactId, (id, contact) -> {
+                previous[0] = field.get(contact);
+                return Contact.copyWith(contact, field, value, version.applyAsInt(contact.getVersion()));
+            });
+            return previous[0];
+        }
+        long stamp = lock.writeLock();
+        try {
+            Contact contact = numeric.get(code);
+            if (contact == null) {
+                return null;
+            }
+            numeric.put(code, Contact.copyWith(contact, field, value, version.applyAsInt(contact.getVersion())));
+            return field.get(contact);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public ContactStatus patch(String contactId, ContactPatch patch, int expectedVersion) {
+        long code = ContactIdEncoding.encode(contactId);
+        if (code == ContactIdEncoding.NOT_NUMERIC) {
+            ContactStatus[] status = {ContactStatus.NOT_FOUND};
+            others.computeIfPresent(contactId, (id, contact) -> {
+                Contact patched = applyPatch(contact, patch, expectedVersion);
+                status[0] = patched == null ? ContactStatus.VERSION_CONFLICT : ContactStatus.OK;
+                return patched == null ? contact : patched;
+            });
+            return status[0];
+        }
+        long stamp = lock.writeLock();
+        try {
+            Contact contact = numeric.get(code);
+            if (contact == null) {
+                return ContactStatus.NOT_FOUND;
+            }
+            Contact patched = applyPatch(contact, patch, expectedVersion);
+            if (patched == null) {
+                return ContactStatus.VERSION_CONFLICT;
+            }
+            numeric.put(code, patched);
+            return ContactStatus.OK;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Builds the patched copy that replaces a contact, so readers holding the
+     * stored instance never see half a patch
+     * @return The copy, or null if the contact has a different version
+     */
+    private static Contact applyPatch(Contact contact, ContactPatch patch, int expectedVersion) {
+        if (expectedVersion != ANY_VERSION && contact.getVersion() != expectedVersion) {
+            return null;
+        }
+        Contact patched = patch.appliedTo(contact);
+        patched.setVersion(ContactStore.nextVersion(contact.getVersion()));
+        return patched;
+    }
+
+    @Override
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return numeric.size() + others.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void ensureCapacity(int expectedContacts) {
+        long stamp = lock.writeLock();
+        try {
+            numeric.ensureCapacity(expectedContacts);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Walks the numeric table by hash bucket rather than by slot: slot s covers
+     * the keys whose hash falls in bucket s of a table the size the table had
+     * when the walk began. Removals shift entries and resizes move them, but
+     * never change a key's bucket, so a walk that runs while writers do never
+     * sees a contact twice or misses one that stays. The other IDs follow.
+     */
+    @Override
+    public Spliterator<Contact> spliterator() {
+        int bits;
+        long stamp = lock.readLock();
+        try {
+            bits = numeric.bits();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        Spliterator<Contact> numericContacts = new SlotSpliterator((from, to, out) -> readBuckets(bits, from, to, out),
+                0, 1 << bits);
+        return Stream.concat(StreamSupport.stream(numericContacts, false), others.values().stream()).spliterator();
+    }
+
+    /**
+     * Adds the contacts of a range of hash buckets to a list while holding the read lock
+     */
+    private void readBuckets(int bits, int from, int to, List<Contact> out) {
+        long stamp = lock.readLock();
+        try {
+            numeric.addValuesInRange(from, to, bits, out);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.grandstrand;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the NumericIdContactStore and ContactIdEncoding classes.
+ * Tests that numeric and other IDs behave the same through ContactService.
+ */
+public class NumericIdContactStoreTest {
+    private ContactService contactService;
+
+    @BeforeEach
+    public void setUp() {
+        contactService = new ContactService(new NumericIdContactStore());
+    }
+
+    private static Contact contact(String id) {
+        return new Contact(id, "John", "Doe", "1234567890", "123 Main St");
+    }
+
+    @Test
+    public void testEncodeKeepsLeadingZeros() {
+        long seven = ContactIdEncoding.encode("7");
+        long padded = ContactIdEncoding.encode("007");
+        
+        assertNotEquals(seven, padded);
+        assertEquals("007", ContactIdEncoding.decode(padded));
+        assertEquals("9999999999", ContactIdEncoding.decode(ContactIdEncoding.encode("9999999999")));
+        assertEquals("0", ContactIdEncoding.decode(ContactIdEncoding.encode("0")));
+        assertTrue(ContactIdEncoding.encode("0000000000") >= 0);
+    }
+
+    @Test
+    public void testEncodeRejectsNonNumericIds() {
+        assertEquals(ContactIdEncoding.NOT_NUMERIC, ContactIdEncoding.encode(""));
+        assertEquals(ContactIdEncoding.NOT_NUMERIC, ContactIdEncoding.encode("12345678901"));
+        assertEquals(ContactIdEncoding.NOT_NUMERIC, ContactIdEncoding.encode("12a"));
+        assertEquals(ContactIdEncoding.NOT_NUMERIC, ContactIdEncoding.encode("-1"));
+        assertEquals(ContactIdEncoding.NOT_NUMERIC, ContactIdEncoding.encode("\u0661"));
+        assertThrows(IllegalArgumentException.class, () -> ContactIdEncoding.decode(0));
+        assertThrows(IllegalArgumentException.class, () -> ContactIdEncoding.decode(ContactIdEncoding.encode("1") + 10));
+    }
+
+    @Test
+    public void testNumericAndOtherIdsWorkAlike() {
+        for (String id : new String[] {"1", "01", "001", "A1", "1 ", "9999999999"}) {
+            contactService.addContact(contact(id));
+        }
+        
+        assertEquals(6, contactService.getContactCount());
+        assertEquals("01", contactService.getContact("01").getContactId());
+        assertEquals("A1", contactService.getContact("A1").getContactId());
+        assertTrue(contactService.contactExists("1 "));
+        assertFalse(contactService.contactExists("0001"));
+        assertThrows(IllegalArgumentException.class, () -> contactService.addContact(contact("001")));
+        assertThrows(IllegalArgumentException.class, () -> contactService.addContact(contact("A1")));
+        assertEquals(6, contactService.query(new ContactQuery()).count());
+        
+        contactService.deleteContact("01");
+        contactService.deleteContact("A1");
+        assertFalse(contactService.contactExists("01"));
+        assertTrue(contactService.contactExists("1"));
+        assertThrows(IllegalArgumentException.class, () -> contactService.deleteContact("A1"));
+        assertEquals(4, contactService.getContactCount());
+    }
+
+    @Test
+    public void testUpdateAndPatch() {
+        contactService.addContact(contact("1"));
+        contactService.addContact(contact("X"));
+        contactService.updateLastName("1", "Smith");
+        contactService.updateLastName("X", "Smith");
+        assertTrue(contactService.updateContact("1", new ContactPatch().firstName("Jane"), 1));
+        assertTrue(contactService.updateContact("X", new ContactPatch().firstName("Jane"), 1));
+        
+        for (String id : new String[] {"1", "X"}) {
+            Contact updated = contactService.getContact(id);
+            assertEquals("Jane", updated.getFirstName());
+            assertEquals("Smith", updated.getLastName());
+            assertEquals(2, updated.getVersion());
+            assertFalse(contactService.updateContact(id, new ContactPatch().firstName("Bob"), 1));
+        }
+        assertThrows(IllegalArgumentException.class, () -> contactService.updatePhone("2", "0987654321"));
+    }
+
+    @Test
+    public void testReadsDuringWritesFindStableContacts() throws InterruptedException {
+        NumericIdContactStore store = new NumericIdContactStore();
+        for (int i = 0; i < 1000; i++) {
+            store.insert(contact(Integer.toString(i)));
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        // Inserts and removes above 1000 keep resizing the table and shifting entries
+        Thread writer = new Thread(() -> {
+            for (int round = 0; round < 20; round++) {
+                for (int i = 1000; i < 20_000; i++) {
+                    store.insert(contact(Integer.toString(i)));
+                }
+                for (int i = 1000; i < 20_000; i++) {
+                    store.remove(Integer.toString(i));
+                }
+            }
+            done.set(true);
+        });
+        writer.start();
+        
+        while (!done.get()) {
+            for (int i = 0; i < 1000; i++) {
+                assertNotNull(store.get(Integer.toString(i)));
+            }
+        }
+        writer.join();
+        assertEquals(1000, store.size());
+    }
+
+    @Test
+    public void testWalkSeesStableContactsOnceWhileEntriesMove() {
+        NumericIdContactStore store = new NumericIdContactStore();
+        for (int i = 0; i < 10_000; i++) {
+            store.insert(contact(Integer.toString(i)));
+        }
+        store.insert(contact("A1"));
+        Map<String, Integer> seen = new HashMap<>();
+        Spliterator<Contact> contacts = store.spliterator();
+        for (int i = 0; i < 3000; i++) {
+            assertTrue(contacts.tryAdvance(contact -> seen.merge(contact.getContactId(), 1, Integer::sum)));
+        }
+        // Removing the odd IDs shifts entries back; the new ones resize the table twice
+        for (int i = 1; i < 10_000; i += 2) {
+            store.remove(Integer.toString(i));
+        }
+        for (int i = 10_000; i < 40_000; i++) {
+            store.insert(contact(Integer.toString(i)));
+        }
+        contacts.forEachRemaining(contact -> seen.merge(contact.getContactId(), 1, Integer::sum));
+        
+        for (int i = 0; i < 10_000; i += 2) {
+            assertEquals(1, seen.get(Integer.toString(i)));
+        }
+        assertEquals(1, seen.get("A1"));
+        for (int count : seen.values()) {
+            assertEquals(1, count);
+        }
+    }
+}
@@ -0,0 +1,753 @@
+package com.grandstrand;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * OffHeapContactStore class keeping contact records and the ID index in direct memory.
+ * Records use the fixed-width layout from ContactRecordLayout: an 8-byte metadata
+ * long, a 4-byte version stamp, and 60 bytes of Latin-1 text, 72 bytes in all so every
+ * record stays 8-byte aligned. Records live in direct buffers of 65536 slots each,
+ * and the ID index is an open-addressing table of slot numbers in its own direct
+ * buffer. Free slots are chained through their metadata, so the heap only holds
+ * the buffer objects and stays flat as the store grows, and the garbage collector
+ * never traces the records.
+ * <p>
+ * get returns a new Contact copied out of the record. Contacts whose text doesn't
+ * fit Latin-1 are kept as Contact objects on the heap. Reads share a read lock and
+ * writes take the write lock.
+ * <p>
+ * The pages and index can be written to a snapshot file as they are, and
+ * openSnapshot maps that file back in private (copy-on-write) mode, so a store
+ * is ready to serve as soon as the file is mapped, without re-creating or
+ * re-validating any Contact. A snapshot is copied out a page at a time, and a
+ * write to a page it hasn't reached yet first saves a copy of that page, so the
+ * file holds the store as it was when the snapshot began while neither readers
+ * nor writers wait for the file I/O. Snapshot file layout, in the byte order of
+ * the store that wrote it:
+ * <pre>
+ *   header   64 bytes: magic, version, byte order, record size, page size,
+ *            slot count, free slot head, size, index capacity, page count, wide count
+ *   pages    page count * 65536 records
+ *   index    index capacity * 4 bytes
+ *   wide     per wide contact: slot, then five strings as a short length and chars
+ * </pre>
+ */
+public class OffHeapContactStore implements ContactStore {
+    static final int RECORD_BYTES = 72;
+    static final int META_OFFSET = 0;
+    static final int VERSION_OFFSET = 8;
+    static final int TEXT_OFFSET = 12;
+    static final int PAGE_SHIFT = 16;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int MIN_INDEX_CAPACITY = 16;
+    // A direct buffer holds less than 2 GB, which caps the index at 2^28 four-byte entries
+    private static final int MAX_INDEX_CAPACITY = 1 << 28;
+    private static final int SNAPSHOT_MAGIC = 0x43545346;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_HEADER_BYTES = 64;
+    // Index entries a snapshot copies out at a time
+    private static final int SNAPSHOT_INDEX_CHUNK = 1 << 16;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private ByteBuffer[] pages = new ByteBuffer[0];
+    private int slotCount;
+    // Head of the free slot chain; each free slot's metadata holds the next free slot
+    private int freeHead = -1;
+    private final Map<Integer, Contact> wideContacts = new HashMap<>();
+    // Each entry is a slot number plus one; zero marks an empty entry
+    private ByteBuffer index;
+    private int indexCapacity;
+    private int size;
+    // The snapshot being written, or null; only one is written at a time
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private Snapshot snapshot;
+
+    /**
+     * Snapshot class holding the pages and index chunks a snapshot has not copied
+     * out yet. Each region starts as the live buffer; a writer about to change one
+     * replaces it with a copy of its old contents, and the snapshot clears it once
+     * copied. Guarded by the store's lock.
+     */
+    private static final class Snapshot {
+        final ByteBuffer[] regions;
+        final boolean[] saved;
+        final ByteBuffer index;
+        final int pageCount;
+
+        Snapshot(ByteBuffer[] pages, int pageCount, ByteBuffer index, int indexCapacity) {
+            this.pageCount = pageCount;
+            this.index = index;
+            int chunks = (indexCapacity + SNAPSHOT_INDEX_CHUNK - 1) / SNAPSHOT_INDEX_CHUNK;
+            this.regions = Arrays.copyOf(pages, pageCount + chunks);
+            this.saved = new boolean[regions.length];
+            for (int i = 0; i < chunks; i++) {
+                int from = i * SNAPSHOT_INDEX_CHUNK * Integer.BYTES;
+                int to = Math.min(indexCapacity, (i + 1) * SNAPSHOT_INDEX_CHUNK) * Integer.BYTES;
+                regions[pageCount + i] = index.duplicate().position(from).limit(to).slice();
+            }
+        }
+
+        /**
+         * Copies a region before the store changes it, unless it is copied already
+         */
+        void save(int region) {
+            if (region < regions.length && regions[region] != null && !saved[region]) {
+                ByteBuffer live = regions[region];
+                regions[region] = ByteBuffer.allocate(live.capacity()).put(live.duplicate().clear()).flip();
+                saved[region] = true;
+            }
+        }
+    }
+
+    /**
+     * Constructor for an empty store
+     */
+    public OffHeapContactStore() {
+        this(0);
+    }
+
+    /**
+     * Constructor that pre-sizes the ID index
+     * @param expectedContacts The number of contacts the store is expected to hold
+     */
+    public OffHeapContactStore(int expectedContacts) {
+        this.indexCapacity = indexCapacityFor(expectedContacts);
+        this.index = allocate((long) indexCapacity * Integer.BYTES);
+    }
+
+    private OffHeapContactStore(ByteBuffer[] pages, int slotCount, int freeHead, ByteBuffer index,
+                                int indexCapacity, int size) {
+        this.pages = pages;
+        this.slotCount = slotCount;
+        this.freeHead = freeHead;
+        this.index = index;
+        this.indexCapacity = indexCapacity;
+        this.size = size;
+    }
+
+    /**
+     * Opens a store from a snapshot file by memory-mapping its pages and index.
+     * Changes made to the store afterwards stay in memory and never touch the file.
+     * @param file The snapshot file written by writeSnapshot
+     * @return The store holding the snapshot's contacts
+     * @throws IOException if the file cannot be read or is not a contact snapshot
+     */
+    public static OffHeapContactStore openSnapshot(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_BYTES);
+            readFully(channel, header, 0);
+            header.flip();
+            // The byte order field is written as 0 or 1 in a single byte, so read it before choosing an order
+            ByteOrder order = header.get(8) == 1 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+            header.order(order);
+            if (header.getInt(0) != SNAPSHOT_MAGIC || header.getInt(4) != SNAPSHOT_VERSION
+                    || header.getInt(12) != RECORD_BYTES || header.getInt(16) != PAGE_SIZE) {
+                throw new IOException("Not a contact snapshot: " + file);
+            }
+            int slotCount = header.getInt(20);
+            int freeHead = header.getInt(24);
+            int size = header.getInt(28);
+            int indexCapacity = header.getInt(32);
+            int pageCount = header.getInt(36);
+            int wideCount = header.getInt(40);
+            
+            long pageBytes = (long) PAGE_SIZE * RECORD_BYTES;
+            ByteBuffer[] pages = new ByteBuffer[pageCount];
+            long position = SNAPSHOT_HEADER_BYTES;
+            for (int i = 0; i < pageCount; i++, position += pageBytes) {
+                pages[i] = channel.map(FileChannel.MapMode.PRIVATE, position, pageBytes).order(order);
+            }
+            ByteBuffer index = channel.map(FileChannel.MapMode.PRIVATE, position, (long) indexCapacity * Integer.BYTES)
+                    .order(order);
+            position += (long) indexCapacity * Integer.BYTES;
+            
+            OffHeapContactStore store = new OffHeapContactStore(pages, slotCount, freeHead, index, indexCapacity, size);
+            ByteBuffer wide = ByteBuffer.allocate((int) (channel.size() - position)).order(order);
+            readFully(channel, wide, position);
+            wide.flip();
+            for (int i = 0; i < wideCount; i++) {
+                int slot = wide.getInt();
+                store.wideContacts.put(slot, new Contact(getString(wide), getString(wide), getString(wide),
+                        getString(wide), getString(wide)));
+            }
+            return store;
+        }
+    }
+
+    @Override
+    public Contact get(String contactId) {
+        lock.readLock().lock();
+        try {
+            int position = position(contactId);
+            return position < 0 ? null : materialize(entry(position) - 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(String contactId) {
+        lock.readLock().lock();
+        try {
+            return position(contactId) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean insert(Contact contact) {
+        lock.writeLock().lock();
+        try {
+            if (position(contact.getContactId()) >= 0) {
+                return false;
+            }
+            if (size + 1 > indexCapacity / 4 * 3) {
+                resizeIndex(indexCapacity * 2);
+            }
+            int slot = allocateSlot();
+            saveForSnapshot(slot);
+            if (ContactRecordLayout.isLatin1(contact)) {
+                ByteBuffer page = pages[slot >>> PAGE_SHIFT];
+                int offset = recordOffset(slot) + TEXT_OFFSET;
+                writeText(page, offset + ContactRecordLayout.ID_OFFSET, contact.getContactId());
+                writeText(page, offset + ContactRecordLayout.FIRST_NAME_OFFSET, contact.getFirstName());
+                writeText(page, offset + ContactRecordLayout.LAST_NAME_OFFSET, contact.getLastName());
+                writeText(page, offset + ContactRecordLayout.ADDRESS_OFFSET, contact.getAddress());
+                setMeta(slot, ContactRecordLayout.meta(contact));
+            } else {
+                wideContacts.put(slot, copy(contact));
+                setMeta(slot, ContactRecordLayout.LIVE | ContactRecordLayout.WIDE);
+            }
+            setVersion(slot, contact.getVersion());
+            addToIndex(slot, contact.getContactId().hashCode());
+            size++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Contact remove(String contactId) {
+        lock.writeLock().lock();
+        try {
+            int position = position(contactId);
+            if (position < 0) {
+                return null;
+            }
+            int slot = entry(position) - 1;
+            saveForSnapshot(slot);
+            Contact removed = materialize(slot);
+            removeFromIndex(position);
+            wideContacts.remove(slot);
+            setMeta(slot, freeHead + 1L);
+            freeHead = slot;
+            size--;
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String update(String contactId, ContactField field, String value) {
+        return set(contactId, field, value, ContactStore::nextVersion);
+    }
+
+    @Override
+    public String revert(String contactId, ContactField field, String previous) {
+        return set(contactId, field, previous, ContactStore::previousVersion);
+    }
+
+    private String set(String contactId, ContactField field, String value, IntUnaryOperator version) {
+        lock.writeLock().lock();
+        try {
+            int position = position(contactId);
+            if (position < 0) {
+                return null;
+            }
+            int slot = entry(position) - 1;
+            saveForSnapshot(slot);
+            String previous = updateSlot(slot, field, value);
+            setVersion(slot, version.applyAsInt(version(slot)));
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public ContactStatus patch(String contactId, ContactPatch patch, int expectedVersion) {
+        lock.writeLock().lock();
+        try {
+            int position = position(contactId);
+            if (position < 0) {
+                return ContactStatus.NOT_FOUND;
+            }
+            int slot = entry(position) - 1;
+            if (expectedVersion != ANY_VERSION && version(slot) != expectedVersion) {
+                return ContactStatus.VERSION_CONFLICT;
+            }
+            saveForSnapshot(slot);
+            for (ContactField field : ContactField.values()) {
+                String value = patch.get(field);
+                if (value != null) {
+                    updateSlot(slot, field, value);
+                }
+            }
+            setVersion(slot, ContactStore.nextVersion(version(slot)));
+            return ContactStatus.OK;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void ensureCapacity(int expectedContacts) {
+        lock.writeLock().lock();
+        try {
+            int capacity = indexCapacityFor(expectedContacts);
+            if (capacity > indexCapacity) {
+                resizeIndex(capacity);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the store to a snapshot file, as it was when the call began. The
+     * read lock is only held to start the snapshot and to copy out each page or
+     * index chunk; the file is written and synced with no lock held. The file is
+     * written under a temporary name and moved into place, so an interrupted
+     * snapshot never replaces a good one.
+     * @param file The snapshot file to create or replace
+     * @throws IOException if the file cannot be written
+     */
+    public void writeSnapshot(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        ByteOrder order = ByteOrder.nativeOrder();
+        snapshotLock.lock();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_BYTES).order(order);
+            ByteBuffer wide;
+            lock.readLock().lock();
+            try {
+                header.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION)
+                        .put((byte) (order == ByteOrder.BIG_ENDIAN ? 1 : 0)).put(new byte[3])
+                        .putInt(RECORD_BYTES).putInt(PAGE_SIZE).putInt(slotCount).putInt(freeHead).putInt(size)
+                        .putInt(indexCapacity).putInt(pages.length).putInt(wideContacts.size());
+                wide = wideSnapshot(order);
+                snapshot = new Snapshot(pages, pages.length, index, indexCapacity);
+            } finally {
+                lock.readLock().unlock();
+            }
+            try {
+                header.clear();
+                writeFully(channel, header);
+                ByteBuffer copy = ByteBuffer.allocateDirect(PAGE_SIZE * RECORD_BYTES);
+                for (int region = 0; region < snapshot.regions.length; region++) {
+                    writeFully(channel, copyOut(region, copy));
+                }
+            } finally {
+                lock.readLock().lock();
+                try {
+                    snapshot = null;
+                } finally {
+                    lock.readLock().unlock();
+                }
+            }
+            writeFully(channel, wide);
+            channel.force(false);
+        } finally {
+            snapshotLock.unlock();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Takes a region out of the running snapshot, copying it into the given
+     * buffer under the read lock unless a writer already saved a copy
+     * @return The region's contents as they were when the snapshot began
+     */
+    private ByteBuffer copyOut(int region, ByteBuffer copy) {
+        lock.readLock().lock();
+        try {
+            ByteBuffer contents = snapshot.regions[region];
+            snapshot.regions[region] = null;
+            if (snapshot.saved[region]) {
+                return contents.clear();
+            }
+            copy.clear();
+            copy.put(contents.duplicate().clear());
+            return copy.flip();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Encodes the wide contacts for a snapshot. Called with the read lock held.
+     */
+    private ByteBuffer wideSnapshot(ByteOrder order) {
+        ByteBuffer wide = ByteBuffer.allocate(wideContacts.size() * (4 + 5 * (2 + 2 * ContactValidator.MAX_ADDRESS_LENGTH)))
+                .order(order);
+        for (Map.Entry<Integer, Contact> entry : wideContacts.entrySet()) {
+            Contact contact = entry.getValue();
+            wide.putInt(entry.getKey());
+            putString(wide, contact.getContactId());
+            putString(wide, contact.getFirstName());
+            putString(wide, contact.getLastName());
+            putString(wide, contact.getPhone());
+            putString(wide, contact.getAddress());
+        }
+        return wide.flip();
+    }
+
+    /**
+     * Writes a snapshot on another thread
+     * @param file The snapshot file to create or replace
+     * @param executor The executor that runs the snapshot
+     * @return A future that completes when the snapshot is in place
+     */
+    public CompletableFuture<Void> writeSnapshotAsync(Path file, Executor executor) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                writeSnapshot(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write contact snapshot", e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Passes a copy of every stored contact to an action while holding the read lock
+     */
+    @Override
+    public Spliterator<Contact> spliterator() {
+        lock.readLock().lock();
+        try {
+            return new SlotSpliterator(this::readSlots, 0, slotCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a copy of each live contact in a slot range to a list while holding the read lock
+     */
+    private void readSlots(int from, int to, List<Contact> out) {
+        lock.readLock().lock();
+        try {
+            for (int slot = from; slot < to; slot++) {
+                if ((meta(slot) & ContactRecordLayout.LIVE) != 0) {
+                    out.add(materialize(slot));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the index entry for a contact ID
+     * @return The position in the index, or -1 if the ID isn't stored
+     */
+    private int position(String contactId) {
+        int mask = indexCapacity - 1;
+        for (int i = ContactRecordLayout.spread(contactId.hashCode()) & mask; ; i = (i + 1) & mask) {
+            int entry = entry(i);
+            if (entry == 0) {
+                return -1;
+            }
+            if (idEquals(entry - 1, contactId)) {
+                return i;
+            }
+        }
+    }
+
+    private boolean idEquals(int slot, String contactId) {
+        long meta = meta(slot);
+        if ((meta & ContactRecordLayout.WIDE) != 0) {
+            return wideContacts.get(slot).getContactId().equals(contactId);
+        }
+        int length = ContactRecordLayout.idLength(meta);
+        if (length != contactId.length()) {
+            return false;
+        }
+        ByteBuffer page = pages[slot >>> PAGE_SHIFT];
+        int offset = recordOffset(slot) + TEXT_OFFSET + ContactRecordLayout.ID_OFFSET;
+        for (int i = 0; i < length; i++) {
+            if ((page.get(offset + i) & 0xFF) != contactId.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes String.hashCode of a slot's ID without creating the String
+     */
+    private int idHash(int slot) {
+        long meta = meta(slot);
+        if ((meta & ContactRecordLayout.WIDE) != 0) {
+            return wideContacts.get(slot).getContactId().hashCode();
+        }
+        ByteBuffer page = pages[slot >>> PAGE_SHIFT];
+        int offset = recordOffset(slot) + TEXT_OFFSET + ContactRecordLayout.ID_OFFSET;
+        int hash = 0;
+        for (int i = 0, length = ContactRecordLayout.idLength(meta); i < length; i++) {
+            hash = 31 * hash + (page.get(offset + i) & 0xFF);
+        }
+        return hash;
+    }
+
+    private int entry(int position) {
+        return index.getInt(position << 2);
+    }
+
+    private void setEntry(int position, int entry) {
+        // A resize fills a new index, which no snapshot shares
+        if (snapshot != null && snapshot.index == index) {
+            snapshot.save(snapshot.pageCount + position / SNAPSHOT_INDEX_CHUNK);
+        }
+        index.putInt(position << 2, entry);
+    }
+
+    /**
+     * Saves the page holding a slot for a running snapshot before the slot is
+     * changed. Called with the write lock held.
+     */
+    private void saveForSnapshot(int slot) {
+        if (snapshot != null && (slot >>> PAGE_SHIFT) < snapshot.pageCount) {
+            snapshot.save(slot >>> PAGE_SHIFT);
+        }
+    }
+
+    private void addToIndex(int slot, int hash) {
+        int mask = indexCapacity - 1;
+        int i = ContactRecordLayout.spread(hash) & mask;
+        while (entry(i) != 0) {
+            i = (i + 1) & mask;
+        }
+        setEntry(i, slot + 1);
+    }
+
+    /**
+     * Empties an index entry and shifts later entries of the probe run back,
+     * so lookups never need tombstones
+     */
+    private void removeFromIndex(int position) {
+        int mask = indexCapacity - 1;
+        int hole = position;
+        setEntry(hole, 0);
+        for (int i = (hole + 1) & mask; entry(i) != 0; i = (i + 1) & mask) {
+            int home = ContactRecordLayout.spread(idHash(entry(i) - 1)) & mask;
+            // The entry may move back only if the hole lies between its home and where it sits
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                setEntry(hole, entry(i));
+                setEntry(i, 0);
+                hole = i;
+            }
+        }
+    }
+
+    private void resizeIndex(int capacity) {
+        if (capacity > MAX_INDEX_CAPACITY) {
+            throw new IllegalStateException("Off-heap index cannot grow past " + MAX_INDEX_CAPACITY + " entries");
+        }
+        ByteBuffer old = index;
+        int oldCapacity = indexCapacity;
+        index = allocate((long) capacity * Integer.BYTES);
+        indexCapacity = capacity;
+        for (int i = 0; i < oldCapacity; i++) {
+            int entry = old.getInt(i << 2);
+            if (entry != 0) {
+                addToIndex(entry - 1, idHash(entry - 1));
+            }
+        }
+    }
+
+    private static int indexCapacityFor(int expectedContacts) {
+        int capacity = MIN_INDEX_CAPACITY;
+        while (capacity / 4 * 3 < expectedContacts && capacity < MAX_INDEX_CAPACITY) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    private int allocateSlot() {
+        if (freeHead >= 0) {
+            int slot = freeHead;
+            freeHead = (int) meta(slot) - 1;
+            return slot;
+        }
+        int slot = slotCount++;
+        int page = slot >>> PAGE_SHIFT;
+        if (page == pages.length) {
+            pages = Arrays.copyOf(pages, page + 1);
+            pages[page] = allocate((long) PAGE_SIZE * RECORD_BYTES);
+        }
+        return slot;
+    }
+
+    private static ByteBuffer allocate(long bytes) {
+        return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Changes one field of a live slot. Called with the write lock held.
+     * @return The previous value of the field
+     */
+    private String updateSlot(int slot, ContactField field, String value) {
+        long meta = meta(slot);
+        if ((meta & ContactRecordLayout.WIDE) != 0) {
+            Contact contact = wideContacts.get(slot);
+            String previous = field.get(contact);
+            field.set(contact, value);
+            return previous;
+        }
+        if (field == ContactField.PHONE) {
+            setMeta(slot, (meta & ~ContactRecordLayout.PHONE_MASK) | ContactRecordLayout.encodePhone(value));
+            return ContactRecordLayout.decodePhone(meta);
+        }
+        if (!ContactRecordLayout.isLatin1(value)) {
+            // The new value needs two bytes per character; move the whole contact to the heap
+            Contact contact = materialize(slot);
+            String previous = field.get(contact);
+            field.set(contact, value);
+            wideContacts.put(slot, contact);
+            setMeta(slot, ContactRecordLayout.LIVE | ContactRecordLayout.WIDE);
+            return previous;
+        }
+        ByteBuffer page = pages[slot >>> PAGE_SHIFT];
+        int offset = recordOffset(slot) + TEXT_OFFSET + ContactRecordLayout.offset(field);
+        int shift = ContactRecordLayout.lengthShift(field);
+        String previous = readText(page, offset, (int) ((meta & ContactRecordLayout.lengthMask(field)) >>> shift));
+        writeText(page, offset, value);
+        setMeta(slot, (meta & ~ContactRecordLayout.lengthMask(field)) | (long) value.length() << shift);
+        return previous;
+    }
+
+    private static int recordOffset(int slot) {
+        return (slot & PAGE_MASK) * RECORD_BYTES;
+    }
+
+    private long meta(int slot) {
+        return pages[slot >>> PAGE_SHIFT].getLong(recordOffset(slot) + META_OFFSET);
+    }
+
+    private void setMeta(int slot, long meta) {
+        pages[slot >>> PAGE_SHIFT].putLong(recordOffset(slot) + META_OFFSET, meta);
+    }
+
+    private int version(int slot) {
+        return pages[slot >>> PAGE_SHIFT].getInt(recordOffset(slot) + VERSION_OFFSET);
+    }
+
+    private void setVersion(int slot, int version) {
+        pages[slot >>> PAGE_SHIFT].putInt(recordOffset(slot) + VERSION_OFFSET, version);
+    }
+
+    private Contact materialize(int slot) {
+        Contact contact = readContact(slot);
+        contact.setVersion(version(slot));
+        return contact;
+    }
+
+    private Contact readContact(int slot) {
+        long meta = meta(slot);
+        if ((meta & ContactRecordLayout.WIDE) != 0) {
+            return copy(wideContacts.get(slot));
+        }
+        ByteBuffer page = pages[slot >>> PAGE_SHIFT];
+        int offset = recordOffset(slot) + TEXT_OFFSET;
+        return new Contact(
+                readText(page, offset + ContactRecordLayout.ID_OFFSET, ContactRecordLayout.idLength(meta)),
+                readText(page, offset + ContactRecordLayout.FIRST_NAME_OFFSET, ContactRecordLayout.firstNameLength(meta)),
+                readText(page, offset + ContactRecordLayout.LAST_NAME_OFFSET, ContactRecordLayout.lastNameLength(meta)),
+                ContactRecordLayout.decodePhone(meta),
+                readText(page, offset + ContactRecordLayout.ADDRESS_OFFSET, ContactRecordLayout.addressLength(meta)));
+    }
+
+    private static Contact copy(Contact contact) {
+        return new Contact(contact.getContactId(), contact.getFirstName(), contact.getLastName(),
+                contact.getPhone(), contact.getAddress());
+    }
+
+    private static String readText(ByteBuffer page, int offset, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (page.get(offset + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    private static void writeText(ByteBuffer page, int offset, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            page.put(offset + i, (byte) value.charAt(i));
+        }
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        buffer.putShort((short) value.length());
+        for (int i = 0; i < value.length(); i++) {
+            buffer.putChar(value.charAt(i));
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        char[] chars = new char[buffer.getShort()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = buffer.getChar();
+        }
+        return new String(chars);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position);
+            if (read < 0) {
+                throw new IOException("Contact snapshot is truncated");
+            }
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.grandstrand;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the OffHeapContactStore class.
+ * Tests the store through ContactService and against a HashMap of expected contacts.
+ */
+public class OffHeapContactStoreTest {
+    private ContactService contactService;
+
+    @BeforeEach
+    public void setUp() {
+        contactService = new ContactService(new OffHeapContactStore());
+    }
+
+    @Test
+    public void testAddGetAndDeleteContact() {
+        contactService.addContact(new Contact("123", "John", "Doe", "0123456789", "123 Main St"));
+        Contact contact = contactService.getContact("123");
+        
+        assertEquals("John", contact.getFirstName());
+        assertEquals("Doe", contact.getLastName());
+        assertEquals("0123456789", contact.getPhone());
+        assertEquals("123 Main St", contact.getAddress());
+        
+        contactService.deleteContact("123");
+        assertFalse(contactService.contactExists("123"));
+        assertEquals(0, contactService.getContactCount());
+    }
+
+    @Test
+    public void testUpdateFieldsAndCopies() {
+        contactService.addContact(new Contact("123", "John", "Doe", "1234567890", "123 Main St"));
+        contactService.getContact("123").setFirstName("Changed");
+        contactService.updateFirstName("123", "Jane");
+        contactService.updatePhone("123", "0987654321");
+        contactService.updateAddress("123", "\u00c5rhus Gade 1");
+        contactService.updateLastName("123", "\u0141ukasz");
+        
+        Contact contact = contactService.getContact("123");
+        assertEquals("Jane", contact.getFirstName());
+        assertEquals("\u0141ukasz", contact.getLastName());
+        assertEquals("0987654321", contact.getPhone());
+        assertEquals("\u00c5rhus Gade 1", contact.getAddress());
+    }
+
+    @Test
+    public void testFreedSlotsAreReused() {
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 1000; i++) {
+                contactService.addContact(new Contact("id" + i, "John", "Doe", "1234567890", "Round " + round));
+            }
+            for (int i = 0; i < 1000; i++) {
+                assertEquals("Round " + round, contactService.getContact("id" + i).getAddress());
+                contactService.deleteContact("id" + i);
+            }
+        }
+        assertEquals(0, contactService.getContactCount());
+    }
+
+    @Test
+    public void testRandomOperationsMatchHashMap() {
+        Map<String, String> expectedNames = new HashMap<>();
+        Random random = new Random(7);
+        
+        for (int i = 0; i < 200000; i++) {
+            String contactId = Integer.toString(random.nextInt(20000), 36);
+            String name = Integer.toString(random.nextInt(1000000), 36);
+            int operation = random.nextInt(3);
+            if (operation == 0 && !expectedNames.containsKey(contactId)) {
+                contactService.addContact(new Contact(contactId, name, "Doe", "1234567890", "123 Main St"));
+                expectedNames.put(contactId, name);
+            } else if (operation == 1 && expectedNames.remove(contactId) != null) {
+                contactService.deleteContact(contactId);
+            } else if (operation == 2 && expectedNames.containsKey(contactId)) {
+                contactService.updateFirstName(contactId, name);
+                expectedNames.put(contactId, name);
+            }
+        }
+        
+        assertEquals(expectedNames.size(), contactService.getContactCount());
+        for (Map.Entry<String, String> entry : expectedNames.entrySet()) {
+            assertEquals(entry.getValue(), contactService.getContact(entry.getKey()).getFirstName());
+        }
+    }
+
+    @Test
+    public void testSnapshotRoundTrip(@TempDir Path tempDir) throws IOException {
+        OffHeapContactStore store = new OffHeapContactStore();
+        for (int i = 0; i < 70000; i++) {
+            store.insert(new Contact(Integer.toString(i), "John", "Doe", "1234567890", "Street " + i));
+        }
+        store.remove("5");
+        store.insert(new Contact("wide", "\u674e", "Doe", "0987654321", "123 Main St"));
+        Path file = tempDir.resolve("contacts.snapshot");
+        store.writeSnapshot(file);
+        
+        OffHeapContactStore loaded = OffHeapContactStore.openSnapshot(file);
+        assertEquals(store.size(), loaded.size());
+        assertNull(loaded.get("5"));
+        assertEquals("Street 69999", loaded.get("69999").getAddress());
+        assertEquals("\u674e", loaded.get("wide").getFirstName());
+        
+        // The loaded store keeps working, and its changes never reach the file
+        loaded.insert(new Contact("5", "Jane", "Smith", "0987654321", "456 Oak Ave"));
+        loaded.update("6", ContactField.FIRST_NAME, "Ann");
+        loaded.insert(new Contact("new", "Jane", "Smith", "0987654321", "456 Oak Ave"));
+        assertEquals("Ann", loaded.get("6").getFirstName());
+        
+        OffHeapContactStore reloaded = OffHeapContactStore.openSnapshot(file);
+        assertNull(reloaded.get("5"));
+        assertNull(reloaded.get("new"));
+        assertEquals("John", reloaded.get("6").getFirstName());
+    }
+
+    @Test
+    public void testSnapshotIsConsistentWhileWritersRun(@TempDir Path tempDir) throws Exception {
+        OffHeapContactStore store = new OffHeapContactStore();
+        for (int i = 0; i < 140000; i++) {
+            store.insert(new Contact(Integer.toString(i), "N0", "Doe", "1234567890", "Street 0"));
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            Random random = new Random(42);
+            for (int k = 1; !done.get(); k++) {
+                // Each patch changes both fields at once, so a snapshot must hold both or neither
+                String id = Integer.toString(random.nextInt(140000));
+                store.patch(id, new ContactPatch().firstName("N" + k % 1000).address("Street " + k % 1000),
+                        ContactStore.ANY_VERSION);
+                String moved = Integer.toString(random.nextInt(140000));
+                Contact removed = store.remove(moved);
+                if (removed != null) {
+                    store.insert(removed);
+                }
+            }
+        });
+        writer.start();
+        Path file = tempDir.resolve("contacts.snapshot");
+        for (int i = 0; i < 5; i++) {
+            store.writeSnapshot(file);
+        }
+        done.set(true);
+        writer.join();
+        
+        OffHeapContactStore loaded = OffHeapContactStore.openSnapshot(file);
+        assertEquals(loaded.size(), StreamSupport.stream(loaded.spliterator(), false).count());
+        StreamSupport.stream(loaded.spliterator(), false).forEach(contact -> {
+            assertEquals(contact.getFirstName().substring(1), contact.getAddress().substring(7));
+            assertEquals(contact.getFirstName(), loaded.get(contact.getContactId()).getFirstName());
+        });
+    }
+
+    @Test
+    public void testSnapshotAsync(@TempDir Path tempDir) throws Exception {
+        OffHeapContactStore store = new OffHeapContactStore();
+        store.insert(new Contact("123", "John", "Doe", "1234567890", "123 Main St"));
+        Path file = tempDir.resolve("contacts.snapshot");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        
+        store.writeSnapshotAsync(file, executor).get();
+        executor.shutdown();
+        
+        assertEquals("John", OffHeapContactStore.openSnapshot(file).get("123").getFirstName());
+    }
+
+    @Test
+    public void testOpenSnapshotRejectsOtherFiles(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("not-a-snapshot");
+        Files.write(file, new byte[100]);
+        
+        assertThrows(IOException.class, () -> {
+            OffHeapContactStore.openSnapshot(file);
+        });
+    }
+
+    @Test
+    public void testParallelQuerySeesEveryContactOnce() {
+        int count = 5000;
+        for (int i = 0; i < count; i++) {
+            contactService.addContact(new Contact(Integer.toString(i), "John", "Doe", "1234567890", "123 Main St"));
+        }
+        contactService.deleteContact("7");
+        
+        Map<String, Long> seen = contactService.query(new ContactQuery()).parallel()
+                .collect(Collectors.groupingBy(Contact::getContactId, Collectors.counting()));
+        assertEquals(count - 1, seen.size());
+        assertFalse(seen.containsKey("7"));
+        assertTrue(seen.values().stream().allMatch(n -> n == 1));
+    }
+
+    @Test
+    public void testPatchAndVersions() {
+        contactService.addContact(new Contact("123", "John", "Doe", "1234567890", "123 Main St"));
+        contactService.updatePhone("123", "0987654321");
+        assertEquals(1, contactService.getContact("123").getVersion());
+        
+        assertFalse(contactService.updateContact("123", new ContactPatch().firstName("Jane"), 0));
+        assertTrue(contactService.updateContact("123",
+                new ContactPatch().firstName("Jane").lastName("\u674e").address("9 Elm Ave"), 1));
+        Contact contact = contactService.getContact("123");
+        assertEquals("Jane", contact.getFirstName());
+        assertEquals("\u674e", contact.getLastName());
+        assertEquals("0987654321", contact.getPhone());
+        assertEquals("9 Elm Ave", contact.getAddress());
+        assertEquals(2, contact.getVersion());
+    }
+}
@@ -0,0 +1,390 @@
+package com.grandstrand;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * ShardedContactStore class spreading contacts over independent stores by a
+ * hash of their ID. Each shard grows on its own, so a resize only copies one
+ * shard's table instead of the whole contact set, and writers to different
+ * shards never contend. Single-contact operations go straight to one shard and
+ * keep that shard's atomicity. Batches are split by shard and the shards apply
+ * their parts in parallel; if any part is rejected every shard undoes its part,
+ * so a batch is still all or nothing.
+ * <p>
+ * Use it through ContactService, e.g. new ContactService(new ShardedContactStore()),
+ * which keeps the same methods and validation for any store.
+ */
+public class ShardedContactStore implements ContactStore {
+    /**
+     * Number of shards used by the no-argument constructor
+     */
+    public static final int DEFAULT_SHARDS = 16;
+
+    // Smaller batches are cheaper to apply on the calling thread than to fork
+    private static final int PARALLEL_BATCH = 4096;
+    private static final int MAX_SHARDS = 1 << 16;
+
+    private final ContactStore[] shards;
+    private final int mask;
+
+    /**
+     * Constructor creating DEFAULT_SHARDS HeapContactStore shards
+     */
+    public ShardedContactStore() {
+        this(DEFAULT_SHARDS);
+    }
+
+    /**
+     * Constructor creating HeapContactStore shards
+     * @param shardCount The number of shards, a power of two up to 65536
+     * @throws IllegalArgumentException if shardCount is not a power of two in range
+     */
+    public ShardedContactStore(int shardCount) {
+        this(shardCount, HeapContactStore::new);
+    }
+
+    /**
+     * Constructor creating each shard from a factory, e.g. IndexedContactStore or
+     * OffHeapContactStore shards
+     * @param shardCount The number of shards, a power of two up to 65536
+     * @param shardFactory Creates one new, empty store per shard
+     * @throws IllegalArgumentException if shardCount is not a power of two in range,
+     *         or the factory is null or returns null
+     */
+    public ShardedContactStore(int shardCount, Supplier<? extends ContactStore> shardFactory) {
+        if (shardCount < 1 || shardCount > MAX_SHARDS || Integer.bitCount(shardCount) != 1) {
+            throw new IllegalArgumentException("Shard count must be a power of two up to " + MAX_SHARDS
+                    + ": " + shardCount);
+        }
+        if (shardFactory == null) {
+            throw new IllegalArgumentException("Shard factory cannot be null");
+        }
+        this.shards = new ContactStore[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = shardFactory.get();
+            if (shards[i] == null) {
+                throw new IllegalArgumentException("Shard factory returned null");
+            }
+        }
+        this.mask = shardCount - 1;
+    }
+
+    /**
+     * Gets the number of shards
+     * @return The shard count
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Picks the shard for an ID. The hash is scrambled and its high bits used,
+     * because HeapContactStore shards index their own tables with the low bits;
+     * taking the shard from the same bits would leave most of each table empty.
+     */
+    private int shardIndex(String contactId) {
+        return ((contactId.hashCode() * 0x9E3779B9) >>> 16) & mask;
+    }
+
+    private ContactStore shardFor(String contactId) {
+        return shards[shardIndex(contactId)];
+    }
+
+    @Override
+    public Contact get(String contactId) {
+        return shardFor(contactId).get(contactId);
+    }
+
+    @Override
+    public boolean contains(String contactId) {
+        return shardFor(contactId).contains(contactId);
+    }
+
+    @Override
+    public boolean insert(Contact contact) {
+        return shardFor(contact.getContactId()).insert(contact);
+    }
+
+    @Override
+    public Contact remove(String contactId) {
+        return shardFor(contactId).remove(contactId);
+    }
+
+    @Override
+    public String update(String contactId, ContactField field, String value) {
+        return shardFor(contactId).update(contactId, field, value);
+    }
+
+    @Override
+    public String revert(String contactId, ContactField field, String previous) {
+        return shardFor(contactId).revert(contactId, field, previous);
+    }
+
+    @Override
+    public ContactStatus patch(String contactId, ContactPatch patch, int expectedVersion) {
+        return shardFor(contactId).patch(contactId, patch, expectedVersion);
+    }
+
+    @Override
+    public int insertAll(Contact[] batch) {
+        return applyAll(batch.length, i -> batch[i].getContactId(), i -> insert(batch[i]),
+                i -> remove(batch[i].getContactId()));
+    }
+
+    @Override
+    public int removeAll(String[] contactIds) {
+        Contact[] removed = new Contact[contactIds.length];
+        return applyAll(contactIds.length, i -> contactIds[i], i -> (removed[i] = remove(contactIds[i])) != null,
+                i -> insert(removed[i]));
+    }
+
+    @Override
+    public int updateAll(ContactUpdate[] updates) {
+        String[] previous = new String[updates.length];
+        return applyAll(updates.length, i -> updates[i].getContactId(),
+                i -> (previous[i] = update(updates[i].getContactId(), updates[i].getField(),
+                        updates[i].getValue())) != null,
+                i -> revert(updates[i].getContactId(), updates[i].getField(), previous[i]));
+    }
+
+    /**
+     * Applies a batch all or nothing. Items are grouped by shard, keeping their
+     * order within a shard, so repeated IDs meet in the same shard in batch order.
+     * Each shard runs its group on the common fork-join pool and undoes it on its
+     * own failure; once all are done, the shards that succeeded undo theirs if any failed.
+     * @param count The number of items
+     * @param idOf Gets the contact ID of an item
+     * @param apply Applies an item, returning false if it was rejected
+     * @param undo Reverses an applied item
+     * @return -1 if every item was applied, otherwise the lowest rejected index found
+     */
+    private int applyAll(int count, IntFunction<String> idOf, IntPredicate apply, IntConsumer undo) {
+        if (count < PARALLEL_BATCH || shards.length == 1) {
+            return applyInOrder(null, count, apply, undo);
+        }
+        int[][] groups = groupByShard(count, idOf);
+        int[] failed = new int[shards.length];
+        IntStream.range(0, shards.length).parallel()
+                .forEach(shard -> failed[shard] = applyInOrder(groups[shard], groups[shard].length, apply, undo));
+        int failedIndex = -1;
+        for (int index : failed) {
+            if (index >= 0 && (failedIndex < 0 || index < failedIndex)) {
+                failedIndex = index;
+            }
+        }
+        if (failedIndex >= 0) {
+            for (int shard = 0; shard < shards.length; shard++) {
+                if (failed[shard] < 0) {
+                    int[] group = groups[shard];
+                    for (int j = group.length - 1; j >= 0; j--) {
+                        undo.accept(group[j]);
+                    }
+                }
+            }
+        }
+        return failedIndex;
+    }
+
+    /**
+     * Applies items in order and undoes them in reverse if one is rejected
+     * @param indexes The item indexes to apply, or null for 0 to count - 1
+     * @return -1 if all were applied, otherwise the rejected item index
+     */
+    private static int applyInOrder(int[] indexes, int count, IntPredicate apply, IntConsumer undo) {
+        for (int i = 0; i < count; i++) {
+            if (!apply.test(indexes == null ? i : indexes[i])) {
+                for (int j = i - 1; j >= 0; j--) {
+                    undo.accept(indexes == null ? j : indexes[j]);
+                }
+                return indexes == null ? i : indexes[i];
+            }
+        }
+        return -1;
+    }
+
+    private int[][] groupByShard(int count, IntFunction<String> idOf) {
+        int[] shardOf = new int[count];
+        int[] sizes = new int[shards.length];
+        for (int i = 0; i < count; i++) {
+            shardOf[i] = shardIndex(idOf.apply(i));
+            sizes[shardOf[i]]++;
+        }
+        int[][] groups = new int[shards.length][];
+        for (int shard = 0; shard < shards.length; shard++) {
+            groups[shard] = new int[sizes[shard]];
+            sizes[shard] = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            groups[shardOf[i]][sizes[shardOf[i]]++] = i;
+        }
+        return groups;
+    }
+
+    /**
+     * Sums the size() of each shard, so it costs whatever the shards' own
+     * size() costs, once per shard.
+     */
+    @Override
+    public int size() {
+        long size = 0;
+        for (ContactStore shard : shards) {
+            size += shard.size();
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Passes each shard its share of the expected contacts, plus some slack for
+     * the hash spreading them a little unevenly
+     */
+    @Override
+    public void ensureCapacity(int expectedContacts) {
+        int perShard = expectedContacts / shards.length;
+        perShard += perShard / 16 + 1;
+        for (ContactStore shard : shards) {
+            shard.ensureCapacity(perShard);
+        }
+    }
+
+    @Override
+    public Spliterator<Contact> spliterator() {
+        return new ShardSpliterator(shards, 0, shards.length);
+    }
+
+    @Override
+    public List<Contact> findByPhone(String phone) {
+        List<Contact> matches = new ArrayList<>();
+        for (ContactStore shard : shards) {
+            matches.addAll(shard.findByPhone(phone));
+        }
+        return matches;
+    }
+
+    @Override
+    public List<Contact> findByLastName(String lastName) {
+        List<Contact> matches = new ArrayList<>();
+        for (ContactStore shard : shards) {
+            matches.addAll(shard.findByLastName(lastName));
+        }
+        return matches;
+    }
+
+    @Override
+    public List<Contact> findByAddressPrefix(String prefix, int limit) {
+        List<Contact> matches = new ArrayList<>();
+        for (int i = 0; i < shards.length && matches.size() < limit; i++) {
+            matches.addAll(shards[i].findByAddressPrefix(prefix, limit - matches.size()));
+        }
+        return matches;
+    }
+
+    @Override
+    public List<Contact> findByNamePrefix(String prefix, int limit) {
+        List<Contact> matches = new ArrayList<>();
+        for (int i = 0; i < shards.length && matches.size() < limit; i++) {
+            matches.addAll(shards[i].findByNamePrefix(prefix, limit - matches.size()));
+        }
+        return matches;
+    }
+
+    /**
+     * Takes the closest limit contacts of every shard, which between them hold
+     * the closest limit overall, and orders those again
+     */
+    @Override
+    public List<Contact> findBySimilarName(String name, int maxDistance, int limit) {
+        List<Contact> matches = new ArrayList<>();
+        for (ContactStore shard : shards) {
+            matches.addAll(shard.findBySimilarName(name, maxDistance, limit));
+        }
+        return NameTrigramIndex.merge(matches, name, maxDistance, limit);
+    }
+
+    /**
+     * ShardSpliterator class walking a range of shards one after another.
+     * It splits by halving the range of shards, and splits the last shard with
+     * that shard's own spliterator, so parallel streams spread across shards first.
+     */
+    private static final class ShardSpliterator implements Spliterator<Contact> {
+        private final ContactStore[] shards;
+        private final int to;
+        private int from;
+        private Spliterator<Contact> current;
+
+        ShardSpliterator(ContactStore[] shards, int from, int to) {
+            this.shards = shards;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Contact> action) {
+            while (true) {
+                if (current == null) {
+                    if (from >= to) {
+                        return false;
+                    }
+                    current = shards[from++].spliterator();
+                }
+                if (current.tryAdvance(action)) {
+                    return true;
+                }
+                current = null;
+            }
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Contact> action) {
+            if (current != null) {
+                current.forEachRemaining(action);
+                current = null;
+            }
+            while (from < to) {
+                shards[from++].spliterator().forEachRemaining(action);
+            }
+        }
+
+        @Override
+        public Spliterator<Contact> trySplit() {
+            if (current == null) {
+                if (to - from > 1) {
+                    int mid = (from + to) >>> 1;
+                    Spliterator<Contact> prefix = new ShardSpliterator(shards, from, mid);
+                    from = mid;
+                    return prefix;
+                }
+                if (from == to) {
+                    return null;
+                }
+                current = shards[from++].spliterator();
+            } else if (from < to) {
+                Spliterator<Contact> rest = new ShardSpliterator(shards, from, to);
+                from = to;
+                return rest;
+            }
+            return current.trySplit();
+        }
+
+        @Override
+        public long estimateSize() {
+            long size = current == null ? 0 : current.estimateSize();
+            for (int i = from; i < to; i++) {
+                size += shards[i].size();
+            }
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.NONNULL;
+        }
+    }
+}
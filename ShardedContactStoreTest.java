@@ -0,0 +1,159 @@
+package com.grandstrand;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ShardedContactStore class.
+ * Tests routing, cross-shard reads and all-or-nothing batches through ContactService.
+ */
+public class ShardedContactStoreTest {
+    // Above the size at which batches are applied by the shards in parallel
+    private static final int LARGE_BATCH = 10_000;
+
+    private ContactService contactService;
+
+    @BeforeEach
+    public void setUp() {
+        contactService = new ContactService(new ShardedContactStore());
+    }
+
+    private static List<Contact> contacts(int from, int to) {
+        List<Contact> batch = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            batch.add(new Contact(Integer.toString(i), "John", "Doe", "1234567890", "123 Main St"));
+        }
+        return batch;
+    }
+
+    @Test
+    public void testSingleContactOperations() {
+        contactService.addContact(new Contact("123", "John", "Doe", "1234567890", "123 Main St"));
+        contactService.updatePhone("123", "0987654321");
+        
+        assertEquals("0987654321", contactService.getContact("123").getPhone());
+        assertEquals(1, contactService.getContactCount());
+        assertThrows(IllegalArgumentException.class,
+                () -> contactService.addContact(new Contact("123", "Jane", "Doe", "1234567890", "123 Main St")));
+        assertThrows(IllegalArgumentException.class, () -> contactService.updatePhone("123", "12345"));
+        assertThrows(IllegalArgumentException.class, () -> contactService.getContact("missing"));
+        
+        contactService.deleteContact("123");
+        assertFalse(contactService.contactExists("123"));
+        assertEquals(0, contactService.getContactCount());
+    }
+
+    @Test
+    public void testContactsAreSpreadOverShards() {
+        List<HeapContactStore> shards = new ArrayList<>();
+        ShardedContactStore store = new ShardedContactStore(4, () -> {
+            HeapContactStore shard = new HeapContactStore();
+            shards.add(shard);
+            return shard;
+        });
+        for (Contact contact : contacts(0, 1000)) {
+            store.insert(contact);
+        }
+        
+        assertEquals(1000, store.size());
+        assertEquals(4, shards.size());
+        for (HeapContactStore shard : shards) {
+            assertTrue(shard.size() > 150, "shard size " + shard.size());
+        }
+        assertEquals(1000, store.spliterator().estimateSize());
+    }
+
+    @Test
+    public void testStreamsVisitEveryContactOnce() {
+        contactService.addContacts(contacts(0, LARGE_BATCH));
+        
+        assertEquals(LARGE_BATCH, contactService.query(new ContactQuery()).count());
+        assertEquals(LARGE_BATCH, contactService.query(new ContactQuery()).parallel()
+                .map(Contact::getContactId).collect(Collectors.toSet()).size());
+    }
+
+    @Test
+    public void testLargeAddBatchIsAllOrNothing() {
+        contactService.addContact(new Contact("9999", "Jane", "Doe", "1234567890", "123 Main St"));
+        BatchResult result = contactService.addContacts(contacts(0, LARGE_BATCH));
+        
+        assertFalse(result.isApplied());
+        assertEquals(1, result.getFailureCount());
+        assertEquals(ContactStatus.DUPLICATE_ID, result.getStatus(9999));
+        assertEquals(1, contactService.getContactCount());
+        
+        contactService.deleteContact("9999");
+        assertTrue(contactService.addContacts(contacts(0, LARGE_BATCH)).isApplied());
+        assertEquals(LARGE_BATCH, contactService.getContactCount());
+    }
+
+    @Test
+    public void testLargeDeleteAndUpdateBatchesAreAllOrNothing() {
+        contactService.addContacts(contacts(0, LARGE_BATCH));
+        List<String> ids = new ArrayList<>();
+        List<ContactUpdate> updates = new ArrayList<>();
+        for (int i = 0; i < LARGE_BATCH; i++) {
+            ids.add(Integer.toString(i));
+            updates.add(new ContactUpdate(Integer.toString(i), ContactField.LAST_NAME, "Smith"));
+        }
+        ids.add("missing");
+        updates.add(new ContactUpdate("missing", ContactField.LAST_NAME, "Smith"));
+        
+        assertFalse(contactService.deleteContacts(ids).isApplied());
+        assertEquals(LARGE_BATCH, contactService.getContactCount());
+        assertFalse(contactService.applyUpdates(updates).isApplied());
+        assertEquals("Doe", contactService.getContact("42").getLastName());
+        
+        updates.remove(updates.size() - 1);
+        assertTrue(contactService.applyUpdates(updates).isApplied());
+        assertEquals("Smith", contactService.getContact("42").getLastName());
+        ids.remove(ids.size() - 1);
+        assertTrue(contactService.deleteContacts(ids).isApplied());
+        assertEquals(0, contactService.getContactCount());
+    }
+
+    @Test
+    public void testIndexedShards() {
+        contactService = new ContactService(new ShardedContactStore(8,
+                () -> new IndexedContactStore(new HeapContactStore())));
+        contactService.addContacts(contacts(0, 100));
+        contactService.updateLastName("7", "Smith");
+        
+        assertEquals(99, contactService.findByLastName("Doe").size());
+        assertEquals("7", contactService.findByLastName("Smith").get(0).getContactId());
+        assertEquals(100, contactService.findByPhone("1234567890").size());
+        assertEquals(10, contactService.findByAddressPrefix("123 main", 10).size());
+        assertEquals(1, contactService.findByNamePrefix("smi", 10).size());
+    }
+
+    @Test
+    public void testIndexedShardsRankSimilarNames() {
+        contactService = new ContactService(new ShardedContactStore(8,
+                () -> new IndexedContactStore(new HeapContactStore())));
+        String[] names = {"Jonah", "Joe", "Jon", "John", "Johan", "Jo", "Jona", "Joan"};
+        for (int i = 0; i < names.length; i++) {
+            contactService.addContact(new Contact(Integer.toString(i), names[i], "Doe", "1234567890", "123 Main St"));
+        }
+        
+        assertEquals(List.of("Jon", "Jo", "Joan", "Joe", "John", "Jona"), contactService.findBySimilarName("jon", 1, 10)
+                .stream().map(Contact::getFirstName).collect(Collectors.toList()));
+        assertEquals(List.of("Jon", "Jo", "Joan"), contactService.findBySimilarName("jon", 1, 3)
+                .stream().map(Contact::getFirstName).collect(Collectors.toList()));
+        assertEquals(7, contactService.findBySimilarName("jon", 2, 7).size());
+    }
+
+    @Test
+    public void testInvalidShardCount() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardedContactStore(0));
+        assertThrows(IllegalArgumentException.class, () -> new ShardedContactStore(12));
+        assertThrows(IllegalArgumentException.class, () -> new ShardedContactStore(1 << 17));
+        assertThrows(IllegalArgumentException.class, () -> new ShardedContactStore(4, null));
+        assertEquals(1, new ShardedContactStore(1).getShardCount());
+    }
+}
@@ -0,0 +1,102 @@
+package com.grandstrand;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * SlotSpliterator walks the slots of a packed store (ColumnarContactStore or
+ * OffHeapContactStore), the hash classes of IncrementalContactStore, or the
+ * hash buckets of NumericIdContactStore, in chunks. Each chunk of slots is
+ * copied out under the store's read lock and handed on after the lock is
+ * released, so a long stream never blocks writers for more than one chunk. Splitting halves the remaining
+ * slot range, which lets a parallel stream spread a large store across the
+ * fork-join pool.
+ * <p>
+ * Like the iterators of ConcurrentHashMap, the traversal is weakly consistent:
+ * it sees every contact that stays stored for the whole traversal, and may or
+ * may not see contacts added, removed or changed while it runs.
+ */
+final class SlotSpliterator implements Spliterator<Contact> {
+    private static final int CHUNK_SLOTS = 1024;
+
+    /**
+     * SlotReader is implemented by the stores to copy out a range of slots
+     */
+    interface SlotReader {
+        /**
+         * Adds a copy of each live contact in a slot range to a list, under the read lock
+         * @param from The first slot
+         * @param to One past the last slot
+         * @param out The list to add to
+         */
+        void readSlots(int from, int to, List<Contact> out);
+    }
+
+    private final SlotReader reader;
+    private final List<Contact> chunk = new ArrayList<>();
+    private int chunkPosition;
+    private int next;
+    private final int end;
+
+    SlotSpliterator(SlotReader reader, int from, int end) {
+        this.reader = reader;
+        this.next = from;
+        this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Contact> action) {
+        while (chunkPosition == chunk.size()) {
+            if (!readChunk()) {
+                return false;
+            }
+        }
+        action.accept(chunk.get(chunkPosition++));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Contact> action) {
+        do {
+            while (chunkPosition < chunk.size()) {
+                action.accept(chunk.get(chunkPosition++));
+            }
+        } while (readChunk());
+    }
+
+    @Override
+    public Spliterator<Contact> trySplit() {
+        int remaining = end - next;
+        if (remaining < 2 * CHUNK_SLOTS) {
+            return null;
+        }
+        int middle = next + remaining / 2;
+        SlotSpliterator prefix = new SlotSpliterator(reader, next, middle);
+        next = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return (long) end - next + chunk.size() - chunkPosition;
+    }
+
+    @Override
+    public int characteristics() {
+        return NONNULL | CONCURRENT;
+    }
+
+    private boolean readChunk() {
+        if (next >= end) {
+            return false;
+        }
+        int to = Math.min(end, next + CHUNK_SLOTS);
+        chunk.clear();
+        chunkPosition = 0;
+        reader.readSlots(next, to, chunk);
+        next = to;
+        return true;
+    }
+}
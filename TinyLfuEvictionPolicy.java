@@ -0,0 +1,154 @@
+package com.grandstrand;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * TinyLfuEvictionPolicy class evicting by Window TinyLFU.
+ * New IDs enter a small LRU window (1% of the capacity). An ID pushed out of the
+ * window competes with the eviction candidate of the main cache, and the one
+ * with the higher estimated use count stays. The main cache is a segmented LRU:
+ * IDs enter its probation segment and move to the protected segment (80% of the
+ * main cache) when they are hit again.
+ * <p>
+ * Use counts come from a count-min sketch of 4-bit counters, so they cost a few
+ * bits per ID instead of an entry per ID ever seen. All counters are halved
+ * after every 10 x capacity additions, so counts from long ago fade.
+ */
+final class TinyLfuEvictionPolicy implements EvictionPolicy {
+    private final int capacity;
+    private final int windowCapacity;
+    private final int mainCapacity;
+    private final int protectedCapacity;
+    private final LinkedHashMap<String, Boolean> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Boolean> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Boolean> protectedIds = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+
+    TinyLfuEvictionPolicy(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.windowCapacity = Math.max(1, capacity / 100);
+        this.mainCapacity = capacity - windowCapacity;
+        this.protectedCapacity = mainCapacity * 4 / 5;
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public void recordAccess(String contactId) {
+        sketch.increment(contactId);
+        if (window.get(contactId) != null || protectedIds.get(contactId) != null) {
+            return;
+        }
+        if (probation.remove(contactId) != null) {
+            protectedIds.put(contactId, Boolean.TRUE);
+            if (protectedIds.size() > protectedCapacity) {
+                probation.put(removeEldest(protectedIds), Boolean.TRUE);
+            }
+        }
+    }
+
+    @Override
+    public String add(String contactId) {
+        sketch.increment(contactId);
+        window.put(contactId, Boolean.TRUE);
+        if (window.size() <= windowCapacity) {
+            return null;
+        }
+        String candidate = removeEldest(window);
+        if (probation.size() + protectedIds.size() < mainCapacity) {
+            probation.put(candidate, Boolean.TRUE);
+            return null;
+        }
+        if (mainCapacity == 0) {
+            return candidate;
+        }
+        LinkedHashMap<String, Boolean> victimSegment = probation.isEmpty() ? protectedIds : probation;
+        String victim = victimSegment.keySet().iterator().next();
+        if (sketch.frequency(candidate) <= sketch.frequency(victim)) {
+            return candidate;
+        }
+        victimSegment.remove(victim);
+        probation.put(candidate, Boolean.TRUE);
+        return victim;
+    }
+
+    @Override
+    public void remove(String contactId) {
+        if (window.remove(contactId) == null && probation.remove(contactId) == null) {
+            protectedIds.remove(contactId);
+        }
+    }
+
+    private static String removeEldest(LinkedHashMap<String, Boolean> segment) {
+        Iterator<String> eldest = segment.keySet().iterator();
+        String id = eldest.next();
+        eldest.remove();
+        return id;
+    }
+
+    /**
+     * FrequencySketch class estimating how often each ID was used, in four rows
+     * of 4-bit counters packed 16 to a long. An estimate is the smallest of the
+     * ID's four counters, so it can be too high (when IDs share counters) but
+     * never too low, and saturates at 15.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {
+            0x97CB3127L, 0xE57A6E7BL, 0x9E3779B9L, 0x5D4A2F1BL
+        };
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int counterMask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int longs = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+            this.table = new long[Math.min(longs, 1 << 26)];
+            this.counterMask = table.length * 16 - 1;
+            this.sampleSize = capacity <= Integer.MAX_VALUE / 10 ? 10 * capacity : Integer.MAX_VALUE;
+        }
+
+        private int counterIndex(int hash, int row) {
+            long h = (hash + SEEDS[row]) * SEEDS[row];
+            h += h >>> 32;
+            return (int) h & counterMask;
+        }
+
+        int frequency(String contactId) {
+            int hash = contactId.hashCode();
+            int frequency = 15;
+            for (int row = 0; row < SEEDS.length; row++) {
+                int counter = counterIndex(hash, row);
+                frequency = Math.min(frequency, (int) (table[counter >>> 4] >>> ((counter & 15) << 2)) & 15);
+            }
+            return frequency;
+        }
+
+        void increment(String contactId) {
+            int hash = contactId.hashCode();
+            for (int row = 0; row < SEEDS.length; row++) {
+                int counter = counterIndex(hash, row);
+                int shift = (counter & 15) << 2;
+                if (((table[counter >>> 4] >>> shift) & 15) < 15) {
+                    table[counter >>> 4] += 1L << shift;
+                }
+            }
+            if (++additions == sampleSize) {
+                additions /= 2;
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                }
+            }
+        }
+    }
+}
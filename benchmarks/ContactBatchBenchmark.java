@@ -0,0 +1,97 @@
+package com.grandstrand;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark comparing the batch API with the equivalent per-call loop.
+ * Each invocation loads a fresh service with the whole batch, so it measures
+ * one nightly-sync sized run rather than a single operation.
+ * The Sharded variants load a ShardedContactStore, whose shards grow one at a time.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ContactBatchBenchmark {
+    @Param({"1000000"})
+    private int rows;
+
+    private List<Contact> contacts;
+    private List<ContactUpdate> updates;
+    private ContactService loaded;
+
+    @Setup(Level.Trial)
+    public void createRows() {
+        contacts = new ArrayList<>(rows);
+        updates = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            String contactId = Integer.toString(i);
+            contacts.add(new Contact(contactId, "John", "Doe", "1234567890", "123 Main St"));
+            updates.add(new ContactUpdate(contactId, ContactField.PHONE, "0987654321"));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void loadService() {
+        loaded = new ContactService(rows);
+        loaded.addContacts(contacts);
+    }
+
+    @Benchmark
+    public ContactService addContactLoop() {
+        ContactService contactService = new ContactService();
+        for (Contact contact : contacts) {
+            contactService.addContact(contact);
+        }
+        return contactService;
+    }
+
+    @Benchmark
+    public BatchResult addContactsBatch() {
+        return new ContactService(rows).addContacts(contacts);
+    }
+
+    @Benchmark
+    public ContactService updatePhoneLoop() {
+        for (ContactUpdate update : updates) {
+            loaded.updatePhone(update.getContactId(), update.getValue());
+        }
+        return loaded;
+    }
+
+    @Benchmark
+    public BatchResult applyUpdatesBatch() {
+        return loaded.applyUpdates(updates);
+    }
+
+    @Benchmark
+    public ContactService addContactLoopSharded() {
+        ContactService contactService = new ContactService(new ShardedContactStore());
+        for (Contact contact : contacts) {
+            contactService.addContact(contact);
+        }
+        return contactService;
+    }
+
+    @Benchmark
+    public BatchResult addContactsBatchSharded() {
+        return new ContactService(new ShardedContactStore()).addContacts(contacts);
+    }
+}
@@ -0,0 +1,56 @@
+package com.grandstrand;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for constructing a Contact.
+ * constructContact uses the current validation; constructContactWithRegexPhone
+ * adds back the old phone.matches("\\d{10}") call so the two scores show the
+ * before/after difference in ops/sec.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ContactBenchmark {
+    private String contactId = "1234567890";
+    private String firstName = "John";
+    private String lastName = "Doe";
+    private String phone = "1234567890";
+    private String address = "123 Main St";
+
+    @Benchmark
+    public Contact constructContact() {
+        return new Contact(contactId, firstName, lastName, phone, address);
+    }
+
+    @Benchmark
+    public Contact constructContactWithRegexPhone() {
+        if (!phone.matches("\\d{10}")) {
+            throw new IllegalArgumentException("Phone must be exactly 10 digits and cannot be null");
+        }
+        return new Contact(contactId, firstName, lastName, phone, address);
+    }
+
+    @Benchmark
+    public boolean validatePhone() {
+        return ContactValidator.isValidPhone(phone);
+    }
+
+    @Benchmark
+    public boolean validatePhoneWithRegex() {
+        return phone.matches("\\d{10}");
+    }
+}
@@ -0,0 +1,165 @@
+package com.grandstrand;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ContactBenchmarkRunner runs the JMH suites the same way every time and checks
+ * them against a saved baseline.
+ * <p>
+ * Every suite runs once on one thread, then ContactServiceBenchmark runs again
+ * on 2, 4, ... threads up to the number of cores. All runs use the GC profiler,
+ * so the results include allocation rate (gc.alloc.rate.norm is bytes per
+ * operation), and each run writes JMH's JSON results to jmh-result-&lt;threads&gt;.json.
+ * <p>
+ * Usage: ContactBenchmarkRunner [include-regex] [baseline.csv]
+ * <br>
+ * or, from Maven: mvn -Pjmh test-compile exec:exec -Dbenchmark.args="[include-regex] [baseline.csv]"
+ * <br>
+ * Without a baseline file, or when it doesn't exist yet, the scores are saved to
+ * it. Otherwise any score more than 10% worse than the baseline, beyond the two
+ * runs' error margins, is reported and the runner exits with status 1.
+ */
+public final class ContactBenchmarkRunner {
+    private static final String DEFAULT_INCLUDE = "com\\.grandstrand\\.Contact.*Benchmark";
+    private static final String THREADED_INCLUDE = "com\\.grandstrand\\.ContactServiceBenchmark";
+    private static final double TOLERANCE = 0.10;
+
+    private ContactBenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        String include = args.length > 0 ? args[0] : DEFAULT_INCLUDE;
+        Path baseline = Paths.get(args.length > 1 ? args[1] : "jmh-baseline.csv");
+        
+        List<RunResult> results = new ArrayList<>(run(include, 1));
+        int cores = Runtime.getRuntime().availableProcessors();
+        if (include.equals(DEFAULT_INCLUDE) || include.equals(THREADED_INCLUDE)) {
+            for (int threads = 2; threads <= cores; threads *= 2) {
+                results.addAll(run(THREADED_INCLUDE, threads));
+            }
+        }
+        
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (RunResult result : results) {
+            scores.put(key(result.getParams()), new Score(result.getParams().getMode(), result.getPrimaryResult()));
+        }
+        if (!Files.exists(baseline)) {
+            save(baseline, scores);
+            System.out.println("Saved baseline to " + baseline);
+            return;
+        }
+        int regressions = compare(load(baseline), scores);
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) regressed against " + baseline);
+            System.exit(1);
+        }
+        System.out.println("No regressions against " + baseline);
+    }
+
+    private static Collection<RunResult> run(String include, int threads) throws RunnerException {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(include)
+                .threads(threads)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-result-" + threads + ".json");
+        return new Runner(options.build()).run();
+    }
+
+    private static String key(BenchmarkParams params) {
+        StringBuilder key = new StringBuilder(params.getBenchmark());
+        for (String name : params.getParamsKeys()) {
+            key.append(' ').append(name).append('=').append(params.getParam(name));
+        }
+        return key.append(" threads=").append(params.getThreads()).toString();
+    }
+
+    /**
+     * Prints every score that is worse than its baseline by more than the tolerance
+     * @return The number of regressions
+     */
+    private static int compare(Map<String, Score> baseline, Map<String, Score> scores) {
+        int regressions = 0;
+        for (Map.Entry<String, Score> entry : scores.entrySet()) {
+            Score before = baseline.get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            Score now = entry.getValue();
+            // Throughput is better when higher; the time modes are better when lower
+            double worse = now.higherIsBetter ? before.score - now.score : now.score - before.score;
+            if (worse > TOLERANCE * before.score && worse > before.error + now.error) {
+                System.out.printf("REGRESSION %s: %.3f -> %.3f %s%n", entry.getKey(), before.score, now.score,
+                        now.unit);
+                regressions++;
+            }
+        }
+        return regressions;
+    }
+
+    private static void save(Path file, Map<String, Score> scores) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Score> entry : scores.entrySet()) {
+            Score score = entry.getValue();
+            lines.add(entry.getKey() + "," + score.higherIsBetter + "," + score.score + "," + score.error + ","
+                    + score.unit);
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, Score> load(Path file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String[] columns = line.split(",");
+            scores.put(columns[0], new Score(Boolean.parseBoolean(columns[1]), Double.parseDouble(columns[2]),
+                    Double.parseDouble(columns[3]), columns[4]));
+        }
+        return scores;
+    }
+
+    /**
+     * Score class holding one benchmark's primary result
+     */
+    private static final class Score {
+        private final boolean higherIsBetter;
+        private final double score;
+        private final double error;
+        private final String unit;
+
+        Score(Mode mode, Result<?> result) {
+            this(mode == Mode.Throughput, result.getScore(), errorOf(result), result.getScoreUnit());
+        }
+
+        Score(boolean higherIsBetter, double score, double error, String unit) {
+            this.higherIsBetter = higherIsBetter;
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+        }
+
+        private static double errorOf(Result<?> result) {
+            // Single-iteration runs have no error estimate
+            return Double.isNaN(result.getScoreError()) ? 0 : result.getScoreError();
+        }
+    }
+}
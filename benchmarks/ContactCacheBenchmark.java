@@ -0,0 +1,88 @@
+package com.grandstrand;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for getContact through a CachingContactStore holding 1% of the
+ * contacts, in front of an OffHeapContactStore, for each eviction policy. Keys
+ * come from ContactKeys, and the cache stats (hit rate, loads, evictions) are
+ * printed at the end of each trial, since the hit rate matters as much as the time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class ContactCacheBenchmark {
+    /**
+     * Policy enum naming the eviction policies under test
+     */
+    public enum Policy {
+        LRU,
+        CLOCK,
+        W_TINY_LFU
+    }
+
+    @Param({"1000000"})
+    private int size;
+
+    @Param({"LRU", "CLOCK", "W_TINY_LFU"})
+    private Policy policy;
+
+    @Param({"ZIPFIAN", "RANDOM"})
+    private ContactKeys.Distribution distribution;
+
+    private CachingContactStore cache;
+    private ContactService contactService;
+    private String[] ids;
+    private int[] draws;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        OffHeapContactStore backing = new OffHeapContactStore(size);
+        ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = Integer.toString(i);
+            backing.insert(new Contact(ids[i], "John", "Doe", "1234567890", "123 Main St"));
+        }
+        int capacity = size / 100;
+        switch (policy) {
+            case LRU:
+                cache = new CachingContactStore(backing, EvictionPolicy.lru(capacity));
+                break;
+            case CLOCK:
+                cache = new CachingContactStore(backing, EvictionPolicy.clock(capacity));
+                break;
+            default:
+                cache = new CachingContactStore(backing, EvictionPolicy.windowTinyLfu(capacity));
+        }
+        contactService = new ContactService(cache);
+        draws = ContactKeys.draws(distribution, size);
+    }
+
+    @TearDown(Level.Trial)
+    public void printStats() {
+        System.out.println(policy + " " + distribution + ": " + cache.getStats());
+    }
+
+    @Benchmark
+    public Contact getContact() {
+        return contactService.getContact(ids[draws[position++ & (ContactKeys.DRAWS - 1)]]);
+    }
+}
@@ -0,0 +1,82 @@
+package com.grandstrand;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for the cost of publishing to a ContactChangeFeed.
+ * Runs the same ContactService mutations without a feed and with one; the
+ * difference is the publishing overhead per operation. Publishing never waits
+ * for subscribers, so it costs the same whether they keep up or not.
+ * updateAndPoll also reads each change back through a subscription, polling
+ * in batches of 64, for the cost of a subscriber that keeps up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContactChangeFeedBenchmark {
+    private static final int SIZE = 10000;
+    private static final int POLL_BATCH = 64;
+
+    @Param({"false", "true"})
+    private boolean feed;
+
+    private ContactService contactService;
+    private ContactChangeFeed.Subscription subscription;
+    private String[] ids;
+    private int[] draws;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ContactChangeFeed changes = feed ? new ContactChangeFeed() : null;
+        contactService = new ContactService(new HeapContactStore(), null, changes);
+        ids = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            ids[i] = Integer.toString(i);
+            contactService.addContact(new Contact(ids[i], "John", "Doe", "1234567890", "123 Main St"));
+        }
+        subscription = feed ? changes.subscribe() : null;
+        draws = ContactKeys.draws(ContactKeys.Distribution.RANDOM, SIZE);
+    }
+
+    private String nextId() {
+        return ids[draws[next++ & (ContactKeys.DRAWS - 1)]];
+    }
+
+    @Benchmark
+    public void updatePhone() {
+        contactService.updatePhone(nextId(), "0987654321");
+    }
+
+    @Benchmark
+    public void deleteAndAdd() {
+        String id = nextId();
+        contactService.deleteContact(id);
+        contactService.addContact(new Contact(id, "John", "Doe", "1234567890", "123 Main St"));
+    }
+
+    @Benchmark
+    public void updateAndPoll(Blackhole blackhole) {
+        contactService.updatePhone(nextId(), "0987654321");
+        if (subscription != null && (next & (POLL_BATCH - 1)) == 0) {
+            subscription.poll(blackhole::consume, POLL_BATCH);
+        }
+    }
+}
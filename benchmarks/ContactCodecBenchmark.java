@@ -0,0 +1,215 @@
+package com.grandstrand;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark encoding and decoding one contact with ContactCodec, with Java
+ * serialization and with JSON. Contact is not Serializable, so the Java
+ * serialization case writes a Serializable copy of its fields, one stream per
+ * message as a request would. There is no JSON library in the build, so the JSON
+ * case uses a small hand-written writer and parser for the flat contact object;
+ * a general-purpose library does more work per field, so it is a lower bound.
+ * Each decode builds a validated Contact.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ContactCodecBenchmark {
+    private Contact contact;
+    private ByteBuffer buffer;
+    private ByteBuffer encoded;
+    private byte[] serialized;
+    private byte[] json;
+
+    /**
+     * SerializedContact class holding the fields of a contact for Java serialization
+     */
+    private static final class SerializedContact implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String contactId;
+        private final String firstName;
+        private final String lastName;
+        private final String phone;
+        private final String address;
+        private final int version;
+
+        SerializedContact(Contact contact) {
+            this.contactId = contact.getContactId();
+            this.firstName = contact.getFirstName();
+            this.lastName = contact.getLastName();
+            this.phone = contact.getPhone();
+            this.address = contact.getAddress();
+            this.version = contact.getVersion();
+        }
+
+        Contact toContact() {
+            Contact contact = new Contact(contactId, firstName, lastName, phone, address);
+            contact.setVersion(version);
+            return contact;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        contact = new Contact("1234567890", "John", "Doe", "1234567890", "123 Main St");
+        contact.setVersion(3);
+        buffer = ByteBuffer.allocate(ContactCodec.MAX_ENCODED_BYTES);
+        encoded = ByteBuffer.allocate(ContactCodec.MAX_ENCODED_BYTES);
+        ContactCodec.encode(contact, encoded);
+        encoded.flip();
+        serialized = serialize();
+        json = toJson();
+        System.out.printf("%nbytes: binary=%d java=%d json=%d%n", encoded.remaining(), serialized.length, json.length);
+    }
+
+    @Benchmark
+    public ByteBuffer encodeBinary() {
+        buffer.clear();
+        ContactCodec.encode(contact, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public Contact decodeBinary() {
+        return ContactCodec.decode(encoded.duplicate());
+    }
+
+    @Benchmark
+    public byte[] encodeJavaSerialization() throws IOException {
+        return serialize();
+    }
+
+    @Benchmark
+    public Contact decodeJavaSerialization() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return ((SerializedContact) in.readObject()).toContact();
+        }
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return toJson();
+    }
+
+    @Benchmark
+    public Contact decodeJson() {
+        return fromJson(new String(json, StandardCharsets.UTF_8));
+    }
+
+    private byte[] serialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new SerializedContact(contact));
+        }
+        return bytes.toByteArray();
+    }
+
+    private byte[] toJson() {
+        StringBuilder out = new StringBuilder(128).append('{');
+        appendField(out, "contactId", contact.getContactId()).append(',');
+        appendField(out, "firstName", contact.getFirstName()).append(',');
+        appendField(out, "lastName", contact.getLastName()).append(',');
+        appendField(out, "phone", contact.getPhone()).append(',');
+        appendField(out, "address", contact.getAddress()).append(',');
+        out.append("\"version\":").append(contact.getVersion()).append('}');
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static StringBuilder appendField(StringBuilder out, String name, String value) {
+        out.append('"').append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.append('"');
+    }
+
+    /**
+     * Parses the flat object toJson writes: string fields and one integer field, in any order
+     */
+    private static Contact fromJson(String text) {
+        String[] values = new String[5];
+        int version = 0;
+        int i = text.indexOf('{') + 1;
+        while (text.charAt(i) != '}') {
+            int nameEnd = text.indexOf('"', i + 1);
+            String name = text.substring(i + 1, nameEnd);
+            i = text.indexOf(':', nameEnd) + 1;
+            if (text.charAt(i) == '"') {
+                StringBuilder value = new StringBuilder();
+                for (i++; text.charAt(i) != '"'; i++) {
+                    char c = text.charAt(i);
+                    if (c == '\\') {
+                        c = text.charAt(++i);
+                        if (c == 'u') {
+                            c = (char) Integer.parseInt(text.substring(i + 1, i + 5), 16);
+                            i += 4;
+                        }
+                    }
+                    value.append(c);
+                }
+                i++;
+                values[fieldIndex(name)] = value.toString();
+            } else {
+                int end = i;
+                while (Character.isDigit(text.charAt(end))) {
+                    end++;
+                }
+                version = Integer.parseInt(text.substring(i, end));
+                i = end;
+            }
+            if (text.charAt(i) == ',') {
+                i++;
+            }
+        }
+        Contact contact = new Contact(values[0], values[1], values[2], values[3], values[4]);
+        contact.setVersion(version);
+        return contact;
+    }
+
+    private static int fieldIndex(String name) {
+        switch (name) {
+            case "contactId":
+                return 0;
+            case "firstName":
+                return 1;
+            case "lastName":
+                return 2;
+            case "phone":
+                return 3;
+            case "address":
+                return 4;
+            default:
+                throw new IllegalArgumentException("Unknown field: " + name);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.grandstrand;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for bulk CSV loading. Compares ContactCsv.importCsv with
+ * reading the file a line at a time and calling addContact for each row on
+ * one thread, and times ContactCsv.exportCsv of the same contacts. Each
+ * import goes into a new, pre-sized store; divide size by the time for rows per second.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ContactCsvBenchmark {
+    private static final String[] FIRST_NAMES = {"John", "Jane", "Bob", "Alice", "Joan", "Carl"};
+    private static final String[] STREETS = {"Main St", "Elm Ave", "Oak Rd", "Pine Ln"};
+
+    @Param({"2000000"})
+    private int size;
+
+    private Path directory;
+    private Path source;
+    private ContactService exported;
+    private ContactService imported;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("contact-csv");
+        source = directory.resolve("contacts.csv");
+        exported = new ContactService(size);
+        for (int i = 0; i < size; i++) {
+            exported.addContact(new Contact(Integer.toString(i), FIRST_NAMES[i % FIRST_NAMES.length], "Doe",
+                    Long.toString(2_000_000_000L + i), i % 1000 + " " + STREETS[i % STREETS.length]));
+        }
+        ContactCsv.exportCsv(exported, source);
+    }
+
+    @Setup(Level.Invocation)
+    public void newStore() {
+        imported = new ContactService(size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        for (String name : new String[] {"contacts.csv", "rejects.csv", "export.csv"}) {
+            Files.deleteIfExists(directory.resolve(name));
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public long importCsv() throws IOException {
+        return ContactCsv.importCsv(imported, source, directory.resolve("rejects.csv")).getImportedCount();
+    }
+
+    @Benchmark
+    public int importRowByRow() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",", -1);
+                imported.addContact(new Contact(fields[0], fields[1], fields[2], fields[3], fields[4]));
+            }
+        }
+        return imported.getContactCount();
+    }
+
+    @Benchmark
+    public long exportCsv() throws IOException {
+        return ContactCsv.exportCsv(exported, directory.resolve("export.csv"));
+    }
+}
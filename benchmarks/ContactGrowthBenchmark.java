@@ -0,0 +1,92 @@
+package com.grandstrand;
+
+/**
+ * ContactGrowthBenchmark loads contacts one addContact call at a time into an
+ * empty service and times every call, to show the pauses a store's growth puts
+ * into the tail of the add latency. JMH averages or samples calls, which hides
+ * the few calls that resize a table, so this is a plain timed loop: every add is
+ * recorded in a ContactMetrics histogram, and the slowest call is reported with
+ * the store size at which it happened.
+ * <p>
+ * Usage: ContactGrowthBenchmark [contacts] [HEAP|INCREMENTAL|SHARDED ...]
+ * <br>
+ * The default loads 100M contacts into each store, which needs a heap of about
+ * 24 GB (-Xms24g -Xmx24g). Run it with a low-pause collector such as
+ * -XX:+UseZGC, so garbage collection pauses don't hide the stores' own.
+ */
+public final class ContactGrowthBenchmark {
+    private static final int DEFAULT_CONTACTS = 100_000_000;
+    // Calls slower than this are counted as pauses
+    private static final long PAUSE_NANOS = 1_000_000;
+
+    private ContactGrowthBenchmark() {
+    }
+
+    /**
+     * StoreType enum naming the stores the benchmark can load
+     */
+    enum StoreType {
+        HEAP,
+        INCREMENTAL,
+        SHARDED;
+
+        ContactStore create() {
+            switch (this) {
+                case INCREMENTAL:
+                    return new IncrementalContactStore();
+                case SHARDED:
+                    return new ShardedContactStore();
+                default:
+                    return new HeapContactStore();
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        int contacts = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CONTACTS;
+        StoreType[] stores = StoreType.values();
+        if (args.length > 1) {
+            stores = new StoreType[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                stores[i - 1] = StoreType.valueOf(args[i]);
+            }
+        }
+        for (StoreType store : stores) {
+            load(store, contacts);
+            System.gc();
+        }
+    }
+
+    private static void load(StoreType store, int contacts) {
+        ContactService contactService = new ContactService(store.create());
+        ContactMetrics metrics = new ContactMetrics(1);
+        long maxNanos = 0;
+        int maxAt = 0;
+        int pauses = 0;
+        long started = System.nanoTime();
+        for (int i = 0; i < contacts; i++) {
+            Contact contact = new Contact(Integer.toString(i), "John", "Doe", "1234567890", "123 Main St");
+            long start = System.nanoTime();
+            contactService.addContact(contact);
+            long nanos = System.nanoTime() - start;
+            metrics.record(ContactMetrics.Operation.ADD, ContactStatus.OK, nanos);
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+                maxAt = i;
+            }
+            if (nanos > PAUSE_NANOS) {
+                pauses++;
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+
+        ContactMetricsSnapshot snapshot = metrics.snapshot();
+        ContactMetrics.Operation add = ContactMetrics.Operation.ADD;
+        System.out.printf("%s contacts=%d total=%dms mean=%.0fns p50=%dns p99=%dns p99.9=%dns p99.99=%dns"
+                        + " max=%.1fms at=%d pauses>1ms=%d%n",
+                store, contacts, elapsed / 1_000_000, snapshot.getMeanNanos(add),
+                snapshot.getPercentileNanos(add, 50), snapshot.getPercentileNanos(add, 99),
+                snapshot.getPercentileNanos(add, 99.9), snapshot.getPercentileNanos(add, 99.99),
+                maxNanos / 1e6, maxAt, pauses);
+    }
+}
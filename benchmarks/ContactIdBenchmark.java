@@ -0,0 +1,84 @@
+package com.grandstrand;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark comparing String-keyed and long-keyed lookups of numeric IDs.
+ * Runs getContact, contactExists on a missing ID, and a delete and re-add
+ * through ContactService over HeapContactStore and NumericIdContactStore.
+ * Each call builds its ID String fresh, as parsing a request would, so the
+ * String map hashes and compares its chars, and the ID is in the cache rather
+ * than behind a miss of its own.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContactIdBenchmark {
+    private static final int SIZE = 1_000_000;
+
+    /**
+     * StoreType enum naming the stores compared
+     */
+    public enum StoreType {
+        HEAP,
+        NUMERIC
+    }
+
+    @Param({"HEAP", "NUMERIC"})
+    private StoreType store;
+
+    private static final int FIRST_ID = 1_000_000_000;
+    private static final int FIRST_MISSING_ID = 2_000_000_000;
+
+    private ContactService contactService;
+    private int[] draws;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contactService = new ContactService(store == StoreType.HEAP
+                ? new HeapContactStore(SIZE) : new NumericIdContactStore(SIZE));
+        for (int i = 0; i < SIZE; i++) {
+            contactService.addContact(new Contact(Integer.toString(FIRST_ID + i), "John", "Doe", "1234567890",
+                    "123 Main St"));
+        }
+        draws = ContactKeys.draws(ContactKeys.Distribution.RANDOM, SIZE);
+    }
+
+    private int nextDraw() {
+        return draws[next++ & (ContactKeys.DRAWS - 1)];
+    }
+
+    @Benchmark
+    public Contact getContact() {
+        return contactService.getContact(Integer.toString(FIRST_ID + nextDraw()));
+    }
+
+    @Benchmark
+    public boolean contactExistsMiss() {
+        return contactService.contactExists(Integer.toString(FIRST_MISSING_ID + nextDraw()));
+    }
+
+    @Benchmark
+    public void deleteAndAdd() {
+        String id = Integer.toString(FIRST_ID + nextDraw());
+        contactService.deleteContact(id);
+        contactService.addContact(new Contact(id, "John", "Doe", "1234567890", "123 Main St"));
+    }
+}
@@ -0,0 +1,82 @@
+package com.grandstrand;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for sustained mutation throughput with the write-ahead log on and off.
+ * syncBatchSize 0 runs without a journal; otherwise it is the number of records
+ * per fsync, with a 10 ms background sync as in a typical deployment.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContactJournalBenchmark {
+    private static final int CONTACTS = 100000;
+
+    @Param({"0", "1", "64", "1024"})
+    private int syncBatchSize;
+
+    private Path log;
+    private JournaledContactStore journal;
+    private ContactService contactService;
+    private String[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ContactStore store = new HeapContactStore();
+        if (syncBatchSize > 0) {
+            log = Files.createTempFile("contacts", ".log");
+            journal = JournaledContactStore.open(log, store, syncBatchSize, 10);
+            store = journal;
+        }
+        contactService = new ContactService(store);
+        ids = new String[CONTACTS];
+        for (int i = 0; i < CONTACTS; i++) {
+            ids[i] = Integer.toString(i);
+            contactService.addContact(new Contact(ids[i], "John", "Doe", "1234567890", "123 Main St"));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (journal != null) {
+            journal.close();
+            Files.deleteIfExists(log);
+        }
+    }
+
+    @Benchmark
+    public void updatePhone() {
+        next = next + 1 == CONTACTS ? 0 : next + 1;
+        contactService.updatePhone(ids[next], (next & 1) == 0 ? "0987654321" : "1234567890");
+    }
+
+    @Benchmark
+    public void deleteAndAddContact() {
+        next = next + 1 == CONTACTS ? 0 : next + 1;
+        Contact contact = contactService.getContact(ids[next]);
+        contactService.deleteContact(ids[next]);
+        contactService.addContact(contact);
+    }
+}
@@ -0,0 +1,286 @@
+package com.grandstrand;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ContactLoadGenerator drives a ContactServer with many concurrent client
+ * connections and reports throughput and latency percentiles. The load is closed
+ * loop: each connection sends a pipeline of requests, waits for every response,
+ * and only then sends the next pipeline, so the offered load adapts to the
+ * server and latency is never measured against a backlog the generator made up.
+ * <p>
+ * The server runs in the same JVM on 127.0.0.1, preloaded with the given number
+ * of contacts. Requests are 75% GET and 15% UPDATE of a phone, spread over the
+ * preloaded contacts, and 5% ADD and 5% DELETE over as many IDs again, some of
+ * which fail with DUPLICATE_ID or NOT_FOUND. Every request's latency, from
+ * sending its pipeline to reading its response, goes into a ContactMetrics
+ * histogram after a warm-up of WARMUP_SECONDS.
+ * <p>
+ * Usage: ContactLoadGenerator [connections] [seconds] [pipeline] [contacts]
+ * <br>
+ * Both ends of every connection are in this process, so it needs two file
+ * descriptors per connection (ulimit -n). Past about 20,000 connections the
+ * clients connect from more than one loopback address (127.0.0.2 and up, as on
+ * Linux) so they don't run out of ephemeral ports. Run it on Java 21 or later
+ * for virtual threads at 10K-100K connections; older JVMs fall back to a
+ * platform thread per connection on each side.
+ */
+public final class ContactLoadGenerator {
+    private static final int DEFAULT_CONNECTIONS = 10_000;
+    private static final int DEFAULT_SECONDS = 30;
+    private static final int DEFAULT_PIPELINE = 1;
+    private static final int DEFAULT_CONTACTS = 100_000;
+    private static final int WARMUP_SECONDS = 5;
+    // A client writes its whole pipeline before reading, so the requests and responses must fit in the socket buffers
+    private static final int MAX_PIPELINE = 1000;
+    // Clients per source address, below the default ephemeral port range of about 28,000
+    private static final int CONNECTIONS_PER_ADDRESS = 20_000;
+    private static final int BUFFER_BYTES = 8192;
+
+    private static final byte[] PHONE = "\t0987654321".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CONTACT = "\tJohn\tDoe\t1234567890\t123 Main St".getBytes(StandardCharsets.US_ASCII);
+
+    private final int contacts;
+    private final int pipeline;
+    private final ContactMetrics metrics = new ContactMetrics(1);
+    private final LongAdder connectFailures = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicInteger connected = new AtomicInteger();
+    private volatile boolean recording;
+    private volatile boolean stopped;
+
+    private ContactLoadGenerator(int contacts, int pipeline) {
+        this.contacts = contacts;
+        this.pipeline = pipeline;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CONNECTIONS;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+        int pipeline = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PIPELINE;
+        int contacts = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_CONTACTS;
+        if (connections < 1 || seconds < 1 || pipeline < 1 || pipeline > MAX_PIPELINE || contacts < 1) {
+            throw new IllegalArgumentException("Arguments must be positive and the pipeline at most " + MAX_PIPELINE);
+        }
+
+        ContactService contactService = new ContactService(new HeapContactStore(2 * contacts));
+        for (int i = 0; i < contacts; i++) {
+            contactService.addContact(new Contact(Integer.toString(i), "John", "Doe", "1234567890", "123 Main St"));
+        }
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        try (ContactServer server = ContactServer.start(contactService, address, connections)) {
+            new ContactLoadGenerator(contacts, pipeline).run(server, connections, seconds);
+        }
+    }
+
+    private void run(ContactServer server, int connections, int seconds) throws InterruptedException {
+        ExecutorService clients = ContactServer.newThreadPerTaskExecutor("contact-load");
+        CountDownLatch ready = new CountDownLatch(connections);
+        CountDownLatch done = new CountDownLatch(connections);
+        CountDownLatch go = new CountDownLatch(1);
+        long connectStart = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            int client = i;
+            clients.execute(() -> {
+                try {
+                    runClient(server.getPort(), client, ready, go);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        ready.await();
+        long connectMillis = (System.nanoTime() - connectStart) / 1_000_000;
+        System.out.printf("connections=%d failed=%d connectTime=%dms virtualThreads=%b pipeline=%d contacts=%d%n",
+                connected.get(), connectFailures.sum(), connectMillis, server.usesVirtualThreads(), pipeline,
+                contacts);
+
+        go.countDown();
+        TimeUnit.SECONDS.sleep(WARMUP_SECONDS);
+        recording = true;
+        long start = System.nanoTime();
+        TimeUnit.SECONDS.sleep(seconds);
+        recording = false;
+        long elapsed = System.nanoTime() - start;
+        stopped = true;
+        done.await();
+        clients.shutdown();
+
+        ContactMetricsSnapshot snapshot = metrics.snapshot();
+        long requests = 0;
+        for (ContactMetrics.Operation operation : ContactMetrics.Operation.values()) {
+            requests += snapshot.getCount(operation);
+        }
+        System.out.printf("requests=%d throughput=%.0f/s errors=%d%n", requests, requests * 1e9 / elapsed,
+                errors.sum());
+        System.out.print(snapshot);
+    }
+
+    private void runClient(int port, int client, CountDownLatch ready, CountDownLatch go) {
+        Socket socket = new Socket();
+        try {
+            try {
+                int sourceAddress = client / CONNECTIONS_PER_ADDRESS;
+                if (sourceAddress > 0) {
+                    socket.bind(new InetSocketAddress(InetAddress.getByAddress(new byte[] {127, 0, 0,
+                            (byte) (1 + sourceAddress)}), 0));
+                }
+                socket.setTcpNoDelay(true);
+                socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+                connected.incrementAndGet();
+            } catch (IOException e) {
+                connectFailures.increment();
+                return;
+            } finally {
+                ready.countDown();
+            }
+            go.await();
+            new Client(socket.getInputStream(), socket.getOutputStream(), new SplittableRandom(client)).run();
+        } catch (IOException e) {
+            errors.increment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Done with it either way
+            }
+        }
+    }
+
+    /**
+     * Client class sending pipelines of requests on one connection until the run stops
+     */
+    private final class Client {
+        private final InputStream in;
+        private final OutputStream out;
+        private final SplittableRandom random;
+        private final byte[] request = new byte[BUFFER_BYTES];
+        private final byte[] input = new byte[BUFFER_BYTES];
+        private final ContactMetrics.Operation[] operations = new ContactMetrics.Operation[pipeline];
+        private int requestLength;
+        private int start;
+        private int end;
+
+        Client(InputStream in, OutputStream out, SplittableRandom random) {
+            this.in = in;
+            this.out = out;
+            this.random = random;
+        }
+
+        void run() throws IOException {
+            while (!stopped) {
+                long sent = System.nanoTime();
+                for (int i = 0; i < pipeline; i++) {
+                    if (requestLength + ContactServer.MAX_LINE_BYTES > request.length) {
+                        out.write(request, 0, requestLength);
+                        requestLength = 0;
+                    }
+                    operations[i] = appendRequest();
+                }
+                out.write(request, 0, requestLength);
+                out.flush();
+                requestLength = 0;
+                for (int i = 0; i < pipeline; i++) {
+                    ContactStatus status = readStatus();
+                    if (recording) {
+                        metrics.record(operations[i], status, System.nanoTime() - sent);
+                    }
+                }
+            }
+        }
+
+        private ContactMetrics.Operation appendRequest() {
+            int draw = random.nextInt(100);
+            if (draw < 75) {
+                append("GET\t");
+                append(Integer.toString(random.nextInt(contacts)));
+                request[requestLength++] = '\n';
+                return ContactMetrics.Operation.GET;
+            }
+            if (draw < 90) {
+                append("UPDATE\t");
+                append(Integer.toString(random.nextInt(contacts)));
+                append("\tPHONE");
+                append(PHONE);
+                request[requestLength++] = '\n';
+                return ContactMetrics.Operation.UPDATE_PHONE;
+            }
+            String id = Integer.toString(contacts + random.nextInt(contacts));
+            if (draw < 95) {
+                append("ADD\t");
+                append(id);
+                append(CONTACT);
+                request[requestLength++] = '\n';
+                return ContactMetrics.Operation.ADD;
+            }
+            append("DELETE\t");
+            append(id);
+            request[requestLength++] = '\n';
+            return ContactMetrics.Operation.DELETE;
+        }
+
+        private void append(String ascii) {
+            for (int i = 0; i < ascii.length(); i++) {
+                request[requestLength++] = (byte) ascii.charAt(i);
+            }
+        }
+
+        private void append(byte[] bytes) {
+            System.arraycopy(bytes, 0, request, requestLength, bytes.length);
+            requestLength += bytes.length;
+        }
+
+        /**
+         * Reads one response line
+         * @return Its status: OK, or the status after ERR
+         */
+        private ContactStatus readStatus() throws IOException {
+            while (true) {
+                for (int i = start; i < end; i++) {
+                    if (input[i] == '\n') {
+                        ContactStatus status = parseStatus(start, i);
+                        start = i + 1;
+                        return status;
+                    }
+                }
+                if (start > 0) {
+                    System.arraycopy(input, start, input, 0, end - start);
+                    end -= start;
+                    start = 0;
+                }
+                int read = in.read(input, end, input.length - end);
+                if (read < 0) {
+                    throw new IOException("Server closed the connection");
+                }
+                end += read;
+            }
+        }
+
+        private ContactStatus parseStatus(int lineStart, int lineEnd) throws IOException {
+            if (input[lineStart] == 'O') {
+                return ContactStatus.OK;
+            }
+            // "ERR\t" then a status name
+            String name = new String(input, lineStart + 4, lineEnd - lineStart - 4, StandardCharsets.US_ASCII);
+            try {
+                return ContactStatus.valueOf(name);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Unexpected response: ERR " + name, e);
+            }
+        }
+    }
+}
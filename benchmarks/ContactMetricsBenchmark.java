@@ -0,0 +1,73 @@
+package com.grandstrand;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for the cost of ContactMetrics.
+ * Runs the same ContactService calls with metrics off (sampleInterval 0), timing
+ * every call (1), and timing the default one call in 8; the difference from the
+ * off score is the instrumentation overhead per operation.
+ * recordOnly measures ContactMetrics.record by itself, without the clock reads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContactMetricsBenchmark {
+    private static final int SIZE = 10000;
+
+    @Param({"0", "1", "8"})
+    private int sampleInterval;
+
+    private ContactMetrics metrics;
+    private ContactService contactService;
+    private String[] ids;
+    private int[] draws;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        metrics = new ContactMetrics(Math.max(1, sampleInterval));
+        contactService = new ContactService(new HeapContactStore(), sampleInterval == 0 ? null : metrics);
+        ids = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            ids[i] = Integer.toString(i);
+            contactService.addContact(new Contact(ids[i], "John", "Doe", "1234567890", "123 Main St"));
+        }
+        draws = ContactKeys.draws(ContactKeys.Distribution.RANDOM, SIZE);
+    }
+
+    private String nextId() {
+        return ids[draws[next++ & (ContactKeys.DRAWS - 1)]];
+    }
+
+    @Benchmark
+    public Contact getContact() {
+        return contactService.getContact(nextId());
+    }
+
+    @Benchmark
+    public void updatePhone() {
+        contactService.updatePhone(nextId(), "0987654321");
+    }
+
+    @Benchmark
+    public void recordOnly() {
+        metrics.record(ContactMetrics.Operation.GET, ContactStatus.OK, next++ & 1023);
+    }
+}
@@ -0,0 +1,92 @@
+package com.grandstrand;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for the failure paths: lookups of missing IDs and rows with an
+ * invalid field. Each pair compares the throwing method, with the caller catching
+ * the exception, against the matching status-returning method.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContactMissBenchmark {
+    private static final int SIZE = 10_000;
+
+    private ContactService contactService;
+    private String[] missingIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contactService = new ContactService();
+        missingIds = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            contactService.addContact(new Contact(Integer.toString(i), "John", "Doe", "1234567890", "123 Main St"));
+            missingIds[i] = Integer.toString(SIZE + i);
+        }
+    }
+
+    private String nextMissingId() {
+        return missingIds[next++ % SIZE];
+    }
+
+    @Benchmark
+    public Contact getContactMissCaught() {
+        try {
+            return contactService.getContact(nextMissingId());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public Optional<Contact> findContactMiss() {
+        return contactService.findContact(nextMissingId());
+    }
+
+    @Benchmark
+    public ContactStatus updatePhoneMissCaught() {
+        try {
+            contactService.updatePhone(nextMissingId(), "0987654321");
+            return ContactStatus.OK;
+        } catch (IllegalArgumentException e) {
+            return ContactStatus.NOT_FOUND;
+        }
+    }
+
+    @Benchmark
+    public ContactStatus tryUpdatePhoneMiss() {
+        return contactService.tryUpdatePhone(nextMissingId(), "0987654321");
+    }
+
+    @Benchmark
+    public Contact newInvalidContactCaught() {
+        try {
+            return new Contact(nextMissingId(), "John", "Doe", "12345", "123 Main St");
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public ContactStatus validateInvalidContact() {
+        return ContactValidator.validate(nextMissingId(), "John", "Doe", "12345", "123 Main St");
+    }
+}
@@ -0,0 +1,88 @@
+package com.grandstrand;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for ContactService.findBySimilarName, comparing the scan of an
+ * unindexed HeapContactStore with the trigram index of IndexedContactStore.
+ * Names are built from syllables, about 2,000 distinct first names and 100,000
+ * distinct last names, and each query is a stored last name with one char
+ * replaced, searched within distance 2 for the top 10 contacts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class ContactNameSearchBenchmark {
+    private static final String[] SYLLABLES = {"an", "bel", "car", "dor", "el", "fin", "gar", "han", "is", "jo",
+        "kel", "lin", "mar", "nor", "ol", "per", "quin", "ros", "sam", "tor", "ul", "ven", "wil", "xan", "yor",
+        "zen", "ber", "son", "ton", "ley", "ford", "wick", "ston", "ham", "by", "dal", "mer", "ric", "ta", "vi"};
+    private static final int FIRST_NAMES = 2_000;
+    private static final int LAST_NAMES = 100_000;
+    private static final int QUERIES = 1024;
+
+    @Param({"10000000"})
+    private int size;
+
+    @Param({"scan", "indexed"})
+    private String store;
+
+    private ContactService contactService;
+    private String[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        String[] firstNames = names(random, FIRST_NAMES, 2);
+        String[] lastNames = names(random, LAST_NAMES, 3);
+        HeapContactStore heap = new HeapContactStore(size);
+        contactService = new ContactService("indexed".equals(store) ? new IndexedContactStore(heap) : heap);
+        for (int i = 0; i < size; i++) {
+            contactService.addContact(new Contact(Integer.toString(i), firstNames[random.nextInt(FIRST_NAMES)],
+                    lastNames[random.nextInt(LAST_NAMES)], "1234567890", "123 Main St"));
+        }
+        queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            char[] typo = lastNames[random.nextInt(LAST_NAMES)].toCharArray();
+            typo[random.nextInt(typo.length)] = (char) ('a' + random.nextInt(26));
+            queries[i] = new String(typo);
+        }
+    }
+
+    private static String[] names(Random random, int count, int syllables) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder name = new StringBuilder();
+            for (int j = 0; j < syllables; j++) {
+                name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+            names[i] = name.length() > ContactValidator.MAX_NAME_LENGTH
+                    ? name.substring(0, ContactValidator.MAX_NAME_LENGTH) : name.toString();
+        }
+        return names;
+    }
+
+    @Benchmark
+    public List<Contact> findBySimilarName() {
+        return contactService.findBySimilarName(queries[next++ & (QUERIES - 1)], 2, 10);
+    }
+}
@@ -0,0 +1,64 @@
+package com.grandstrand;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for ContactService.query over a 10M contact store.
+ * Each invocation counts the matches of one query through the whole store,
+ * once on a sequential stream and once on the parallel stream query returns,
+ * so the ratio between the two is the speedup across cores.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class ContactQueryBenchmark {
+    private static final String[] FIRST_NAMES = {"John", "Jane", "Bob", "Alice", "Joan", "Carl"};
+    private static final String[] STREETS = {"Main St", "Elm Ave", "Oak Rd", "Pine Ln"};
+
+    @Param({"10000000"})
+    private int size;
+
+    @Param({"heap", "columnar"})
+    private String store;
+
+    private ContactService contactService;
+    private ContactQuery query;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contactService = new ContactService("columnar".equals(store) ? new ColumnarContactStore(size)
+                : new HeapContactStore(size));
+        for (int i = 0; i < size; i++) {
+            String phone = Integer.toString(200 + i % 800) + "5550100";
+            contactService.addContact(new Contact(Integer.toString(i), FIRST_NAMES[i % FIRST_NAMES.length], "Doe",
+                    phone, i % 1000 + " " + STREETS[i % STREETS.length]));
+        }
+        query = new ContactQuery().namePrefix("jo").areaCode("555").addressContains("main");
+    }
+
+    @Benchmark
+    public long querySequential() {
+        return contactService.query(query).sequential().count();
+    }
+
+    @Benchmark
+    public long queryParallel() {
+        return contactService.query(query).count();
+    }
+}
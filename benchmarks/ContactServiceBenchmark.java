@@ -0,0 +1,130 @@
+package com.grandstrand;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for the ContactService lookup and update paths.
+ * Each benchmark does one operation on an existing contact, for stores of 10K,
+ * 1M and 10M contacts, with keys picked sequentially, uniformly at random or
+ * from a Zipf distribution (ContactKeys). Run it with -t to vary the thread
+ * count, or through ContactBenchmarkRunner, which also adds the GC profiler.
+ * deleteAndAddContact puts the contact back so the store size stays the same,
+ * and each thread only deletes keys from its own stripe so threads never
+ * delete each other's contact.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+@State(Scope.Benchmark)
+public class ContactServiceBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    private int size;
+
+    @Param({"SEQUENTIAL", "RANDOM", "ZIPFIAN"})
+    private ContactKeys.Distribution distribution;
+
+    private ContactService contactService;
+    private String[] ids;
+    private int[] draws;
+
+    /**
+     * Cursor class giving each benchmark thread its own place in the key sequence
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int position;
+        private int thread;
+        private int threads;
+
+        @Setup(Level.Trial)
+        public void setUp(ThreadParams params) {
+            thread = params.getThreadIndex();
+            threads = params.getThreadCount();
+            position = thread * (ContactKeys.DRAWS / threads);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contactService = new ContactService();
+        ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = Integer.toString(i);
+            contactService.addContact(new Contact(ids[i], "John", "Doe", "1234567890", "123 Main St"));
+        }
+        draws = ContactKeys.draws(distribution, size);
+    }
+
+    private String nextId(Cursor cursor) {
+        return ids[draws[cursor.position++ & (ContactKeys.DRAWS - 1)]];
+    }
+
+    /**
+     * Picks the next key and moves it into the thread's own stripe of the key space
+     */
+    private String nextOwnId(Cursor cursor) {
+        int index = draws[cursor.position++ & (ContactKeys.DRAWS - 1)];
+        index = index - index % cursor.threads + cursor.thread;
+        return ids[index < size ? index : cursor.thread];
+    }
+
+    @Benchmark
+    public Contact getContact(Cursor cursor) {
+        return contactService.getContact(nextId(cursor));
+    }
+
+    @Benchmark
+    public boolean contactExists(Cursor cursor) {
+        return contactService.contactExists(nextId(cursor));
+    }
+
+    @Benchmark
+    public void updateFirstName(Cursor cursor) {
+        contactService.updateFirstName(nextId(cursor), "Jane");
+    }
+
+    @Benchmark
+    public void updatePhone(Cursor cursor) {
+        contactService.updatePhone(nextId(cursor), "0987654321");
+    }
+
+    @Benchmark
+    public Contact deleteAndAddContact(Cursor cursor) {
+        String contactId = nextOwnId(cursor);
+        Contact contact = contactService.getContact(contactId);
+        contactService.deleteContact(contactId);
+        contactService.addContact(contact);
+        return contact;
+    }
+
+    @Benchmark
+    public void updateFourFields(Cursor cursor) {
+        String contactId = nextId(cursor);
+        contactService.updateFirstName(contactId, "Jane");
+        contactService.updateLastName(contactId, "Smith");
+        contactService.updatePhone(contactId, "0987654321");
+        contactService.updateAddress(contactId, "456 Oak Ave");
+    }
+
+    @Benchmark
+    public void updateContactPatch(Cursor cursor) {
+        contactService.updateContact(nextId(cursor), new ContactPatch().firstName("Jane").lastName("Smith")
+                .phone("0987654321").address("456 Oak Ave"));
+    }
+}